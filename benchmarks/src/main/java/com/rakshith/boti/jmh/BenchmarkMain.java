@@ -0,0 +1,36 @@
+package com.rakshith.boti.jmh;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of {@code benchmarks.jar}. Takes the usual JMH options, with two defaults of our
+ * own: results are written as JSON ({@code jmh-result.json} unless {@code -rff} says otherwise),
+ * and {@link ExamplesBenchmark} runs every script in {@code examples/} unless {@code -p script=...}
+ * picks some.
+ *
+ * <pre>java -jar benchmarks/target/benchmarks.jar [JMH options] [benchmark regex]</pre>
+ */
+public final class BenchmarkMain {
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions command = new CommandLineOptions(args);
+        if (command.shouldHelp() || command.shouldList() || command.shouldListWithParams()
+                || command.shouldListProfilers() || command.shouldListResultFormats()) {
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(command);
+        if (!command.getResultFormat().hasValue()) {
+            options.resultFormat(ResultFormatType.JSON);
+        }
+        if (!command.getParameter("script").hasValue()) {
+            options.param("script", Scripts.examples().toArray(String[]::new));
+        }
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,63 @@
+package com.rakshith.boti.jmh;
+
+import com.rakshith.boti.ast.Stmt;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Every program in {@code examples/} on every engine, end to end: {@code run} scans, parses,
+ * resolves and executes the source, {@code execute} only runs the already resolved program.
+ * {@link BenchmarkMain} replaces the {@code script} values below with the directory's contents,
+ * so new examples are picked up without touching this class.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExamplesBenchmark {
+
+    @Param({"bmi_calculator.boti", "break_even.boti", "compound_interest.boti",
+            "growth_table.boti", "loan_payment.boti", "math_toolbox.boti",
+            "primes_up_to_n.boti", "quadratic_solver.boti", "tip_and_split.boti",
+            "unit_converter.boti"})
+    public String script;
+
+    @Param({"tree", "closures", "jit", "nodes", "vm"})
+    public String engine;
+
+    private String source;
+    private List<Stmt> statements;
+    private Consumer<List<Stmt>> run;
+
+    @Setup
+    public void setUp() {
+        source = Scripts.read(script);
+        statements = Scripts.compile(source);
+        run = Scripts.engine(engine);
+    }
+
+    @Benchmark
+    public void run() {
+        run.accept(Scripts.compile(source));
+    }
+
+    @Benchmark
+    public void execute() {
+        run.accept(statements);
+    }
+}
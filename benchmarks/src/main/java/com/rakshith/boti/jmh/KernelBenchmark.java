@@ -0,0 +1,98 @@
+package com.rakshith.boti.jmh;
+
+import com.rakshith.boti.ast.Stmt;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Small programs that each stress one part of an engine, run on every engine. Kernels are
+ * compiled once; each invocation runs the program on a fresh engine, so the VM's bytecode
+ * compilation and the JIT's warm-up are part of the measured time, as they are for a script.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class KernelBenchmark {
+
+    private static final Map<String, String> KERNELS = Map.of(
+            "arithmetic", """
+                    var sum = 0;
+                    for (var i = 0; i < 100000; i = i + 1) {
+                      sum = sum + i * 2 - i / 4;
+                    }
+                    print sum;
+                    """,
+            "calls", """
+                    fun fib(n) {
+                      if (n < 2) return n;
+                      return fib(n - 1) + fib(n - 2);
+                    }
+                    print fib(20);
+                    """,
+            "scopes", """
+                    var total = 0;
+                    {
+                      var a = 1;
+                      {
+                        var b = 2;
+                        {
+                          var c = 3;
+                          {
+                            var d = 4;
+                            for (var i = 0; i < 20000; i = i + 1) {
+                              {
+                                var e = i;
+                                { total = total + a + b + c + d + e; }
+                              }
+                            }
+                          }
+                        }
+                      }
+                    }
+                    print total;
+                    """,
+            "strings", """
+                    var s = "";
+                    for (var i = 0; i < 2000; i = i + 1) {
+                      s = s + "x";
+                    }
+                    print s;
+                    """);
+
+    @Param({"arithmetic", "calls", "scopes", "strings"})
+    public String kernel;
+
+    @Param({"tree", "closures", "jit", "nodes", "vm"})
+    public String engine;
+
+    private List<Stmt> statements;
+    private Consumer<List<Stmt>> run;
+
+    @Setup
+    public void setUp() {
+        statements = Scripts.compile(KERNELS.get(kernel));
+        run = Scripts.engine(engine);
+    }
+
+    @Benchmark
+    public void run() {
+        run.accept(statements);
+    }
+}
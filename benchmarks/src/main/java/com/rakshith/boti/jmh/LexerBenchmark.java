@@ -0,0 +1,74 @@
+package com.rakshith.boti.jmh;
+
+import com.rakshith.boti.HadError;
+import com.rakshith.boti.lexer.Scanner;
+import com.rakshith.boti.lexer.TokenStream;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scanner throughput over the examples repeated to {@code kilobytes}. Besides scans per second,
+ * the {@code bytes} and {@code tokens} counters report the rates in source bytes and tokens;
+ * run with {@code -prof gc} for the allocation per scan.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LexerBenchmark {
+
+    @Param({"1024"})
+    public int kilobytes;
+
+    private final HadError errors = new HadError(new PrintStream(OutputStream.nullOutputStream()));
+    private String source;
+    private int bytes;
+    private int tokens;
+
+    /** Per-iteration totals; JMH divides them by the iteration time. */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Rates {
+        public long bytes;
+        public long tokens;
+
+        @Setup(Level.Iteration)
+        public void clear() {
+            bytes = 0;
+            tokens = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        source = Scripts.corpus(kilobytes << 10);
+        bytes = source.getBytes(StandardCharsets.UTF_8).length;
+        tokens = new Scanner(source, errors).scanTokens().size();
+    }
+
+    @Benchmark
+    public TokenStream scan(Rates rates) {
+        TokenStream stream = new Scanner(source, errors).scanTokens();
+        rates.bytes += bytes;
+        rates.tokens += tokens;
+        return stream;
+    }
+}
@@ -0,0 +1,60 @@
+package com.rakshith.boti.jmh;
+
+import com.rakshith.boti.HadError;
+import com.rakshith.boti.ast.Stmt;
+import com.rakshith.boti.interpreter.Resolver;
+import com.rakshith.boti.lexer.Scanner;
+import com.rakshith.boti.lexer.TokenStream;
+import com.rakshith.boti.parser.Parser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parser throughput over the examples repeated to {@code kilobytes}, from tokens already
+ * scanned: {@code parse} builds the AST, {@code parseAndResolve} also runs the scope pass.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParserBenchmark {
+
+    @Param({"256"})
+    public int kilobytes;
+
+    private final HadError errors = new HadError(new PrintStream(OutputStream.nullOutputStream()));
+    private TokenStream tokens;
+
+    @Setup
+    public void setUp() {
+        tokens = new Scanner(Scripts.corpus(kilobytes << 10), errors).scanTokens();
+        new Parser(tokens, errors).parse();
+        if (errors.hadError()) throw new IllegalStateException("Corpus does not parse");
+    }
+
+    @Benchmark
+    public List<Stmt> parse() {
+        return new Parser(tokens, errors).parse();
+    }
+
+    @Benchmark
+    public List<Stmt> parseAndResolve() {
+        return new Resolver(errors).resolve(new Parser(tokens, errors).parse());
+    }
+}
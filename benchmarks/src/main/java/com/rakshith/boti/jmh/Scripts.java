@@ -0,0 +1,78 @@
+package com.rakshith.boti.jmh;
+
+import com.rakshith.boti.BotiEngine;
+import com.rakshith.boti.ast.Stmt;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * What the benchmarks share: finding and compiling scripts, the engines by their
+ * {@code --engine} names, and a sink for the output the scripts print.
+ */
+final class Scripts {
+
+    /** Directory of example programs; benchmarks run from the repository root by default. */
+    static final Path EXAMPLES = Path.of(System.getProperty("boti.examples", "examples"));
+
+    private static final PrintStream SINK = new PrintStream(OutputStream.nullOutputStream());
+
+    private Scripts() { }
+
+    /** Every {@code .boti} file in {@link #EXAMPLES}, by file name. */
+    static List<String> examples() {
+        try (Stream<Path> files = Files.list(EXAMPLES)) {
+            return files.map(p -> p.getFileName().toString()).filter(name -> name.endsWith(".boti")).sorted().toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot list " + EXAMPLES.toAbsolutePath(), e);
+        }
+    }
+
+    static String read(String example) {
+        try {
+            return Files.readString(EXAMPLES.resolve(example), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** The examples concatenated and repeated to at least {@code size} characters. */
+    static String corpus(int size) {
+        StringBuilder corpus = new StringBuilder();
+        for (String example : examples()) {
+            corpus.append(read(example)).append('\n');
+        }
+        if (corpus.isEmpty()) throw new IllegalStateException("No .boti scripts in " + EXAMPLES.toAbsolutePath());
+        StringBuilder source = new StringBuilder(size + corpus.length());
+        while (source.length() < size) {
+            source.append(corpus);
+        }
+        return source.toString();
+    }
+
+    /** Scans, parses and resolves {@code source}, which must compile. */
+    static List<Stmt> compile(String source) {
+        List<Stmt> statements = BotiEngine.compile(source, SINK);
+        if (statements == null) throw new IllegalArgumentException("Script does not compile");
+        return statements;
+    }
+
+    /**
+     * Runs statements in a fresh execution of the engine {@code boti --engine=name} selects, with
+     * its output discarded.
+     */
+    static Consumer<List<Stmt>> engine(String name) {
+        BotiEngine.Kind kind = BotiEngine.Kind.named(name);
+        if (kind == null) throw new IllegalArgumentException("Unknown engine: " + name);
+        BotiEngine engine = new BotiEngine(kind);
+        return statements -> engine.newExecution(SINK, SINK).execute(statements);
+    }
+}
@@ -19,11 +19,15 @@ if exist "%NATIVE%" (
   exit /b
 )
 if not defined BOTI_JAVA_OPTS set "BOTI_JAVA_OPTS=-XX:TieredStopAtLevel=1 -Xms16m"
+REM The server is long-lived, so it gets the full JIT (optional: set BOTI_SERVER_JAVA_OPTS)
+if "%~1"=="--server" set "BOTI_JAVA_OPTS=%BOTI_SERVER_JAVA_OPTS%"
+REM The client hands scripts to a running "boti --server", or runs them itself if there is none
+set "CLIENT=com.rakshith.boti.server.BotiClient"
 if exist "%JAR%" (
   if exist "%BUNDLED_JAVA%" (
-    "%BUNDLED_JAVA%" %BOTI_JAVA_OPTS% -jar "%JAR%" %*
+    "%BUNDLED_JAVA%" %BOTI_JAVA_OPTS% -cp "%JAR%" %CLIENT% %*
   ) else (
-    java %BOTI_JAVA_OPTS% -jar "%JAR%" %*
+    java %BOTI_JAVA_OPTS% -cp "%JAR%" %CLIENT% %*
   )
   exit /b
 )
@@ -1,19 +1,28 @@
 package com.rakshith.boti;
 
-import com.rakshith.boti.lexer.Scanner;
-import com.rakshith.boti.lexer.Token;
-import com.rakshith.boti.parser.Parser;
 import com.rakshith.boti.ast.Stmt;
+import com.rakshith.boti.cache.ScriptCache;
+import com.rakshith.boti.events.Events;
+import com.rakshith.boti.events.ScriptEvent;
+import com.rakshith.boti.interpreter.CallDepth;
 import com.rakshith.boti.interpreter.Interpreter;
+import com.rakshith.boti.interpreter.Profiler;
+import com.rakshith.boti.interpreter.RuntimeStats;
+import com.rakshith.boti.server.BotiServer;
 
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.nio.file.Path;
 import java.util.List;
 
+import javax.management.JMException;
+import javax.management.ObjectName;
+
 import org.jline.reader.EndOfFileException;
 import org.jline.reader.LineReader;
 import org.jline.reader.LineReaderBuilder;
@@ -23,30 +32,177 @@ import org.jline.terminal.TerminalBuilder;
 
 /**
  * Main entry point for the Boti interpreter.
+ * {@code --engine=vm} runs scripts on the bytecode VM, {@code --engine=nodes} on the self-specializing
+ * node tree and {@code --engine=closures} on closure-compiled lambdas; {@code --engine=jit} is the
+ * tree-walker with hot functions compiled to JVM bytecode. The plain tree-walker stays the default
+ * and reference. {@code --profile} and {@code --stats} run a script on the tree-walker
+ * under the {@link Profiler} and {@link RuntimeStats}. A script, or a REPL session, runs as one
+ * {@link Execution} of the chosen {@link BotiEngine}. {@code --server} starts the
+ * {@link BotiServer} daemon instead, which runs the command lines clients forward to it.
  */
 public final class Boti {
 
-    private static final Interpreter interpreter = new Interpreter();
+    private final Path directory;
+    private final PrintStream out;
+    private final PrintStream err;
+    private BotiEngine.Kind engine = BotiEngine.Kind.TREE;
+    private boolean profile;
+    private boolean stats;
+    private Path foldedStacks;
 
-    public static void main(String[] args) throws IOException {
-        if (args.length > 1) {
-            System.out.println("Usage: boti [script]");
-            System.exit(64);
-        } else if (args.length == 1) {
-            runFile(args[0]);
-        } else {
-            runPrompt();
+    private Boti(Path directory, PrintStream out, PrintStream err) {
+        this.directory = directory;
+        this.out = out;
+        this.err = err;
+    }
+
+    /**
+     * Runs on a thread whose stack fits {@link CallDepth#LIMIT} nested calls on every engine, so
+     * deep recursion is cut off with a runtime error rather than a {@link StackOverflowError}.
+     * Anything thrown on that thread other than an I/O error is a bug in boti: it is printed and
+     * the process exits with 70, like a runtime error, rather than 0.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length == 1 && args[0].equals("--server")) {
+            System.exit(BotiServer.serve(BotiServer.socket()));
+        }
+        int[] status = new int[1];
+        Throwable[] failure = new Throwable[1];
+        Thread main = new Thread(null, () -> {
+            try {
+                status[0] = run(args, Path.of(""), System.out, System.err, true);
+            } catch (Throwable e) {
+                failure[0] = e;
+            }
+        }, "boti", CallDepth.STACK_BYTES);
+        main.start();
+        main.join();
+        if (failure[0] instanceof IOException e) throw e;
+        if (failure[0] != null) {
+            System.out.flush();
+            failure[0].printStackTrace();
+            System.exit(70);
+        }
+        if (status[0] != 0) System.exit(status[0]);
+    }
+
+    /**
+     * Runs a command line as {@code boti} does and returns its exit status. Paths are relative to
+     * {@code directory}, and output goes to {@code out} and {@code err}. Without a script it reads
+     * REPL lines from stdin if {@code interactive}, else prints the usage. Call it on a thread with
+     * {@link CallDepth#STACK_BYTES} of stack.
+     */
+    public static int run(String[] args, Path directory, PrintStream out, PrintStream err, boolean interactive)
+            throws IOException {
+        return new Boti(directory, out, err).start(args, interactive);
+    }
+
+    private int start(String[] args, boolean interactive) throws IOException {
+        String script = null;
+        for (String arg : args) {
+            if (arg.startsWith("--engine=")) {
+                engine = BotiEngine.Kind.named(arg.substring("--engine=".length()));
+                if (engine == null) return usage();
+            } else if (arg.equals("--stats")) {
+                stats = true;
+            } else if (arg.equals("--profile")) {
+                profile = true;
+            } else if (arg.startsWith("--profile=")) {
+                profile = true;
+                foldedStacks = directory.resolve(arg.substring("--profile=".length()));
+            } else if (script == null && !arg.startsWith("--")) {
+                script = arg;
+            } else {
+                return usage();
+            }
         }
+        // The profiler and counters hook into the tree-walker, and report on a script.
+        if ((profile || stats) && (engine != BotiEngine.Kind.TREE || script == null)) return usage();
+        if (script != null) return runFile(script);
+        if (!interactive) return usage();
+        runPrompt();
+        return 0;
     }
 
-    private static void runFile(String path) throws IOException {
-        byte[] bytes = Files.readAllBytes(Paths.get(path));
-        run(new String(bytes, StandardCharsets.UTF_8));
-        if (HadError.hadError()) System.exit(65);
-        if (HadError.hadRuntimeError()) System.exit(70);
+    private int usage() {
+        out.println("Usage: boti [--engine=tree|closures|jit|vm|nodes] [script]\n"
+                + "       boti [--profile[=stacks.folded]] [--stats] script\n"
+                + "       boti --server");
+        return 64;
     }
 
-    private static void runPrompt() throws IOException {
+    /** Scripts are looked up in the {@link ScriptCache} first, so an unchanged script is not parsed again. */
+    private int runFile(String path) throws IOException {
+        byte[] bytes = Files.readAllBytes(directory.resolve(path));
+        Execution execution = new BotiEngine(engine).newExecution(out, err);
+        ScriptCache cache = ScriptCache.open();
+        List<Stmt> statements = cache == null ? null : cache.load(bytes);
+        if (statements == null) {
+            statements = execution.compile(new String(bytes, StandardCharsets.UTF_8));
+            if (statements != null && cache != null) cache.store(bytes, statements);
+        }
+        if (statements != null) {
+            ScriptEvent event = Events.recording() ? new ScriptEvent() : null;
+            if (event != null) event.begin();
+            if (profile || stats) {
+                instrumented(statements, new String(bytes, StandardCharsets.UTF_8), execution.errors());
+            } else {
+                execution.execute(statements);
+            }
+            if (event != null) {
+                event.end();
+                if (event.shouldCommit()) {
+                    event.script = path;
+                    event.engine = engine.name().toLowerCase();
+                    event.commit();
+                }
+            }
+        }
+        if (execution.errors().hadError()) return 65;
+        if (execution.errors().hadRuntimeError()) return 70;
+        return 0;
+    }
+
+    /**
+     * Runs on a tree-walker with the profiler and/or the counters, then prints their reports to
+     * stderr. The counters are also published over JMX while the script runs, and taken down
+     * after it, so the next run in the same process (under {@code --server}) can publish its own.
+     */
+    private void instrumented(List<Stmt> statements, String source, HadError errors) throws IOException {
+        Profiler profiler = profile ? new Profiler() : null;
+        RuntimeStats counters = stats ? new RuntimeStats() : null;
+        ObjectName published = null;
+        if (counters != null) {
+            try {
+                published = ManagementFactory.getPlatformMBeanServer()
+                        .registerMBean(counters, new ObjectName(RuntimeStats.OBJECT_NAME)).getObjectName();
+            } catch (JMException e) {
+                // Another run's counters are up or JMX is unavailable: the summary below still works.
+            }
+        }
+        try {
+            new Interpreter(profiler, counters, out, errors).interpret(statements);
+        } finally {
+            if (published != null) {
+                try {
+                    ManagementFactory.getPlatformMBeanServer().unregisterMBean(published);
+                } catch (JMException e) {
+                    // Already gone.
+                }
+            }
+        }
+        out.flush();
+        if (profiler != null) {
+            profiler.stop();
+            profiler.report(err, source);
+            if (foldedStacks != null) profiler.writeFolded(foldedStacks);
+        }
+        if (counters != null) counters.report(err);
+    }
+
+    /** The lines of a session share one execution, so each sees the globals of the ones before. */
+    private void runPrompt() throws IOException {
+        Execution execution = new BotiEngine(engine).newExecution(out, err);
         Terminal terminal = null;
         try {
             terminal = TerminalBuilder.builder().system(true).build();
@@ -68,8 +224,8 @@ public final class Boti {
                         break;    // Ctrl+D: exit
                     }
                     if (line == null) break;
-                    run(line.trim());
-                    HadError.reset();
+                    execution.run(line.trim());
+                    execution.errors().reset();
                 }
             } finally {
                 try { terminal.close(); } catch (IOException ignored) { }
@@ -78,25 +234,13 @@ public final class Boti {
             try (var reader = new InputStreamReader(System.in, StandardCharsets.UTF_8);
                  var bufferedReader = new BufferedReader(reader)) {
                 for (;;) {
-                    System.out.print("> ");
+                    out.print("> ");
                     String line = bufferedReader.readLine();
                     if (line == null) break;
-                    run(line);
-                    HadError.reset();
+                    execution.run(line);
+                    execution.errors().reset();
                 }
             }
         }
     }
-
-    private static void run(String source) {
-        Scanner scanner = new Scanner(source);
-        List<Token> tokens = scanner.scanTokens();
-
-        Parser parser = new Parser(tokens);
-        List<Stmt> statements = parser.parse();
-
-        if (HadError.hadError()) return;
-
-        interpreter.interpret(statements);
-    }
 }
@@ -0,0 +1,69 @@
+package com.rakshith.boti;
+
+import com.rakshith.boti.ast.Stmt;
+import com.rakshith.boti.interpreter.Resolver;
+import com.rakshith.boti.lexer.Scanner;
+import com.rakshith.boti.parser.Parser;
+
+import java.io.PrintStream;
+import java.util.List;
+
+/**
+ * Which engine runs scripts. An engine holds no state of its own, so one instance may serve any
+ * number of threads: each run gets an {@link Execution} with its own globals, error state and
+ * output, and nothing one execution does is visible to another.
+ *
+ * <p>A program made by {@link #compile} is immutable apart from the inline caches on its nodes,
+ * which tolerate races, so it may be executed by many executions at once, on any threads,
+ * including virtual ones.
+ */
+public final class BotiEngine {
+
+    public enum Kind {
+        TREE, CLOSURES, JIT, VM, NODES;
+
+        /** The engine {@code boti --engine=name} selects, or null. */
+        public static Kind named(String name) {
+            return switch (name) {
+                case "tree" -> TREE;
+                case "closures" -> CLOSURES;
+                case "jit" -> JIT;
+                case "vm" -> VM;
+                case "nodes" -> NODES;
+                default -> null;
+            };
+        }
+    }
+
+    private final Kind kind;
+
+    public BotiEngine(Kind kind) {
+        this.kind = kind;
+    }
+
+    public Kind kind() {
+        return kind;
+    }
+
+    /** A fresh execution writing {@code print} output to {@code out} and errors to {@code err}. */
+    public Execution newExecution(PrintStream out, PrintStream err) {
+        return new Execution(kind, out, err);
+    }
+
+    /**
+     * Scans, parses and resolves {@code source} as a whole program, which any fresh execution can
+     * run; returns null after reporting a compile error to {@code err}.
+     */
+    public static List<Stmt> compile(String source, PrintStream err) {
+        HadError errors = new HadError(err);
+        List<Stmt> statements = compile(source, errors, new Resolver(errors));
+        return errors.hadError() ? null : statements;
+    }
+
+    static List<Stmt> compile(String source, HadError errors, Resolver resolver) {
+        List<Stmt> statements = new Parser(new Scanner(source, errors).scanTokens(), errors).parse();
+        if (errors.hadError()) return null;
+        statements = resolver.resolve(statements);
+        return errors.hadError() ? null : statements;
+    }
+}
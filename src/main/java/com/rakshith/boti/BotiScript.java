@@ -0,0 +1,174 @@
+package com.rakshith.boti;
+
+import com.rakshith.boti.ast.Stmt;
+import com.rakshith.boti.interpreter.BotiArray;
+import com.rakshith.boti.interpreter.BotiMap;
+import com.rakshith.boti.interpreter.Resolver;
+import com.rakshith.boti.interpreter.Rope;
+import com.rakshith.boti.lexer.Scanner;
+import com.rakshith.boti.lexer.Token;
+import com.rakshith.boti.lexer.TokenType;
+import com.rakshith.boti.parser.Parser;
+import com.rakshith.boti.vm.CompiledFunction;
+import com.rakshith.boti.vm.Compiler;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A script compiled once for embedding and then evaluated any number of times, on any threads.
+ * Each evaluation runs in a fresh {@link Execution} of the same resolved program, so none of them
+ * scans, parses or resolves again, and on the VM none compiles bytecode either.
+ *
+ * <p>The names a script uses without defining them are its inputs, bound per evaluation from a
+ * map or through {@link Inputs}; names the script never mentions are ignored. Numbers bind as
+ * doubles, strings, booleans and null as themselves, and arrays and maps by reference. The result
+ * is the value of the script's last statement when that is an expression statement, else null.
+ * {@code print} output is discarded unless a stream is given, and errors are thrown as
+ * {@link ScriptError}s.
+ *
+ * <pre>
+ * BotiScript total = BotiScript.compile(new BotiEngine(BotiEngine.Kind.VM), "price * (1 + tax);");
+ * total.eval(Map.of("price", 100, "tax", 0.2));             // 120.0
+ * total.inputs().set("price", 80).set("tax", 0.25).eval();  // 100.0
+ * </pre>
+ */
+public final class BotiScript {
+
+    /** Holds the result; not an identifier, so no script can name it. */
+    private static final String RESULT = "<result>";
+    private static final PrintStream DISCARD = new PrintStream(OutputStream.nullOutputStream());
+    private static final Object UNSET = new Object();
+
+    private final BotiEngine engine;
+    private final List<Stmt> statements;
+    private final CompiledFunction compiled;
+    private final Map<String, Integer> slots;
+    private final int result;
+
+    private BotiScript(BotiEngine engine, List<Stmt> statements, Map<String, Integer> slots) {
+        this.engine = engine;
+        this.statements = statements;
+        this.compiled = engine.kind() == BotiEngine.Kind.VM ? new Compiler().compile(statements) : null;
+        this.slots = slots;
+        this.result = slots.getOrDefault(RESULT, -1);
+    }
+
+    /** Compiles {@code source} for {@code engine}; throws the first compile error. */
+    public static BotiScript compile(BotiEngine engine, String source) {
+        HadError errors = new HadError(DISCARD);
+        Resolver resolver = new Resolver(errors);
+        List<Stmt> statements = new Parser(new Scanner(source, errors).scanTokens(), errors).parse();
+        if (!errors.hadError()) statements = resolver.resolve(withResult(statements));
+        if (errors.hadError()) throw errors.error();
+        return new BotiScript(engine, statements, Map.copyOf(resolver.globals()));
+    }
+
+    /** Turns a last statement {@code e;} into {@code var <result> = e;}. */
+    private static List<Stmt> withResult(List<Stmt> statements) {
+        if (statements.isEmpty() || !(statements.getLast() instanceof Stmt.Expression last)) return statements;
+        List<Stmt> rewritten = new ArrayList<>(statements);
+        Token name = new Token(TokenType.IDENTIFIER, RESULT, RESULT, 0);
+        rewritten.set(rewritten.size() - 1, new Stmt.Var(name, last.expression()));
+        return rewritten;
+    }
+
+    public Object eval() {
+        return eval(Map.of());
+    }
+
+    public Object eval(Map<String, ?> bindings) {
+        return eval(bindings, DISCARD);
+    }
+
+    /** Evaluates with {@code print} writing to {@code out}. */
+    public Object eval(Map<String, ?> bindings, PrintStream out) {
+        Execution execution = engine.newExecution(out, DISCARD);
+        for (Map.Entry<String, ?> binding : bindings.entrySet()) {
+            Integer slot = slots.get(binding.getKey());
+            if (slot != null) execution.define(slot, toBoti(binding.getKey(), binding.getValue()));
+        }
+        return run(execution);
+    }
+
+    /** A fresh set of inputs, all unbound. */
+    public Inputs inputs() {
+        return new Inputs();
+    }
+
+    private Object run(Execution execution) {
+        execution.execute(statements, compiled);
+        ScriptError error = execution.errors().error();
+        if (error != null) throw error;
+        if (result < 0) return null;
+        Object value = execution.global(result);
+        return value instanceof Rope rope ? rope.toString() : value;
+    }
+
+    private static Object toBoti(String name, Object value) {
+        return switch (value) {
+            case null -> null;
+            case Double d -> d;
+            case Number n -> n.doubleValue();
+            case String s -> s;
+            case Boolean b -> b;
+            case BotiArray array -> array;
+            case BotiMap map -> map;
+            default -> throw new IllegalArgumentException(
+                    "Cannot bind '" + name + "' to a " + value.getClass().getName() + ".");
+        };
+    }
+
+    /**
+     * Input values looked up by name once, when they are set, and kept by global slot, so that
+     * evaluating again with some of them changed costs no map lookups. Not thread-safe: use one
+     * per thread, against the one shared script.
+     */
+    public final class Inputs {
+
+        private final Object[] values = new Object[slots.size()];
+
+        private Inputs() {
+            Arrays.fill(values, UNSET);
+        }
+
+        public Inputs set(String name, double value) {
+            return bind(name, value);
+        }
+
+        public Inputs set(String name, boolean value) {
+            return bind(name, value);
+        }
+
+        public Inputs set(String name, String value) {
+            return bind(name, value);
+        }
+
+        /** Binds any value {@link BotiScript} accepts. */
+        public Inputs set(String name, Object value) {
+            return bind(name, toBoti(name, value));
+        }
+
+        private Inputs bind(String name, Object value) {
+            Integer slot = slots.get(name);
+            if (slot != null) values[slot] = value;
+            return this;
+        }
+
+        public Object eval() {
+            return eval(DISCARD);
+        }
+
+        public Object eval(PrintStream out) {
+            Execution execution = engine.newExecution(out, DISCARD);
+            for (int slot = 0; slot < values.length; slot++) {
+                if (values[slot] != UNSET) execution.define(slot, values[slot]);
+            }
+            return run(execution);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.rakshith.boti;
+
+import com.rakshith.boti.ast.Stmt;
+import com.rakshith.boti.interpreter.Environment;
+import com.rakshith.boti.interpreter.Interpreter;
+import com.rakshith.boti.interpreter.Resolver;
+import com.rakshith.boti.nodes.NodeInterpreter;
+import com.rakshith.boti.vm.CompiledFunction;
+import com.rakshith.boti.vm.Compiler;
+import com.rakshith.boti.vm.VM;
+
+import java.io.PrintStream;
+import java.util.List;
+
+/**
+ * One run of the interpreter: the globals, error state and output of a script, or of a REPL
+ * session across its lines. An execution is confined to the thread that uses it; run concurrent
+ * scripts on executions of their own, made by {@link BotiEngine#newExecution}.
+ *
+ * <p>Globals are numbered by the execution's resolver, so {@link #compile} keeps the slots of
+ * earlier lines. A program resolved elsewhere, by {@link BotiEngine#compile} or the script
+ * cache, numbers its globals from scratch and must be the first thing a fresh execution runs.
+ * Deep recursion needs a thread with {@link com.rakshith.boti.interpreter.CallDepth#STACK_BYTES}
+ * of stack to end in a runtime error rather than a {@link StackOverflowError}.
+ */
+public final class Execution {
+
+    private final HadError errors;
+    // Made by the first compile: an embedded script runs a program resolved ahead of time.
+    private Resolver resolver;
+    // Exactly one engine is set: the tree-walker also runs closures and the JIT.
+    private final Interpreter interpreter;
+    private final NodeInterpreter nodes;
+    private final VM vm;
+
+    Execution(BotiEngine.Kind kind, PrintStream out, PrintStream err) {
+        this.errors = new HadError(err);
+        this.interpreter = switch (kind) {
+            case TREE -> new Interpreter(out, errors);
+            case CLOSURES -> new Interpreter(Interpreter.Strategy.CLOSURES, out, errors);
+            case JIT -> new Interpreter(Interpreter.Strategy.TREE_WALK, true, out, errors);
+            case NODES, VM -> null;
+        };
+        this.nodes = kind == BotiEngine.Kind.NODES ? new NodeInterpreter(out, errors) : null;
+        this.vm = kind == BotiEngine.Kind.VM ? new VM(out, errors) : null;
+    }
+
+    public HadError errors() {
+        return errors;
+    }
+
+    /** Scans, parses and resolves {@code source}; returns null after reporting a compile error. */
+    public List<Stmt> compile(String source) {
+        if (resolver == null) resolver = new Resolver(errors);
+        return BotiEngine.compile(source, errors, resolver);
+    }
+
+    /** Runs resolved statements; a runtime error is reported and ends them. */
+    public void execute(List<Stmt> statements) {
+        execute(statements, null);
+    }
+
+    /** {@code compiled}, if not null, is the VM bytecode of {@code statements}, compiled ahead. */
+    void execute(List<Stmt> statements, CompiledFunction compiled) {
+        if (vm != null) {
+            vm.reserveGlobals(Resolver.globalCount(statements));
+            vm.interpret(compiled != null ? compiled : new Compiler().compile(statements));
+        } else if (nodes != null) {
+            nodes.interpret(statements);
+        } else {
+            interpreter.interpret(statements);
+        }
+    }
+
+    /** Compiles and runs {@code source}. */
+    public void run(String source) {
+        List<Stmt> statements = compile(source);
+        if (statements != null) execute(statements);
+    }
+
+    void define(int slot, Object value) {
+        if (vm != null) {
+            vm.defineGlobal(slot, value);
+        } else {
+            globals().defineGlobal(slot, value);
+        }
+    }
+
+    /** The value of a global, or null if it was never defined. */
+    Object global(int slot) {
+        return vm != null ? vm.global(slot) : globals().global(slot);
+    }
+
+    private Environment globals() {
+        return nodes != null ? nodes.globals() : interpreter.globals();
+    }
+}
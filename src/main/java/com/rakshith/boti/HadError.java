@@ -1,29 +1,52 @@
 package com.rakshith.boti;
 
+import com.rakshith.boti.events.Events;
+import com.rakshith.boti.events.RuntimeErrorEvent;
+
+import java.io.PrintStream;
+
 /**
- * Tracks and reports compile-time and runtime errors (for exit codes and stderr).
+ * Error state of one {@link Execution}: reports compile-time and runtime errors to its error
+ * stream and remembers them (for exit codes). Runtime errors are also recorded as a
+ * {@link RuntimeErrorEvent} while Flight Recorder is running. The first error is also kept as a
+ * {@link ScriptError}, for embedders that throw it rather than print it.
  */
 public final class HadError {
-    private static boolean hadError;
-    private static boolean hadRuntimeError;
+    private final PrintStream err;
+    private boolean hadError;
+    private boolean hadRuntimeError;
+    private ScriptError first;
+
+    public HadError(PrintStream err) {
+        this.err = err;
+    }
+
+    public boolean hadError() { return hadError; }
+    public boolean hadRuntimeError() { return hadRuntimeError; }
+    public void reset() { hadError = false; hadRuntimeError = false; first = null; }
 
-    public static void setError() { hadError = true; }
-    public static void setRuntimeError() { hadRuntimeError = true; }
-    public static boolean hadError() { return hadError; }
-    public static boolean hadRuntimeError() { return hadRuntimeError; }
-    public static void reset() { hadError = false; hadRuntimeError = false; }
+    /** The first error reported since the last reset, or null. */
+    public ScriptError error() { return first; }
 
-    public static void report(int line, String where, String message) {
-        System.err.println("[line " + line + "] Error" + where + ": " + message);
+    public void report(int line, String where, String message) {
+        err.println("[line " + line + "] Error" + where + ": " + message);
         hadError = true;
+        if (first == null) first = new ScriptError("Error" + where + ": " + message, line);
     }
 
-    public static void report(int line, String message) {
+    public void report(int line, String message) {
         report(line, "", message);
     }
 
-    public static void reportRuntime(String message, int line) {
-        System.err.println(message + "\n[line " + line + "]");
+    public void reportRuntime(String message, int line) {
+        err.println(message + "\n[line " + line + "]");
         hadRuntimeError = true;
+        if (first == null) first = new ScriptError(message, line);
+        if (Events.recording()) {
+            RuntimeErrorEvent event = new RuntimeErrorEvent();
+            event.message = message;
+            event.line = line;
+            event.commit();
+        }
     }
 }
@@ -0,0 +1,21 @@
+package com.rakshith.boti;
+
+/**
+ * A compile or runtime error of an embedded script, thrown by {@link BotiScript} with the message
+ * the command line would print.
+ */
+public final class ScriptError extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int line;
+
+    public ScriptError(String message, int line) {
+        super(message);
+        this.line = line;
+    }
+
+    public int line() {
+        return line;
+    }
+}
@@ -0,0 +1,35 @@
+package com.rakshith.boti.ast;
+
+/**
+ * Inline cache for one call expression: the call targets an engine has already validated there.
+ * Targets are compared by identity; once {@link #LIMIT} targets are cached, further
+ * ones (a megamorphic site) always take the engine's slow path. The targets are function
+ * declarations, which every execution of the AST shares.
+ *
+ * <p>Several threads may run the AST at once. A racing {@link #add} can lose a target or a reader
+ * can miss one, which only costs a trip through the slow path; {@code size} is read once so that a
+ * race never indexes past the array.
+ */
+public final class CallSite {
+
+    public static final int LIMIT = 4;
+
+    private final Object[] targets = new Object[LIMIT];
+    private int size;
+
+    public boolean contains(Object target) {
+        int size = this.size;
+        for (int i = 0; i < size; i++) {
+            if (targets[i] == target) return true;
+        }
+        return false;
+    }
+
+    public void add(Object target) {
+        int size = this.size;
+        if (size < LIMIT && !contains(target)) {
+            targets[size] = target;
+            this.size = size + 1;
+        }
+    }
+}
@@ -6,8 +6,9 @@ import com.rakshith.boti.lexer.Token;
  * Base type for all expression AST nodes.
  */
 public sealed interface Expr permits
-        Expr.Assign, Expr.Binary, Expr.Call, Expr.Grouping,
-        Expr.Literal, Expr.Logical, Expr.Unary, Expr.Variable {
+        Expr.ArrayLiteral, Expr.Assign, Expr.Binary, Expr.Call, Expr.Get, Expr.Grouping, Expr.Index,
+        Expr.Literal, Expr.Logical, Expr.MapLiteral, Expr.Set, Expr.SetIndex, Expr.Super, Expr.Unary,
+        Expr.Variable {
 
     <R> R accept(ExprVisitor<R> visitor);
 
@@ -27,11 +28,14 @@ public sealed interface Expr permits
         @Override public <R> R accept(ExprVisitor<R> visitor) { return visitor.visitUnary(this); }
     }
 
-    record Variable(Token name) implements Expr {
+    /** Variable read; {@code depth} frames up from the current one, at index {@code slot}. */
+    record Variable(Token name, int depth, int slot) implements Expr {
+        public Variable(Token name) { this(name, Scope.UNRESOLVED, Scope.UNRESOLVED); }
         @Override public <R> R accept(ExprVisitor<R> visitor) { return visitor.visitVariable(this); }
     }
 
-    record Assign(Token name, Expr value) implements Expr {
+    record Assign(Token name, Expr value, int depth, int slot) implements Expr {
+        public Assign(Token name, Expr value) { this(name, value, Scope.UNRESOLVED, Scope.UNRESOLVED); }
         @Override public <R> R accept(ExprVisitor<R> visitor) { return visitor.visitAssign(this); }
     }
 
@@ -39,7 +43,51 @@ public sealed interface Expr permits
         @Override public <R> R accept(ExprVisitor<R> visitor) { return visitor.visitLogical(this); }
     }
 
-    record Call(Expr callee, Token paren, java.util.List<Expr> arguments) implements Expr {
+    /** {@code [a, b, ...]}; {@code bracket} is the opening one. */
+    record ArrayLiteral(Token bracket, java.util.List<Expr> elements) implements Expr {
+        @Override public <R> R accept(ExprVisitor<R> visitor) { return visitor.visitArrayLiteral(this); }
+    }
+
+    /** <code>{k: v, ...}</code>, keys and values alternating in {@code entries}; {@code brace} is the opening one. */
+    record MapLiteral(Token brace, java.util.List<Expr> entries) implements Expr {
+        @Override public <R> R accept(ExprVisitor<R> visitor) { return visitor.visitMapLiteral(this); }
+    }
+
+    /** {@code array[index]}; {@code bracket} is the closing one, for runtime errors. */
+    record Index(Expr array, Token bracket, Expr index) implements Expr {
+        @Override public <R> R accept(ExprVisitor<R> visitor) { return visitor.visitIndex(this); }
+    }
+
+    /** {@code array[index] = value}. */
+    record SetIndex(Expr array, Token bracket, Expr index, Expr value) implements Expr {
+        @Override public <R> R accept(ExprVisitor<R> visitor) { return visitor.visitSetIndex(this); }
+    }
+
+    /** {@code site} caches the targets seen at this call; a resolved call gets a fresh one. */
+    record Call(Expr callee, Token paren, java.util.List<Expr> arguments, CallSite site) implements Expr {
+        public Call(Expr callee, Token paren, java.util.List<Expr> arguments) {
+            this(callee, paren, arguments, new CallSite());
+        }
         @Override public <R> R accept(ExprVisitor<R> visitor) { return visitor.visitCall(this); }
     }
+
+    /** {@code object.name}; {@code cache} is the site's, and a resolved access gets a fresh one. */
+    record Get(Expr object, Token name, PropertyCache cache) implements Expr {
+        public Get(Expr object, Token name) { this(object, name, new PropertyCache()); }
+        @Override public <R> R accept(ExprVisitor<R> visitor) { return visitor.visitGet(this); }
+    }
+
+    /** {@code object.name = value}. */
+    record Set(Expr object, Token name, Expr value, PropertyCache cache) implements Expr {
+        public Set(Expr object, Token name, Expr value) { this(object, name, value, new PropertyCache()); }
+        @Override public <R> R accept(ExprVisitor<R> visitor) { return visitor.visitSet(this); }
+    }
+
+    /**
+     * {@code super.method}: looks {@code method} up from the class held by {@code superclass} and
+     * binds it to {@code receiver}, the two being reads of the hidden {@code super} and {@code this}.
+     */
+    record Super(Token keyword, Token method, Variable superclass, Variable receiver) implements Expr {
+        @Override public <R> R accept(ExprVisitor<R> visitor) { return visitor.visitSuper(this); }
+    }
 }
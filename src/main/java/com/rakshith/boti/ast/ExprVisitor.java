@@ -4,12 +4,19 @@ package com.rakshith.boti.ast;
  * Visitor for expression AST nodes.
  */
 public interface ExprVisitor<R> {
+    R visitArrayLiteral(Expr.ArrayLiteral expr);
+    R visitMapLiteral(Expr.MapLiteral expr);
     R visitAssign(Expr.Assign expr);
     R visitBinary(Expr.Binary expr);
     R visitCall(Expr.Call expr);
+    R visitGet(Expr.Get expr);
     R visitGrouping(Expr.Grouping expr);
+    R visitIndex(Expr.Index expr);
     R visitLiteral(Expr.Literal expr);
     R visitLogical(Expr.Logical expr);
+    R visitSet(Expr.Set expr);
+    R visitSetIndex(Expr.SetIndex expr);
+    R visitSuper(Expr.Super expr);
     R visitUnary(Expr.Unary expr);
     R visitVariable(Expr.Variable expr);
 }
@@ -0,0 +1,36 @@
+package com.rakshith.boti.ast;
+
+/**
+ * Monomorphic inline cache for one property access: what the last receiver's shape resolved the
+ * name to. Shapes are compared by identity, and a miss simply re-caches for the new shape, so a
+ * site that sees several shapes stays correct and only loses its fast path. Engines that compile
+ * the AST give each compiled access a cache of its own.
+ *
+ * <p>An AST may run on several threads at once, so the cache holds one immutable {@link Entry}
+ * that a miss replaces whole: a racing reader sees some shape's complete entry, never a shape
+ * paired with another's offset, and checks the shape before using it.
+ */
+public final class PropertyCache {
+
+    /**
+     * {@code index} is the field's offset in the instance, or -1 when the name is a method.
+     * {@code target} is, on a read, the method found (index -1); on a write that adds the field,
+     * the shape after it.
+     */
+    public record Entry(Object shape, int index, Object target) { }
+
+    private static final Entry EMPTY = new Entry(null, -1, null);
+
+    private Entry entry = EMPTY;
+
+    /** The cached entry, whose shape the caller must check. */
+    public Entry entry() {
+        return entry;
+    }
+
+    public Entry update(Object shape, int index, Object target) {
+        Entry updated = new Entry(shape, index, target);
+        entry = updated;
+        return updated;
+    }
+}
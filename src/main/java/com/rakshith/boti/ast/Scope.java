@@ -0,0 +1,15 @@
+package com.rakshith.boti.ast;
+
+/**
+ * Sentinel depths used by resolved variable references (see {@code Resolver}).
+ */
+public final class Scope {
+
+    /** The name lives in the global frame; the slot indexes the globals table. */
+    public static final int GLOBAL = -1;
+
+    /** The node has not been through the resolver yet. */
+    public static final int UNRESOLVED = -2;
+
+    private Scope() { }
+}
@@ -9,7 +9,7 @@ import java.util.List;
  */
 public sealed interface Stmt permits
         Stmt.Block, Stmt.Expression, Stmt.If, Stmt.Print,
-        Stmt.Var, Stmt.While, Stmt.Function, Stmt.Return, Stmt.Class {
+        Stmt.Var, Stmt.While, Stmt.Break, Stmt.Continue, Stmt.Function, Stmt.Return, Stmt.Class {
 
     <R> R accept(StmtVisitor<R> visitor);
 
@@ -17,15 +17,22 @@ public sealed interface Stmt permits
         @Override public <R> R accept(StmtVisitor<R> visitor) { return visitor.visitExpression(this); }
     }
 
-    record Print(Expr expression) implements Stmt {
+    record Print(Token keyword, Expr expression) implements Stmt {
         @Override public <R> R accept(StmtVisitor<R> visitor) { return visitor.visitPrint(this); }
     }
 
-    record Var(Token name, Expr initializer) implements Stmt {
+    /** Declaration into the current frame ({@code depth} 0) or the globals ({@link Scope#GLOBAL}). */
+    record Var(Token name, Expr initializer, int depth, int slot) implements Stmt {
+        public Var(Token name, Expr initializer) { this(name, initializer, Scope.UNRESOLVED, Scope.UNRESOLVED); }
         @Override public <R> R accept(StmtVisitor<R> visitor) { return visitor.visitVar(this); }
     }
 
-    record Block(List<Stmt> statements) implements Stmt {
+    /**
+     * {@code frameSize} is the number of locals in the block's frame, counting those of the blocks
+     * folded into it; 0 if the resolver folded this block into the enclosing frame instead.
+     */
+    record Block(List<Stmt> statements, int frameSize) implements Stmt {
+        public Block(List<Stmt> statements) { this(statements, Scope.UNRESOLVED); }
         @Override public <R> R accept(StmtVisitor<R> visitor) { return visitor.visitBlock(this); }
     }
 
@@ -33,19 +40,38 @@ public sealed interface Stmt permits
         @Override public <R> R accept(StmtVisitor<R> visitor) { return visitor.visitIf(this); }
     }
 
-    record While(Expr condition, Stmt body) implements Stmt {
+    /** {@code increment} (from a {@code for} loop, else null) runs after the body and on {@code continue}. */
+    record While(Expr condition, Stmt body, Expr increment) implements Stmt {
+        public While(Expr condition, Stmt body) { this(condition, body, null); }
         @Override public <R> R accept(StmtVisitor<R> visitor) { return visitor.visitWhile(this); }
     }
 
-    record Function(Token name, List<Token> params, List<Stmt> body) implements Stmt {
+    record Break(Token keyword) implements Stmt {
+        @Override public <R> R accept(StmtVisitor<R> visitor) { return visitor.visitBreak(this); }
+    }
+
+    record Continue(Token keyword) implements Stmt {
+        @Override public <R> R accept(StmtVisitor<R> visitor) { return visitor.visitContinue(this); }
+    }
+
+    /** {@code frameSize} covers the parameters plus the locals declared at the top of the body. */
+    record Function(Token name, List<Token> params, List<Stmt> body, int depth, int slot, int frameSize) implements Stmt {
+        public Function(Token name, List<Token> params, List<Stmt> body) {
+            this(name, params, body, Scope.UNRESOLVED, Scope.UNRESOLVED, Scope.UNRESOLVED);
+        }
         @Override public <R> R accept(StmtVisitor<R> visitor) { return visitor.visitFunction(this); }
     }
 
-    record Return(Token keyword, Expr value) implements Stmt {
+    /** {@code tailCall} is set by the resolver when {@code value} is a call whose result is returned as is. */
+    record Return(Token keyword, Expr value, boolean tailCall) implements Stmt {
+        public Return(Token keyword, Expr value) { this(keyword, value, false); }
         @Override public <R> R accept(StmtVisitor<R> visitor) { return visitor.visitReturn(this); }
     }
 
-    record Class(Token name, Expr.Variable superclass, List<Stmt.Function> methods) implements Stmt {
+    record Class(Token name, Expr.Variable superclass, List<Stmt.Function> methods, int depth, int slot) implements Stmt {
+        public Class(Token name, Expr.Variable superclass, List<Stmt.Function> methods) {
+            this(name, superclass, methods, Scope.UNRESOLVED, Scope.UNRESOLVED);
+        }
         @Override public <R> R accept(StmtVisitor<R> visitor) { return visitor.visitClass(this); }
     }
 }
@@ -5,7 +5,9 @@ package com.rakshith.boti.ast;
  */
 public interface StmtVisitor<R> {
     R visitBlock(Stmt.Block stmt);
+    R visitBreak(Stmt.Break stmt);
     R visitClass(Stmt.Class stmt);
+    R visitContinue(Stmt.Continue stmt);
     R visitExpression(Stmt.Expression stmt);
     R visitFunction(Stmt.Function stmt);
     R visitIf(Stmt.If stmt);
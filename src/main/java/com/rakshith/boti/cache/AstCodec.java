@@ -0,0 +1,557 @@
+package com.rakshith.boti.cache;
+
+import com.rakshith.boti.ast.Expr;
+import com.rakshith.boti.ast.Scope;
+import com.rakshith.boti.ast.Stmt;
+import com.rakshith.boti.interpreter.Natives;
+import com.rakshith.boti.lexer.Token;
+import com.rakshith.boti.lexer.TokenType;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary form of a resolved AST. Nodes are written pre-order as a tag byte followed by their
+ * fields. Integers, whole-number literals included, are zigzag varints, and every string (names,
+ * lexemes, string literals) is an index into a table written ahead of the nodes. Tokens with a
+ * fixed text keep only their type and line, the line as a delta from the previous token's.
+ * Call sites are not stored: decoded calls start with empty ones.
+ *
+ * <p>Decoding trusts nothing it reads: counts and string lengths are checked against the bytes
+ * left, nodes may nest at most {@link #MAX_DEPTH} deep, and every variable reference must name a
+ * global or a slot of the frames around it (frame sizes are written ahead of the bodies for that).
+ * A corrupt entry fails with an {@link IllegalArgumentException} rather than a huge allocation, a
+ * stack overflow or a bad slot at run time. Encoding refuses the same depth, so no entry the
+ * decoder would reject is ever written.
+ */
+final class AstCodec {
+
+    private static final TokenType[] TOKEN_TYPES = TokenType.values();
+    private static final long NEGATIVE_ZERO = Double.doubleToRawLongBits(-0.0);
+    private static final int MAX_DEPTH = 2000;
+
+    // Node tags.
+    private static final int EXPRESSION = 0, PRINT = 1, VAR = 2, BLOCK = 3, IF = 4, WHILE = 5, BREAK = 6,
+            CONTINUE = 7, FUNCTION = 8, RETURN = 9, CLASS = 10, ABSENT = 11;
+    private static final int ASSIGN = 16, BINARY = 17, CALL = 18, GROUPING = 19, LITERAL = 20, LOGICAL = 21,
+            UNARY = 22, VARIABLE = 23, ARRAY = 24, INDEX = 25, SET_INDEX = 26, MAP = 27,
+            GET = 28, SET = 29, SUPER = 30;
+
+    // Literal tags.
+    private static final int NIL = 0, FALSE = 1, TRUE = 2, NUMBER = 3, STRING = 4, INTEGER = 5;
+
+    private AstCodec() { }
+
+    /**
+     * Throws {@link IllegalArgumentException} when the AST nests deeper than {@link #MAX_DEPTH},
+     * or than this thread's stack allows.
+     */
+    static byte[] encode(List<Stmt> statements) {
+        Writer body = new Writer();
+        try {
+            body.statements(statements);
+        } catch (StackOverflowError e) {
+            throw new IllegalArgumentException("AST nested too deeply", e);
+        }
+        Writer out = new Writer();
+        out.varint(body.strings.size());
+        for (String string : body.strings.keySet()) {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            out.varint(bytes.length);
+            out.write(bytes, 0, bytes.length);
+        }
+        out.write(body.bytes, 0, body.count);
+        return Arrays.copyOf(out.bytes, out.count);
+    }
+
+    /** Throws {@link IllegalArgumentException} when the data is not a well-formed AST. */
+    static List<Stmt> decode(ByteBuffer buffer) {
+        try {
+            return new Reader(buffer).script();
+        } catch (RuntimeException | StackOverflowError e) {
+            throw new IllegalArgumentException("Corrupt AST", e);
+        }
+    }
+
+    private static int enter(int nesting) {
+        if (nesting >= MAX_DEPTH) throw new IllegalArgumentException("AST nested too deeply");
+        return nesting + 1;
+    }
+
+    private static final class Writer {
+        final Map<String, Integer> strings = new LinkedHashMap<>();
+        byte[] bytes = new byte[256];
+        int count;
+        int line;
+        int nesting;
+
+        void write(int b) {
+            if (count == bytes.length) bytes = Arrays.copyOf(bytes, count * 2);
+            bytes[count++] = (byte) b;
+        }
+
+        void write(byte[] b, int offset, int length) {
+            if (count + length > bytes.length) bytes = Arrays.copyOf(bytes, Math.max(count * 2, count + length));
+            System.arraycopy(b, offset, bytes, count, length);
+            count += length;
+        }
+
+        void varint(int value) {
+            int v = (value << 1) ^ (value >> 31);
+            while ((v & ~0x7F) != 0) {
+                write((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            write(v);
+        }
+
+        void string(String value) {
+            varint(strings.computeIfAbsent(value, k -> strings.size()));
+        }
+
+        void token(Token token) {
+            write(token.type().ordinal());
+            varint(token.line() - line);
+            line = token.line();
+            if (token.type() == TokenType.IDENTIFIER || token.type() == TokenType.NUMBER
+                    || token.type() == TokenType.STRING) {
+                string(token.lexeme());
+            }
+        }
+
+        void statements(List<? extends Stmt> statements) {
+            varint(statements.size());
+            for (Stmt statement : statements) {
+                statement(statement);
+            }
+        }
+
+        void statement(Stmt stmt) {
+            nesting = enter(nesting);
+            switch (stmt) {
+                case null -> write(ABSENT);
+                case Stmt.Expression s -> {
+                    write(EXPRESSION);
+                    expression(s.expression());
+                }
+                case Stmt.Print s -> {
+                    write(PRINT);
+                    token(s.keyword());
+                    expression(s.expression());
+                }
+                case Stmt.Var s -> {
+                    write(VAR);
+                    token(s.name());
+                    expression(s.initializer());
+                    varint(s.depth());
+                    varint(s.slot());
+                }
+                case Stmt.Block s -> {
+                    write(BLOCK);
+                    varint(s.frameSize());
+                    statements(s.statements());
+                }
+                case Stmt.If s -> {
+                    write(IF);
+                    expression(s.condition());
+                    statement(s.thenBranch());
+                    statement(s.elseBranch());
+                }
+                case Stmt.While s -> {
+                    write(WHILE);
+                    expression(s.condition());
+                    statement(s.body());
+                    expression(s.increment());
+                }
+                case Stmt.Break s -> {
+                    write(BREAK);
+                    token(s.keyword());
+                }
+                case Stmt.Continue s -> {
+                    write(CONTINUE);
+                    token(s.keyword());
+                }
+                case Stmt.Function s -> {
+                    write(FUNCTION);
+                    function(s);
+                }
+                case Stmt.Return s -> {
+                    write(RETURN);
+                    token(s.keyword());
+                    expression(s.value());
+                    write(s.tailCall() ? 1 : 0);
+                }
+                case Stmt.Class s -> {
+                    write(CLASS);
+                    token(s.name());
+                    expression(s.superclass());
+                    varint(s.methods().size());
+                    for (Stmt.Function method : s.methods()) {
+                        function(method);
+                    }
+                    varint(s.depth());
+                    varint(s.slot());
+                }
+            }
+            nesting--;
+        }
+
+        void function(Stmt.Function function) {
+            token(function.name());
+            varint(function.params().size());
+            for (Token param : function.params()) {
+                token(param);
+            }
+            varint(function.frameSize());
+            statements(function.body());
+            varint(function.depth());
+            varint(function.slot());
+        }
+
+        void expression(Expr expr) {
+            nesting = enter(nesting);
+            switch (expr) {
+                case null -> write(ABSENT);
+                case Expr.Assign e -> {
+                    write(ASSIGN);
+                    token(e.name());
+                    expression(e.value());
+                    varint(e.depth());
+                    varint(e.slot());
+                }
+                case Expr.Binary e -> {
+                    write(BINARY);
+                    expression(e.left());
+                    token(e.operator());
+                    expression(e.right());
+                }
+                case Expr.Call e -> {
+                    write(CALL);
+                    expression(e.callee());
+                    token(e.paren());
+                    varint(e.arguments().size());
+                    for (Expr argument : e.arguments()) {
+                        expression(argument);
+                    }
+                }
+                case Expr.Grouping e -> {
+                    write(GROUPING);
+                    expression(e.expression());
+                }
+                case Expr.ArrayLiteral e -> {
+                    write(ARRAY);
+                    token(e.bracket());
+                    varint(e.elements().size());
+                    for (Expr element : e.elements()) {
+                        expression(element);
+                    }
+                }
+                case Expr.MapLiteral e -> {
+                    write(MAP);
+                    token(e.brace());
+                    varint(e.entries().size());
+                    for (Expr entry : e.entries()) {
+                        expression(entry);
+                    }
+                }
+                case Expr.Index e -> {
+                    write(INDEX);
+                    expression(e.array());
+                    token(e.bracket());
+                    expression(e.index());
+                }
+                case Expr.SetIndex e -> {
+                    write(SET_INDEX);
+                    expression(e.array());
+                    token(e.bracket());
+                    expression(e.index());
+                    expression(e.value());
+                }
+                case Expr.Get e -> {
+                    write(GET);
+                    expression(e.object());
+                    token(e.name());
+                }
+                case Expr.Set e -> {
+                    write(SET);
+                    expression(e.object());
+                    token(e.name());
+                    expression(e.value());
+                }
+                case Expr.Super e -> {
+                    write(SUPER);
+                    token(e.keyword());
+                    token(e.method());
+                    expression(e.superclass());
+                    expression(e.receiver());
+                }
+                case Expr.Literal e -> {
+                    write(LITERAL);
+                    switch (e.value()) {
+                        case null -> write(NIL);
+                        case Boolean b -> write(b ? TRUE : FALSE);
+                        case Double d when d == (int) (double) d && Double.doubleToRawLongBits(d) != NEGATIVE_ZERO -> {
+                            write(INTEGER);
+                            varint((int) (double) d);
+                        }
+                        case Double d -> {
+                            write(NUMBER);
+                            long bits = Double.doubleToRawLongBits(d);
+                            for (int shift = 56; shift >= 0; shift -= 8) {
+                                write((int) (bits >>> shift));
+                            }
+                        }
+                        case String s -> {
+                            write(STRING);
+                            string(s);
+                        }
+                        default -> throw new IllegalArgumentException("Unexpected literal " + e.value());
+                    }
+                }
+                case Expr.Logical e -> {
+                    write(LOGICAL);
+                    expression(e.left());
+                    token(e.operator());
+                    expression(e.right());
+                }
+                case Expr.Unary e -> {
+                    write(UNARY);
+                    token(e.operator());
+                    expression(e.right());
+                }
+                case Expr.Variable e -> {
+                    write(VARIABLE);
+                    token(e.name());
+                    varint(e.depth());
+                    varint(e.slot());
+                }
+            }
+            nesting--;
+        }
+    }
+
+    private static final class Reader {
+        private final ByteBuffer buffer;
+        private String[] strings;
+        private int line;
+        private int nesting;
+        /** Sizes of the frames around the node being read, innermost last. */
+        private final List<Integer> frames = new ArrayList<>();
+        private int globals;
+
+        Reader(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        List<Stmt> script() {
+            strings = new String[count()];
+            for (int i = 0; i < strings.length; i++) {
+                byte[] bytes = new byte[count()];
+                buffer.get(bytes);
+                strings[i] = new String(bytes, StandardCharsets.UTF_8).intern();
+            }
+            // Every global is a native or a name in the table.
+            globals = Natives.all().size() + strings.length;
+            List<Stmt> statements = statements();
+            if (buffer.hasRemaining()) throw new IllegalArgumentException("Trailing data after AST");
+            return statements;
+        }
+
+        private int varint() {
+            int v = 0;
+            for (int shift = 0; ; shift += 7) {
+                if (shift > 28) throw new IllegalArgumentException("Varint too long");
+                byte b = buffer.get();
+                v |= (b & 0x7F) << shift;
+                if (b >= 0) break;
+            }
+            return (v >>> 1) ^ -(v & 1);
+        }
+
+        /** A count of items or bytes that follow, so it cannot exceed the bytes left. */
+        private int count() {
+            int count = varint();
+            if (count < 0 || count > buffer.remaining()) throw new IllegalArgumentException("Bad count " + count);
+            return count;
+        }
+
+        private String string() {
+            return strings[varint()];
+        }
+
+        /** Reads a resolved (depth, slot) and checks that it names a slot of the frames around it. */
+        private int[] reference() {
+            int depth = varint();
+            int slot = varint();
+            boolean valid = depth == Scope.GLOBAL
+                    ? slot >= 0 && slot < globals
+                    : depth >= 0 && depth < frames.size() && slot >= 0 && slot < frames.get(frames.size() - 1 - depth);
+            if (!valid) throw new IllegalArgumentException("Bad variable reference " + depth + ", " + slot);
+            return new int[] { depth, slot };
+        }
+
+        /** Reads the statements of a scope that has a frame of its own of {@code size} slots. */
+        private List<Stmt> statements(int size) {
+            frames.add(size);
+            List<Stmt> statements = statements();
+            frames.remove(frames.size() - 1);
+            return statements;
+        }
+
+        private Token token() {
+            TokenType type = TOKEN_TYPES[buffer.get()];
+            line += varint();
+            return switch (type) {
+                case IDENTIFIER -> {
+                    String name = string();
+                    yield new Token(type, name, name, line);
+                }
+                case NUMBER, STRING -> new Token(type, string(), null, line);
+                // Punctuation and keywords take their lexeme from the type.
+                default -> new Token(type, "", null, line);
+            };
+        }
+
+        private List<Stmt> statements() {
+            int count = count();
+            List<Stmt> statements = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                statements.add(statement());
+            }
+            return statements;
+        }
+
+        private Stmt statement() {
+            nesting = enter(nesting);
+            Stmt statement = switch (buffer.get()) {
+                case ABSENT -> null;
+                case EXPRESSION -> new Stmt.Expression(expression());
+                case PRINT -> new Stmt.Print(token(), expression());
+                case VAR -> {
+                    Token name = token();
+                    Expr initializer = expression();
+                    int[] at = reference();
+                    yield new Stmt.Var(name, initializer, at[0], at[1]);
+                }
+                case BLOCK -> {
+                    int frameSize = count();
+                    // Blocks without a frame of their own keep their locals in the enclosing one.
+                    yield new Stmt.Block(frameSize > 0 ? statements(frameSize) : statements(), frameSize);
+                }
+                case IF -> new Stmt.If(expression(), statement(), statement());
+                case WHILE -> new Stmt.While(expression(), statement(), expression());
+                case BREAK -> new Stmt.Break(token());
+                case CONTINUE -> new Stmt.Continue(token());
+                case FUNCTION -> function(false);
+                case RETURN -> new Stmt.Return(token(), expression(), buffer.get() != 0);
+                case CLASS -> {
+                    Token name = token();
+                    Expr.Variable superclass = (Expr.Variable) expression();
+                    int count = count();
+                    List<Stmt.Function> methods = new ArrayList<>(count);
+                    // A subclass's methods close over a frame holding "super".
+                    if (superclass != null) frames.add(1);
+                    for (int i = 0; i < count; i++) {
+                        methods.add(function(true));
+                    }
+                    if (superclass != null) frames.remove(frames.size() - 1);
+                    int[] at = reference();
+                    yield new Stmt.Class(name, superclass, methods, at[0], at[1]);
+                }
+                default -> throw new IllegalArgumentException("Unknown statement tag");
+            };
+            nesting--;
+            return statement;
+        }
+
+        /** A function declaration, or a method, which is stored without a variable of its own. */
+        private Stmt.Function function(boolean method) {
+            Token name = token();
+            int arity = count();
+            List<Token> params = new ArrayList<>(arity);
+            for (int i = 0; i < arity; i++) {
+                params.add(token());
+            }
+            int frameSize = count();
+            if (frameSize < arity) throw new IllegalArgumentException("Frame smaller than its parameters");
+            List<Stmt> body = statements(frameSize);
+            int[] at = method ? new int[] { varint(), varint() } : reference();
+            if (method && (at[0] != Scope.UNRESOLVED || at[1] != Scope.UNRESOLVED)) {
+                throw new IllegalArgumentException("Method with a variable");
+            }
+            return new Stmt.Function(name, params, body, at[0], at[1], frameSize);
+        }
+
+        private Expr expression() {
+            nesting = enter(nesting);
+            Expr expression = switch (buffer.get()) {
+                case ABSENT -> null;
+                case ASSIGN -> {
+                    Token name = token();
+                    Expr value = expression();
+                    int[] at = reference();
+                    yield new Expr.Assign(name, value, at[0], at[1]);
+                }
+                case BINARY -> new Expr.Binary(expression(), token(), expression());
+                case CALL -> {
+                    Expr callee = expression();
+                    Token paren = token();
+                    int count = count();
+                    List<Expr> arguments = new ArrayList<>(count);
+                    for (int i = 0; i < count; i++) {
+                        arguments.add(expression());
+                    }
+                    yield new Expr.Call(callee, paren, arguments);
+                }
+                case GROUPING -> new Expr.Grouping(expression());
+                case ARRAY -> {
+                    Token bracket = token();
+                    int count = count();
+                    List<Expr> elements = new ArrayList<>(count);
+                    for (int i = 0; i < count; i++) {
+                        elements.add(expression());
+                    }
+                    yield new Expr.ArrayLiteral(bracket, elements);
+                }
+                case MAP -> {
+                    Token brace = token();
+                    int count = count();
+                    List<Expr> entries = new ArrayList<>(count);
+                    for (int i = 0; i < count; i++) {
+                        entries.add(expression());
+                    }
+                    yield new Expr.MapLiteral(brace, entries);
+                }
+                case INDEX -> new Expr.Index(expression(), token(), expression());
+                case SET_INDEX -> new Expr.SetIndex(expression(), token(), expression(), expression());
+                case GET -> new Expr.Get(expression(), token());
+                case SET -> new Expr.Set(expression(), token(), expression());
+                case SUPER -> new Expr.Super(token(), token(), (Expr.Variable) expression(), (Expr.Variable) expression());
+                case LITERAL -> new Expr.Literal(switch (buffer.get()) {
+                    case NIL -> null;
+                    case FALSE -> false;
+                    case TRUE -> true;
+                    case INTEGER -> (double) varint();
+                    case NUMBER -> buffer.getDouble();
+                    case STRING -> string();
+                    default -> throw new IllegalArgumentException("Unknown literal tag");
+                });
+                case LOGICAL -> new Expr.Logical(expression(), token(), expression());
+                case UNARY -> new Expr.Unary(token(), expression());
+                case VARIABLE -> {
+                    Token name = token();
+                    int[] at = reference();
+                    yield new Expr.Variable(name, at[0], at[1]);
+                }
+                default -> throw new IllegalArgumentException("Unknown expression tag");
+            };
+            nesting--;
+            return expression;
+        }
+    }
+}
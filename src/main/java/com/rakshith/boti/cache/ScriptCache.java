@@ -0,0 +1,132 @@
+package com.rakshith.boti.cache;
+
+import com.rakshith.boti.ast.Stmt;
+import com.rakshith.boti.interpreter.NativeFunction;
+import com.rakshith.boti.interpreter.Natives;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * On-disk cache of resolved ASTs ({@code .botic} files), so running an unchanged script skips
+ * scanning, parsing and resolution. Entries are named by the SHA-256 of the source, so editing a
+ * script simply misses and writes a new entry; the header repeats the hash and a format version,
+ * and ends with a CRC-32C of the encoded AST, checked before anything is decoded.
+ * The hash also covers the names of the {@link Natives}, which fix the first global slots.
+ * Entries are memory-mapped to load. The directory is the {@code boti.cache} system property
+ * ({@code ~/.cache/boti} by default, {@code off} to disable).
+ *
+ * <p>Any problem with the cache (unwritable directory, stale format, corrupt entry) is treated as
+ * a miss: the cache only ever saves work, it never makes a script fail.
+ */
+public final class ScriptCache {
+
+    private static final int MAGIC = 0x424F5443; // "BOTC"
+    private static final int VERSION = 10;
+    private static final int HASH_BYTES = 32;
+    private static final int HEADER_BYTES = 8 + HASH_BYTES + 4;
+
+    private final Path directory;
+
+    private ScriptCache(Path directory) {
+        this.directory = directory;
+    }
+
+    /** The cache configured by {@code boti.cache}, or null when it is turned off. */
+    public static ScriptCache open() {
+        String setting = System.getProperty("boti.cache");
+        if ("off".equals(setting)) return null;
+        Path directory = setting != null
+                ? Path.of(setting)
+                : Path.of(System.getProperty("user.home"), ".cache", "boti");
+        return new ScriptCache(directory);
+    }
+
+    /** Returns the statements cached for {@code source}, or null on a miss. */
+    public List<Stmt> load(byte[] source) {
+        byte[] hash = hash(source);
+        Path entry = entry(hash);
+        try (FileChannel channel = FileChannel.open(entry, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return null;
+            }
+            byte[] stored = new byte[HASH_BYTES];
+            buffer.get(stored);
+            if (!Arrays.equals(stored, hash)) return null;
+            int crc = buffer.getInt();
+            if (crc != crc(buffer.slice())) return null;
+            return AstCodec.decode(buffer);
+        } catch (IOException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /** Caches the resolved {@code statements} of {@code source}; failures are ignored. */
+    public void store(byte[] source, List<Stmt> statements) {
+        byte[] hash = hash(source);
+        byte[] ast;
+        try {
+            ast = AstCodec.encode(statements);
+        } catch (IllegalArgumentException e) {
+            return; // Nested too deeply to be decoded safely.
+        }
+        ByteBuffer contents = ByteBuffer.allocate(HEADER_BYTES + ast.length);
+        contents.putInt(MAGIC).putInt(VERSION).put(hash).putInt(crc(ByteBuffer.wrap(ast))).put(ast);
+        Path entry = entry(hash);
+        try {
+            Files.createDirectories(directory);
+            // Write then rename, so a concurrent run never maps a half-written entry.
+            Path temporary = Files.createTempFile(directory, entry.getFileName().toString(), ".tmp");
+            try {
+                Files.write(temporary, contents.array());
+                try {
+                    Files.move(temporary, entry, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temporary, entry, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        } catch (IOException e) {
+            // Read-only or full disk: run without caching.
+        }
+    }
+
+    private Path entry(byte[] hash) {
+        return directory.resolve(HexFormat.of().formatHex(hash) + ".botic");
+    }
+
+    private static int crc(ByteBuffer ast) {
+        CRC32C crc = new CRC32C();
+        crc.update(ast);
+        return (int) crc.getValue();
+    }
+
+    private static byte[] hash(byte[] source) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (NativeFunction function : Natives.all()) {
+                digest.update(function.name().getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+            return digest.digest(source);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.rakshith.boti.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * A call to a Boti function on the tree-walker, from entry to return. Tail calls are separate
+ * events. Recorded only above a 1 ms threshold by default, since there is one per call.
+ */
+@Name("boti.Call")
+@Label("Function Call")
+@Category("Boti")
+@Description("A Boti function call, from entry to return")
+@StackTrace(false)
+@Threshold("1 ms")
+public final class CallEvent extends Event {
+
+    @Label("Function")
+    public String function;
+
+    @Label("Line")
+    @Description("Line of the function's declaration")
+    public int line;
+}
@@ -0,0 +1,17 @@
+package com.rakshith.boti.events;
+
+import jdk.jfr.FlightRecorder;
+
+/**
+ * Whether to make Boti's Flight Recorder events at all. Loading the first event class starts up
+ * JFR, which takes the better part of a second, so events are only created once a recording has
+ * been started ({@code -XX:StartFlightRecording} or {@code jcmd <pid> JFR.start}).
+ */
+public final class Events {
+
+    private Events() { }
+
+    public static boolean recording() {
+        return FlightRecorder.isInitialized();
+    }
+}
@@ -0,0 +1,23 @@
+package com.rakshith.boti.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** A runtime error that stopped a script, as reported on stderr. */
+@Name("boti.RuntimeError")
+@Label("Runtime Error")
+@Category("Boti")
+@Description("A runtime error that stopped a script")
+@StackTrace(false)
+public final class RuntimeErrorEvent extends Event {
+
+    @Label("Message")
+    public String message;
+
+    @Label("Line")
+    public int line;
+}
@@ -0,0 +1,23 @@
+package com.rakshith.boti.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** One script run from start to finish, on any engine. */
+@Name("boti.Script")
+@Label("Script")
+@Category("Boti")
+@Description("A script run from start to finish")
+@StackTrace(false)
+public final class ScriptEvent extends Event {
+
+    @Label("Script")
+    public String script;
+
+    @Label("Engine")
+    public String engine;
+}
@@ -0,0 +1,146 @@
+package com.rakshith.boti.interpreter;
+
+import java.util.Set;
+
+/**
+ * A fixed-length array value. While every element is a number the elements live in a
+ * {@code double[]}, so numeric code and the bulk {@link Natives} run without boxing; storing
+ * anything else switches the array to an {@code Object[]} for good. Arrays compare by identity.
+ *
+ * <p>Tasks on other threads may share an array. Both fields are volatile and the switch is made
+ * under its lock; readers read {@code numbers} once and fall back to the lock if they see it gone
+ * before {@code values}, so no thread sees an array with neither. Numbers are stored into the
+ * {@code double[]} under the same lock, so a store cannot land in it after the switch copied it.
+ */
+public final class BotiArray {
+
+    private volatile double[] numbers;
+    private volatile Object[] values;
+
+    public BotiArray(double[] numbers) {
+        this.numbers = numbers;
+    }
+
+    BotiArray(Object[] values) {
+        this.values = values;
+    }
+
+    /** An array of {@code elements}, numeric if they all are numbers; takes ownership of the array. */
+    public static BotiArray of(Object[] elements) {
+        double[] numbers = new double[elements.length];
+        for (int i = 0; i < elements.length; i++) {
+            if (!(elements[i] instanceof Double d)) return new BotiArray(elements);
+            numbers[i] = d;
+        }
+        return new BotiArray(numbers);
+    }
+
+    public int length() {
+        double[] unboxed = numbers;
+        return unboxed != null ? unboxed.length : values().length;
+    }
+
+    /** Whether the elements are stored unboxed. */
+    public boolean isNumeric() {
+        return numbers != null;
+    }
+
+    /** The unboxed elements, or null once the array holds other values; read it once per use. */
+    public double[] numbers() {
+        return numbers;
+    }
+
+    /** The elements of an array whose {@link #numbers()} were null. */
+    Object[] values() {
+        Object[] boxed = values;
+        if (boxed != null) return boxed;
+        synchronized (this) {
+            return values;
+        }
+    }
+
+    public Object get(int index) {
+        double[] unboxed = numbers;
+        return unboxed != null ? (Object) unboxed[index] : values()[index];
+    }
+
+    public void set(int index, Object value) {
+        if (value instanceof Double d) {
+            setNumber(index, d);
+            return;
+        }
+        if (numbers != null) box();
+        values()[index] = value;
+    }
+
+    public void setNumber(int index, double value) {
+        synchronized (this) {
+            double[] unboxed = numbers;
+            if (unboxed != null) {
+                unboxed[index] = value;
+                return;
+            }
+        }
+        // Boxed for good, so the store needs no lock.
+        values[index] = value;
+    }
+
+    private synchronized void box() {
+        if (numbers == null) return;
+        Object[] boxed = new Object[numbers.length];
+        for (int i = 0; i < boxed.length; i++) {
+            boxed[i] = numbers[i];
+        }
+        values = boxed;
+        numbers = null;
+    }
+
+    /** {@code target[index]} on an array or a {@link BotiMap}, with the runtime errors every engine reports. */
+    public static Object get(Object target, Object index, int line) {
+        if (target instanceof BotiMap map) return map.get(index, line);
+        BotiArray array = array(target, line);
+        return array.get(array.index(index, line));
+    }
+
+    /** {@code target[index] = value}; returns {@code value}. */
+    public static Object set(Object target, Object index, Object value, int line) {
+        if (target instanceof BotiMap map) {
+            map.set(index, value, line);
+            return value;
+        }
+        BotiArray array = array(target, line);
+        array.set(array.index(index, line), value);
+        return value;
+    }
+
+    public static BotiArray array(Object target, int line) {
+        if (target instanceof BotiArray array) return array;
+        throw new RuntimeError(line, "Can only index arrays and maps.");
+    }
+
+    public int index(Object index, int line) {
+        if (index instanceof Double d) return index((double) d, line);
+        throw new RuntimeError(line, "Array index must be an integer.");
+    }
+
+    public int index(double index, int line) {
+        if (index != Math.rint(index)) throw new RuntimeError(line, "Array index must be an integer.");
+        if (index < 0 || index >= length()) throw new RuntimeError(line, "Array index out of range.");
+        return (int) index;
+    }
+
+    /** Appends the elements for {@link Values#append}, which owns the set of containers being printed. */
+    void appendTo(StringBuilder text, Set<Object> open) {
+        text.append('[');
+        for (int i = 0; i < length(); i++) {
+            if (i > 0) text.append(", ");
+            Values.append(text, get(i), open);
+        }
+        text.append(']');
+    }
+
+    @Override
+    public String toString() {
+        return Values.stringify(this);
+    }
+}
@@ -1,38 +1,75 @@
 package com.rakshith.boti.interpreter;
 
 import com.rakshith.boti.ast.Stmt;
+import com.rakshith.boti.jit.Deoptimize;
+import com.rakshith.boti.jit.FunctionProfile;
+import com.rakshith.boti.jit.JitCode;
+import com.rakshith.boti.lexer.Token;
 
 import java.util.List;
 
 /**
- * Something that can be called (e.g. function).
+ * Something that can be called: a user function or a {@link NativeFunction}.
  */
 public interface BotiCallable {
 
     int arity();
-    Object call(Interpreter interpreter, List<Object> arguments);
+
+    /** {@code paren} is the call's closing parenthesis, for runtime errors. */
+    Object call(Interpreter interpreter, List<Object> arguments, Token paren);
 
     /**
-     * User-defined function.
+     * User-defined function. {@code profile} is null unless the interpreter has its JIT enabled;
+     * once the profile reports the function hot, calls run the compiled body instead.
      */
-    record BotiFunction(Stmt.Function declaration, Environment closure) implements BotiCallable {
+    record BotiFunction(Stmt.Function declaration, Environment closure, FunctionProfile profile) implements BotiCallable {
+        public BotiFunction(Stmt.Function declaration, Environment closure) {
+            this(declaration, closure, null);
+        }
+
         @Override
         public int arity() {
             return declaration.params().size();
         }
 
         @Override
-        public Object call(Interpreter interpreter, List<Object> arguments) {
-            Environment env = new Environment(closure);
-            for (int i = 0; i < declaration.params().size(); i++) {
-                env.define(declaration.params().get(i).lexeme(), arguments.get(i));
+        public Object call(Interpreter interpreter, List<Object> arguments, Token paren) {
+            Environment frame = newFrame();
+            for (int i = 0; i < arguments.size(); i++) {
+                frame.set(i, arguments.get(i));
             }
-            try {
-                interpreter.executeBlock(declaration.body(), env);
-            } catch (Return r) {
-                return r.value;
+            return interpreter.invoke(this, frame, paren);
+        }
+
+        /** A frame for one call; the caller stores the arguments in slots 0..arity-1. */
+        public Environment newFrame() {
+            return new Environment(closure, declaration.frameSize());
+        }
+
+        /**
+         * Runs the body once; callers go through {@link Interpreter#invoke}, which also makes the
+         * tail call the body may leave behind.
+         */
+        Object run(Interpreter interpreter, Environment frame) {
+            if (profile != null) {
+                JitCode code = profile.enter();
+                if (code != null) {
+                    try {
+                        return code.invoke(interpreter, frame);
+                    } catch (Deoptimize e) {
+                        profile.deoptimize();
+                    }
+                }
+            }
+            if (interpreter.executeBody(declaration.body(), frame, profile) == Completion.RETURN) {
+                return interpreter.takeReturnValue();
             }
             return null;
         }
+
+        @Override
+        public String toString() {
+            return "<fn " + declaration.name().lexeme() + ">";
+        }
     }
 }
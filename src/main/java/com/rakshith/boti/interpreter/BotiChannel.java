@@ -0,0 +1,92 @@
+package com.rakshith.boti.interpreter;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded queue between tasks, made by {@code channel(capacity)}. {@code send} blocks while the
+ * channel is full and {@code receive} while it is empty; once the channel is closed, sends fail and
+ * receives drain what is left, then give nil. A blocked task is a parked virtual thread, and it
+ * gives up with the scope's failure when it is interrupted. Channels compare by identity.
+ */
+public final class BotiChannel {
+
+    private final int capacity;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    // A ring of the queued values, grown on demand up to the capacity.
+    private Object[] buffer;
+    private int head;
+    private int count;
+    private boolean closed;
+
+    BotiChannel(int capacity) {
+        this.capacity = capacity;
+        this.buffer = new Object[Math.min(capacity, 16)];
+    }
+
+    void send(Object value, Tasks scope, int line) {
+        lock.lock();
+        try {
+            while (count == capacity && !closed) {
+                notFull.await();
+            }
+            if (closed) throw new RuntimeError(line, "Send on a closed channel.");
+            if (count == buffer.length) grow();
+            buffer[(head + count) % buffer.length] = value;
+            count++;
+            notEmpty.signal();
+        } catch (InterruptedException e) {
+            throw scope.interrupted(line);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    Object receive(Tasks scope, int line) {
+        lock.lock();
+        try {
+            while (count == 0 && !closed) {
+                notEmpty.await();
+            }
+            if (count == 0) return null;
+            Object value = buffer[head];
+            buffer[head] = null;
+            head = (head + 1) % buffer.length;
+            count--;
+            notFull.signal();
+            return value;
+        } catch (InterruptedException e) {
+            throw scope.interrupted(line);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void grow() {
+        Object[] grown = new Object[(int) Math.min(2L * buffer.length, capacity)];
+        for (int i = 0; i < count; i++) {
+            grown[i] = buffer[(head + i) % buffer.length];
+        }
+        buffer = grown;
+        head = 0;
+    }
+
+    void close(int line) {
+        lock.lock();
+        try {
+            if (closed) throw new RuntimeError(line, "Channel is already closed.");
+            closed = true;
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "<channel>";
+    }
+}
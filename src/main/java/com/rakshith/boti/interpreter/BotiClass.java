@@ -0,0 +1,76 @@
+package com.rakshith.boti.interpreter;
+
+import com.rakshith.boti.lexer.Token;
+
+import java.util.Map;
+
+/**
+ * A class value. Its methods are the function values of the engine that ran the declaration;
+ * engines bind them to a receiver when they call them. Calling a class makes a
+ * {@link BotiInstance} and runs {@code init} on it, if the class or a superclass has one.
+ */
+public final class BotiClass {
+
+    private final String name;
+    private final BotiClass superclass;
+    private final Map<String, Object> methods;
+    private final Object initializer;
+    private final Shape root = Shape.root(this);
+    private int instanceSize;
+
+    public BotiClass(String name, BotiClass superclass, Map<String, Object> methods) {
+        this.name = name;
+        this.superclass = superclass;
+        this.methods = methods;
+        this.initializer = findMethod("init");
+    }
+
+    /** The class {@code value}, for the superclass of a declaration. */
+    public static BotiClass superclass(Object value, int line) {
+        if (value instanceof BotiClass klass) return klass;
+        throw new RuntimeError(line, "Superclass must be a class.");
+    }
+
+    public String name() {
+        return name;
+    }
+
+    /** The method {@code name}, inherited or not, or null. */
+    public Object findMethod(String name) {
+        for (BotiClass klass = this; klass != null; klass = klass.superclass) {
+            Object method = klass.methods.get(name);
+            if (method != null) return method;
+        }
+        return null;
+    }
+
+    /** {@code super.method} in a method of a subclass of this class, run on {@code receiver}. */
+    public BoundMethod bind(Object receiver, Token method) {
+        Object function = findMethod(method.lexeme());
+        if (function == null) throw BotiInstance.undefined(method);
+        return new BoundMethod((BotiInstance) receiver, function);
+    }
+
+    /** {@code init}, or null. */
+    public Object initializer() {
+        return initializer;
+    }
+
+    Shape root() {
+        return root;
+    }
+
+    /** How many fields instances ended up with so far, so new ones can start at that size. */
+    int instanceSize() {
+        return instanceSize;
+    }
+
+    void grewTo(int size) {
+        if (size > instanceSize) instanceSize = size;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,112 @@
+package com.rakshith.boti.interpreter;
+
+import com.rakshith.boti.ast.PropertyCache;
+import com.rakshith.boti.lexer.Token;
+
+import java.util.Arrays;
+
+/**
+ * An instance of a {@link BotiClass}: a {@link Shape} and an array of field values laid out by
+ * it. With a cache that hits, reading a field is a shape check and an array load, and so is
+ * finding a method, as a shape fixes the class. Instances compare by identity.
+ *
+ * <p>Tasks on other threads may share an instance. Fields are set under its lock, and the shape
+ * is volatile and written after the fields have grown for it, so a reader that sees a shape also
+ * sees fields long enough for it.
+ */
+public final class BotiInstance {
+
+    private volatile Shape shape;
+    private Object[] fields;
+
+    public BotiInstance(BotiClass klass) {
+        this.shape = klass.root();
+        this.fields = new Object[klass.instanceSize()];
+    }
+
+    /** {@code value} as an instance, for {@code value.name}. */
+    public static BotiInstance of(Object value, int line) {
+        if (value instanceof BotiInstance instance) return instance;
+        throw new RuntimeError(line, "Only instances have properties.");
+    }
+
+    /** {@code value} as an instance, for {@code value.name = ...}. */
+    public static BotiInstance forField(Object value, int line) {
+        if (value instanceof BotiInstance instance) return instance;
+        throw new RuntimeError(line, "Only instances have fields.");
+    }
+
+    /** {@code object.name}: a field's value, or a method bound to the instance. */
+    public static Object get(Object object, Token name, PropertyCache cache) {
+        BotiInstance instance = of(object, name.line());
+        PropertyCache.Entry found = instance.find(name, cache);
+        return found.index() >= 0 ? instance.fields[found.index()] : new BoundMethod(instance, found.target());
+    }
+
+    /** {@code object.name = value}; returns {@code value}. */
+    public static Object set(Object object, Token name, Object value, PropertyCache cache) {
+        forField(object, name.line()).set(name, value, cache);
+        return value;
+    }
+
+    public BotiClass klass() {
+        return shape.klass();
+    }
+
+    public Object field(int index) {
+        return fields[index];
+    }
+
+    /**
+     * Looks {@code name} up through {@code cache}: returns an entry with the field's offset, or
+     * with offset -1 and the method as its target. Fields shadow methods.
+     */
+    public PropertyCache.Entry find(Token name, PropertyCache cache) {
+        Shape current = shape;
+        PropertyCache.Entry entry = cache.entry();
+        if (entry.shape() == current) return entry;
+        int index = current.indexOf(name.lexeme());
+        if (index >= 0) return cache.update(current, index, null);
+        Object method = current.klass().findMethod(name.lexeme());
+        if (method == null) throw undefined(name);
+        return cache.update(current, -1, method);
+    }
+
+    /** {@code this.name = value}, adding the field if it is new. */
+    public synchronized void set(Token name, Object value, PropertyCache cache) {
+        PropertyCache.Entry entry = cache.entry();
+        if (entry.shape() == shape) {
+            if (entry.target() != null) add((Shape) entry.target());
+            fields[entry.index()] = value;
+            return;
+        }
+        Shape before = shape;
+        int index = shape.indexOf(name.lexeme());
+        if (index >= 0) {
+            cache.update(before, index, null);
+        } else {
+            index = shape.size();
+            add(shape.with(name.lexeme()));
+            cache.update(before, index, shape);
+        }
+        fields[index] = value;
+    }
+
+    /** Grows the fields before the shape says they exist. */
+    private void add(Shape next) {
+        if (fields.length < next.size()) {
+            fields = Arrays.copyOf(fields, Math.max(next.size(), 2 * fields.length));
+            klass().grewTo(next.size());
+        }
+        shape = next;
+    }
+
+    public static RuntimeError undefined(Token name) {
+        return new RuntimeError(name, "Undefined property '" + name.lexeme() + "'.");
+    }
+
+    @Override
+    public String toString() {
+        return klass().name() + " instance";
+    }
+}
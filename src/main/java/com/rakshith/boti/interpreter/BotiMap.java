@@ -0,0 +1,309 @@
+package com.rakshith.boti.interpreter;
+
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * A map from numbers and strings to values, with no per-entry objects. Entries live in parallel
+ * arrays in insertion order: a string key in {@code keys}, a number key unboxed in
+ * {@code numberKeys} (its {@code keys} element is null), and the value in {@code numbers} while
+ * every value is a number, else in {@code values}, switching for good as {@link BotiArray} does.
+ * An open-addressing table with linear probing holds entry indices plus one, 0 meaning empty;
+ * it is kept at most half full. Removing an entry moves the last one into its place and shifts
+ * the probe run back, so there are no tombstones and lookups and updates never allocate.
+ * Maps compare by identity. Tasks on other threads may share a map, so its methods take its lock;
+ * a caller that combines {@link #find} with reading the entry holds the lock across both.
+ */
+public final class BotiMap {
+
+    private static final int MIN_TABLE = 8;
+
+    private Object[] keys;
+    private double[] numberKeys;
+    private double[] numbers = new double[MIN_TABLE / 2];
+    private Object[] values;
+    private int size;
+    private int[] table = new int[MIN_TABLE];
+
+    /** A map of {@code entries}, keys and values alternating; later duplicates win. */
+    public static BotiMap of(Object[] entries, int line) {
+        BotiMap map = new BotiMap();
+        for (int i = 0; i < entries.length; i += 2) {
+            map.set(entries[i], entries[i + 1], line);
+        }
+        return map;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /** Whether the values are stored unboxed; see {@link #numberAt}. */
+    public synchronized boolean isNumeric() {
+        return values == null;
+    }
+
+    /** The entry holding {@code key}, or -1. */
+    public synchronized int find(Object key, int line) {
+        return switch (key) {
+            case Double d -> find((double) d);
+            case String s -> find(s);
+            case Rope s -> find(s.toString());
+            case null, default -> throw invalidKey(line);
+        };
+    }
+
+    public synchronized int find(double key) {
+        if (numberKeys == null) return -1;
+        long bits = Double.doubleToLongBits(key);
+        int mask = table.length - 1;
+        for (int slot = mix(bits) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+            int entry = table[slot] - 1;
+            if (isNumberKey(entry) && Double.doubleToLongBits(numberKeys[entry]) == bits) return entry;
+        }
+        return -1;
+    }
+
+    public synchronized int find(String key) {
+        if (keys == null) return -1;
+        int mask = table.length - 1;
+        for (int slot = hash(key) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+            int entry = table[slot] - 1;
+            if (key.equals(keys[entry])) return entry;
+        }
+        return -1;
+    }
+
+    public synchronized Object valueAt(int entry) {
+        return values == null ? (Object) numbers[entry] : values[entry];
+    }
+
+    /** The value of an entry of a {@linkplain #isNumeric() numeric} map. */
+    public synchronized double numberAt(int entry) {
+        return numbers[entry];
+    }
+
+    /** {@code map[key]}: the value, or nil if there is none. */
+    public synchronized Object get(Object key, int line) {
+        int entry = find(key, line);
+        return entry < 0 ? null : valueAt(entry);
+    }
+
+    public synchronized Object get(double key) {
+        int entry = find(key);
+        return entry < 0 ? null : valueAt(entry);
+    }
+
+    public synchronized void set(Object key, Object value, int line) {
+        setAt(insert(key, line), value);
+    }
+
+    private void setAt(int entry, Object value) {
+        if (values == null) {
+            if (value instanceof Double d) {
+                numbers[entry] = d;
+                return;
+            }
+            box();
+        }
+        values[entry] = value;
+    }
+
+    public synchronized void setNumber(Object key, double value, int line) {
+        setNumberAt(insert(key, line), value);
+    }
+
+    public synchronized void setNumber(double key, double value) {
+        setNumberAt(insert(key), value);
+    }
+
+    private void setNumberAt(int entry, double value) {
+        if (values == null) {
+            numbers[entry] = value;
+        } else {
+            values[entry] = value;
+        }
+    }
+
+    /** Removes {@code key}; returns its value, or nil if there was none. */
+    public synchronized Object remove(Object key, int line) {
+        int entry = find(key, line);
+        if (entry < 0) return null;
+        Object value = valueAt(entry);
+        unlink(entry);
+        int last = --size;
+        if (entry != last) {
+            // Move the last entry into the gap and point its slot at the new index.
+            table[slotOf(last)] = entry + 1;
+            if (keys != null) keys[entry] = keys[last];
+            if (numberKeys != null) numberKeys[entry] = numberKeys[last];
+            if (values == null) {
+                numbers[entry] = numbers[last];
+            } else {
+                values[entry] = values[last];
+            }
+        }
+        if (keys != null) keys[last] = null;
+        if (values != null) values[last] = null;
+        return value;
+    }
+
+    /** The keys in insertion order, as moved by {@link #remove}; numeric if every key is a number. */
+    public synchronized BotiArray keys() {
+        if (keys == null) return new BotiArray(numberKeys == null ? new double[0] : Arrays.copyOf(numberKeys, size));
+        Object[] result = new Object[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = keyAt(i);
+        }
+        return BotiArray.of(result);
+    }
+
+    private Object keyAt(int entry) {
+        return isNumberKey(entry) ? (Object) numberKeys[entry] : keys[entry];
+    }
+
+    private boolean isNumberKey(int entry) {
+        return keys == null || keys[entry] == null;
+    }
+
+    private int insert(Object key, int line) {
+        return switch (key) {
+            case Double d -> insert((double) d);
+            case String s -> insert(s);
+            case Rope s -> insert(s.toString());
+            case null, default -> throw invalidKey(line);
+        };
+    }
+
+    private int insert(double key) {
+        int entry = find(key);
+        if (entry >= 0) return entry;
+        entry = append();
+        if (numberKeys == null) numberKeys = new double[capacity()];
+        numberKeys[entry] = key;
+        link(entry, hash(key));
+        return entry;
+    }
+
+    private int insert(String key) {
+        int entry = find(key);
+        if (entry >= 0) return entry;
+        entry = append();
+        if (keys == null) keys = new Object[capacity()];
+        keys[entry] = key;
+        link(entry, hash(key));
+        return entry;
+    }
+
+    /** Makes room for one more entry, growing the arrays and the table together. */
+    private int append() {
+        if (size == capacity()) {
+            int capacity = capacity() * 2;
+            if (keys != null) keys = Arrays.copyOf(keys, capacity);
+            if (numberKeys != null) numberKeys = Arrays.copyOf(numberKeys, capacity);
+            if (values == null) {
+                numbers = Arrays.copyOf(numbers, capacity);
+            } else {
+                values = Arrays.copyOf(values, capacity);
+            }
+            table = new int[capacity * 2];
+            for (int entry = 0; entry < size; entry++) {
+                link(entry, hashAt(entry));
+            }
+        }
+        return size++;
+    }
+
+    private int capacity() {
+        return table.length / 2;
+    }
+
+    private void link(int entry, int hash) {
+        int mask = table.length - 1;
+        int slot = hash & mask;
+        while (table[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        table[slot] = entry + 1;
+    }
+
+    /** Empties the entry's slot and shifts later members of its probe run back into the hole. */
+    private void unlink(int entry) {
+        int mask = table.length - 1;
+        int hole = slotOf(entry);
+        table[hole] = 0;
+        for (int slot = (hole + 1) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+            int home = hashAt(table[slot] - 1) & mask;
+            // The entry may move into the hole unless its home lies cyclically in (hole, slot].
+            if (((slot - home) & mask) >= ((slot - hole) & mask)) {
+                table[hole] = table[slot];
+                table[slot] = 0;
+                hole = slot;
+            }
+        }
+    }
+
+    private int slotOf(int entry) {
+        int mask = table.length - 1;
+        int slot = hashAt(entry) & mask;
+        while (table[slot] != entry + 1) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private int hashAt(int entry) {
+        return isNumberKey(entry) ? hash(numberKeys[entry]) : hash((String) keys[entry]);
+    }
+
+    /** Keys match as {@code ==} compares numbers: {@code 0} and {@code -0} differ, NaN matches NaN. */
+    private static int hash(double key) {
+        return mix(Double.doubleToLongBits(key));
+    }
+
+    private static int hash(String key) {
+        return mix(key.hashCode());
+    }
+
+    /** The high half of a multiplicative hash, which depends on every bit of {@code bits}. */
+    private static int mix(long bits) {
+        return (int) ((bits * 0x9E3779B97F4A7C15L) >>> 32);
+    }
+
+    private void box() {
+        values = new Object[numbers.length];
+        for (int i = 0; i < size; i++) {
+            values[i] = numbers[i];
+        }
+        numbers = null;
+    }
+
+    private static RuntimeError invalidKey(int line) {
+        return new RuntimeError(line, "Map key must be a number or a string.");
+    }
+
+    /** Appends the entries for {@link Values#append}, which owns the set of containers being printed. */
+    void appendTo(StringBuilder text, Set<Object> open) {
+        // Copied under the lock but printed outside it, as nested maps take their own locks.
+        Object[] entries;
+        synchronized (this) {
+            entries = new Object[2 * size];
+            for (int i = 0; i < size; i++) {
+                entries[2 * i] = keyAt(i);
+                entries[2 * i + 1] = valueAt(i);
+            }
+        }
+        text.append('{');
+        for (int i = 0; i < entries.length; i += 2) {
+            if (i > 0) text.append(", ");
+            text.append(Values.stringify(entries[i])).append(": ");
+            Values.append(text, entries[i + 1], open);
+        }
+        text.append('}');
+    }
+
+    @Override
+    public String toString() {
+        return Values.stringify(this);
+    }
+}
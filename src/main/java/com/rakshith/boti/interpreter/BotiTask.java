@@ -0,0 +1,74 @@
+package com.rakshith.boti.interpreter;
+
+/**
+ * A task value, made by {@code spawn}: a function called on a virtual thread of its own, with
+ * its own {@link Tasks} scope for the tasks it spawns in turn. {@code await} waits for the result,
+ * or fails with the task's error. Tasks compare by identity.
+ */
+public final class BotiTask {
+
+    private final Tasks parent;
+    private final Thread thread;
+    // Written by the task's thread before it ends; read after joining it.
+    private Object result;
+    private Throwable failure;
+
+    BotiTask(Tasks parent, Object function, NativeFunction.Invoker invoker, int line) {
+        this.parent = parent;
+        this.thread = Thread.ofVirtual().name("boti-task").unstarted(() -> run(function, invoker, line));
+    }
+
+    private void run(Object function, NativeFunction.Invoker invoker, int line) {
+        try {
+            invoker.tasks().scope(() -> result = invoker.call(function, new Object[0], line));
+        } catch (RuntimeException | Error e) {
+            failure = e;
+        } finally {
+            parent.finished(this, failure);
+        }
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    void interrupt() {
+        thread.interrupt();
+    }
+
+    /** {@code await(task)} on {@code line}, from a thread whose own scope is {@code scope}. */
+    Object await(Tasks scope, int line) {
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            throw scope.interrupted(line);
+        }
+        if (failure != null) throw rethrow(failure);
+        return result;
+    }
+
+    /** Waits for the thread to end, even if interrupted meanwhile; the interrupt stays set. */
+    void join() {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                thread.join();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+    /** {@code error}, a runtime exception or an error caught from a task, to throw again. */
+    static RuntimeException rethrow(Throwable error) {
+        if (error instanceof Error e) throw e;
+        return (RuntimeException) error;
+    }
+
+    @Override
+    public String toString() {
+        return "<task>";
+    }
+}
@@ -0,0 +1,13 @@
+package com.rakshith.boti.interpreter;
+
+/**
+ * A method taken as a value, {@code object.method} not directly called: the engine's function
+ * value for the method and the instance it runs on.
+ */
+public record BoundMethod(BotiInstance receiver, Object method) {
+
+    @Override
+    public String toString() {
+        return method.toString();
+    }
+}
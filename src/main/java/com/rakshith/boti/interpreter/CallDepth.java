@@ -0,0 +1,43 @@
+package com.rakshith.boti.interpreter;
+
+import com.rakshith.boti.lexer.Token;
+
+/**
+ * Bounds how deeply calls may nest, so runaway recursion ends in a {@link RuntimeError} rather
+ * than a {@link StackOverflowError}. The limit is the {@code boti.max.depth} system property;
+ * tail calls do not count towards it. Engines that recurse on the Java stack should run on a
+ * thread of at least {@link #STACK_BYTES}.
+ */
+public final class CallDepth {
+
+    public static final int LIMIT = Integer.getInteger("boti.max.depth", 10_000);
+
+    /**
+     * A Java stack size with room for {@link #LIMIT} nested calls on any engine, capped at 1 GiB;
+     * past that a {@link StackOverflowError} is still reported as a runtime error by the call.
+     */
+    public static final long STACK_BYTES = Math.min(LIMIT * 8192L, 1L << 30);
+
+    private int depth;
+
+    public void enter(Token paren) {
+        enter(paren.line());
+    }
+
+    public void enter(int line) {
+        if (depth == LIMIT) throw overflow(line);
+        depth++;
+    }
+
+    public void exit() {
+        depth--;
+    }
+
+    public static RuntimeError overflow(Token paren) {
+        return overflow(paren.line());
+    }
+
+    public static RuntimeError overflow(int line) {
+        return new RuntimeError(line, "Stack overflow.");
+    }
+}
@@ -0,0 +1,668 @@
+package com.rakshith.boti.interpreter;
+
+import com.rakshith.boti.ast.Expr;
+import com.rakshith.boti.ast.PropertyCache;
+import com.rakshith.boti.ast.Scope;
+import com.rakshith.boti.ast.Stmt;
+import com.rakshith.boti.lexer.Token;
+import com.rakshith.boti.lexer.TokenType;
+
+import java.io.PrintStream;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.rakshith.boti.interpreter.Values.concat;
+import static com.rakshith.boti.interpreter.Values.isEqual;
+import static com.rakshith.boti.interpreter.Values.isString;
+import static com.rakshith.boti.interpreter.Values.isTruthy;
+import static com.rakshith.boti.interpreter.Values.stringify;
+
+/**
+ * Closure compilation: turns a resolved AST into a tree of pre-bound lambdas once, so execution
+ * is a chain of direct calls instead of visitor double dispatch. Every decision the tree-walker
+ * makes per evaluation (operator, variable depth, global vs local) is made here instead.
+ * Conditions compile to {@link Condition} so comparisons in {@code if}/{@code while} never box.
+ * Tail calls are trampolined by {@link #invoke}, as in the {@link Interpreter}.
+ * A compiler and the code it made run on one thread. A task gets a compiler of its own over a
+ * {@link Snapshot}, which compiles its own copy of a function's body the first time it calls a
+ * closure made elsewhere.
+ */
+final class ClosureCompiler {
+
+    @FunctionalInterface
+    interface Code {
+        Object eval(Environment frame);
+    }
+
+    @FunctionalInterface
+    interface Condition {
+        boolean test(Environment frame);
+    }
+
+    @FunctionalInterface
+    interface Action {
+        Completion run(Environment frame);
+    }
+
+    private final Environment globals;
+    private final PrintStream out;
+    private final Tasks tasks;
+    private final Snapshot snapshot;
+    private final CallDepth callDepth = new CallDepth();
+    private final NativeFunction.Invoker invoker = new NativeFunction.Invoker() {
+        @Override
+        public Object call(Object callee, Object[] arguments, int line) {
+            return callFunction(callee, arguments, line);
+        }
+
+        @Override
+        public NativeFunction.Invoker fork() {
+            Snapshot snapshot = new FrameSnapshot();
+            return new ClosureCompiler(snapshot.frame(globals), out, new Tasks(), snapshot).invoker;
+        }
+
+        @Override
+        public Object capture(Object value) {
+            return snapshot == null ? value : snapshot.value(value);
+        }
+
+        @Override
+        public Tasks tasks() {
+            return tasks;
+        }
+    };
+    // This compiler's versions of closures that other compilers made, and of their bodies.
+    private final Map<CompiledClosure, CompiledClosure> adopted = new IdentityHashMap<>();
+    private final Map<Stmt.Function, Action[]> adoptedBodies = new IdentityHashMap<>();
+    private Object returnValue;
+    private CompiledClosure tailCallee;
+    private Environment tailFrame;
+
+    /**
+     * {@code tasks} holds the tasks that the compiled code spawns; {@code snapshot} is the one the
+     * globals were copied in for a task, or null.
+     */
+    ClosureCompiler(Environment globals, PrintStream out, Tasks tasks, Snapshot snapshot) {
+        this.globals = globals;
+        this.out = out;
+        this.tasks = tasks;
+        this.snapshot = snapshot;
+    }
+
+    Action[] compile(List<Stmt> statements) {
+        Action[] actions = new Action[statements.size()];
+        for (int i = 0; i < actions.length; i++) {
+            actions[i] = statement(statements.get(i));
+        }
+        return actions;
+    }
+
+    // --- Statements -------------------------------------------------------------------------
+
+    private Action statement(Stmt stmt) {
+        return switch (stmt) {
+            case Stmt.Expression s -> {
+                Code expression = expression(s.expression());
+                yield frame -> {
+                    expression.eval(frame);
+                    return Completion.NORMAL;
+                };
+            }
+            case Stmt.Print s -> {
+                Code expression = expression(s.expression());
+                yield frame -> {
+                    out.println(stringify(expression.eval(frame)));
+                    return Completion.NORMAL;
+                };
+            }
+            case Stmt.Var s -> define(s.depth(), s.slot(), s.initializer() == null ? null : expression(s.initializer()));
+            case Stmt.Block s -> block(compile(s.statements()), s.frameSize());
+            case Stmt.If s -> ifStatement(s);
+            case Stmt.While s -> whileStatement(s);
+            case Stmt.Break s -> frame -> Completion.BREAK;
+            case Stmt.Continue s -> frame -> Completion.CONTINUE;
+            case Stmt.Function s -> function(s);
+            case Stmt.Return s -> {
+                Code value = s.value() == null ? frame -> null
+                        : s.tailCall() ? call((Expr.Call) s.value(), true)
+                        : expression(s.value());
+                yield frame -> {
+                    returnValue = value.eval(frame);
+                    return Completion.RETURN;
+                };
+            }
+            case Stmt.Class s -> define(s.depth(), s.slot(), classDeclaration(s));
+        };
+    }
+
+    private Action define(int depth, int slot, Code initializer) {
+        Code value = initializer == null ? frame -> null : initializer;
+        if (depth == Scope.GLOBAL) {
+            return frame -> {
+                globals.defineGlobal(slot, value.eval(frame));
+                return Completion.NORMAL;
+            };
+        }
+        return frame -> {
+            frame.set(slot, value.eval(frame));
+            return Completion.NORMAL;
+        };
+    }
+
+    private static Action block(Action[] statements, int frameSize) {
+        if (frameSize == 0) return frame -> run(statements, frame);
+        return frame -> run(statements, new Environment(frame, frameSize));
+    }
+
+    private static Completion run(Action[] statements, Environment frame) {
+        for (Action statement : statements) {
+            Completion completion = statement.run(frame);
+            if (completion != Completion.NORMAL) return completion;
+        }
+        return Completion.NORMAL;
+    }
+
+    private Action ifStatement(Stmt.If stmt) {
+        Condition condition = condition(stmt.condition());
+        Action thenBranch = statement(stmt.thenBranch());
+        if (stmt.elseBranch() == null) {
+            return frame -> condition.test(frame) ? thenBranch.run(frame) : Completion.NORMAL;
+        }
+        Action elseBranch = statement(stmt.elseBranch());
+        return frame -> condition.test(frame) ? thenBranch.run(frame) : elseBranch.run(frame);
+    }
+
+    private Action whileStatement(Stmt.While stmt) {
+        Condition condition = condition(stmt.condition());
+        Action body = statement(stmt.body());
+        Code increment = stmt.increment() == null ? null : expression(stmt.increment());
+        return frame -> {
+            while (condition.test(frame)) {
+                Completion completion = body.run(frame);
+                if (completion == Completion.BREAK) break;
+                if (completion == Completion.RETURN) return completion;
+                if (increment != null) increment.eval(frame);
+            }
+            return Completion.NORMAL;
+        };
+    }
+
+    private Action function(Stmt.Function stmt) {
+        Action[] body = compile(stmt.body());
+        int slot = stmt.slot();
+        if (stmt.depth() == Scope.GLOBAL) {
+            return frame -> {
+                globals.defineGlobal(slot, new CompiledClosure(this, stmt, body, frame));
+                return Completion.NORMAL;
+            };
+        }
+        return frame -> {
+            frame.set(slot, new CompiledClosure(this, stmt, body, frame));
+            return Completion.NORMAL;
+        };
+    }
+
+    /** Compiles the method bodies once; each run of the declaration makes a new class over them. */
+    private Code classDeclaration(Stmt.Class stmt) {
+        String name = stmt.name().lexeme();
+        Code superclass = stmt.superclass() == null ? null : variable(stmt.superclass());
+        int line = stmt.name().line();
+        List<Stmt.Function> methods = stmt.methods();
+        Action[][] bodies = new Action[methods.size()][];
+        for (int i = 0; i < bodies.length; i++) {
+            bodies[i] = compile(methods.get(i).body());
+        }
+        return frame -> {
+            BotiClass parent = null;
+            Environment scope = frame;
+            if (superclass != null) {
+                parent = BotiClass.superclass(superclass.eval(frame), line);
+                scope = new Environment(frame, 1);
+                scope.set(0, parent);
+            }
+            Map<String, Object> table = new HashMap<>();
+            for (int i = 0; i < bodies.length; i++) {
+                Stmt.Function method = methods.get(i);
+                table.put(method.name().lexeme(), new CompiledClosure(this, method, bodies[i], scope));
+            }
+            return new BotiClass(name, parent, table);
+        };
+    }
+
+    // --- Expressions ------------------------------------------------------------------------
+
+    private Code expression(Expr expr) {
+        return switch (expr) {
+            case Expr.Literal e -> {
+                Object value = e.value();
+                yield frame -> value;
+            }
+            case Expr.Grouping e -> expression(e.expression());
+            case Expr.Variable e -> variable(e);
+            case Expr.Assign e -> assign(e);
+            case Expr.Unary e -> unary(e);
+            case Expr.Binary e -> binary(e);
+            case Expr.Logical e -> logical(e);
+            case Expr.Call e when e.callee() instanceof Expr.Get get -> methodCall(e, get);
+            case Expr.Call e -> call(e, false);
+            case Expr.Get e -> {
+                Code object = expression(e.object());
+                Token name = e.name();
+                PropertyCache cache = new PropertyCache();
+                yield frame -> BotiInstance.get(object.eval(frame), name, cache);
+            }
+            case Expr.Set e -> {
+                Code object = expression(e.object());
+                Code value = expression(e.value());
+                Token name = e.name();
+                PropertyCache cache = new PropertyCache();
+                yield frame -> {
+                    Object target = object.eval(frame);
+                    return BotiInstance.set(target, name, value.eval(frame), cache);
+                };
+            }
+            case Expr.Super e -> {
+                Code superclass = variable(e.superclass());
+                Code receiver = variable(e.receiver());
+                Token method = e.method();
+                yield frame -> ((BotiClass) superclass.eval(frame)).bind(receiver.eval(frame), method);
+            }
+            case Expr.ArrayLiteral e -> {
+                Code[] elements = expressions(e.elements());
+                yield frame -> BotiArray.of(evalAll(elements, frame));
+            }
+            case Expr.MapLiteral e -> {
+                Code[] entries = expressions(e.entries());
+                int line = e.brace().line();
+                yield frame -> BotiMap.of(evalAll(entries, frame), line);
+            }
+            case Expr.Index e -> {
+                Code array = expression(e.array());
+                Code index = expression(e.index());
+                int line = e.bracket().line();
+                yield frame -> {
+                    Object target = array.eval(frame);
+                    return BotiArray.get(target, index.eval(frame), line);
+                };
+            }
+            case Expr.SetIndex e -> {
+                Code array = expression(e.array());
+                Code index = expression(e.index());
+                Code value = expression(e.value());
+                int line = e.bracket().line();
+                yield frame -> {
+                    Object target = array.eval(frame);
+                    Object at = index.eval(frame);
+                    return BotiArray.set(target, at, value.eval(frame), line);
+                };
+            }
+        };
+    }
+
+    private Code[] expressions(List<Expr> exprs) {
+        Code[] codes = new Code[exprs.size()];
+        for (int i = 0; i < codes.length; i++) {
+            codes[i] = expression(exprs.get(i));
+        }
+        return codes;
+    }
+
+    private static Object[] evalAll(Code[] codes, Environment frame) {
+        Object[] values = new Object[codes.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = codes[i].eval(frame);
+        }
+        return values;
+    }
+
+    private Code variable(Expr.Variable expr) {
+        int slot = expr.slot();
+        return switch (expr.depth()) {
+            case Scope.GLOBAL -> {
+                Token name = expr.name();
+                yield frame -> globals.getGlobal(name, slot);
+            }
+            case 0 -> frame -> frame.get(slot);
+            default -> {
+                int depth = expr.depth();
+                yield frame -> frame.getAt(depth, slot);
+            }
+        };
+    }
+
+    private Code assign(Expr.Assign expr) {
+        Code value = expression(expr.value());
+        int slot = expr.slot();
+        int depth = expr.depth();
+        if (depth == Scope.GLOBAL) {
+            Token name = expr.name();
+            return frame -> {
+                Object result = value.eval(frame);
+                globals.assignGlobal(name, slot, result);
+                return result;
+            };
+        }
+        return frame -> {
+            Object result = value.eval(frame);
+            frame.assignAt(depth, slot, result);
+            return result;
+        };
+    }
+
+    private Code unary(Expr.Unary expr) {
+        Code operand = expression(expr.right());
+        if (expr.operator().type() == TokenType.BANG) {
+            return frame -> !isTruthy(operand.eval(frame));
+        }
+        Token operator = expr.operator();
+        return frame -> -number(operator, operand.eval(frame));
+    }
+
+    private Code binary(Expr.Binary expr) {
+        Code left = expression(expr.left());
+        Code right = expression(expr.right());
+        Token operator = expr.operator();
+        return switch (operator.type()) {
+            case PLUS -> frame -> {
+                Object l = left.eval(frame);
+                Object r = right.eval(frame);
+                if (l instanceof Double a && r instanceof Double b) return a + b;
+                if (isString(l) || isString(r)) return concat(l, r);
+                throw new RuntimeError(operator, "Operands must be two numbers or two strings.");
+            };
+            case MINUS -> frame -> {
+                Object l = left.eval(frame);
+                Object r = right.eval(frame);
+                checkNumbers(operator, l, r);
+                return (double) l - (double) r;
+            };
+            case STAR -> frame -> {
+                Object l = left.eval(frame);
+                Object r = right.eval(frame);
+                checkNumbers(operator, l, r);
+                return (double) l * (double) r;
+            };
+            case SLASH -> frame -> {
+                Object l = left.eval(frame);
+                Object r = right.eval(frame);
+                checkNumbers(operator, l, r);
+                if ((double) r == 0) throw new RuntimeError(operator, "Division by zero.");
+                return (double) l / (double) r;
+            };
+            default -> {
+                Condition condition = comparison(expr, left, right);
+                yield frame -> condition.test(frame);
+            }
+        };
+    }
+
+    /** Comparisons and equality as unboxed conditions. */
+    private Condition comparison(Expr.Binary expr, Code left, Code right) {
+        Token operator = expr.operator();
+        return switch (operator.type()) {
+            case EQUAL_EQUAL -> frame -> isEqual(left.eval(frame), right.eval(frame));
+            case BANG_EQUAL -> frame -> !isEqual(left.eval(frame), right.eval(frame));
+            case LESS -> frame -> {
+                Object l = left.eval(frame);
+                Object r = right.eval(frame);
+                checkNumbers(operator, l, r);
+                return (double) l < (double) r;
+            };
+            case LESS_EQUAL -> frame -> {
+                Object l = left.eval(frame);
+                Object r = right.eval(frame);
+                checkNumbers(operator, l, r);
+                return (double) l <= (double) r;
+            };
+            case GREATER -> frame -> {
+                Object l = left.eval(frame);
+                Object r = right.eval(frame);
+                checkNumbers(operator, l, r);
+                return (double) l > (double) r;
+            };
+            case GREATER_EQUAL -> frame -> {
+                Object l = left.eval(frame);
+                Object r = right.eval(frame);
+                checkNumbers(operator, l, r);
+                return (double) l >= (double) r;
+            };
+            default -> throw new RuntimeError(operator, "Unknown binary operator.");
+        };
+    }
+
+    private Condition condition(Expr expr) {
+        return switch (expr) {
+            case Expr.Grouping e -> condition(e.expression());
+            case Expr.Binary e when isComparison(e.operator().type()) ->
+                    comparison(e, expression(e.left()), expression(e.right()));
+            case Expr.Unary e when e.operator().type() == TokenType.BANG -> {
+                Condition operand = condition(e.right());
+                yield frame -> !operand.test(frame);
+            }
+            case Expr.Logical e -> {
+                Condition left = condition(e.left());
+                Condition right = condition(e.right());
+                yield e.operator().type() == TokenType.OR
+                        ? frame -> left.test(frame) || right.test(frame)
+                        : frame -> left.test(frame) && right.test(frame);
+            }
+            default -> {
+                Code value = expression(expr);
+                yield frame -> isTruthy(value.eval(frame));
+            }
+        };
+    }
+
+    private static boolean isComparison(TokenType type) {
+        return switch (type) {
+            case EQUAL_EQUAL, BANG_EQUAL, LESS, LESS_EQUAL, GREATER, GREATER_EQUAL -> true;
+            default -> false;
+        };
+    }
+
+    private Code logical(Expr.Logical expr) {
+        Code left = expression(expr.left());
+        Code right = expression(expr.right());
+        if (expr.operator().type() == TokenType.OR) {
+            return frame -> {
+                Object value = left.eval(frame);
+                return isTruthy(value) ? value : right.eval(frame);
+            };
+        }
+        return frame -> {
+            Object value = left.eval(frame);
+            return isTruthy(value) ? right.eval(frame) : value;
+        };
+    }
+
+    /** A {@code tail} call leaves the callee for {@link #invoke} and yields nil to the {@code return}. */
+    private Code call(Expr.Call expr, boolean tail) {
+        Code callee = expression(expr.callee());
+        Code[] arguments = expressions(expr.arguments());
+        Token paren = expr.paren();
+        return frame -> call(callee.eval(frame), arguments, frame, paren, tail);
+    }
+
+    private Object call(Object function, Code[] arguments, Environment frame, Token paren, boolean tail) {
+        if (function instanceof NativeFunction intrinsic && intrinsic.arity() == arguments.length) {
+            return callNative(intrinsic, arguments, frame, paren.line());
+        }
+        if (function instanceof BoundMethod || function instanceof BotiClass) {
+            return callFunction(function, evalAll(arguments, frame), paren.line());
+        }
+        CompiledClosure target = target(function, arguments, frame, paren);
+        // Arguments go straight into the callee's frame.
+        Environment calleeFrame = new Environment(target.closure(), target.frameSize());
+        for (int i = 0; i < arguments.length; i++) {
+            calleeFrame.set(i, arguments[i].eval(frame));
+        }
+        if (tail) {
+            tailCallee = target;
+            tailFrame = calleeFrame;
+            return null;
+        }
+        return invoke(target, calleeFrame, paren);
+    }
+
+    /** {@code object.name(...)}: a method found through the site's cache runs without being bound first. */
+    private Code methodCall(Expr.Call expr, Expr.Get get) {
+        Code object = expression(get.object());
+        Code[] arguments = expressions(expr.arguments());
+        Token name = get.name();
+        Token paren = expr.paren();
+        PropertyCache cache = new PropertyCache();
+        return frame -> {
+            BotiInstance instance = BotiInstance.of(object.eval(frame), name.line());
+            PropertyCache.Entry found = instance.find(name, cache);
+            if (found.index() >= 0) return call(instance.field(found.index()), arguments, frame, paren, false);
+            CompiledClosure method = target(found.target(), arguments, frame, paren);
+            Environment calleeFrame = new Environment(method.closure(), method.frameSize());
+            for (int i = 0; i < arguments.length; i++) {
+                calleeFrame.set(i, arguments[i].eval(frame));
+            }
+            calleeFrame.set(arguments.length, instance);
+            return invoke(method, calleeFrame, paren);
+        };
+    }
+
+    /** Natives are intrinsics, and a native in tail position simply returns its result. */
+    private Object callNative(NativeFunction function, Code[] arguments, Environment frame, int line) {
+        return switch (function) {
+            case NativeFunction.Nullary f -> f.apply();
+            case NativeFunction.Unary f -> f.apply(f.number(arguments[0].eval(frame), line));
+            case NativeFunction.Binary f -> {
+                Object x = arguments[0].eval(frame);
+                Object y = arguments[1].eval(frame);
+                yield f.apply(f.number(x, line), f.number(y, line), line);
+            }
+            case NativeFunction.Builtin f -> f.call(evalAll(arguments, frame), invoker, line);
+        };
+    }
+
+    /** Calls a function value from Java, for natives such as {@code map}. */
+    private Object callFunction(Object callee, Object[] arguments, int line) {
+        return switch (callee) {
+            case CompiledClosure target when target.arity() == arguments.length -> {
+                Environment frame = new Environment(target.closure(), target.frameSize());
+                for (int i = 0; i < arguments.length; i++) {
+                    frame.set(i, arguments[i]);
+                }
+                yield invoke(target, frame, line);
+            }
+            case NativeFunction target when target.arity() == arguments.length ->
+                    target.call(arguments, invoker, line);
+            case BoundMethod bound -> callMethod(bound.method(), bound.receiver(), arguments, line);
+            case BotiClass klass -> {
+                BotiInstance instance = new BotiInstance(klass);
+                if (klass.initializer() != null) {
+                    callMethod(klass.initializer(), instance, arguments, line);
+                } else if (arguments.length != 0) {
+                    throw arity(0, arguments.length, line);
+                }
+                yield instance;
+            }
+            case CompiledClosure target -> throw arity(target.arity(), arguments.length, line);
+            case NativeFunction target -> throw arity(target.arity(), arguments.length, line);
+            case null, default -> throw new RuntimeError(line, "Can only call functions and classes.");
+        };
+    }
+
+    private Object callMethod(Object method, BotiInstance receiver, Object[] arguments, int line) {
+        var target = (CompiledClosure) method;
+        if (target.arity() != arguments.length) throw arity(target.arity(), arguments.length, line);
+        Environment frame = new Environment(target.closure(), target.frameSize());
+        for (int i = 0; i < arguments.length; i++) {
+            frame.set(i, arguments[i]);
+        }
+        frame.set(arguments.length, receiver);
+        return invoke(target, frame, line);
+    }
+
+    private static RuntimeError arity(int expected, int got, int line) {
+        return new RuntimeError(line, "Expected " + expected + " arguments but got " + got + ".");
+    }
+
+    /** Checks the callee; on failure the arguments are still evaluated before the error, as in the tree-walker. */
+    private static CompiledClosure target(Object function, Code[] arguments, Environment frame, Token paren) {
+        if (function instanceof CompiledClosure target && target.arity() == arguments.length) return target;
+        for (Code argument : arguments) {
+            argument.eval(frame);
+        }
+        int arity = switch (function) {
+            case CompiledClosure target -> target.arity();
+            case NativeFunction target -> target.arity();
+            case null, default -> throw new RuntimeError(paren, "Can only call functions and classes.");
+        };
+        throw arity(arity, arguments.length, paren.line());
+    }
+
+    /** Runs {@code target} in {@code frame}, followed by any tail calls it makes. */
+    private Object invoke(CompiledClosure target, Environment frame, Token paren) {
+        return invoke(target, frame, paren.line());
+    }
+
+    private Object invoke(CompiledClosure target, Environment frame, int line) {
+        callDepth.enter(line);
+        try {
+            Object result = adopt(target).run(frame);
+            while (tailCallee != null) {
+                target = tailCallee;
+                frame = tailFrame;
+                tailCallee = null;
+                tailFrame = null;
+                result = adopt(target).run(frame);
+            }
+            return result;
+        } catch (StackOverflowError e) {
+            throw CallDepth.overflow(line);
+        } finally {
+            callDepth.exit();
+        }
+    }
+
+    /** {@code target}, or this compiler's version of it if another compiler made it. */
+    private CompiledClosure adopt(CompiledClosure target) {
+        if (target.owner() == this) return target;
+        return adopted.computeIfAbsent(target, t -> new CompiledClosure(this, t.declaration(),
+                adoptedBodies.computeIfAbsent(t.declaration(), d -> compile(d.body())), t.closure()));
+    }
+
+    private static double number(Token operator, Object operand) {
+        if (operand instanceof Double d) return d;
+        throw new RuntimeError(operator, "Operand must be a number.");
+    }
+
+    private static void checkNumbers(Token operator, Object left, Object right) {
+        if (left instanceof Double && right instanceof Double) return;
+        throw new RuntimeError(operator, "Operands must be numbers.");
+    }
+
+    /** A function value of the closure strategy: compiled body plus the frame it closes over. */
+    record CompiledClosure(ClosureCompiler owner, Stmt.Function declaration, Action[] body, Environment closure) {
+
+        int arity() {
+            return declaration.params().size();
+        }
+
+        int frameSize() {
+            return declaration.frameSize();
+        }
+
+        /** Runs the body once in a frame that already holds the arguments; see {@link ClosureCompiler#invoke}. */
+        Object run(Environment frame) {
+            if (ClosureCompiler.run(body, frame) == Completion.RETURN) {
+                Object value = owner.returnValue;
+                owner.returnValue = null;
+                return value;
+            }
+            return null;
+        }
+
+        @Override
+        public String toString() {
+            return "<fn " + declaration.name().lexeme() + ">";
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.rakshith.boti.interpreter;
+
+/**
+ * How a statement finished. Anything but {@link #NORMAL} unwinds the enclosing statements up to
+ * the loop ({@code BREAK}, {@code CONTINUE}) or function ({@code RETURN}) that consumes it.
+ * The value of a {@code RETURN} travels separately, so signalling allocates nothing.
+ */
+public enum Completion { NORMAL, BREAK, CONTINUE, RETURN }
@@ -2,48 +2,108 @@ package com.rakshith.boti.interpreter;
 
 import com.rakshith.boti.lexer.Token;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 
 /**
- * Variable scope: names → values.
+ * Variable scope: an array-backed frame whose slots are assigned by the {@link Resolver}.
+ * The global frame grows on demand and marks never-defined slots as undefined. A frame belongs to
+ * one thread: a task runs on a {@link Snapshot} of the frames it can reach.
  */
 public class Environment {
 
+    private static final Object UNDEFINED = new Object();
+
     private final Environment enclosing;
-    private final Map<String, Object> values = new HashMap<>();
+    private Object[] values;
 
+    /** Creates an empty global frame. */
     public Environment() {
         this.enclosing = null;
+        this.values = new Object[16];
+        Arrays.fill(values, UNDEFINED);
+    }
+
+    public Environment(Environment enclosing, int size) {
+        this.enclosing = enclosing;
+        this.values = new Object[size];
     }
 
-    public Environment(Environment enclosing) {
+    private Environment(Environment enclosing, Object[] values) {
         this.enclosing = enclosing;
+        this.values = values;
     }
 
-    public void define(String name, Object value) {
-        values.put(name, value);
+    Environment enclosing() {
+        return enclosing;
     }
 
-    public Object get(Token name) {
-        if (values.containsKey(name.lexeme())) {
-            return values.get(name.lexeme());
+    /** A frame over {@code enclosing} with the same values, which {@link #copyValues} then copies. */
+    Environment copy(Environment enclosing) {
+        return new Environment(enclosing, values.clone());
+    }
+
+    void copyValues(Snapshot snapshot) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != UNDEFINED) values[i] = snapshot.value(values[i]);
         }
-        if (enclosing != null) {
-            return enclosing.get(name);
+    }
+
+    public Object get(int slot) {
+        return values[slot];
+    }
+
+    public void set(int slot, Object value) {
+        values[slot] = value;
+    }
+
+    public Object getAt(int depth, int slot) {
+        return ancestor(depth).values[slot];
+    }
+
+    public void assignAt(int depth, int slot, Object value) {
+        ancestor(depth).values[slot] = value;
+    }
+
+    private Environment ancestor(int depth) {
+        Environment env = this;
+        for (int i = 0; i < depth; i++) {
+            env = env.enclosing;
+        }
+        return env;
+    }
+
+    public void defineGlobal(int slot, Object value) {
+        if (slot >= values.length) reserveGlobals(slot + 1);
+        values[slot] = value;
+    }
+
+    /** Makes room for globals up to slot {@code count - 1}, so defining them does not grow the frame. */
+    public void reserveGlobals(int count) {
+        if (count > values.length) {
+            int oldLength = values.length;
+            values = Arrays.copyOf(values, Math.max(count, oldLength * 2));
+            Arrays.fill(values, oldLength, values.length, UNDEFINED);
         }
-        throw new RuntimeError(name, "Undefined variable '" + name.lexeme() + "'.");
     }
 
-    public void assign(Token name, Object value) {
-        if (values.containsKey(name.lexeme())) {
-            values.put(name.lexeme(), value);
-            return;
+    /** The value of a global, or null if it was never defined. */
+    public Object global(int slot) {
+        Object value = slot < values.length ? values[slot] : UNDEFINED;
+        return value == UNDEFINED ? null : value;
+    }
+
+    public Object getGlobal(Token name, int slot) {
+        Object value = slot < values.length ? values[slot] : UNDEFINED;
+        if (value == UNDEFINED) {
+            throw new RuntimeError(name, "Undefined variable '" + name.lexeme() + "'.");
         }
-        if (enclosing != null) {
-            enclosing.assign(name, value);
-            return;
+        return value;
+    }
+
+    public void assignGlobal(Token name, int slot, Object value) {
+        if (slot >= values.length || values[slot] == UNDEFINED) {
+            throw new RuntimeError(name, "Undefined variable '" + name.lexeme() + "'.");
         }
-        throw new RuntimeError(name, "Undefined variable '" + name.lexeme() + "'.");
+        values[slot] = value;
     }
 }
@@ -0,0 +1,21 @@
+package com.rakshith.boti.interpreter;
+
+/**
+ * The {@link Snapshot} of the tree-walker and the closure compiler, whose function values are
+ * {@link BotiCallable.BotiFunction}s and {@link ClosureCompiler.CompiledClosure}s over frames.
+ * A fork recompiles a copied closure for itself when it first calls it, as for any closure made
+ * by another compiler.
+ */
+final class FrameSnapshot extends Snapshot {
+
+    @Override
+    protected Object copy(Object value) {
+        return switch (value) {
+            case BotiCallable.BotiFunction function ->
+                    new BotiCallable.BotiFunction(function.declaration(), frame(function.closure()), function.profile());
+            case ClosureCompiler.CompiledClosure closure -> new ClosureCompiler.CompiledClosure(
+                    closure.owner(), closure.declaration(), closure.body(), frame(closure.closure()));
+            default -> value;
+        };
+    }
+}
@@ -3,112 +3,308 @@ package com.rakshith.boti.interpreter;
 import com.rakshith.boti.HadError;
 import com.rakshith.boti.ast.Expr;
 import com.rakshith.boti.ast.ExprVisitor;
+import com.rakshith.boti.ast.PropertyCache;
+import com.rakshith.boti.ast.Scope;
 import com.rakshith.boti.ast.Stmt;
 import com.rakshith.boti.ast.StmtVisitor;
+import com.rakshith.boti.events.CallEvent;
+import com.rakshith.boti.events.Events;
+import com.rakshith.boti.jit.FunctionProfile;
+import com.rakshith.boti.jit.JitCompiler;
 import com.rakshith.boti.lexer.Token;
 import com.rakshith.boti.lexer.TokenType;
 
+import java.io.PrintStream;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+
+import static com.rakshith.boti.interpreter.Values.concat;
+import static com.rakshith.boti.interpreter.Values.isEqual;
+import static com.rakshith.boti.interpreter.Values.isString;
+import static com.rakshith.boti.interpreter.Values.isTruthy;
+import static com.rakshith.boti.interpreter.Values.stringify;
 
 /**
  * Tree-walk interpreter: evaluates the AST.
+ * With {@link Strategy#CLOSURES} each batch of statements is first compiled into pre-bound lambdas
+ * by the {@link ClosureCompiler} and run from there; both strategies share the same globals.
+ * With the JIT enabled, tree-walked functions that get hot are compiled to JVM bytecode.
+ * A {@code return} of a call to a user function does not call it: it leaves the callee and its
+ * frame behind, and {@link #invoke} runs them in a loop, so tail recursion takes constant stack.
+ * A tree-walker made with a {@link Profiler} or {@link RuntimeStats} reports calls and executed
+ * statements to them. While Flight Recorder is
+ * {@linkplain Events#recording() recording}, each call to a user function is a {@link CallEvent}.
  */
-public class Interpreter implements ExprVisitor<Object>, StmtVisitor<Void> {
+public class Interpreter implements ExprVisitor<Object>, StmtVisitor<Completion> {
+
+    public enum Strategy { TREE_WALK, CLOSURES }
+
+    private final Strategy strategy;
+    private final PrintStream out;
+    private final HadError errors;
+    private final Environment globals;
+    private final ClosureCompiler closureCompiler;
+    private final JitCompiler jit;
+    private final CallDepth callDepth = new CallDepth();
+    private final Profiler profiler;
+    private final RuntimeStats stats;
+    private final Tasks tasks = new Tasks();
+    private final Snapshot snapshot;
+    private final NativeFunction.Invoker invoker = new NativeFunction.Invoker() {
+        @Override
+        public Object call(Object callee, Object[] arguments, int line) {
+            return callFunction(callee, arguments, line);
+        }
+
+        @Override
+        public NativeFunction.Invoker fork() {
+            return new Interpreter(Interpreter.this, new FrameSnapshot()).invoker;
+        }
+
+        @Override
+        public Object capture(Object value) {
+            return snapshot == null ? value : snapshot.value(value);
+        }
+
+        @Override
+        public Tasks tasks() {
+            return tasks;
+        }
+    };
+    private Environment environment;
+    private Object returnValue;
+    private BotiCallable.BotiFunction tailCallee;
+    private Environment tailFrame;
+    private FunctionProfile looping; // the interpreted function's profile, which loops count toward
+
+    /** A tree-walker whose {@code print} writes to {@code out} and whose runtime errors go to {@code errors}. */
+    public Interpreter(PrintStream out, HadError errors) {
+        this(Strategy.TREE_WALK, out, errors);
+    }
+
+    public Interpreter(Strategy strategy, PrintStream out, HadError errors) {
+        this(strategy, false, out, errors);
+    }
+
+    /** {@code jit} applies to functions run by {@link Strategy#TREE_WALK}. */
+    public Interpreter(Strategy strategy, boolean jit, PrintStream out, HadError errors) {
+        this(strategy, jit, null, null, out, errors);
+    }
 
-    private Environment environment = new Environment();
+    /**
+     * A tree-walker without the JIT that reports to {@code profiler} and {@code stats}, either of
+     * which may be null.
+     */
+    public Interpreter(Profiler profiler, RuntimeStats stats, PrintStream out, HadError errors) {
+        this(Strategy.TREE_WALK, false, profiler, stats, out, errors);
+    }
+
+    private Interpreter(Strategy strategy, boolean jit, Profiler profiler, RuntimeStats stats,
+            PrintStream out, HadError errors) {
+        this.strategy = strategy;
+        this.out = out;
+        this.errors = errors;
+        this.globals = new Environment();
+        this.environment = globals;
+        this.snapshot = null;
+        this.closureCompiler = new ClosureCompiler(globals, out, tasks, null);
+        this.jit = jit ? new JitCompiler() : null;
+        this.profiler = profiler;
+        this.stats = stats;
+        Natives.define(globals);
+    }
+
+    /**
+     * A tree-walker for a task on another thread, over a {@code snapshot} of the globals of
+     * {@code parent} and sharing its JIT. Tasks are not profiled or counted.
+     */
+    private Interpreter(Interpreter parent, Snapshot snapshot) {
+        this.strategy = parent.strategy;
+        this.out = parent.out;
+        this.errors = parent.errors;
+        this.globals = snapshot.frame(parent.globals);
+        this.environment = globals;
+        this.snapshot = snapshot;
+        this.closureCompiler = new ClosureCompiler(globals, out, tasks, snapshot);
+        this.jit = parent.jit;
+        this.profiler = null;
+        this.stats = null;
+    }
 
+    /** Runs the statements, then waits for the tasks they spawned. */
     public void interpret(List<Stmt> statements) {
+        globals.reserveGlobals(Resolver.globalCount(statements));
         try {
-            for (Stmt statement : statements) {
-                execute(statement);
-            }
+            tasks.scope(() -> {
+                if (strategy == Strategy.CLOSURES) {
+                    for (ClosureCompiler.Action action : closureCompiler.compile(statements)) {
+                        action.run(globals);
+                    }
+                } else {
+                    for (Stmt statement : statements) {
+                        execute(statement);
+                    }
+                }
+            });
         } catch (RuntimeError e) {
-            HadError.reportRuntime(e.getMessage(), e.token.line());
+            errors.reportRuntime(e.getMessage(), e.line);
         }
     }
 
-    private void execute(Stmt stmt) {
-        stmt.accept(this);
+    public Environment globals() {
+        return globals;
+    }
+
+    /** Where {@code print} writes. */
+    public PrintStream out() {
+        return out;
+    }
+
+    private Completion execute(Stmt stmt) {
+        if (profiler != null) profiler.hit(Profiler.line(stmt));
+        if (stats != null) stats.statements++;
+        return stmt.accept(this);
     }
 
     private Object evaluate(Expr expr) {
         return expr.accept(this);
     }
 
+    /** The value of the {@code return} that produced the last {@link Completion#RETURN}. */
+    Object takeReturnValue() {
+        Object value = returnValue;
+        returnValue = null;
+        return value;
+    }
+
     @Override
-    public Void visitExpression(Stmt.Expression stmt) {
+    public Completion visitExpression(Stmt.Expression stmt) {
         evaluate(stmt.expression());
-        return null;
+        return Completion.NORMAL;
     }
 
     @Override
-    public Void visitPrint(Stmt.Print stmt) {
+    public Completion visitPrint(Stmt.Print stmt) {
         Object value = evaluate(stmt.expression());
-        System.out.println(stringify(value));
-        return null;
+        out.println(stringify(value));
+        return Completion.NORMAL;
     }
 
     @Override
-    public Void visitVar(Stmt.Var stmt) {
+    public Completion visitVar(Stmt.Var stmt) {
         Object value = null;
         if (stmt.initializer() != null) {
             value = evaluate(stmt.initializer());
         }
-        environment.define(stmt.name().lexeme(), value);
-        return null;
+        define(stmt.depth(), stmt.slot(), value);
+        return Completion.NORMAL;
     }
 
     @Override
-    public Void visitBlock(Stmt.Block stmt) {
-        executeBlock(stmt.statements(), new Environment(environment));
-        return null;
+    public Completion visitBlock(Stmt.Block stmt) {
+        // The resolver folded a block of frame size 0 into the current frame.
+        if (stmt.frameSize() == 0) return executeBlock(stmt.statements(), environment);
+        if (stats != null) stats.environments++;
+        return executeBlock(stmt.statements(), new Environment(environment, stmt.frameSize()));
     }
 
     @Override
-    public Void visitIf(Stmt.If stmt) {
+    public Completion visitIf(Stmt.If stmt) {
         if (isTruthy(evaluate(stmt.condition()))) {
-            execute(stmt.thenBranch());
+            return execute(stmt.thenBranch());
         } else if (stmt.elseBranch() != null) {
-            execute(stmt.elseBranch());
+            return execute(stmt.elseBranch());
         }
-        return null;
+        return Completion.NORMAL;
     }
 
     @Override
-    public Void visitWhile(Stmt.While stmt) {
-        while (isTruthy(evaluate(stmt.condition()))) {
-            execute(stmt.body());
+    public Completion visitWhile(Stmt.While stmt) {
+        while (true) {
+            if (profiler != null) profiler.hit(Profiler.line(stmt.condition()));
+            if (!isTruthy(evaluate(stmt.condition()))) break;
+            Completion completion = execute(stmt.body());
+            if (completion == Completion.BREAK) break;
+            if (completion == Completion.RETURN) return completion;
+            if (stmt.increment() != null) evaluate(stmt.increment());
+            if (looping != null) looping.backEdge();
         }
-        return null;
+        return Completion.NORMAL;
+    }
+
+    @Override
+    public Completion visitBreak(Stmt.Break stmt) {
+        return Completion.BREAK;
+    }
+
+    @Override
+    public Completion visitContinue(Stmt.Continue stmt) {
+        return Completion.CONTINUE;
     }
 
     @Override
-    public Void visitFunction(Stmt.Function stmt) {
-        var function = new BotiCallable.BotiFunction(stmt, environment);
-        environment.define(stmt.name().lexeme(), function);
-        return null;
+    public Completion visitFunction(Stmt.Function stmt) {
+        var function = new BotiCallable.BotiFunction(stmt, environment, jit == null ? null : jit.profile(stmt));
+        define(stmt.depth(), stmt.slot(), function);
+        return Completion.NORMAL;
     }
 
     @Override
-    public Void visitReturn(Stmt.Return stmt) {
-        Object value = stmt.value() != null ? evaluate(stmt.value()) : null;
-        throw new Return(value);
+    public Completion visitReturn(Stmt.Return stmt) {
+        if (stmt.tailCall()) {
+            Expr.Call call = (Expr.Call) stmt.value();
+            Object callee = evaluate(call.callee());
+            if (callee instanceof BotiCallable.BotiFunction function) {
+                tailCall(function, bindArguments(call, function));
+                returnValue = null;
+            } else {
+                returnValue = callOther(call, callee);
+            }
+            return Completion.RETURN;
+        }
+        returnValue = stmt.value() != null ? evaluate(stmt.value()) : null;
+        return Completion.RETURN;
     }
 
     @Override
-    public Void visitClass(Stmt.Class stmt) {
-        environment.define(stmt.name().lexeme(), null);
-        // TODO: bind methods, superclass
-        return null;
+    public Completion visitClass(Stmt.Class stmt) {
+        BotiClass superclass = null;
+        Environment scope = environment;
+        if (stmt.superclass() != null) {
+            superclass = BotiClass.superclass(evaluate(stmt.superclass()), stmt.superclass().name().line());
+            scope = new Environment(environment, 1);
+            scope.set(0, superclass);
+        }
+        Map<String, Object> methods = new HashMap<>();
+        for (Stmt.Function method : stmt.methods()) {
+            methods.put(method.name().lexeme(),
+                    new BotiCallable.BotiFunction(method, scope, jit == null ? null : jit.profile(method)));
+        }
+        define(stmt.depth(), stmt.slot(), new BotiClass(stmt.name().lexeme(), superclass, methods));
+        return Completion.NORMAL;
     }
 
-    void executeBlock(List<Stmt> statements, Environment env) {
+    /** Runs a function's body, counting its loop iterations toward {@code profile}, if any. */
+    Completion executeBody(List<Stmt> body, Environment frame, FunctionProfile profile) {
+        FunctionProfile caller = looping;
+        looping = profile;
+        try {
+            return executeBlock(body, frame);
+        } finally {
+            looping = caller;
+        }
+    }
+
+    Completion executeBlock(List<Stmt> statements, Environment env) {
         Environment previous = this.environment;
         try {
             this.environment = env;
             for (Stmt statement : statements) {
-                execute(statement);
+                Completion completion = execute(statement);
+                if (completion != Completion.NORMAL) return completion;
             }
+            return Completion.NORMAL;
         } finally {
             this.environment = previous;
         }
@@ -117,7 +313,11 @@ public class Interpreter implements ExprVisitor<Object>, StmtVisitor<Void> {
     @Override
     public Object visitAssign(Expr.Assign expr) {
         Object value = evaluate(expr.value());
-        environment.assign(expr.name(), value);
+        if (expr.depth() == Scope.GLOBAL) {
+            globals.assignGlobal(expr.name(), expr.slot(), value);
+        } else {
+            environment.assignAt(expr.depth(), expr.slot(), value);
+        }
         return value;
     }
 
@@ -128,20 +328,20 @@ public class Interpreter implements ExprVisitor<Object>, StmtVisitor<Void> {
         switch (expr.operator().type()) {
             case MINUS -> {
                 checkNumberOperands(expr.operator(), left, right);
-                return (double) left - (double) right;
+                return number((double) left - (double) right);
             }
             case SLASH -> {
                 checkNumberOperands(expr.operator(), left, right);
                 if ((double) right == 0) throw new RuntimeError(expr.operator(), "Division by zero.");
-                return (double) left / (double) right;
+                return number((double) left / (double) right);
             }
             case STAR -> {
                 checkNumberOperands(expr.operator(), left, right);
-                return (double) left * (double) right;
+                return number((double) left * (double) right);
             }
             case PLUS -> {
-                if (left instanceof Double l && right instanceof Double r) return l + r;
-                if (left instanceof String || right instanceof String) return stringify(left) + stringify(right);
+                if (left instanceof Double l && right instanceof Double r) return number(l + r);
+                if (isString(left) || isString(right)) return concat(left, right);
                 throw new RuntimeError(expr.operator(), "Operands must be two numbers or two strings.");
             }
             case GREATER -> {
@@ -166,10 +366,66 @@ public class Interpreter implements ExprVisitor<Object>, StmtVisitor<Void> {
         }
     }
 
+    /** Boxes an arithmetic result. */
+    private Object number(double value) {
+        if (stats != null) stats.doubles++;
+        return value;
+    }
+
     @Override
     public Object visitCall(Expr.Call expr) {
-        Object callee = evaluate(expr.callee());
-        List<Object> arguments = new java.util.ArrayList<>();
+        Object callee;
+        if (expr.callee() instanceof Expr.Get get) {
+            // A method call runs the cached method on the instance without binding it first.
+            BotiInstance instance = BotiInstance.of(evaluate(get.object()), get.name().line());
+            PropertyCache.Entry found = instance.find(get.name(), get.cache());
+            if (found.index() < 0) {
+                var method = (BotiCallable.BotiFunction) found.target();
+                Environment frame = bindArguments(expr, method);
+                frame.set(method.arity(), instance);
+                return invoke(method, frame, expr.paren());
+            }
+            callee = instance.field(found.index());
+        } else {
+            callee = evaluate(expr.callee());
+        }
+        if (callee instanceof BotiCallable.BotiFunction function) {
+            return invoke(function, bindArguments(expr, function), expr.paren());
+        }
+        return callOther(expr, callee);
+    }
+
+    /**
+     * Evaluates the arguments straight into a new frame for {@code function}. The arity check
+     * only runs until the call site has cached the declaration.
+     */
+    private Environment bindArguments(Expr.Call expr, BotiCallable.BotiFunction function) {
+        List<Expr> argumentExprs = expr.arguments();
+        if (!expr.site().contains(function.declaration())) {
+            if (argumentExprs.size() != function.arity()) {
+                for (Expr arg : argumentExprs) {
+                    evaluate(arg);
+                }
+                throw new RuntimeError(expr.paren(), "Expected " + function.arity() + " arguments but got " + argumentExprs.size() + ".");
+            }
+            expr.site().add(function.declaration());
+        }
+        Environment frame = function.newFrame();
+        for (int i = 0; i < argumentExprs.size(); i++) {
+            frame.set(i, evaluate(argumentExprs.get(i)));
+        }
+        return frame;
+    }
+
+    /** Calls anything that is not a user function, with the callee already evaluated. */
+    private Object callOther(Expr.Call expr, Object callee) {
+        if (callee instanceof NativeFunction function && function.arity() == expr.arguments().size()) {
+            return callNative(expr, function);
+        }
+        if (callee instanceof BoundMethod || callee instanceof BotiClass) {
+            return callFunction(callee, evaluateAll(expr.arguments()), expr.paren().line());
+        }
+        List<Object> arguments = new java.util.ArrayList<>(expr.arguments().size());
         for (Expr arg : expr.arguments()) {
             arguments.add(evaluate(arg));
         }
@@ -179,7 +435,184 @@ public class Interpreter implements ExprVisitor<Object>, StmtVisitor<Void> {
         if (arguments.size() != function.arity()) {
             throw new RuntimeError(expr.paren(), "Expected " + function.arity() + " arguments but got " + arguments.size() + ".");
         }
-        return function.call(this, arguments);
+        if (stats != null) stats.calls++;
+        return function.call(this, arguments, expr.paren());
+    }
+
+    /** Natives are intrinsics: their operation is applied to the evaluated arguments directly. */
+    private Object callNative(Expr.Call expr, NativeFunction function) {
+        List<Expr> arguments = expr.arguments();
+        int line = expr.paren().line();
+        if (stats != null) stats.calls++;
+        return switch (function) {
+            case NativeFunction.Nullary f -> number(f.apply());
+            case NativeFunction.Unary f -> number(f.apply(f.number(evaluate(arguments.get(0)), line)));
+            case NativeFunction.Binary f -> {
+                Object x = evaluate(arguments.get(0));
+                Object y = evaluate(arguments.get(1));
+                yield number(f.apply(f.number(x, line), f.number(y, line), line));
+            }
+            case NativeFunction.Builtin f -> f.call(evaluateAll(arguments), invoker, line);
+        };
+    }
+
+    private Object[] evaluateAll(List<Expr> exprs) {
+        Object[] values = new Object[exprs.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = evaluate(exprs.get(i));
+        }
+        return values;
+    }
+
+    /** How natives run on this interpreter call back into it. */
+    public NativeFunction.Invoker invoker() {
+        return invoker;
+    }
+
+    /** Calls a function value from Java, for natives such as {@code map}. */
+    private Object callFunction(Object callee, Object[] arguments, int line) {
+        return switch (callee) {
+            case BotiCallable.BotiFunction function when function.arity() == arguments.length ->
+                    invoke(function, frame(function, arguments), line);
+            case BoundMethod bound -> callMethod(bound.method(), bound.receiver(), arguments, line);
+            case BotiClass klass -> {
+                BotiInstance instance = new BotiInstance(klass);
+                if (klass.initializer() != null) {
+                    callMethod(klass.initializer(), instance, arguments, line);
+                } else if (arguments.length != 0) {
+                    throw new RuntimeError(line, "Expected 0 arguments but got " + arguments.length + ".");
+                }
+                yield instance;
+            }
+            case NativeFunction function when function.arity() == arguments.length -> {
+                if (stats != null) stats.calls++;
+                yield function.call(arguments, invoker, line);
+            }
+            case BotiCallable function -> throw new RuntimeError(line,
+                    "Expected " + function.arity() + " arguments but got " + arguments.length + ".");
+            case null, default -> throw new RuntimeError(line, "Can only call functions and classes.");
+        };
+    }
+
+    private Object callMethod(Object method, BotiInstance receiver, Object[] arguments, int line) {
+        var function = (BotiCallable.BotiFunction) method;
+        if (function.arity() != arguments.length) {
+            throw new RuntimeError(line, "Expected " + function.arity() + " arguments but got " + arguments.length + ".");
+        }
+        Environment frame = frame(function, arguments);
+        frame.set(arguments.length, receiver);
+        return invoke(function, frame, line);
+    }
+
+    private static Environment frame(BotiCallable.BotiFunction function, Object[] arguments) {
+        Environment frame = function.newFrame();
+        for (int i = 0; i < arguments.length; i++) {
+            frame.set(i, arguments[i]);
+        }
+        return frame;
+    }
+
+    /**
+     * Runs {@code function} in {@code frame}, a frame from {@link BotiCallable.BotiFunction#newFrame}
+     * that already holds the arguments, followed by any tail calls it makes.
+     */
+    public Object invoke(BotiCallable.BotiFunction function, Environment frame, Token paren) {
+        return invoke(function, frame, paren.line());
+    }
+
+    private Object invoke(BotiCallable.BotiFunction function, Environment frame, int line) {
+        callDepth.enter(line);
+        try {
+            Object result = run(function, frame);
+            while (tailCallee != null) {
+                function = tailCallee;
+                frame = tailFrame;
+                tailCallee = null;
+                tailFrame = null;
+                result = run(function, frame);
+            }
+            return result;
+        } catch (StackOverflowError e) {
+            throw CallDepth.overflow(line);
+        } finally {
+            callDepth.exit();
+        }
+    }
+
+    private Object run(BotiCallable.BotiFunction function, Environment frame) {
+        if (stats != null) {
+            stats.calls++;
+            stats.environments++;
+        }
+        CallEvent event = Events.recording() ? new CallEvent() : null;
+        if (event == null && profiler == null) return function.run(this, frame);
+        if (event != null) event.begin();
+        if (profiler != null) profiler.enter(function.declaration());
+        try {
+            return function.run(this, frame);
+        } finally {
+            if (profiler != null) profiler.exit();
+            if (event != null) {
+                event.end();
+                if (event.shouldCommit()) {
+                    event.function = function.declaration().name().lexeme();
+                    event.line = function.declaration().name().line();
+                    event.commit();
+                }
+            }
+        }
+    }
+
+    /**
+     * Leaves a call for the enclosing {@link #invoke} to make once the current body has returned;
+     * the body must return right away.
+     */
+    public void tailCall(BotiCallable.BotiFunction function, Environment frame) {
+        tailCallee = function;
+        tailFrame = frame;
+    }
+
+    @Override
+    public Object visitArrayLiteral(Expr.ArrayLiteral expr) {
+        return BotiArray.of(evaluateAll(expr.elements()));
+    }
+
+    @Override
+    public Object visitMapLiteral(Expr.MapLiteral expr) {
+        return BotiMap.of(evaluateAll(expr.entries()), expr.brace().line());
+    }
+
+    @Override
+    public Object visitIndex(Expr.Index expr) {
+        Object array = evaluate(expr.array());
+        Object index = evaluate(expr.index());
+        return BotiArray.get(array, index, expr.bracket().line());
+    }
+
+    @Override
+    public Object visitSetIndex(Expr.SetIndex expr) {
+        Object array = evaluate(expr.array());
+        Object index = evaluate(expr.index());
+        Object value = evaluate(expr.value());
+        return BotiArray.set(array, index, value, expr.bracket().line());
+    }
+
+    @Override
+    public Object visitGet(Expr.Get expr) {
+        return BotiInstance.get(evaluate(expr.object()), expr.name(), expr.cache());
+    }
+
+    @Override
+    public Object visitSet(Expr.Set expr) {
+        Object object = evaluate(expr.object());
+        Object value = evaluate(expr.value());
+        return BotiInstance.set(object, expr.name(), value, expr.cache());
+    }
+
+    @Override
+    public Object visitSuper(Expr.Super expr) {
+        Object superclass = evaluate(expr.superclass());
+        return ((BotiClass) superclass).bind(evaluate(expr.receiver()), expr.method());
     }
 
     @Override
@@ -210,7 +643,7 @@ public class Interpreter implements ExprVisitor<Object>, StmtVisitor<Void> {
             case BANG -> !isTruthy(right);
             case MINUS -> {
                 checkNumberOperand(expr.operator(), right);
-                yield -(double) right;
+                yield number(-(double) right);
             }
             default -> throw new RuntimeError(expr.operator(), "Unknown unary operator.");
         };
@@ -218,28 +651,16 @@ public class Interpreter implements ExprVisitor<Object>, StmtVisitor<Void> {
 
     @Override
     public Object visitVariable(Expr.Variable expr) {
-        return environment.get(expr.name());
-    }
-
-    private boolean isTruthy(Object object) {
-        if (object == null) return false;
-        if (object instanceof Boolean b) return b;
-        return true;
-    }
-
-    private boolean isEqual(Object a, Object b) {
-        if (a == null && b == null) return true;
-        if (a == null) return false;
-        return a.equals(b);
+        if (expr.depth() == Scope.GLOBAL) return globals.getGlobal(expr.name(), expr.slot());
+        return environment.getAt(expr.depth(), expr.slot());
     }
 
-    private String stringify(Object object) {
-        if (object == null) return "nil";
-        if (object instanceof Double d) {
-            String text = d.toString();
-            return text.endsWith(".0") ? text.substring(0, text.length() - 2) : text;
+    private void define(int depth, int slot, Object value) {
+        if (depth == Scope.GLOBAL) {
+            globals.defineGlobal(slot, value);
+        } else {
+            environment.set(slot, value);
         }
-        return object.toString();
     }
 
     private void checkNumberOperand(Token operator, Object operand) {
@@ -0,0 +1,143 @@
+package com.rakshith.boti.interpreter;
+
+import com.rakshith.boti.lexer.Token;
+
+import java.util.List;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleSupplier;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * A function implemented in Java (see {@link Natives}). The math natives take and return
+ * numbers, so engines call them as intrinsics: they match on the arity's record and call
+ * {@code apply} on the argument values directly, unboxed where the engine keeps numbers unboxed.
+ * {@link Builtin}s work on any values and are called through the generic
+ * {@link #call(Object[], Invoker, int)}.
+ */
+public sealed interface NativeFunction extends BotiCallable {
+
+    /**
+     * How a native calls a function value, such as the one {@code map} applies; one per engine and
+     * thread, as it holds the thread's call stack.
+     */
+    interface Invoker {
+        /** Calls {@code callee}, failing as a call on {@code line} of the script would. */
+        Object call(Object callee, Object[] arguments, int line);
+
+        /**
+         * An invoker for another thread: a call stack of its own over a {@link Snapshot} of this
+         * thread's globals, taken now.
+         */
+        Invoker fork();
+
+        /** {@code value} of the thread this invoker was forked from, as seen in the fork's snapshot. */
+        Object capture(Object value);
+
+        /** The tasks {@code spawn} started from this invoker's thread, joined when its script or task ends. */
+        Tasks tasks();
+    }
+
+    String name();
+
+    /** Calls with the right number of arguments; {@code line} is the call's, for runtime errors. */
+    Object call(Object[] arguments, Invoker invoker, int line);
+
+    @Override
+    default Object call(Interpreter interpreter, List<Object> arguments, Token paren) {
+        return call(arguments.toArray(), interpreter.invoker(), paren.line());
+    }
+
+    /** Unboxes an argument, or fails the call. */
+    default double number(Object argument, int line) {
+        if (argument instanceof Double d) return d;
+        throw new RuntimeError(line, (arity() == 1 ? "Argument to '" : "Arguments to '") + name()
+                + (arity() == 1 ? "' must be a number." : "' must be numbers."));
+    }
+
+    record Nullary(String name, DoubleSupplier body) implements NativeFunction {
+        @Override
+        public int arity() {
+            return 0;
+        }
+
+        public double apply() {
+            return body.getAsDouble();
+        }
+
+        @Override
+        public Object call(Object[] arguments, Invoker invoker, int line) {
+            return apply();
+        }
+
+        @Override
+        public String toString() {
+            return "<native fn " + name + ">";
+        }
+    }
+
+    record Unary(String name, DoubleUnaryOperator body) implements NativeFunction {
+        @Override
+        public int arity() {
+            return 1;
+        }
+
+        public double apply(double x) {
+            return body.applyAsDouble(x);
+        }
+
+        @Override
+        public Object call(Object[] arguments, Invoker invoker, int line) {
+            return apply(number(arguments[0], line));
+        }
+
+        @Override
+        public String toString() {
+            return "<native fn " + name + ">";
+        }
+    }
+
+    /** A body may throw {@link ArithmeticException}, whose message becomes the runtime error. */
+    record Binary(String name, DoubleBinaryOperator body) implements NativeFunction {
+        @Override
+        public int arity() {
+            return 2;
+        }
+
+        public double apply(double x, double y, int line) {
+            try {
+                return body.applyAsDouble(x, y);
+            } catch (ArithmeticException e) {
+                throw new RuntimeError(line, e.getMessage());
+            }
+        }
+
+        @Override
+        public Object call(Object[] arguments, Invoker invoker, int line) {
+            double x = number(arguments[0], line);
+            return apply(x, number(arguments[1], line), line);
+        }
+
+        @Override
+        public String toString() {
+            return "<native fn " + name + ">";
+        }
+    }
+
+    /** A native over arbitrary values, such as arrays; the body checks its own arguments. */
+    record Builtin(String name, int arity, Body body) implements NativeFunction {
+        @FunctionalInterface
+        interface Body {
+            Object apply(Object[] arguments, Invoker invoker, int line);
+        }
+
+        @Override
+        public Object call(Object[] arguments, Invoker invoker, int line) {
+            return body.apply(arguments, invoker, line);
+        }
+
+        @Override
+        public String toString() {
+            return "<native fn " + name + ">";
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package com.rakshith.boti.interpreter;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The native functions every engine predefines as globals. Their order is fixed: the
+ * {@link Resolver} gives the i-th native global slot i before it sees any script, and each engine
+ * stores the natives in those slots. A script may still declare a global of the same name, which
+ * replaces the native from then on.
+ *
+ * <p>The array natives are loops over the array's own storage, unboxed when it is numeric.
+ * {@code len} also counts the entries of a {@link BotiMap}, and {@code keys} lists them.
+ * {@code spawn} starts a {@link BotiTask} in the calling thread's {@link Tasks} scope, and tasks
+ * hand values to each other through {@link BotiChannel}s. {@code pmap}, {@code pfilter} and
+ * {@code preduce} split an array across the cores; see {@link Parallel}.
+ */
+public final class Natives {
+
+    private static final List<NativeFunction> FUNCTIONS = List.of(
+            new NativeFunction.Nullary("clock", () -> System.currentTimeMillis() / 1000.0),
+            new NativeFunction.Unary("abs", Math::abs),
+            new NativeFunction.Unary("floor", Math::floor),
+            new NativeFunction.Unary("ceil", Math::ceil),
+            new NativeFunction.Unary("round", Natives::round),
+            new NativeFunction.Unary("sqrt", Math::sqrt),
+            new NativeFunction.Unary("exp", Math::exp),
+            new NativeFunction.Unary("log", Math::log),
+            new NativeFunction.Unary("sin", Math::sin),
+            new NativeFunction.Unary("cos", Math::cos),
+            new NativeFunction.Unary("tan", Math::tan),
+            new NativeFunction.Unary("atan", Math::atan),
+            new NativeFunction.Binary("pow", Math::pow),
+            new NativeFunction.Binary("min", Math::min),
+            new NativeFunction.Binary("max", Math::max),
+            new NativeFunction.Binary("mod", Natives::mod),
+            new NativeFunction.Binary("atan2", Math::atan2),
+            new NativeFunction.Binary("hypot", Math::hypot),
+            new NativeFunction.Builtin("len", 1, Natives::len),
+            new NativeFunction.Builtin("sum", 1, Natives::sum),
+            new NativeFunction.Builtin("fill", 2, Natives::fill),
+            new NativeFunction.Builtin("map", 2, Natives::map),
+            new NativeFunction.Builtin("sort", 1, Natives::sort),
+            new NativeFunction.Builtin("slice", 3, Natives::slice),
+            new NativeFunction.Builtin("keys", 1, Natives::keys),
+            new NativeFunction.Builtin("has", 2, Natives::has),
+            new NativeFunction.Builtin("remove", 2, Natives::remove),
+            new NativeFunction.Builtin("spawn", 1, Natives::spawn),
+            new NativeFunction.Builtin("await", 1, Natives::await),
+            new NativeFunction.Builtin("channel", 1, Natives::channel),
+            new NativeFunction.Builtin("send", 2, Natives::send),
+            new NativeFunction.Builtin("receive", 1, Natives::receive),
+            new NativeFunction.Builtin("close", 1, Natives::close),
+            new NativeFunction.Builtin("range", 2, Natives::range),
+            new NativeFunction.Builtin("pmap", 2, Parallel::map),
+            new NativeFunction.Builtin("pfilter", 2, Parallel::filter),
+            new NativeFunction.Builtin("preduce", 3, Parallel::reduce));
+
+    private Natives() { }
+
+    /** All natives, in global slot order. */
+    public static List<NativeFunction> all() {
+        return FUNCTIONS;
+    }
+
+    /** Stores the natives in a fresh global frame. */
+    public static void define(Environment globals) {
+        for (int slot = 0; slot < FUNCTIONS.size(); slot++) {
+            globals.defineGlobal(slot, FUNCTIONS.get(slot));
+        }
+    }
+
+    /** Halves round up, as {@link Math#round} does; numbers too large to have a fraction are left alone. */
+    private static double round(double x) {
+        return Math.abs(x) < 0x1p52 ? Math.round(x) : x;
+    }
+
+    /**
+     * Remainder with the sign of the divisor, so {@code mod(-1, 3)} is 2. Whole numbers are divided
+     * as longs, which gives the same remainder without the JVM's fmod call: that call runs several
+     * times slower once compiled code has used AVX-512 registers, so loops around {@code mod} got
+     * slower or faster depending on what HotSpot happened to compile first.
+     */
+    private static double mod(double x, double y) {
+        if (y == 0) throw new ArithmeticException("Division by zero.");
+        // A zero remainder keeps the sign of x, as % gives it.
+        double r = isWhole(x) && isWhole(y) ? Math.copySign((double) ((long) x % (long) y), x) : x % y;
+        return r != 0 && (r < 0) != (y < 0) ? r + y : r;
+    }
+
+    /** Exactly a long: no fraction and small enough that every long near it is a double too. */
+    private static boolean isWhole(double x) {
+        return Math.abs(x) < 0x1p53 && x == (long) x;
+    }
+
+    private static Object len(Object[] arguments, NativeFunction.Invoker invoker, int line) {
+        return switch (arguments[0]) {
+            case BotiArray array -> (double) array.length();
+            case BotiMap map -> (double) map.size();
+            case String string -> (double) string.length();
+            case Rope string -> (double) string.length();
+            case null, default -> throw new RuntimeError(line, "Argument to 'len' must be an array, a map or a string.");
+        };
+    }
+
+    private static Object sum(Object[] arguments, NativeFunction.Invoker invoker, int line) {
+        BotiArray array = array(arguments[0], "Argument to 'sum'", line);
+        double total = 0;
+        double[] numbers = array.numbers();
+        if (numbers != null) {
+            for (double x : numbers) {
+                total += x;
+            }
+        } else {
+            for (Object x : array.values()) {
+                if (!(x instanceof Double d)) throw new RuntimeError(line, "Can only sum an array of numbers.");
+                total += d;
+            }
+        }
+        return total;
+    }
+
+    /** {@code fill(n, value)}: a new array of {@code n} copies of {@code value}. */
+    private static Object fill(Object[] arguments, NativeFunction.Invoker invoker, int line) {
+        if (!(arguments[0] instanceof Double count) || count != Math.rint(count) || count < 0
+                || count > Integer.MAX_VALUE) {
+            throw new RuntimeError(line, "First argument to 'fill' must be a non-negative integer.");
+        }
+        int length = (int) (double) count;
+        if (arguments[1] instanceof Double value) {
+            double[] numbers = new double[length];
+            Arrays.fill(numbers, value);
+            return new BotiArray(numbers);
+        }
+        Object[] values = new Object[length];
+        Arrays.fill(values, arguments[1]);
+        return BotiArray.of(values);
+    }
+
+    /** {@code range(from, to)}: a new numeric array of the integers from {@code from} up to {@code to}. */
+    private static Object range(Object[] arguments, NativeFunction.Invoker invoker, int line) {
+        if (!(arguments[0] instanceof Double from) || from != Math.rint(from)
+                || !(arguments[1] instanceof Double to) || to != Math.rint(to)) {
+            throw new RuntimeError(line, "Arguments to 'range' must be integers.");
+        }
+        double length = Math.max(0, to - from);
+        if (length > Integer.MAX_VALUE) throw new RuntimeError(line, "Range is too long.");
+        double[] numbers = new double[(int) length];
+        for (int i = 0; i < numbers.length; i++) {
+            numbers[i] = from + i;
+        }
+        return new BotiArray(numbers);
+    }
+
+    /** A new array of {@code function(element)} for each element; numeric while the results are. */
+    private static Object map(Object[] arguments, NativeFunction.Invoker invoker, int line) {
+        BotiArray array = array(arguments[0], "First argument to 'map'", line);
+        int length = array.length();
+        double[] numbers = new double[length];
+        Object[] values = null;
+        for (int i = 0; i < length; i++) {
+            Object result = invoker.call(arguments[1], new Object[] { array.get(i) }, line);
+            if (values == null) {
+                if (result instanceof Double d) {
+                    numbers[i] = d;
+                    continue;
+                }
+                values = new Object[length];
+                for (int j = 0; j < i; j++) {
+                    values[j] = numbers[j];
+                }
+            }
+            values[i] = result;
+        }
+        return values == null ? new BotiArray(numbers) : new BotiArray(values);
+    }
+
+    /** Sorts numbers or strings in place, in ascending order, and returns the array. */
+    private static Object sort(Object[] arguments, NativeFunction.Invoker invoker, int line) {
+        BotiArray array = array(arguments[0], "Argument to 'sort'", line);
+        double[] numbers = array.numbers();
+        if (numbers != null) {
+            Arrays.sort(numbers);
+            return array;
+        }
+        Object[] values = array.values();
+        boolean strings = values.length > 0 && Values.isString(values[0]);
+        for (Object value : values) {
+            if (strings ? !Values.isString(value) : !(value instanceof Double)) {
+                throw new RuntimeError(line, "Can only sort an array of numbers or of strings.");
+            }
+        }
+        if (strings) {
+            for (int i = 0; i < values.length; i++) {
+                values[i] = values[i].toString();
+            }
+        }
+        Arrays.sort(values);
+        return array;
+    }
+
+    /** {@code slice(array, from, to)}: a new array of the elements from index {@code from} up to {@code to}. */
+    private static Object slice(Object[] arguments, NativeFunction.Invoker invoker, int line) {
+        BotiArray array = array(arguments[0], "First argument to 'slice'", line);
+        int from = bound(arguments[1], array, line);
+        int to = bound(arguments[2], array, line);
+        if (from > to) throw new RuntimeError(line, "Slice bounds out of range.");
+        double[] numbers = array.numbers();
+        if (numbers != null) return new BotiArray(Arrays.copyOfRange(numbers, from, to));
+        return BotiArray.of(Arrays.copyOfRange(array.values(), from, to));
+    }
+
+    private static int bound(Object bound, BotiArray array, int line) {
+        if (!(bound instanceof Double d) || d != Math.rint(d)) {
+            throw new RuntimeError(line, "Slice bounds must be integers.");
+        }
+        if (d < 0 || d > array.length()) throw new RuntimeError(line, "Slice bounds out of range.");
+        return (int) (double) d;
+    }
+
+    /** The keys of a map as a new array, in the order {@link BotiMap#keys()} gives. */
+    private static Object keys(Object[] arguments, NativeFunction.Invoker invoker, int line) {
+        return map(arguments[0], "Argument to 'keys'", line).keys();
+    }
+
+    private static Object has(Object[] arguments, NativeFunction.Invoker invoker, int line) {
+        return map(arguments[0], "First argument to 'has'", line).find(arguments[1], line) >= 0;
+    }
+
+    /** Removes a key from a map; returns its value, or nil if it had none. */
+    private static Object remove(Object[] arguments, NativeFunction.Invoker invoker, int line) {
+        return map(arguments[0], "First argument to 'remove'", line).remove(arguments[1], line);
+    }
+
+    /** {@code spawn(function)}: calls {@code function} with no arguments on a new task. */
+    private static Object spawn(Object[] arguments, NativeFunction.Invoker invoker, int line) {
+        return invoker.tasks().spawn(arguments[0], invoker, line);
+    }
+
+    private static Object await(Object[] arguments, NativeFunction.Invoker invoker, int line) {
+        if (arguments[0] instanceof BotiTask task) return task.await(invoker.tasks(), line);
+        throw new RuntimeError(line, "Argument to 'await' must be a task.");
+    }
+
+    private static Object channel(Object[] arguments, NativeFunction.Invoker invoker, int line) {
+        if (!(arguments[0] instanceof Double capacity) || capacity != Math.rint(capacity) || capacity < 1
+                || capacity > Integer.MAX_VALUE) {
+            throw new RuntimeError(line, "Argument to 'channel' must be a positive integer.");
+        }
+        return new BotiChannel((int) (double) capacity);
+    }
+
+    private static Object send(Object[] arguments, NativeFunction.Invoker invoker, int line) {
+        channel(arguments[0], "First argument to 'send'", line).send(arguments[1], invoker.tasks(), line);
+        return null;
+    }
+
+    /** The next value sent, in order; nil once the channel is closed and empty. */
+    private static Object receive(Object[] arguments, NativeFunction.Invoker invoker, int line) {
+        return channel(arguments[0], "Argument to 'receive'", line).receive(invoker.tasks(), line);
+    }
+
+    private static Object close(Object[] arguments, NativeFunction.Invoker invoker, int line) {
+        channel(arguments[0], "Argument to 'close'", line).close(line);
+        return null;
+    }
+
+    private static BotiChannel channel(Object value, String argument, int line) {
+        if (value instanceof BotiChannel channel) return channel;
+        throw new RuntimeError(line, argument + " must be a channel.");
+    }
+
+    private static BotiMap map(Object value, String argument, int line) {
+        if (value instanceof BotiMap map) return map;
+        throw new RuntimeError(line, argument + " must be a map.");
+    }
+
+    static BotiArray array(Object value, String argument, int line) {
+        if (value instanceof BotiArray array) return array;
+        throw new RuntimeError(line, argument + " must be an array.");
+    }
+}
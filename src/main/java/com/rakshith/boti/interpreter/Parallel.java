@@ -0,0 +1,194 @@
+package com.rakshith.boti.interpreter;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The data-parallel natives {@code pmap}, {@code pfilter} and {@code preduce}. The indices of the
+ * array are halved recursively on the common {@link ForkJoinPool}, down to chunks of about a
+ * quarter of the array per core, and idle workers steal halves that are still unsplit. Each chunk
+ * calls the function through a {@linkplain NativeFunction.Invoker#fork fork} of the caller's
+ * invoker, as a task does, so workers share neither a call stack nor variables, and waits for
+ * any tasks the calls spawn.
+ *
+ * <p>If calls fail, the error is the one for the lowest index, as a sequential loop would report;
+ * chunks past a failure stop early.
+ */
+final class Parallel {
+
+    private Parallel() { }
+
+    /** {@code pmap(array, function)}: {@code map}, with the calls made in parallel. */
+    static Object map(Object[] arguments, NativeFunction.Invoker invoker, int line) {
+        BotiArray array = Natives.array(arguments[0], "First argument to 'pmap'", line);
+        Object function = arguments[1];
+        Object[] results = new Object[array.length()];
+        forEach(array.length(), function, invoker, (i, worker, f) ->
+                results[i] = worker.call(f, new Object[] { array.get(i) }, line));
+        return BotiArray.of(results);
+    }
+
+    /** {@code pfilter(array, function)}: a new array of the elements for which the function is truthy, in order. */
+    static Object filter(Object[] arguments, NativeFunction.Invoker invoker, int line) {
+        BotiArray array = Natives.array(arguments[0], "First argument to 'pfilter'", line);
+        Object function = arguments[1];
+        int length = array.length();
+        boolean[] keep = new boolean[length];
+        forEach(length, function, invoker, (i, worker, f) ->
+                keep[i] = Values.isTruthy(worker.call(f, new Object[] { array.get(i) }, line)));
+        int count = 0;
+        for (boolean k : keep) {
+            if (k) count++;
+        }
+        double[] elements = array.numbers();
+        if (elements != null) {
+            double[] numbers = new double[count];
+            for (int i = 0, j = 0; i < length; i++) {
+                if (keep[i]) numbers[j++] = elements[i];
+            }
+            return new BotiArray(numbers);
+        }
+        Object[] values = new Object[count];
+        for (int i = 0, j = 0; i < length; i++) {
+            if (keep[i]) values[j++] = array.get(i);
+        }
+        return BotiArray.of(values);
+    }
+
+    /**
+     * {@code preduce(array, function, initial)}: each chunk folds its elements into
+     * {@code initial} with {@code function(accumulator, element)}, then the caller folds the
+     * chunks' results in order. This is a left fold when the function is associative and
+     * {@code initial} is its identity, as 0 is for {@code +}.
+     */
+    static Object reduce(Object[] arguments, NativeFunction.Invoker invoker, int line) {
+        BotiArray array = Natives.array(arguments[0], "First argument to 'preduce'", line);
+        Object function = arguments[1];
+        Object initial = arguments[2];
+        Object[] partials = new Object[array.length()];
+        Job job = new Job(array.length(), function, invoker) {
+            @Override
+            void chunk(int from, int to, NativeFunction.Invoker worker, Object function) {
+                Object accumulator = initial;
+                for (int i = from; i < to && !failedBefore(i); i++) {
+                    accumulator = worker.call(function, new Object[] { accumulator, array.get(i) }, line);
+                }
+                partials[from] = accumulator;
+            }
+        };
+        job.run();
+        Object result = initial;
+        for (int from = 0; from < array.length(); from = job.end(from)) {
+            result = invoker.call(function, new Object[] { result, partials[from] }, line);
+        }
+        return result;
+    }
+
+    @FunctionalInterface
+    private interface Element {
+        void apply(int index, NativeFunction.Invoker worker, Object function);
+    }
+
+    /** Applies {@code element} to each index in parallel. */
+    private static void forEach(int length, Object function, NativeFunction.Invoker invoker, Element element) {
+        new Job(length, function, invoker) {
+            @Override
+            void chunk(int from, int to, NativeFunction.Invoker worker, Object function) {
+                for (int i = from; i < to && !failedBefore(i); i++) {
+                    element.apply(i, worker, function);
+                }
+            }
+        }.run();
+    }
+
+    /** One parallel operation of {@code function} over the indices {@code [0, length)}, split into chunks. */
+    private abstract static class Job {
+        private final int length;
+        private final int grain;
+        private final Object function;
+        private final NativeFunction.Invoker invoker;
+        private volatile int failedAt = Integer.MAX_VALUE;
+        private Throwable failure;
+
+        Job(int length, Object function, NativeFunction.Invoker invoker) {
+            this.length = length;
+            this.function = function;
+            int chunks = 4 * (ForkJoinPool.getCommonPoolParallelism() + 1);
+            this.grain = Math.max(1, (length + chunks - 1) / chunks);
+            this.invoker = invoker;
+        }
+
+        /**
+         * Runs one chunk on the worker's own invoker, with the worker's copy of the function;
+         * stops early once {@link #failedBefore} its index.
+         */
+        abstract void chunk(int from, int to, NativeFunction.Invoker worker, Object function);
+
+        void run() {
+            if (length > 0) new Split(this, 0, length).invoke();
+            if (failure != null) throw BotiTask.rethrow(failure);
+        }
+
+        /** The end of the chunk that starts at {@code from}: the chunks are the leaves of the halving. */
+        int end(int from) {
+            int lo = 0;
+            int hi = length;
+            while (hi - lo > grain) {
+                int mid = (lo + hi) >>> 1;
+                if (from < mid) {
+                    hi = mid;
+                } else {
+                    lo = mid;
+                }
+            }
+            return hi;
+        }
+
+        /** Whether an element before {@code index} has failed, so an error at the index would not be reported. */
+        boolean failedBefore(int index) {
+            return failedAt < index;
+        }
+
+        void leaf(int from, int to) {
+            NativeFunction.Invoker worker = invoker.fork();
+            Object copy = worker.capture(function);
+            try {
+                worker.tasks().scope(() -> chunk(from, to, worker, copy));
+            } catch (RuntimeException | Error e) {
+                fail(from, e);
+            }
+        }
+
+        /** A chunk stops at its first failure, so the lowest failing chunk has the lowest failing index. */
+        private synchronized void fail(int from, Throwable error) {
+            if (from < failedAt) {
+                failedAt = from;
+                failure = error;
+            }
+        }
+    }
+
+    private static final class Split extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final transient Job job;
+        private final int from;
+        private final int to;
+
+        Split(Job job, int from, int to) {
+            this.job = job;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= job.grain) {
+                job.leaf(from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new Split(job, from, mid), new Split(job, mid, to));
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.rakshith.boti.interpreter;
+
+import com.rakshith.boti.ast.Expr;
+import com.rakshith.boti.ast.Stmt;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Instrumenting profiler for the tree-walker ({@code boti --profile}). The {@link Interpreter}
+ * reports every function activation and every statement it executes, so call counts and line
+ * hits are exact; times are wall-clock and include the profiler's own bookkeeping. Interpreters
+ * made without a profiler pay one null check per statement and call.
+ *
+ * <p>A statement hits the line of its first token; a loop hits its condition's line once per
+ * test. Recursive calls count towards a function's inclusive time only at the outermost level.
+ */
+public final class Profiler {
+
+    private static final int REPORT_ROWS = 20;
+
+    /** Totals for one function declaration. */
+    private static final class Function {
+        final String name;
+        long calls;
+        long inclusive;
+        long exclusive;
+        int active;
+
+        Function(String name) {
+            this.name = name;
+        }
+    }
+
+    /** One distinct call stack, for the folded output. */
+    private static final class Node {
+        final String name;
+        final Map<Stmt.Function, Node> children = new IdentityHashMap<>();
+        long self;
+
+        Node(String name) {
+            this.name = name;
+        }
+    }
+
+    /** An activation: time spent in its callees is subtracted to get its exclusive time. */
+    private static final class Frame {
+        final Function function;
+        final Node node;
+        final Frame caller;
+        final long start = System.nanoTime();
+        long children;
+
+        Frame(Function function, Node node, Frame caller) {
+            this.function = function;
+            this.node = node;
+            this.caller = caller;
+        }
+    }
+
+    private final Map<Stmt.Function, Function> functions = new IdentityHashMap<>();
+    private final Function script = new Function("<script>");
+    private final Node root = new Node(script.name);
+    private long[] lineHits = new long[64];
+    private Frame top;
+
+    /** Starts timing the top-level code. */
+    public Profiler() {
+        script.calls = 1;
+        script.active = 1;
+        top = new Frame(script, root, null);
+    }
+
+    void enter(Stmt.Function declaration) {
+        Function function = functions.computeIfAbsent(declaration,
+                d -> new Function(d.name().lexeme() + ":" + d.name().line()));
+        function.calls++;
+        function.active++;
+        Node node = top.node.children.computeIfAbsent(declaration, d -> new Node(function.name));
+        top = new Frame(function, node, top);
+    }
+
+    void exit() {
+        Frame frame = top;
+        long elapsed = System.nanoTime() - frame.start;
+        long self = elapsed - frame.children;
+        frame.function.exclusive += self;
+        if (--frame.function.active == 0) frame.function.inclusive += elapsed;
+        frame.node.self += self;
+        top = frame.caller;
+        if (top != null) top.children += elapsed;
+    }
+
+    void hit(int line) {
+        if (line < 0) return;
+        if (line >= lineHits.length) {
+            lineHits = Arrays.copyOf(lineHits, Math.max(line + 1, lineHits.length * 2));
+        }
+        lineHits[line]++;
+    }
+
+    /** Line a statement is counted on, or -1 for blocks and loops (see {@link Interpreter#visitWhile}). */
+    static int line(Stmt stmt) {
+        return switch (stmt) {
+            case Stmt.Expression s -> line(s.expression());
+            case Stmt.Print s -> s.keyword().line();
+            case Stmt.Var s -> s.name().line();
+            case Stmt.If s -> line(s.condition());
+            case Stmt.Break s -> s.keyword().line();
+            case Stmt.Continue s -> s.keyword().line();
+            case Stmt.Return s -> s.keyword().line();
+            case Stmt.Function s -> s.name().line();
+            case Stmt.Class s -> s.name().line();
+            case Stmt.Block s -> -1;
+            case Stmt.While s -> -1;
+        };
+    }
+
+    /** Line of the first token of {@code expr}, or -1 if it is made of literals only. */
+    static int line(Expr expr) {
+        return switch (expr) {
+            case Expr.ArrayLiteral e -> e.bracket().line();
+            case Expr.Assign e -> e.name().line();
+            case Expr.Binary e -> line(e.left()) >= 0 ? line(e.left()) : e.operator().line();
+            case Expr.Call e -> line(e.callee()) >= 0 ? line(e.callee()) : e.paren().line();
+            case Expr.Get e -> line(e.object()) >= 0 ? line(e.object()) : e.name().line();
+            case Expr.Grouping e -> line(e.expression());
+            case Expr.Index e -> line(e.array()) >= 0 ? line(e.array()) : e.bracket().line();
+            case Expr.Literal e -> -1;
+            case Expr.Logical e -> line(e.left()) >= 0 ? line(e.left()) : e.operator().line();
+            case Expr.MapLiteral e -> e.brace().line();
+            case Expr.Set e -> line(e.object()) >= 0 ? line(e.object()) : e.name().line();
+            case Expr.SetIndex e -> line(e.array()) >= 0 ? line(e.array()) : e.bracket().line();
+            case Expr.Super e -> e.keyword().line();
+            case Expr.Unary e -> e.operator().line();
+            case Expr.Variable e -> e.name().line();
+        };
+    }
+
+    /** Stops the clock on the top-level code; call once the script has finished. */
+    public void stop() {
+        while (top != null) {
+            exit();
+        }
+    }
+
+    /**
+     * Prints functions by exclusive time and lines by hits, each cut to the top rows.
+     * {@code source} supplies the text shown next to each line.
+     */
+    public void report(PrintStream out, String source) {
+        List<Function> byTime = new ArrayList<>(functions.values());
+        byTime.add(script);
+        byTime.sort(Comparator.comparingLong((Function f) -> f.exclusive).reversed());
+        double total = script.inclusive;
+
+        out.printf("%nProfile: %.1f ms, %d functions called%n", total / 1e6, functions.size());
+        out.printf("%n%10s %14s %14s %7s  %s%n", "calls", "inclusive ms", "exclusive ms", "self %", "function");
+        for (Function f : byTime.subList(0, Math.min(REPORT_ROWS, byTime.size()))) {
+            out.printf("%10d %14.3f %14.3f %6.1f%%  %s%n", f.calls, f.inclusive / 1e6, f.exclusive / 1e6,
+                    total == 0 ? 0 : 100 * f.exclusive / total, f.name);
+        }
+        more(out, byTime.size());
+
+        List<Integer> byHits = new ArrayList<>();
+        for (int line = 0; line < lineHits.length; line++) {
+            if (lineHits[line] > 0) byHits.add(line);
+        }
+        byHits.sort(Comparator.comparingLong((Integer line) -> lineHits[line]).reversed()
+                .thenComparing(Comparator.naturalOrder()));
+        String[] text = source.split("\r?\n", -1);
+        out.printf("%n%10s %6s  %s%n", "hits", "line", "source");
+        for (int line : byHits.subList(0, Math.min(REPORT_ROWS, byHits.size()))) {
+            String code = line >= 1 && line <= text.length ? text[line - 1].strip() : "";
+            out.printf("%10d %6d  %s%n", lineHits[line], line, code);
+        }
+        more(out, byHits.size());
+    }
+
+    private static void more(PrintStream out, int rows) {
+        if (rows > REPORT_ROWS) out.printf("%10s (%d more)%n", "...", rows - REPORT_ROWS);
+    }
+
+    /**
+     * Writes one line per distinct call stack, frames joined by {@code ;} and followed by the
+     * microseconds spent in the innermost one: the input format of flame graph tools.
+     */
+    public void writeFolded(Path path) throws IOException {
+        try (Writer out = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            folded(out, root, new StringBuilder(root.name));
+        }
+    }
+
+    private static void folded(Writer out, Node node, StringBuilder stack) throws IOException {
+        long micros = node.self / 1000;
+        if (micros > 0) {
+            out.append(stack).append(' ').append(Long.toString(micros)).append('\n');
+        }
+        int length = stack.length();
+        for (Node child : node.children.values()) {
+            stack.append(';').append(child.name);
+            folded(out, child, stack);
+            stack.setLength(length);
+        }
+    }
+}
@@ -0,0 +1,461 @@
+package com.rakshith.boti.interpreter;
+
+import com.rakshith.boti.HadError;
+import com.rakshith.boti.ast.Expr;
+import com.rakshith.boti.ast.ExprVisitor;
+import com.rakshith.boti.ast.Scope;
+import com.rakshith.boti.ast.Stmt;
+import com.rakshith.boti.ast.StmtVisitor;
+import com.rakshith.boti.lexer.Token;
+import com.rakshith.boti.lexer.TokenType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Static resolution pass between the parser and the interpreter: rewrites the AST so that
+ * every variable reference carries its (depth, slot) and every scope its frame size.
+ * Global slots persist across calls so REPL lines can see earlier definitions.
+ * A method's frame holds {@code this} in the slot after its parameters, and the methods of a
+ * subclass close over a one-slot scope holding {@code super}, the superclass.
+ *
+ * <p>Only functions, the {@code super} scope, and blocks whose locals a nested function or class
+ * may capture get frames of their own. Any other block is folded into the frame around it: its
+ * locals take fresh slots there, and it gets frame size 0, which tells the engines to run it in
+ * the current frame. So a loop body that declares nothing, or declares only what no closure can
+ * see, allocates nothing per iteration, and re-uses the same slots on every one.
+ */
+public class Resolver implements ExprVisitor<Expr>, StmtVisitor<Stmt> {
+
+    private enum FunctionType { NONE, FUNCTION, METHOD, INITIALIZER }
+
+    private enum ClassType { NONE, CLASS, SUBCLASS }
+
+    /** The locals of one function or block, in the slots of {@code frame}: its own, or the one it is folded into. */
+    private static final class LocalScope {
+        final Map<String, Integer> slots = new HashMap<>();
+        // Functions and classes declared further down, which the bodies of nested functions already see.
+        final Map<String, Integer> hoisted = new HashMap<>();
+        final LocalScope frame;
+        final boolean function;
+        int size;
+
+        /** A scope with a frame of its own; {@code function} if it is a function's. */
+        LocalScope(boolean function) {
+            this.frame = this;
+            this.function = function;
+        }
+
+        /** A scope folded into {@code frame}, which is null if the scope declares nothing. */
+        LocalScope(LocalScope frame) {
+            this.frame = frame;
+            this.function = false;
+        }
+
+        boolean ownsFrame() {
+            return frame == this;
+        }
+    }
+
+    private final HadError errors;
+    private final Map<String, Integer> globals = new HashMap<>();
+    private final List<LocalScope> scopes = new ArrayList<>();
+    private FunctionType currentFunction = FunctionType.NONE;
+    private ClassType currentClass = ClassType.NONE;
+    private int loopDepth;
+
+    /** The natives take the first global slots, in {@link Natives} order. */
+    public Resolver(HadError errors) {
+        this.errors = errors;
+        for (NativeFunction function : Natives.all()) {
+            globals.put(function.name(), globals.size());
+        }
+    }
+
+    public List<Stmt> resolve(List<Stmt> statements) {
+        return resolveAll(statements);
+    }
+
+    /** The global slots given out so far, by name. */
+    public Map<String, Integer> globals() {
+        return Collections.unmodifiableMap(globals);
+    }
+
+    /**
+     * The number of global slots the declarations in resolved {@code statements} need. Only
+     * top-level statements declare globals, so an engine that reserves this many before running
+     * them never grows its globals while tasks read them.
+     */
+    public static int globalCount(List<Stmt> statements) {
+        int count = 0;
+        for (Stmt statement : statements) {
+            int slot = switch (statement) {
+                case Stmt.Var s when s.depth() == Scope.GLOBAL -> s.slot();
+                case Stmt.Function s when s.depth() == Scope.GLOBAL -> s.slot();
+                case Stmt.Class s when s.depth() == Scope.GLOBAL -> s.slot();
+                default -> -1;
+            };
+            count = Math.max(count, slot + 1);
+        }
+        return count;
+    }
+
+    private List<Stmt> resolveAll(List<Stmt> statements) {
+        List<Stmt> resolved = new ArrayList<>(statements.size());
+        for (Stmt statement : statements) {
+            resolved.add(resolve(statement));
+        }
+        return resolved;
+    }
+
+    private Stmt resolve(Stmt stmt) {
+        return stmt == null ? null : stmt.accept(this);
+    }
+
+    private Expr resolve(Expr expr) {
+        return expr == null ? null : expr.accept(this);
+    }
+
+    private void beginScope() {
+        scopes.add(new LocalScope(false));
+    }
+
+    /**
+     * Gives the functions and classes that {@code statements} declare their slots up front. The
+     * body of a function runs later, so it may call a local function declared after it, as the
+     * mutually recursive functions of a block do; other references see only what precedes them.
+     */
+    private void hoist(List<Stmt> statements) {
+        LocalScope scope = scopes.get(scopes.size() - 1);
+        for (Stmt statement : statements) {
+            Token name = switch (statement) {
+                case Stmt.Function s -> s.name();
+                case Stmt.Class s -> s.name();
+                default -> null;
+            };
+            if (name != null && !scope.hoisted.containsKey(name.lexeme())) {
+                scope.hoisted.put(name.lexeme(), scope.frame.size++);
+            }
+        }
+    }
+
+    /** Returns the scope's frame size, or 0 if it was folded into an enclosing frame. */
+    private int endScope() {
+        LocalScope scope = scopes.remove(scopes.size() - 1);
+        return scope.ownsFrame() ? scope.size : 0;
+    }
+
+    /**
+     * Opens the scope of a block: folded into the current frame unless the block declares locals
+     * that a nested function or class may capture, or there is no frame yet to fold them into.
+     */
+    private void beginBlock(List<Stmt> statements) {
+        boolean declares = statements.stream().anyMatch(
+                s -> s instanceof Stmt.Var || s instanceof Stmt.Function || s instanceof Stmt.Class);
+        LocalScope frame = null;
+        for (int i = scopes.size() - 1; i >= 0 && frame == null; i--) {
+            frame = scopes.get(i).frame;
+        }
+        if (declares && (frame == null || declaresClosures(statements))) {
+            beginScope();
+        } else {
+            scopes.add(new LocalScope(frame));
+        }
+    }
+
+    /** Whether a function or class is declared anywhere in {@code statements}, nested blocks included. */
+    private static boolean declaresClosures(List<Stmt> statements) {
+        for (Stmt statement : statements) {
+            if (declaresClosures(statement)) return true;
+        }
+        return false;
+    }
+
+    private static boolean declaresClosures(Stmt stmt) {
+        return switch (stmt) {
+            case Stmt.Function s -> true;
+            case Stmt.Class s -> true;
+            case Stmt.Block s -> declaresClosures(s.statements());
+            case Stmt.If s -> declaresClosures(s.thenBranch())
+                    || s.elseBranch() != null && declaresClosures(s.elseBranch());
+            case Stmt.While s -> declaresClosures(s.body());
+            case null, default -> false;
+        };
+    }
+
+    /** Declares {@code name} in the innermost scope; redeclaring reuses the existing slot. */
+    private int declare(Token name) {
+        return declare(name.lexeme());
+    }
+
+    private int declare(String name) {
+        if (scopes.isEmpty()) return globals.computeIfAbsent(name, k -> globals.size());
+        LocalScope scope = scopes.get(scopes.size() - 1);
+        return scope.slots.computeIfAbsent(name, k -> {
+            Integer hoisted = scope.hoisted.get(k);
+            return hoisted != null ? hoisted : scope.frame.size++;
+        });
+    }
+
+    private int declaredDepth() {
+        return scopes.isEmpty() ? Scope.GLOBAL : 0;
+    }
+
+    /**
+     * Returns {depth, slot}, the depth counting frames; unknown names become (not yet defined)
+     * globals. Inside a nested function, the {@linkplain #hoist hoisted} names of the scopes
+     * around it count as declared.
+     */
+    private int[] lookUp(Token name) {
+        int depth = 0;
+        boolean nested = false;
+        for (int i = scopes.size() - 1; i >= 0; i--) {
+            LocalScope scope = scopes.get(i);
+            Integer slot = scope.slots.get(name.lexeme());
+            if (slot == null && nested) slot = scope.hoisted.get(name.lexeme());
+            if (slot != null) {
+                return new int[] { depth, slot };
+            }
+            if (scope.ownsFrame()) depth++;
+            nested |= scope.function;
+        }
+        int slot = globals.computeIfAbsent(name.lexeme(), k -> globals.size());
+        return new int[] { Scope.GLOBAL, slot };
+    }
+
+    @Override
+    public Stmt visitBlock(Stmt.Block stmt) {
+        beginBlock(stmt.statements());
+        hoist(stmt.statements());
+        List<Stmt> statements = resolveAll(stmt.statements());
+        return new Stmt.Block(statements, endScope());
+    }
+
+    @Override
+    public Stmt visitBreak(Stmt.Break stmt) {
+        if (loopDepth == 0) {
+            errors.report(stmt.keyword().line(), " at 'break'", "Can't use 'break' outside of a loop.");
+        }
+        return stmt;
+    }
+
+    @Override
+    public Stmt visitContinue(Stmt.Continue stmt) {
+        if (loopDepth == 0) {
+            errors.report(stmt.keyword().line(), " at 'continue'", "Can't use 'continue' outside of a loop.");
+        }
+        return stmt;
+    }
+
+    @Override
+    public Stmt visitClass(Stmt.Class stmt) {
+        int depth = declaredDepth();
+        int slot = declare(stmt.name());
+        ClassType enclosingClass = currentClass;
+        currentClass = ClassType.CLASS;
+        Expr.Variable superclass = null;
+        if (stmt.superclass() != null) {
+            Token name = stmt.superclass().name();
+            if (name.lexeme().equals(stmt.name().lexeme())) {
+                errors.report(name.line(), " at '" + name.lexeme() + "'", "A class can't inherit from itself.");
+            }
+            superclass = (Expr.Variable) resolve(stmt.superclass());
+            currentClass = ClassType.SUBCLASS;
+            beginScope();
+            declare("super");
+        }
+        List<Stmt.Function> methods = new ArrayList<>(stmt.methods().size());
+        for (Stmt.Function method : stmt.methods()) {
+            boolean initializer = method.name().lexeme().equals("init");
+            methods.add(resolveFunction(method, Scope.UNRESOLVED, Scope.UNRESOLVED,
+                    initializer ? FunctionType.INITIALIZER : FunctionType.METHOD));
+        }
+        if (superclass != null) endScope();
+        currentClass = enclosingClass;
+        return new Stmt.Class(stmt.name(), superclass, methods, depth, slot);
+    }
+
+    @Override
+    public Stmt visitExpression(Stmt.Expression stmt) {
+        return new Stmt.Expression(resolve(stmt.expression()));
+    }
+
+    @Override
+    public Stmt visitFunction(Stmt.Function stmt) {
+        int depth = declaredDepth();
+        int slot = declare(stmt.name());
+        return resolveFunction(stmt, depth, slot, FunctionType.FUNCTION);
+    }
+
+    private Stmt.Function resolveFunction(Stmt.Function function, int depth, int slot, FunctionType type) {
+        FunctionType enclosingFunction = currentFunction;
+        int enclosingLoopDepth = loopDepth;
+        currentFunction = type;
+        loopDepth = 0;
+        scopes.add(new LocalScope(true));
+        for (Token param : function.params()) {
+            declare(param);
+        }
+        if (type != FunctionType.FUNCTION) declare("this");
+        hoist(function.body());
+        List<Stmt> body = resolveAll(function.body());
+        if (type == FunctionType.INITIALIZER) {
+            // init returns its instance, so falling off the end is a "return;" too.
+            body.add(resolve(new Stmt.Return(new Token(TokenType.RETURN, "return", null, function.name().line()), null)));
+        }
+        int frameSize = endScope();
+        currentFunction = enclosingFunction;
+        loopDepth = enclosingLoopDepth;
+        return new Stmt.Function(function.name(), function.params(), body, depth, slot, frameSize);
+    }
+
+    @Override
+    public Stmt visitIf(Stmt.If stmt) {
+        return new Stmt.If(resolve(stmt.condition()), resolve(stmt.thenBranch()), resolve(stmt.elseBranch()));
+    }
+
+    @Override
+    public Stmt visitPrint(Stmt.Print stmt) {
+        return new Stmt.Print(stmt.keyword(), resolve(stmt.expression()));
+    }
+
+    @Override
+    public Stmt visitReturn(Stmt.Return stmt) {
+        if (currentFunction == FunctionType.NONE) {
+            errors.report(stmt.keyword().line(), " at 'return'", "Can't return from top-level code.");
+        }
+        if (currentFunction == FunctionType.INITIALIZER && stmt.value() != null) {
+            errors.report(stmt.keyword().line(), " at 'return'", "Can't return a value from an initializer.");
+        }
+        Expr value = resolve(currentFunction == FunctionType.INITIALIZER && stmt.value() == null
+                ? new Expr.Variable(new Token(TokenType.THIS, "this", null, stmt.keyword().line()))
+                : stmt.value());
+        // A method call is left to the call's inline-cached path rather than made a tail call.
+        boolean tailCall = value instanceof Expr.Call call
+                && !(call.callee() instanceof Expr.Get || call.callee() instanceof Expr.Super);
+        return new Stmt.Return(stmt.keyword(), value, tailCall);
+    }
+
+    @Override
+    public Stmt visitVar(Stmt.Var stmt) {
+        // The initializer is resolved first so it sees any outer variable of the same name.
+        Expr initializer = resolve(stmt.initializer());
+        int depth = declaredDepth();
+        int slot = declare(stmt.name());
+        return new Stmt.Var(stmt.name(), initializer, depth, slot);
+    }
+
+    @Override
+    public Stmt visitWhile(Stmt.While stmt) {
+        Expr condition = resolve(stmt.condition());
+        loopDepth++;
+        Stmt body = resolve(stmt.body());
+        loopDepth--;
+        return new Stmt.While(condition, body, resolve(stmt.increment()));
+    }
+
+    @Override
+    public Expr visitArrayLiteral(Expr.ArrayLiteral expr) {
+        List<Expr> elements = new ArrayList<>(expr.elements().size());
+        for (Expr element : expr.elements()) {
+            elements.add(resolve(element));
+        }
+        return new Expr.ArrayLiteral(expr.bracket(), elements);
+    }
+
+    @Override
+    public Expr visitMapLiteral(Expr.MapLiteral expr) {
+        List<Expr> entries = new ArrayList<>(expr.entries().size());
+        for (Expr entry : expr.entries()) {
+            entries.add(resolve(entry));
+        }
+        return new Expr.MapLiteral(expr.brace(), entries);
+    }
+
+    @Override
+    public Expr visitAssign(Expr.Assign expr) {
+        Expr value = resolve(expr.value());
+        int[] at = lookUp(expr.name());
+        return new Expr.Assign(expr.name(), value, at[0], at[1]);
+    }
+
+    @Override
+    public Expr visitBinary(Expr.Binary expr) {
+        return new Expr.Binary(resolve(expr.left()), expr.operator(), resolve(expr.right()));
+    }
+
+    @Override
+    public Expr visitCall(Expr.Call expr) {
+        List<Expr> arguments = new ArrayList<>(expr.arguments().size());
+        for (Expr argument : expr.arguments()) {
+            arguments.add(resolve(argument));
+        }
+        return new Expr.Call(resolve(expr.callee()), expr.paren(), arguments);
+    }
+
+    @Override
+    public Expr visitGet(Expr.Get expr) {
+        return new Expr.Get(resolve(expr.object()), expr.name());
+    }
+
+    @Override
+    public Expr visitGrouping(Expr.Grouping expr) {
+        return new Expr.Grouping(resolve(expr.expression()));
+    }
+
+    @Override
+    public Expr visitIndex(Expr.Index expr) {
+        return new Expr.Index(resolve(expr.array()), expr.bracket(), resolve(expr.index()));
+    }
+
+    @Override
+    public Expr visitLiteral(Expr.Literal expr) {
+        return expr;
+    }
+
+    @Override
+    public Expr visitLogical(Expr.Logical expr) {
+        return new Expr.Logical(resolve(expr.left()), expr.operator(), resolve(expr.right()));
+    }
+
+    @Override
+    public Expr visitSet(Expr.Set expr) {
+        return new Expr.Set(resolve(expr.object()), expr.name(), resolve(expr.value()));
+    }
+
+    @Override
+    public Expr visitSetIndex(Expr.SetIndex expr) {
+        return new Expr.SetIndex(resolve(expr.array()), expr.bracket(), resolve(expr.index()), resolve(expr.value()));
+    }
+
+    @Override
+    public Expr visitSuper(Expr.Super expr) {
+        if (currentClass == ClassType.NONE) {
+            errors.report(expr.keyword().line(), " at 'super'", "Can't use 'super' outside of a class.");
+            return expr;
+        }
+        if (currentClass == ClassType.CLASS) {
+            errors.report(expr.keyword().line(), " at 'super'", "Can't use 'super' in a class with no superclass.");
+            return expr;
+        }
+        return new Expr.Super(expr.keyword(), expr.method(),
+                (Expr.Variable) resolve(expr.superclass()), (Expr.Variable) resolve(expr.receiver()));
+    }
+
+    @Override
+    public Expr visitUnary(Expr.Unary expr) {
+        return new Expr.Unary(expr.operator(), resolve(expr.right()));
+    }
+
+    @Override
+    public Expr visitVariable(Expr.Variable expr) {
+        if (expr.name().type() == TokenType.THIS && currentClass == ClassType.NONE) {
+            errors.report(expr.name().line(), " at 'this'", "Can't use 'this' outside of a class.");
+        }
+        int[] at = lookUp(expr.name());
+        return new Expr.Variable(expr.name(), at[0], at[1]);
+    }
+}
@@ -0,0 +1,54 @@
+package com.rakshith.boti.interpreter;
+
+/**
+ * A string built by {@code +}, kept unflattened so that {@code s = s + ...} in a loop is linear.
+ * A rope is a prefix of a shared {@link StringBuilder}: appending to the rope that ends where the
+ * builder does extends the builder in place and returns a longer rope over it, while appending to
+ * any older rope copies its prefix into a new builder, so every rope keeps its value. The text is
+ * flattened into a {@link String} by {@link #toString()}, once, when it is printed, compared or
+ * used as a map key. Short results stay plain strings. Tasks on other threads may share a rope,
+ * so the builder is appended to and copied from under its own lock.
+ */
+public final class Rope {
+
+    /** Results shorter than this are concatenated eagerly, as copying them costs less than a builder. */
+    private static final int MIN_LENGTH = 64;
+
+    private final StringBuilder buffer;
+    private final int length;
+    private String flat;
+
+    private Rope(StringBuilder buffer) {
+        this.buffer = buffer;
+        this.length = buffer.length();
+    }
+
+    /** {@code left + right} where either side is a {@linkplain Values#isString string}. */
+    static Object concat(Object left, Object right) {
+        String r = Values.stringify(right);
+        if (left instanceof Rope rope) {
+            synchronized (rope.buffer) {
+                if (rope.length == rope.buffer.length()) return new Rope(rope.buffer.append(r));
+            }
+        }
+        String l = Values.stringify(left);
+        if (l.length() + r.length() < MIN_LENGTH) return l + r;
+        return new Rope(new StringBuilder(2 * (l.length() + r.length())).append(l).append(r));
+    }
+
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public String toString() {
+        String text = flat;
+        if (text == null) {
+            synchronized (buffer) {
+                text = buffer.substring(0, length);
+            }
+            flat = text;
+        }
+        return text;
+    }
+}
@@ -7,10 +7,14 @@ import com.rakshith.boti.lexer.Token;
  */
 public class RuntimeError extends RuntimeException {
 
-    public final Token token;
+    public final int line;
 
     public RuntimeError(Token token, String message) {
+        this(token.line(), message);
+    }
+
+    public RuntimeError(int line, String message) {
         super(message);
-        this.token = token;
+        this.line = line;
     }
 }
@@ -0,0 +1,48 @@
+package com.rakshith.boti.interpreter;
+
+import java.io.PrintStream;
+
+/**
+ * Counters kept by a tree-walker made with them ({@code boti --stats}): statements executed,
+ * calls made (user functions, tail calls included, and natives), {@link Environment}s allocated
+ * for blocks and calls, and {@link Double}s boxed for arithmetic results. Only the interpreter's
+ * thread counts, so the increments need no lock; the counters are volatile so that JMX readers
+ * on other threads see them as they grow.
+ */
+public final class RuntimeStats implements RuntimeStatsMXBean {
+
+    public static final String OBJECT_NAME = "com.rakshith.boti:type=RuntimeStats";
+
+    volatile long statements;
+    volatile long calls;
+    volatile long environments;
+    volatile long doubles;
+
+    @Override
+    public long getStatementsExecuted() {
+        return statements;
+    }
+
+    @Override
+    public long getCalls() {
+        return calls;
+    }
+
+    @Override
+    public long getEnvironmentsAllocated() {
+        return environments;
+    }
+
+    @Override
+    public long getBoxedDoubles() {
+        return doubles;
+    }
+
+    public void report(PrintStream out) {
+        out.printf("%nStatistics%n");
+        out.printf("  %-24s %14d%n", "statements executed", statements);
+        out.printf("  %-24s %14d%n", "calls", calls);
+        out.printf("  %-24s %14d%n", "environments allocated", environments);
+        out.printf("  %-24s %14d%n", "boxed doubles", doubles);
+    }
+}
@@ -0,0 +1,13 @@
+package com.rakshith.boti.interpreter;
+
+/** JMX view of {@link RuntimeStats}, registered as {@code com.rakshith.boti:type=RuntimeStats}. */
+public interface RuntimeStatsMXBean {
+
+    long getStatementsExecuted();
+
+    long getCalls();
+
+    long getEnvironmentsAllocated();
+
+    long getBoxedDoubles();
+}
@@ -0,0 +1,57 @@
+package com.rakshith.boti.interpreter;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A hidden class: the field layout shared by every instance that got the same fields in the same
+ * order. Field {@code i} of an instance is element {@code i} of its field array. Adding a field
+ * moves an instance along a transition to the child shape, which is made once and then shared,
+ * so instances built the same way end up with the same shape and an inline cache keyed by it
+ * can skip the name lookup. Each class has its own root shape, so a shape also fixes the class.
+ * Tasks on other threads share shapes, so transitions are made under the shape's lock.
+ */
+public final class Shape {
+
+    private final BotiClass klass;
+    private final String[] names;
+    private Map<String, Shape> transitions;
+
+    private Shape(BotiClass klass, String[] names) {
+        this.klass = klass;
+        this.names = names;
+    }
+
+    /** The empty shape instances of {@code klass} start with. */
+    static Shape root(BotiClass klass) {
+        return new Shape(klass, new String[0]);
+    }
+
+    public BotiClass klass() {
+        return klass;
+    }
+
+    /** The number of fields. */
+    public int size() {
+        return names.length;
+    }
+
+    /** The offset of field {@code name}, or -1. */
+    public int indexOf(String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) return i;
+        }
+        return -1;
+    }
+
+    /** This shape plus field {@code name}, at offset {@link #size()}. */
+    public synchronized Shape with(String name) {
+        if (transitions == null) transitions = new HashMap<>();
+        return transitions.computeIfAbsent(name, k -> {
+            String[] next = Arrays.copyOf(names, names.length + 1);
+            next[names.length] = k;
+            return new Shape(klass, next);
+        });
+    }
+}
@@ -0,0 +1,57 @@
+package com.rakshith.boti.interpreter;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * The variables a task starts with: copies, made when it is spawned, of the globals and of every
+ * frame that a function it can reach closes over, so no two threads ever share a variable. Each
+ * engine {@linkplain #copy copies} its own function values, rebinding them to copied frames;
+ * arrays, maps, instances and classes are shared, and safe to use from several threads.
+ *
+ * <p>Copies are memoized, so a frame or function reached twice is copied once and functions that
+ * close over the same frame still share its copy.
+ */
+public abstract class Snapshot {
+
+    private final Map<Object, Object> copies = new IdentityHashMap<>();
+
+    /** {@code value} as the task sees it. */
+    public final Object value(Object value) {
+        if (value == null || value instanceof Double || value instanceof String || value instanceof Boolean) {
+            return value;
+        }
+        Object known = copies.get(value);
+        if (known != null) return known;
+        Object copy = copy(value);
+        // Copying it may have reached the value again and copied it first.
+        Object first = copies.putIfAbsent(value, copy);
+        return first != null ? first : copy;
+    }
+
+    /**
+     * A copy of one of the engine's function values over copied frames, or {@code value} itself if
+     * it holds no variables. A copy that holds values of its own, as a cell does, is
+     * {@linkplain #remember remembered} before they are copied, so cycles end.
+     */
+    protected abstract Object copy(Object value);
+
+    /** Records {@code copy} as the copy of {@code original} while {@link #copy} is still filling it. */
+    protected final void remember(Object original, Object copy) {
+        copies.put(original, copy);
+    }
+
+    /** The copy of {@code frame} and the frames around it; a global frame is copied whole. */
+    public final Environment frame(Environment frame) {
+        Object known = copies.get(frame);
+        if (known != null) return (Environment) known;
+        Environment enclosing = frame.enclosing() == null ? null : frame(frame.enclosing());
+        // Copying the enclosing frames may have reached this one through a function they hold.
+        known = copies.get(frame);
+        if (known != null) return (Environment) known;
+        Environment copy = frame.copy(enclosing);
+        copies.put(frame, copy);
+        copy.copyValues(this);
+        return copy;
+    }
+}
@@ -0,0 +1,103 @@
+package com.rakshith.boti.interpreter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The tasks that {@code spawn} started from one thread, which runs either a script or a task.
+ * Each task calls a function on a virtual thread of its own through a
+ * {@linkplain NativeFunction.Invoker#fork forked} invoker, with a call stack of its own and a
+ * {@link Snapshot} of the variables the function can reach, so tasks share no variables.
+ *
+ * <p>Scopes are structured, as in {@code StructuredTaskScope.ShutdownOnFailure} (a preview API
+ * in Java 21, so joined by hand here): a script or task does not end before the tasks it spawned,
+ * and the first failure among them is the whole scope's. As a script cannot catch errors, the
+ * scope is doomed from then on, so the failure interrupts the other tasks and the owner at once;
+ * whichever of them is blocked on a channel or an {@code await} fails with it.
+ */
+public final class Tasks {
+
+    private final Set<BotiTask> running = Collections.newSetFromMap(new IdentityHashMap<>());
+    private Thread owner;
+    private volatile Throwable failure;
+
+    /** Starts {@code function} with no arguments on a new task; a call on {@code line} spawned it. */
+    BotiTask spawn(Object function, NativeFunction.Invoker invoker, int line) {
+        NativeFunction.Invoker worker = invoker.fork();
+        BotiTask task = new BotiTask(this, worker.capture(function), worker, line);
+        synchronized (this) {
+            if (failure != null) throw BotiTask.rethrow(failure);
+            running.add(task);
+        }
+        task.start();
+        return task;
+    }
+
+    /**
+     * Runs {@code body} on the calling thread, which owns the scope meanwhile, then waits for every
+     * task it spawned. Throws the body's error, or else the first failure of a task.
+     */
+    public void scope(Runnable body) {
+        synchronized (this) {
+            owner = Thread.currentThread();
+        }
+        Throwable error = null;
+        try {
+            body.run();
+        } catch (RuntimeException | Error e) {
+            error = e;
+            cancel();
+        }
+        join();
+        synchronized (this) {
+            if (error == null) error = failure;
+            failure = null;
+            owner = null;
+        }
+        if (error != null) throw BotiTask.rethrow(error);
+    }
+
+    /** Called by a task that ended. */
+    synchronized void finished(BotiTask task, Throwable error) {
+        running.remove(task);
+        if (error != null && failure == null) {
+            failure = error;
+            cancel();
+            if (owner != null) owner.interrupt();
+        }
+    }
+
+    /**
+     * The error for a wait that the calling thread, this scope's owner, gave up on because it was
+     * interrupted: the failure of one of its tasks, or else a cancellation by its own owner.
+     */
+    RuntimeException interrupted(int line) {
+        Throwable first = failure;
+        return first != null ? BotiTask.rethrow(first) : new RuntimeError(line, "Task was cancelled.");
+    }
+
+    private synchronized void cancel() {
+        for (BotiTask task : running) {
+            task.interrupt();
+        }
+    }
+
+    /** Waits, without giving up when interrupted, for the tasks still running. */
+    private void join() {
+        for (;;) {
+            List<BotiTask> tasks;
+            synchronized (this) {
+                if (running.isEmpty()) break;
+                tasks = new ArrayList<>(running);
+            }
+            for (BotiTask task : tasks) {
+                task.join();
+            }
+        }
+        // Interrupts aimed at this scope are over; the failure they announced is in the field.
+        Thread.interrupted();
+    }
+}
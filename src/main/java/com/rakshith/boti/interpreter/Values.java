@@ -0,0 +1,74 @@
+package com.rakshith.boti.interpreter;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Value semantics shared by every execution engine (truthiness, equality, printing).
+ */
+public final class Values {
+
+    private Values() { }
+
+    public static boolean isTruthy(Object object) {
+        if (object == null) return false;
+        if (object instanceof Boolean b) return b;
+        return true;
+    }
+
+    public static boolean isEqual(Object a, Object b) {
+        if (a == null && b == null) return true;
+        if (a == null) return false;
+        if (a instanceof Rope || b instanceof Rope) {
+            return isString(a) && isString(b) && a.toString().equals(b.toString());
+        }
+        return a.equals(b);
+    }
+
+    /** A string is a {@link String} or a {@link Rope} made by {@code +}; both print the same. */
+    public static boolean isString(Object object) {
+        return object instanceof String || object instanceof Rope;
+    }
+
+    /** {@code a + b} where either operand {@linkplain #isString is a string}. */
+    public static Object concat(Object a, Object b) {
+        return Rope.concat(a, b);
+    }
+
+    public static String stringify(Object object) {
+        if (object == null) return "nil";
+        if (object instanceof Double d) {
+            String text = d.toString();
+            return text.endsWith(".0") ? text.substring(0, text.length() - 2) : text;
+        }
+        if (object instanceof BotiArray || object instanceof BotiMap) {
+            StringBuilder text = new StringBuilder();
+            append(text, object, Collections.newSetFromMap(new IdentityHashMap<>()));
+            return text.toString();
+        }
+        return object.toString();
+    }
+
+    /**
+     * Appends {@code object} as {@link #stringify} prints it. {@code open} holds the containers
+     * being printed around it, so one that contains itself, directly or not, prints as
+     * {@code [...]} or <code>{...}</code> the second time rather than recursing forever.
+     */
+    static void append(StringBuilder text, Object object, Set<Object> open) {
+        if (!(object instanceof BotiArray) && !(object instanceof BotiMap)) {
+            text.append(stringify(object));
+            return;
+        }
+        if (!open.add(object)) {
+            text.append(object instanceof BotiArray ? "[...]" : "{...}");
+            return;
+        }
+        if (object instanceof BotiArray array) {
+            array.appendTo(text, open);
+        } else {
+            ((BotiMap) object).appendTo(text, open);
+        }
+        open.remove(object);
+    }
+}
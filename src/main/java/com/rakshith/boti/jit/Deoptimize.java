@@ -0,0 +1,16 @@
+package com.rakshith.boti.jit;
+
+/**
+ * Thrown by compiled code when an argument breaks its type speculation. Guards run before the
+ * body has any side effect, so the caller can simply interpret the call instead.
+ */
+public final class Deoptimize extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    static final Deoptimize INSTANCE = new Deoptimize();
+
+    private Deoptimize() {
+        super(null, null, false, false);
+    }
+}
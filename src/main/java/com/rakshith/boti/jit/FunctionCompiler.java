@@ -0,0 +1,942 @@
+package com.rakshith.boti.jit;
+
+import com.rakshith.boti.ast.Expr;
+import com.rakshith.boti.ast.PropertyCache;
+import com.rakshith.boti.ast.Scope;
+import com.rakshith.boti.ast.Stmt;
+import com.rakshith.boti.interpreter.BotiInstance;
+import com.rakshith.boti.interpreter.Environment;
+import com.rakshith.boti.interpreter.NativeFunction;
+import com.rakshith.boti.lexer.Token;
+import com.rakshith.boti.lexer.TokenType;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+
+import static org.objectweb.asm.Opcodes.*;
+
+/**
+ * Compiles one function body to a {@link JitCode} class.
+ * <p>
+ * Every resolver slot of the function (parameters and block locals) becomes a JVM local. A first
+ * pass infers which locals only ever hold numbers; those live in {@code double} locals and all
+ * arithmetic on them is primitive. Parameters are speculated to be numbers and guarded on entry
+ * ({@link Deoptimize}); everything else falls back to boxed values and {@link JitRuntime} helpers,
+ * so no other guard is needed. Bodies that declare nested functions or classes are not compiled,
+ * which keeps every local out of reach of closures. In a method, {@code this} is one more local,
+ * read from the frame on entry; property accesses call {@link BotiInstance} with the AST's caches.
+ */
+final class FunctionCompiler {
+
+    private enum Kind { NUMBER, BOOL, OBJECT }
+
+    /** Where a variable reference points: a JVM local, a frame of the closure, or the globals. */
+    private record Access(int local, int closureDepth) {
+        static final Access GLOBAL = new Access(-1, -1);
+    }
+
+    private record Assignment(int local, Expr value) { }
+
+    private static final class Unsupported extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        Unsupported() {
+            super(null, null, false, false);
+        }
+    }
+
+    private static final String CLASS_NAME = "com/rakshith/boti/jit/CompiledFunction";
+    private static final String OBJECT = "java/lang/Object";
+    private static final String DOUBLE = "java/lang/Double";
+    private static final String RUNTIME = Type.getInternalName(JitRuntime.class);
+    private static final String ENVIRONMENT = Type.getInternalName(Environment.class);
+    private static final String TOKEN = Type.getInternalName(Token.class);
+    private static final String INSTANCE = Type.getInternalName(BotiInstance.class);
+    private static final String CACHE = Type.getInternalName(PropertyCache.class);
+    private static final String VALUES = "com/rakshith/boti/interpreter/Values";
+    private static final String INVOKE_DESCRIPTOR =
+            "(Lcom/rakshith/boti/interpreter/Interpreter;L" + ENVIRONMENT + ";)Ljava/lang/Object;";
+
+    // Fixed JVM locals of invoke(): this, interpreter, the frame holding the arguments.
+    private static final int INTERPRETER = 1;
+    private static final int FRAME = 2;
+
+    private final Stmt.Function declaration;
+    private final boolean speculate;
+    private final List<Object> constants = new ArrayList<>();
+
+    // Analysis results.
+    private final List<Kind> kinds = new ArrayList<>();
+    private final List<Assignment> assignments = new ArrayList<>();
+    private final Map<Object, Access> accesses = new IdentityHashMap<>();
+    private final Map<Stmt, Integer> definitions = new IdentityHashMap<>();
+    private final Deque<int[]> scopes = new ArrayDeque<>();
+    private int[] parameters;
+    private int receiver = -1;
+
+    // Code generation state.
+    private int[] jvmIndex;
+    private int scratchDouble;
+    private int scratchObject;
+    private int nextLocal; // first JVM local not yet handed out by fresh()
+    private MethodVisitor mv;
+    private final Deque<Label[]> loops = new ArrayDeque<>(); // {break target, continue target}
+
+    FunctionCompiler(Stmt.Function declaration, boolean speculate) {
+        this.declaration = declaration;
+        this.speculate = speculate;
+    }
+
+    Object[] constants() {
+        return constants.toArray();
+    }
+
+    /** Returns the class file, or null if the body is not compilable. */
+    byte[] compile() {
+        try {
+            analyze();
+            return generate();
+        } catch (Unsupported e) {
+            return null;
+        }
+    }
+
+    // --- Analysis ---------------------------------------------------------------------------
+
+    private void analyze() {
+        parameters = allocate(declaration.frameSize());
+        scopes.push(parameters);
+        for (Stmt statement : declaration.body()) {
+            analyze(statement);
+        }
+        scopes.pop();
+
+        for (int i = 0; i < declaration.params().size(); i++) {
+            if (!speculate) kinds.set(parameters[i], Kind.OBJECT);
+        }
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (Assignment assignment : assignments) {
+                if (kinds.get(assignment.local()) == Kind.NUMBER
+                        && (assignment.value() == null || kindOf(assignment.value()) != Kind.NUMBER)) {
+                    kinds.set(assignment.local(), Kind.OBJECT);
+                    changed = true;
+                }
+            }
+        }
+    }
+
+    private int[] allocate(int size) {
+        int[] locals = new int[size];
+        for (int i = 0; i < size; i++) {
+            locals[i] = kinds.size();
+            kinds.add(Kind.NUMBER);
+        }
+        return locals;
+    }
+
+    private void analyze(Stmt stmt) {
+        switch (stmt) {
+            case Stmt.Expression s -> analyze(s.expression());
+            case Stmt.Print s -> analyze(s.expression());
+            case Stmt.Var s -> {
+                if (s.initializer() != null) analyze(s.initializer());
+                define(s, s.slot(), s.initializer());
+            }
+            case Stmt.Class s -> throw new Unsupported();
+            case Stmt.Block s -> {
+                if (s.frameSize() > 0) scopes.push(allocate(s.frameSize()));
+                for (Stmt statement : s.statements()) {
+                    analyze(statement);
+                }
+                if (s.frameSize() > 0) scopes.pop();
+            }
+            case Stmt.If s -> {
+                analyze(s.condition());
+                analyze(s.thenBranch());
+                if (s.elseBranch() != null) analyze(s.elseBranch());
+            }
+            case Stmt.While s -> {
+                analyze(s.condition());
+                analyze(s.body());
+                if (s.increment() != null) analyze(s.increment());
+            }
+            case Stmt.Break s -> { }
+            case Stmt.Continue s -> { }
+            case Stmt.Return s -> {
+                if (s.value() != null) analyze(s.value());
+            }
+            case Stmt.Function s -> throw new Unsupported();
+        }
+    }
+
+    private void define(Stmt stmt, int slot, Expr value) {
+        int local = scopes.peek()[slot];
+        definitions.put(stmt, local);
+        assignments.add(new Assignment(local, value));
+    }
+
+    private void analyze(Expr expr) {
+        switch (expr) {
+            case Expr.Literal e -> { }
+            case Expr.Grouping e -> analyze(e.expression());
+            case Expr.Variable e -> {
+                Access access = resolve(e.depth(), e.slot());
+                accesses.put(e, access);
+                if (e.name().type() == TokenType.THIS && access.local() >= 0) {
+                    receiver = access.local();
+                    assignments.add(new Assignment(receiver, null));
+                }
+            }
+            case Expr.Assign e -> {
+                analyze(e.value());
+                Access access = resolve(e.depth(), e.slot());
+                accesses.put(e, access);
+                if (access.local() >= 0) assignments.add(new Assignment(access.local(), e.value()));
+            }
+            case Expr.Unary e -> analyze(e.right());
+            case Expr.Binary e -> {
+                analyze(e.left());
+                analyze(e.right());
+            }
+            case Expr.Logical e -> {
+                analyze(e.left());
+                analyze(e.right());
+            }
+            case Expr.Call e -> {
+                analyze(e.callee());
+                e.arguments().forEach(this::analyze);
+            }
+            case Expr.ArrayLiteral e -> e.elements().forEach(this::analyze);
+            case Expr.MapLiteral e -> e.entries().forEach(this::analyze);
+            case Expr.Index e -> {
+                analyze(e.array());
+                analyze(e.index());
+            }
+            case Expr.SetIndex e -> {
+                analyze(e.array());
+                analyze(e.index());
+                analyze(e.value());
+            }
+            case Expr.Get e -> analyze(e.object());
+            case Expr.Set e -> {
+                analyze(e.object());
+                analyze(e.value());
+            }
+            case Expr.Super e -> {
+                analyze(e.superclass());
+                analyze(e.receiver());
+            }
+        }
+    }
+
+    private Access resolve(int depth, int slot) {
+        if (depth == Scope.GLOBAL) return Access.GLOBAL;
+        if (depth < scopes.size()) {
+            int i = 0;
+            for (int[] scope : scopes) {
+                if (i++ == depth) return new Access(scope[slot], -1);
+            }
+        }
+        return new Access(-1, depth - scopes.size());
+    }
+
+    private Kind kindOf(Expr expr) {
+        return switch (expr) {
+            case Expr.Literal e -> e.value() instanceof Double ? Kind.NUMBER
+                    : e.value() instanceof Boolean ? Kind.BOOL : Kind.OBJECT;
+            case Expr.Grouping e -> kindOf(e.expression());
+            case Expr.Variable e -> localKind(accesses.get(e));
+            case Expr.Assign e -> localKind(accesses.get(e));
+            case Expr.Unary e -> e.operator().type() == TokenType.BANG ? Kind.BOOL : Kind.NUMBER;
+            case Expr.Binary e -> switch (e.operator().type()) {
+                case PLUS -> kindOf(e.left()) == Kind.NUMBER && kindOf(e.right()) == Kind.NUMBER
+                        ? Kind.NUMBER : Kind.OBJECT;
+                case MINUS, STAR, SLASH -> Kind.NUMBER;
+                default -> Kind.BOOL;
+            };
+            case Expr.Logical e -> Kind.OBJECT;
+            case Expr.Call e -> Kind.OBJECT;
+            case Expr.ArrayLiteral e -> Kind.OBJECT;
+            case Expr.MapLiteral e -> Kind.OBJECT;
+            case Expr.Index e -> Kind.OBJECT;
+            case Expr.SetIndex e -> Kind.OBJECT;
+            case Expr.Get e -> Kind.OBJECT;
+            case Expr.Set e -> Kind.OBJECT;
+            case Expr.Super e -> Kind.OBJECT;
+        };
+    }
+
+    private Kind localKind(Access access) {
+        return access.local() >= 0 ? kinds.get(access.local()) : Kind.OBJECT;
+    }
+
+    // --- Code generation --------------------------------------------------------------------
+
+    private byte[] generate() {
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES) {
+            @Override
+            protected String getCommonSuperClass(String type1, String type2) {
+                // Locals and stack slots are only ever used as Object.
+                return OBJECT;
+            }
+        };
+        cw.visit(V21, ACC_PUBLIC | ACC_FINAL | ACC_SUPER, CLASS_NAME, null, OBJECT,
+                new String[] { Type.getInternalName(JitCode.class) });
+        cw.visitField(ACC_PRIVATE | ACC_FINAL, "k", "[Ljava/lang/Object;", null, null).visitEnd();
+
+        MethodVisitor init = cw.visitMethod(ACC_PUBLIC, "<init>", "([Ljava/lang/Object;)V", null, null);
+        init.visitCode();
+        init.visitVarInsn(ALOAD, 0);
+        init.visitMethodInsn(INVOKESPECIAL, OBJECT, "<init>", "()V", false);
+        init.visitVarInsn(ALOAD, 0);
+        init.visitVarInsn(ALOAD, 1);
+        init.visitFieldInsn(PUTFIELD, CLASS_NAME, "k", "[Ljava/lang/Object;");
+        init.visitInsn(RETURN);
+        init.visitMaxs(0, 0);
+        init.visitEnd();
+
+        mv = cw.visitMethod(ACC_PUBLIC, "invoke", INVOKE_DESCRIPTOR, null, null);
+        mv.visitCode();
+        prologue();
+        for (Stmt statement : declaration.body()) {
+            statement(statement);
+        }
+        mv.visitInsn(ACONST_NULL);
+        mv.visitInsn(ARETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    /** Assigns JVM indices, clears every local (for the verifier) and unpacks the arguments. */
+    private void prologue() {
+        jvmIndex = new int[kinds.size()];
+        int next = FRAME + 1;
+        for (int i = 0; i < jvmIndex.length; i++) {
+            jvmIndex[i] = next;
+            next += kinds.get(i) == Kind.NUMBER ? 2 : 1;
+        }
+        scratchDouble = next;
+        scratchObject = next + 2;
+        nextLocal = next + 3;
+
+        for (int i = 0; i < jvmIndex.length; i++) {
+            if (kinds.get(i) == Kind.NUMBER) {
+                mv.visitInsn(DCONST_0);
+                mv.visitVarInsn(DSTORE, jvmIndex[i]);
+            } else {
+                mv.visitInsn(ACONST_NULL);
+                mv.visitVarInsn(ASTORE, jvmIndex[i]);
+            }
+        }
+
+        for (int i = 0; i < declaration.params().size(); i++) {
+            int local = parameters[i];
+            mv.visitVarInsn(ALOAD, FRAME);
+            push(i);
+            mv.visitMethodInsn(INVOKEVIRTUAL, ENVIRONMENT, "get", "(I)Ljava/lang/Object;", false);
+            if (kinds.get(local) == Kind.NUMBER) {
+                Label isNumber = new Label();
+                mv.visitInsn(DUP);
+                mv.visitTypeInsn(INSTANCEOF, DOUBLE);
+                mv.visitJumpInsn(IFNE, isNumber);
+                mv.visitFieldInsn(GETSTATIC, Type.getInternalName(Deoptimize.class), "INSTANCE",
+                        Type.getDescriptor(Deoptimize.class));
+                mv.visitInsn(ATHROW);
+                mv.visitLabel(isNumber);
+                unboxDouble();
+            }
+            store(local);
+        }
+        if (receiver >= 0) {
+            // A method's frame holds the instance after the arguments.
+            mv.visitVarInsn(ALOAD, FRAME);
+            push(declaration.params().size());
+            mv.visitMethodInsn(INVOKEVIRTUAL, ENVIRONMENT, "get", "(I)Ljava/lang/Object;", false);
+            store(receiver);
+        }
+    }
+
+    private void statement(Stmt stmt) {
+        switch (stmt) {
+            case Stmt.Expression s -> pop(expression(s.expression()));
+            case Stmt.Print s -> {
+                expression(s.expression(), Kind.OBJECT);
+                mv.visitVarInsn(ALOAD, INTERPRETER);
+                mv.visitMethodInsn(INVOKESTATIC, RUNTIME, "print",
+                        "(Ljava/lang/Object;Lcom/rakshith/boti/interpreter/Interpreter;)V", false);
+            }
+            case Stmt.Var s -> define(s, s.initializer());
+            case Stmt.Class s -> throw new Unsupported();
+            case Stmt.Block s -> s.statements().forEach(this::statement);
+            case Stmt.If s -> {
+                Label otherwise = new Label();
+                Label end = new Label();
+                branch(s.condition(), false, otherwise);
+                statement(s.thenBranch());
+                mv.visitJumpInsn(GOTO, end);
+                mv.visitLabel(otherwise);
+                if (s.elseBranch() != null) statement(s.elseBranch());
+                mv.visitLabel(end);
+            }
+            case Stmt.While s -> {
+                Label start = new Label();
+                Label next = new Label();
+                Label end = new Label();
+                mv.visitLabel(start);
+                branch(s.condition(), false, end);
+                loops.push(new Label[] { end, next });
+                statement(s.body());
+                loops.pop();
+                mv.visitLabel(next);
+                if (s.increment() != null) pop(expression(s.increment()));
+                mv.visitJumpInsn(GOTO, start);
+                mv.visitLabel(end);
+            }
+            case Stmt.Break s -> mv.visitJumpInsn(GOTO, loops.peek()[0]);
+            case Stmt.Continue s -> mv.visitJumpInsn(GOTO, loops.peek()[1]);
+            case Stmt.Return s -> {
+                if (s.value() == null) mv.visitInsn(ACONST_NULL);
+                else if (s.tailCall()) call((Expr.Call) s.value(), "tailCall");
+                else expression(s.value(), Kind.OBJECT);
+                mv.visitInsn(ARETURN);
+            }
+            case Stmt.Function s -> throw new Unsupported();
+        }
+    }
+
+    private void define(Stmt stmt, Expr value) {
+        int local = definitions.get(stmt);
+        if (value == null) mv.visitInsn(ACONST_NULL);
+        else expression(value, kinds.get(local));
+        store(local);
+    }
+
+    private void expression(Expr expr, Kind wanted) {
+        coerce(expression(expr), wanted);
+    }
+
+    /** Emits {@code expr} and returns the kind of value it left on the stack. */
+    private Kind expression(Expr expr) {
+        return switch (expr) {
+            case Expr.Literal e -> literal(e.value());
+            case Expr.Grouping e -> expression(e.expression());
+            case Expr.Variable e -> variable(e);
+            case Expr.Assign e -> assign(e);
+            case Expr.Unary e -> unary(e);
+            case Expr.Binary e -> binary(e);
+            case Expr.Logical e -> {
+                Label end = new Label();
+                expression(e.left(), Kind.OBJECT);
+                mv.visitInsn(DUP);
+                truthy();
+                mv.visitJumpInsn(e.operator().type() == TokenType.OR ? IFNE : IFEQ, end);
+                mv.visitInsn(POP);
+                expression(e.right(), Kind.OBJECT);
+                mv.visitLabel(end);
+                yield Kind.OBJECT;
+            }
+            case Expr.Call e -> {
+                if (e.arguments().size() == 1 || e.arguments().size() == 2) intrinsic(e);
+                else call(e, "call");
+                yield Kind.OBJECT;
+            }
+            case Expr.ArrayLiteral e -> {
+                objects(e.elements());
+                mv.visitMethodInsn(INVOKESTATIC, RUNTIME, "array", "([Ljava/lang/Object;)Ljava/lang/Object;", false);
+                yield Kind.OBJECT;
+            }
+            case Expr.MapLiteral e -> {
+                objects(e.entries());
+                push(e.brace().line());
+                mv.visitMethodInsn(INVOKESTATIC, RUNTIME, "map", "([Ljava/lang/Object;I)Ljava/lang/Object;", false);
+                yield Kind.OBJECT;
+            }
+            case Expr.Index e -> {
+                expression(e.array(), Kind.OBJECT);
+                // A number index, such as a loop counter, is passed unboxed.
+                Kind index = expression(e.index());
+                if (index == Kind.BOOL) coerce(index, Kind.OBJECT);
+                push(e.bracket().line());
+                mv.visitMethodInsn(INVOKESTATIC, RUNTIME, "index", "(Ljava/lang/Object;"
+                        + (index == Kind.NUMBER ? "D" : "Ljava/lang/Object;") + "I)Ljava/lang/Object;", false);
+                yield Kind.OBJECT;
+            }
+            case Expr.SetIndex e -> {
+                expression(e.array(), Kind.OBJECT);
+                expression(e.index(), Kind.OBJECT);
+                expression(e.value(), Kind.OBJECT);
+                push(e.bracket().line());
+                mv.visitMethodInsn(INVOKESTATIC, RUNTIME, "setIndex",
+                        "(Ljava/lang/Object;Ljava/lang/Object;Ljava/lang/Object;I)Ljava/lang/Object;", false);
+                yield Kind.OBJECT;
+            }
+            case Expr.Get e -> {
+                expression(e.object(), Kind.OBJECT);
+                constant(e.name(), TOKEN);
+                constant(e.cache(), CACHE);
+                mv.visitMethodInsn(INVOKESTATIC, INSTANCE, "get",
+                        "(Ljava/lang/Object;L" + TOKEN + ";L" + CACHE + ";)Ljava/lang/Object;", false);
+                yield Kind.OBJECT;
+            }
+            case Expr.Set e -> {
+                expression(e.object(), Kind.OBJECT);
+                constant(e.name(), TOKEN);
+                expression(e.value(), Kind.OBJECT);
+                constant(e.cache(), CACHE);
+                mv.visitMethodInsn(INVOKESTATIC, INSTANCE, "set",
+                        "(Ljava/lang/Object;L" + TOKEN + ";Ljava/lang/Object;L" + CACHE + ";)Ljava/lang/Object;", false);
+                yield Kind.OBJECT;
+            }
+            case Expr.Super e -> {
+                expression(e.superclass(), Kind.OBJECT);
+                expression(e.receiver(), Kind.OBJECT);
+                constant(e.method(), TOKEN);
+                mv.visitMethodInsn(INVOKESTATIC, RUNTIME, "superMethod",
+                        "(Ljava/lang/Object;Ljava/lang/Object;L" + TOKEN + ";)Ljava/lang/Object;", false);
+                yield Kind.OBJECT;
+            }
+        };
+    }
+
+    /** Leaves a new {@code Object[]} of the boxed values of {@code exprs} on the stack. */
+    private void objects(List<Expr> exprs) {
+        push(exprs.size());
+        mv.visitTypeInsn(ANEWARRAY, OBJECT);
+        for (int i = 0; i < exprs.size(); i++) {
+            mv.visitInsn(DUP);
+            push(i);
+            expression(exprs.get(i), Kind.OBJECT);
+            mv.visitInsn(AASTORE);
+        }
+    }
+
+    /** {@code method} is {@code JitRuntime.call} or {@code JitRuntime.tailCall}. */
+    private void call(Expr.Call e, String method) {
+        expression(e.callee(), Kind.OBJECT);
+        objects(e.arguments());
+        mv.visitVarInsn(ALOAD, INTERPRETER);
+        constant(e.paren(), TOKEN);
+        mv.visitMethodInsn(INVOKESTATIC, RUNTIME, method, "(Ljava/lang/Object;[Ljava/lang/Object;"
+                + "Lcom/rakshith/boti/interpreter/Interpreter;L" + TOKEN + ";)Ljava/lang/Object;", false);
+    }
+
+    /**
+     * A call that may be to a math native: the arguments are evaluated once, then a native of the
+     * right arity is applied unboxed, with its body called from this call site rather than through
+     * the shared {@code JitRuntime.call}, so C2 sees one native here however many the script uses.
+     * Anything else takes the generic call.
+     */
+    private void intrinsic(Expr.Call e) {
+        boolean binary = e.arguments().size() == 2;
+        String record = Type.getInternalName(binary ? NativeFunction.Binary.class : NativeFunction.Unary.class);
+        String body = Type.getInternalName(binary ? DoubleBinaryOperator.class : DoubleUnaryOperator.class);
+        int line = e.paren().line();
+
+        int callee = fresh(1);
+        expression(e.callee(), Kind.OBJECT);
+        mv.visitVarInsn(ASTORE, callee);
+        int[] arguments = new int[e.arguments().size()];
+        Kind[] argumentKinds = new Kind[arguments.length];
+        for (int i = 0; i < arguments.length; i++) {
+            Kind kind = expression(e.arguments().get(i));
+            if (kind == Kind.BOOL) {
+                coerce(kind, Kind.OBJECT);
+                kind = Kind.OBJECT;
+            }
+            argumentKinds[i] = kind;
+            arguments[i] = fresh(kind == Kind.NUMBER ? 2 : 1);
+            mv.visitVarInsn(kind == Kind.NUMBER ? DSTORE : ASTORE, arguments[i]);
+        }
+
+        Label generic = new Label();
+        Label end = new Label();
+        mv.visitVarInsn(ALOAD, callee);
+        mv.visitTypeInsn(INSTANCEOF, record);
+        mv.visitJumpInsn(IFEQ, generic);
+        mv.visitVarInsn(ALOAD, callee);
+        mv.visitTypeInsn(CHECKCAST, record);
+        mv.visitMethodInsn(INVOKEVIRTUAL, record, "body", "()L" + body + ";", false);
+        for (int i = 0; i < arguments.length; i++) {
+            if (argumentKinds[i] == Kind.NUMBER) {
+                mv.visitVarInsn(DLOAD, arguments[i]);
+            } else {
+                mv.visitVarInsn(ALOAD, callee);
+                mv.visitTypeInsn(CHECKCAST, record);
+                mv.visitVarInsn(ALOAD, arguments[i]);
+                push(line);
+                mv.visitMethodInsn(INVOKEVIRTUAL, record, "number", "(Ljava/lang/Object;I)D", false);
+            }
+        }
+        if (binary) {
+            // As in Binary.apply: an ArithmeticException from the body is the call's runtime error.
+            Label start = new Label();
+            Label done = new Label();
+            Label handler = new Label();
+            mv.visitTryCatchBlock(start, done, handler, "java/lang/ArithmeticException");
+            mv.visitLabel(start);
+            mv.visitMethodInsn(INVOKEINTERFACE, body, "applyAsDouble", "(DD)D", true);
+            mv.visitLabel(done);
+            mv.visitMethodInsn(INVOKESTATIC, DOUBLE, "valueOf", "(D)Ljava/lang/Double;", false);
+            mv.visitJumpInsn(GOTO, end);
+            mv.visitLabel(handler);
+            push(line);
+            mv.visitMethodInsn(INVOKESTATIC, RUNTIME, "arithmetic",
+                    "(Ljava/lang/ArithmeticException;I)Lcom/rakshith/boti/interpreter/RuntimeError;", false);
+            mv.visitInsn(ATHROW);
+        } else {
+            mv.visitMethodInsn(INVOKEINTERFACE, body, "applyAsDouble", "(D)D", true);
+            mv.visitMethodInsn(INVOKESTATIC, DOUBLE, "valueOf", "(D)Ljava/lang/Double;", false);
+            mv.visitJumpInsn(GOTO, end);
+        }
+
+        mv.visitLabel(generic);
+        mv.visitVarInsn(ALOAD, callee);
+        push(arguments.length);
+        mv.visitTypeInsn(ANEWARRAY, OBJECT);
+        for (int i = 0; i < arguments.length; i++) {
+            mv.visitInsn(DUP);
+            push(i);
+            mv.visitVarInsn(argumentKinds[i] == Kind.NUMBER ? DLOAD : ALOAD, arguments[i]);
+            coerce(argumentKinds[i], Kind.OBJECT);
+            mv.visitInsn(AASTORE);
+        }
+        mv.visitVarInsn(ALOAD, INTERPRETER);
+        constant(e.paren(), TOKEN);
+        mv.visitMethodInsn(INVOKESTATIC, RUNTIME, "call", "(Ljava/lang/Object;[Ljava/lang/Object;"
+                + "Lcom/rakshith/boti/interpreter/Interpreter;L" + TOKEN + ";)Ljava/lang/Object;", false);
+        mv.visitLabel(end);
+    }
+
+    /** A JVM local of {@code size} slots that no other part of the method uses. */
+    private int fresh(int size) {
+        int local = nextLocal;
+        nextLocal += size;
+        return local;
+    }
+
+    private Kind literal(Object value) {
+        switch (value) {
+            case null -> {
+                mv.visitInsn(ACONST_NULL);
+                return Kind.OBJECT;
+            }
+            case Double d -> {
+                mv.visitLdcInsn(d);
+                return Kind.NUMBER;
+            }
+            case Boolean b -> {
+                mv.visitInsn(b ? ICONST_1 : ICONST_0);
+                return Kind.BOOL;
+            }
+            case String s -> {
+                mv.visitLdcInsn(s);
+                return Kind.OBJECT;
+            }
+            default -> {
+                constant(value, OBJECT);
+                return Kind.OBJECT;
+            }
+        }
+    }
+
+    private Kind variable(Expr.Variable expr) {
+        Access access = accesses.get(expr);
+        if (access.local() >= 0) {
+            load(access.local());
+            return kinds.get(access.local());
+        }
+        if (access == Access.GLOBAL) {
+            globals();
+            constant(expr.name(), TOKEN);
+            push(expr.slot());
+            mv.visitMethodInsn(INVOKEVIRTUAL, ENVIRONMENT, "getGlobal", "(L" + TOKEN + ";I)Ljava/lang/Object;", false);
+        } else {
+            mv.visitVarInsn(ALOAD, FRAME);
+            push(access.closureDepth() + 1);
+            push(expr.slot());
+            mv.visitMethodInsn(INVOKEVIRTUAL, ENVIRONMENT, "getAt", "(II)Ljava/lang/Object;", false);
+        }
+        return Kind.OBJECT;
+    }
+
+    /** Pushes the globals of the running interpreter, which are a task's own. */
+    private void globals() {
+        mv.visitVarInsn(ALOAD, INTERPRETER);
+        mv.visitMethodInsn(INVOKEVIRTUAL, "com/rakshith/boti/interpreter/Interpreter", "globals",
+                "()L" + ENVIRONMENT + ";", false);
+    }
+
+    private Kind assign(Expr.Assign expr) {
+        Access access = accesses.get(expr);
+        if (access.local() >= 0) {
+            Kind kind = kinds.get(access.local());
+            expression(expr.value(), kind);
+            mv.visitInsn(kind == Kind.NUMBER ? DUP2 : DUP);
+            store(access.local());
+            return kind;
+        }
+        expression(expr.value(), Kind.OBJECT);
+        if (access == Access.GLOBAL) {
+            globals();
+            constant(expr.name(), TOKEN);
+            push(expr.slot());
+            mv.visitMethodInsn(INVOKESTATIC, RUNTIME, "assignGlobal",
+                    "(Ljava/lang/Object;L" + ENVIRONMENT + ";L" + TOKEN + ";I)Ljava/lang/Object;", false);
+        } else {
+            mv.visitVarInsn(ALOAD, FRAME);
+            push(access.closureDepth() + 1);
+            push(expr.slot());
+            mv.visitMethodInsn(INVOKESTATIC, RUNTIME, "assignAt",
+                    "(Ljava/lang/Object;L" + ENVIRONMENT + ";II)Ljava/lang/Object;", false);
+        }
+        return Kind.OBJECT;
+    }
+
+    private Kind unary(Expr.Unary expr) {
+        if (expr.operator().type() == TokenType.BANG) {
+            return condition(expr);
+        }
+        Kind kind = expression(expr.right());
+        if (kind == Kind.NUMBER) {
+            mv.visitInsn(DNEG);
+        } else {
+            coerce(kind, Kind.OBJECT);
+            constant(expr.operator(), TOKEN);
+            mv.visitMethodInsn(INVOKESTATIC, RUNTIME, "negate", "(Ljava/lang/Object;L" + TOKEN + ";)D", false);
+        }
+        return Kind.NUMBER;
+    }
+
+    private Kind binary(Expr.Binary expr) {
+        Token operator = expr.operator();
+        switch (operator.type()) {
+            case PLUS -> {
+                Kind left = expression(expr.left());
+                Kind right = expression(expr.right());
+                if (left == Kind.NUMBER && right == Kind.NUMBER) {
+                    mv.visitInsn(DADD);
+                    return Kind.NUMBER;
+                }
+                objects(left, right);
+                constant(operator, TOKEN);
+                mv.visitMethodInsn(INVOKESTATIC, RUNTIME, "add",
+                        "(Ljava/lang/Object;Ljava/lang/Object;L" + TOKEN + ";)Ljava/lang/Object;", false);
+                return Kind.OBJECT;
+            }
+            case MINUS, STAR, SLASH -> {
+                numbers(expression(expr.left()), expression(expr.right()), operator);
+                switch (operator.type()) {
+                    case MINUS -> mv.visitInsn(DSUB);
+                    case STAR -> mv.visitInsn(DMUL);
+                    default -> {
+                        constant(operator, TOKEN);
+                        mv.visitMethodInsn(INVOKESTATIC, RUNTIME, "divide", "(DDL" + TOKEN + ";)D", false);
+                    }
+                }
+                return Kind.NUMBER;
+            }
+            default -> {
+                return condition(expr);
+            }
+        }
+    }
+
+    /** Materializes a condition as a JVM boolean. */
+    private Kind condition(Expr expr) {
+        Label isFalse = new Label();
+        Label end = new Label();
+        branch(expr, false, isFalse);
+        mv.visitInsn(ICONST_1);
+        mv.visitJumpInsn(GOTO, end);
+        mv.visitLabel(isFalse);
+        mv.visitInsn(ICONST_0);
+        mv.visitLabel(end);
+        return Kind.BOOL;
+    }
+
+    /** Jumps to {@code target} if the truthiness of {@code expr} equals {@code when}. */
+    private void branch(Expr expr, boolean when, Label target) {
+        switch (expr) {
+            case Expr.Grouping e -> branch(e.expression(), when, target);
+            case Expr.Unary e when e.operator().type() == TokenType.BANG -> branch(e.right(), !when, target);
+            case Expr.Logical e -> {
+                boolean isOr = e.operator().type() == TokenType.OR;
+                if (isOr == when) {
+                    branch(e.left(), when, target);
+                    branch(e.right(), when, target);
+                } else {
+                    Label skip = new Label();
+                    branch(e.left(), !when, skip);
+                    branch(e.right(), when, target);
+                    mv.visitLabel(skip);
+                }
+            }
+            case Expr.Binary e when isComparison(e.operator().type()) -> compare(e, when, target);
+            default -> {
+                Kind kind = expression(expr);
+                switch (kind) {
+                    case BOOL -> mv.visitJumpInsn(when ? IFNE : IFEQ, target);
+                    case NUMBER -> {
+                        // Numbers are always truthy.
+                        mv.visitInsn(POP2);
+                        if (when) mv.visitJumpInsn(GOTO, target);
+                    }
+                    case OBJECT -> {
+                        truthy();
+                        mv.visitJumpInsn(when ? IFNE : IFEQ, target);
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean isComparison(TokenType type) {
+        return switch (type) {
+            case LESS, LESS_EQUAL, GREATER, GREATER_EQUAL, EQUAL_EQUAL, BANG_EQUAL -> true;
+            default -> false;
+        };
+    }
+
+    private void compare(Expr.Binary expr, boolean when, Label target) {
+        TokenType type = expr.operator().type();
+        Kind left = expression(expr.left());
+        Kind right = expression(expr.right());
+        if (type == TokenType.EQUAL_EQUAL || type == TokenType.BANG_EQUAL) {
+            if (left == Kind.NUMBER && right == Kind.NUMBER) {
+                mv.visitMethodInsn(INVOKESTATIC, RUNTIME, "equal", "(DD)Z", false);
+            } else if (left == Kind.NUMBER && right == Kind.OBJECT) {
+                mv.visitMethodInsn(INVOKESTATIC, RUNTIME, "equal", "(DLjava/lang/Object;)Z", false);
+            } else if (left == Kind.OBJECT && right == Kind.NUMBER) {
+                mv.visitMethodInsn(INVOKESTATIC, RUNTIME, "equal", "(Ljava/lang/Object;D)Z", false);
+            } else {
+                objects(left, right);
+                mv.visitMethodInsn(INVOKESTATIC, VALUES, "isEqual", "(Ljava/lang/Object;Ljava/lang/Object;)Z", false);
+            }
+            boolean jumpIfEqual = (type == TokenType.EQUAL_EQUAL) == when;
+            mv.visitJumpInsn(jumpIfEqual ? IFNE : IFEQ, target);
+            return;
+        }
+        numbers(left, right, expr.operator());
+        // DCMPG makes NaN compare greater, DCMPL less, so every comparison with NaN is false.
+        switch (type) {
+            case LESS -> {
+                mv.visitInsn(DCMPG);
+                mv.visitJumpInsn(when ? IFLT : IFGE, target);
+            }
+            case LESS_EQUAL -> {
+                mv.visitInsn(DCMPG);
+                mv.visitJumpInsn(when ? IFLE : IFGT, target);
+            }
+            case GREATER -> {
+                mv.visitInsn(DCMPL);
+                mv.visitJumpInsn(when ? IFGT : IFLE, target);
+            }
+            default -> {
+                mv.visitInsn(DCMPL);
+                mv.visitJumpInsn(when ? IFGE : IFLT, target);
+            }
+        }
+    }
+
+    /**
+     * Turns the two operands on the stack into two doubles. Both operands are already evaluated,
+     * so a non-number fails with the interpreter's message after any side effects of either.
+     */
+    private void numbers(Kind left, Kind right, Token operator) {
+        if (left == Kind.NUMBER && right == Kind.NUMBER) return;
+        if (left == Kind.NUMBER) {
+            coerce(right, Kind.OBJECT);
+            constant(operator, TOKEN);
+            mv.visitMethodInsn(INVOKESTATIC, RUNTIME, "number", "(Ljava/lang/Object;L" + TOKEN + ";)D", false);
+        } else if (right == Kind.NUMBER) {
+            mv.visitVarInsn(DSTORE, scratchDouble);
+            coerce(left, Kind.OBJECT);
+            constant(operator, TOKEN);
+            mv.visitMethodInsn(INVOKESTATIC, RUNTIME, "number", "(Ljava/lang/Object;L" + TOKEN + ";)D", false);
+            mv.visitVarInsn(DLOAD, scratchDouble);
+        } else {
+            objects(left, right);
+            mv.visitInsn(DUP2);
+            constant(operator, TOKEN);
+            mv.visitMethodInsn(INVOKESTATIC, RUNTIME, "checkNumbers",
+                    "(Ljava/lang/Object;Ljava/lang/Object;L" + TOKEN + ";)V", false);
+            unboxDouble();
+            mv.visitVarInsn(DSTORE, scratchDouble);
+            unboxDouble();
+            mv.visitVarInsn(DLOAD, scratchDouble);
+        }
+    }
+
+    /** Boxes the two operands on the stack. */
+    private void objects(Kind left, Kind right) {
+        coerce(right, Kind.OBJECT);
+        if (left != Kind.OBJECT) {
+            mv.visitVarInsn(ASTORE, scratchObject);
+            coerce(left, Kind.OBJECT);
+            mv.visitVarInsn(ALOAD, scratchObject);
+        }
+    }
+
+    private void coerce(Kind from, Kind to) {
+        if (from == to) return;
+        if (to != Kind.OBJECT) throw new IllegalStateException(from + " -> " + to);
+        if (from == Kind.NUMBER) {
+            mv.visitMethodInsn(INVOKESTATIC, DOUBLE, "valueOf", "(D)Ljava/lang/Double;", false);
+        } else {
+            mv.visitMethodInsn(INVOKESTATIC, "java/lang/Boolean", "valueOf", "(Z)Ljava/lang/Boolean;", false);
+        }
+    }
+
+    private void truthy() {
+        mv.visitMethodInsn(INVOKESTATIC, VALUES, "isTruthy", "(Ljava/lang/Object;)Z", false);
+    }
+
+    private void unboxDouble() {
+        mv.visitTypeInsn(CHECKCAST, DOUBLE);
+        mv.visitMethodInsn(INVOKEVIRTUAL, DOUBLE, "doubleValue", "()D", false);
+    }
+
+    private void pop(Kind kind) {
+        mv.visitInsn(kind == Kind.NUMBER ? POP2 : POP);
+    }
+
+    private void load(int local) {
+        mv.visitVarInsn(kinds.get(local) == Kind.NUMBER ? DLOAD : ALOAD, jvmIndex[local]);
+    }
+
+    private void store(int local) {
+        mv.visitVarInsn(kinds.get(local) == Kind.NUMBER ? DSTORE : ASTORE, jvmIndex[local]);
+    }
+
+    private void constant(Object value, String type) {
+        int index = 0;
+        while (index < constants.size() && constants.get(index) != value) index++;
+        if (index == constants.size()) constants.add(value);
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitFieldInsn(GETFIELD, CLASS_NAME, "k", "[Ljava/lang/Object;");
+        push(index);
+        mv.visitInsn(AALOAD);
+        mv.visitTypeInsn(CHECKCAST, type);
+    }
+
+    private void push(int value) {
+        if (value >= -1 && value <= 5) mv.visitInsn(ICONST_0 + value);
+        else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) mv.visitIntInsn(BIPUSH, value);
+        else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) mv.visitIntInsn(SIPUSH, value);
+        else mv.visitLdcInsn(value);
+    }
+}
@@ -0,0 +1,65 @@
+package com.rakshith.boti.jit;
+
+import com.rakshith.boti.ast.Stmt;
+
+/**
+ * Per-declaration call counter and tier state, shared by every closure created from the same
+ * {@code fun} declaration. Each call and each iteration of a loop in the interpreted body counts;
+ * once the count reaches {@link JitCompiler#THRESHOLD} the next call compiles the body with
+ * numeric parameters speculated. There is no on-stack replacement, so a hot loop moves its
+ * function to compiled code from the next call on, and loops at the top level are never compiled.
+ * A failed speculation drops the code and the next tier-up compiles without it. Functions that
+ * cannot be compiled stay interpreted. Calls from several threads may miscount, but each tier-up
+ * compiles once; compiled code holds no mutable state.
+ */
+public final class FunctionProfile {
+
+    private final JitCompiler compiler;
+    private final Stmt.Function declaration;
+    private int calls;
+    private volatile JitCode code;
+    private boolean speculate = true;
+    private boolean disabled;
+
+    FunctionProfile(JitCompiler compiler, Stmt.Function declaration) {
+        this.compiler = compiler;
+        this.declaration = declaration;
+    }
+
+    /** Counts a call and returns the compiled code, or null while the function is interpreted. */
+    public JitCode enter() {
+        JitCode compiled = code;
+        if (compiled == null && !disabled && ++calls >= JitCompiler.THRESHOLD) return tierUp();
+        return compiled;
+    }
+
+    /** Counts one iteration of a loop in the interpreted body. */
+    public void backEdge() {
+        calls++;
+    }
+
+    private synchronized JitCode tierUp() {
+        if (code == null && !disabled) {
+            code = compiler.compile(declaration, speculate);
+            disabled = code == null;
+        }
+        return code;
+    }
+
+    /** Called when {@link #enter}'s code threw {@link Deoptimize}: fall back and respecialize. */
+    public synchronized void deoptimize() {
+        code = null;
+        calls = 0;
+        disabled = !speculate;
+        speculate = false;
+    }
+
+    public int calls() {
+        return calls;
+    }
+
+    /** Whether calls currently run compiled code. */
+    public boolean compiled() {
+        return code != null;
+    }
+}
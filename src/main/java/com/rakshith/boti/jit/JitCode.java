@@ -0,0 +1,14 @@
+package com.rakshith.boti.jit;
+
+import com.rakshith.boti.interpreter.Environment;
+import com.rakshith.boti.interpreter.Interpreter;
+
+/**
+ * A function body compiled to JVM bytecode. Implemented by the hidden classes the
+ * {@link JitCompiler} generates; throws {@link Deoptimize} on entry if a speculation fails.
+ */
+public interface JitCode {
+
+    /** {@code frame} is the callee's frame with the arguments in slots 0..arity-1. */
+    Object invoke(Interpreter interpreter, Environment frame);
+}
@@ -0,0 +1,40 @@
+package com.rakshith.boti.jit;
+
+import com.rakshith.boti.ast.Stmt;
+
+import java.lang.invoke.MethodHandles;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Second tier for the tree-walking interpreter: compiles hot function bodies to JVM bytecode
+ * and loads them as hidden classes, so they can be unloaded with the function that owns them.
+ * The threshold is the {@code boti.jit.threshold} system property, counted per declaration in
+ * calls plus interpreted loop iterations. Tasks on other threads share the compiler, so profiles
+ * are made and compiled under a lock.
+ */
+public final class JitCompiler {
+
+    static final int THRESHOLD = Integer.getInteger("boti.jit.threshold", 1000);
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private final Map<Stmt.Function, FunctionProfile> profiles = new IdentityHashMap<>();
+
+    public synchronized FunctionProfile profile(Stmt.Function declaration) {
+        return profiles.computeIfAbsent(declaration, d -> new FunctionProfile(this, d));
+    }
+
+    /** Returns null when the body uses something the compiler does not handle. */
+    JitCode compile(Stmt.Function declaration, boolean speculate) {
+        FunctionCompiler compiler = new FunctionCompiler(declaration, speculate);
+        byte[] bytes = compiler.compile();
+        if (bytes == null) return null;
+        try {
+            Class<?> type = LOOKUP.defineHiddenClass(bytes, true).lookupClass();
+            return (JitCode) type.getDeclaredConstructor(Object[].class).newInstance((Object) compiler.constants());
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.rakshith.boti.jit;
+
+import com.rakshith.boti.interpreter.BotiArray;
+import com.rakshith.boti.interpreter.BotiMap;
+import com.rakshith.boti.interpreter.BotiCallable;
+import com.rakshith.boti.interpreter.BotiClass;
+import com.rakshith.boti.interpreter.BoundMethod;
+import com.rakshith.boti.interpreter.Environment;
+import com.rakshith.boti.interpreter.Interpreter;
+import com.rakshith.boti.interpreter.NativeFunction;
+import com.rakshith.boti.interpreter.RuntimeError;
+import com.rakshith.boti.lexer.Token;
+
+import java.util.Arrays;
+
+import static com.rakshith.boti.interpreter.Values.concat;
+import static com.rakshith.boti.interpreter.Values.isString;
+import static com.rakshith.boti.interpreter.Values.stringify;
+
+/**
+ * Slow paths called from compiled code: everything that is not a primitive double operation.
+ * Messages match the tree-walking interpreter.
+ */
+final class JitRuntime {
+
+    private JitRuntime() { }
+
+    static void print(Object value, Interpreter interpreter) {
+        interpreter.out().println(stringify(value));
+    }
+
+    static double number(Object operand, Token operator) {
+        if (operand instanceof Double d) return d;
+        throw new RuntimeError(operator, "Operands must be numbers.");
+    }
+
+    static void checkNumbers(Object left, Object right, Token operator) {
+        if (left instanceof Double && right instanceof Double) return;
+        throw new RuntimeError(operator, "Operands must be numbers.");
+    }
+
+    static double negate(Object operand, Token operator) {
+        if (operand instanceof Double d) return -d;
+        throw new RuntimeError(operator, "Operand must be a number.");
+    }
+
+    static double divide(double left, double right, Token operator) {
+        if (right == 0) throw new RuntimeError(operator, "Division by zero.");
+        return left / right;
+    }
+
+    static Object add(Object left, Object right, Token operator) {
+        if (left instanceof Double l && right instanceof Double r) return l + r;
+        if (isString(left) || isString(right)) return concat(left, right);
+        throw new RuntimeError(operator, "Operands must be two numbers or two strings.");
+    }
+
+    /** {@code Double.equals} semantics, as in {@code Values.isEqual}. */
+    static boolean equal(double left, double right) {
+        return Double.doubleToLongBits(left) == Double.doubleToLongBits(right);
+    }
+
+    /** {@code left == right} without boxing {@code left}; only a number can equal it. */
+    static boolean equal(double left, Object right) {
+        return right instanceof Double d && equal(left, d.doubleValue());
+    }
+
+    static boolean equal(Object left, double right) {
+        return left instanceof Double d && equal(d.doubleValue(), right);
+    }
+
+    /** The runtime error for an {@link ArithmeticException} thrown by a native's body. */
+    static RuntimeError arithmetic(ArithmeticException e, int line) {
+        return new RuntimeError(line, e.getMessage());
+    }
+
+    static Object call(Object callee, Object[] arguments, Interpreter interpreter, Token paren) {
+        if (callee instanceof BoundMethod || callee instanceof BotiClass) {
+            return interpreter.invoker().call(callee, arguments, paren.line());
+        }
+        BotiCallable function = callable(callee, arguments, paren);
+        if (function instanceof BotiCallable.BotiFunction user) {
+            return interpreter.invoke(user, frame(user, arguments), paren);
+        }
+        if (function instanceof NativeFunction intrinsic) {
+            return intrinsic.call(arguments, interpreter.invoker(), paren.line());
+        }
+        return function.call(interpreter, Arrays.asList(arguments), paren);
+    }
+
+    /** {@code return callee(arguments)}: user functions are left to the caller's trampoline. */
+    static Object tailCall(Object callee, Object[] arguments, Interpreter interpreter, Token paren) {
+        if (callee instanceof BoundMethod || callee instanceof BotiClass) {
+            return interpreter.invoker().call(callee, arguments, paren.line());
+        }
+        BotiCallable function = callable(callee, arguments, paren);
+        if (function instanceof BotiCallable.BotiFunction user) {
+            interpreter.tailCall(user, frame(user, arguments));
+            return null;
+        }
+        if (function instanceof NativeFunction intrinsic) {
+            return intrinsic.call(arguments, interpreter.invoker(), paren.line());
+        }
+        return function.call(interpreter, Arrays.asList(arguments), paren);
+    }
+
+    private static BotiCallable callable(Object callee, Object[] arguments, Token paren) {
+        if (!(callee instanceof BotiCallable function)) {
+            throw new RuntimeError(paren, "Can only call functions and classes.");
+        }
+        if (arguments.length != function.arity()) {
+            throw new RuntimeError(paren, "Expected " + function.arity() + " arguments but got " + arguments.length + ".");
+        }
+        return function;
+    }
+
+    private static Environment frame(BotiCallable.BotiFunction function, Object[] arguments) {
+        Environment frame = function.newFrame();
+        for (int i = 0; i < arguments.length; i++) {
+            frame.set(i, arguments[i]);
+        }
+        return frame;
+    }
+
+    static Object superMethod(Object superclass, Object receiver, Token method) {
+        return ((BotiClass) superclass).bind(receiver, method);
+    }
+
+    static Object array(Object[] elements) {
+        return BotiArray.of(elements);
+    }
+
+    static Object map(Object[] entries, int line) {
+        return BotiMap.of(entries, line);
+    }
+
+    static Object index(Object array, Object index, int line) {
+        return BotiArray.get(array, index, line);
+    }
+
+    /** {@code array[index]} with the index in a {@code double} local. */
+    static Object index(Object array, double index, int line) {
+        if (array instanceof BotiMap map) return map.get(index);
+        BotiArray target = BotiArray.array(array, line);
+        return target.get(target.index(index, line));
+    }
+
+    static Object setIndex(Object array, Object index, Object value, int line) {
+        return BotiArray.set(array, index, value, line);
+    }
+
+    static Object assignGlobal(Object value, Environment globals, Token name, int slot) {
+        globals.assignGlobal(name, slot, value);
+        return value;
+    }
+
+    static Object assignAt(Object value, Environment frame, int depth, int slot) {
+        frame.assignAt(depth, slot, value);
+        return value;
+    }
+}
@@ -0,0 +1,50 @@
+package com.rakshith.boti.lexer;
+
+/**
+ * Interns identifier names straight from the source: an open-addressing table keyed by the
+ * characters in place, so a name seen before costs no allocation. Names are also
+ * {@link String#intern() interned}, so scanners for different sources share them.
+ */
+final class NameTable {
+
+    private String[] names = new String[64];
+    private int[] hashes = new int[64];
+    private int size;
+
+    String intern(String source, int start, int length) {
+        int hash = 0;
+        for (int i = start; i < start + length; i++) {
+            hash = 31 * hash + source.charAt(i);
+        }
+        int mask = names.length - 1;
+        for (int index = hash & mask; ; index = (index + 1) & mask) {
+            String name = names[index];
+            if (name == null) break;
+            if (hashes[index] == hash && name.length() == length && source.regionMatches(start, name, 0, length)) {
+                return name;
+            }
+        }
+        String name = source.substring(start, start + length).intern();
+        if (++size * 2 > names.length) grow();
+        insert(name, hash);
+        return name;
+    }
+
+    private void insert(String name, int hash) {
+        int mask = names.length - 1;
+        int index = hash & mask;
+        while (names[index] != null) index = (index + 1) & mask;
+        names[index] = name;
+        hashes[index] = hash;
+    }
+
+    private void grow() {
+        String[] oldNames = names;
+        int[] oldHashes = hashes;
+        names = new String[oldNames.length * 2];
+        hashes = new int[oldNames.length * 2];
+        for (int i = 0; i < oldNames.length; i++) {
+            if (oldNames[i] != null) insert(oldNames[i], oldHashes[i]);
+        }
+    }
+}
@@ -2,32 +2,34 @@ package com.rakshith.boti.lexer;
 
 import com.rakshith.boti.HadError;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import static com.rakshith.boti.lexer.TokenType.*;
 
 /**
- * Scans source code and produces a list of tokens.
+ * Scans source code into a {@link TokenStream}. Tokens point into the source instead of copying
+ * their text, and keywords are recognized in place by {@link #keyword}; literal values are left
+ * for the stream to decode when the parser asks for them.
  */
 public class Scanner {
 
     private final String source;
-    private final List<Token> tokens = new ArrayList<>();
+    private final HadError errors;
+    private final TokenStream tokens;
     private int start;
     private int current;
     private int line = 1;
 
-    public Scanner(String source) {
+    public Scanner(String source, HadError errors) {
         this.source = source;
+        this.errors = errors;
+        this.tokens = new TokenStream(source);
     }
 
-    public List<Token> scanTokens() {
+    public TokenStream scanTokens() {
         while (!isAtEnd()) {
             start = current;
             scanToken();
         }
-        tokens.add(new Token(EOF, "", null, line));
+        tokens.add(EOF, source.length(), 0, line);
         return tokens;
     }
 
@@ -38,6 +40,9 @@ public class Scanner {
             case ')' -> addToken(RIGHT_PAREN);
             case '{' -> addToken(LEFT_BRACE);
             case '}' -> addToken(RIGHT_BRACE);
+            case '[' -> addToken(LEFT_BRACKET);
+            case ']' -> addToken(RIGHT_BRACKET);
+            case ':' -> addToken(COLON);
             case ',' -> addToken(COMMA);
             case '.' -> addToken(DOT);
             case '-' -> addToken(MINUS);
@@ -61,7 +66,7 @@ public class Scanner {
             default -> {
                 if (isDigit(c)) number();
                 else if (isAlpha(c)) identifier();
-                else HadError.report(line, "Unexpected character.");
+                else errors.report(line, "Unexpected character.");
             }
         }
     }
@@ -72,12 +77,11 @@ public class Scanner {
             advance();
         }
         if (isAtEnd()) {
-            HadError.report(line, "Unterminated string.");
+            errors.report(line, "Unterminated string.");
             return;
         }
         advance(); // closing "
-        String value = source.substring(start + 1, current - 1);
-        addToken(STRING, value);
+        addToken(STRING);
     }
 
     private void number() {
@@ -86,14 +90,51 @@ public class Scanner {
             advance();
             while (isDigit(peek())) advance();
         }
-        addToken(NUMBER, Double.parseDouble(source.substring(start, current)));
+        addToken(NUMBER);
     }
 
     private void identifier() {
         while (isAlphaNumeric(peek())) advance();
-        String text = source.substring(start, current);
-        TokenType type = keywords().getOrDefault(text, IDENTIFIER);
-        addToken(type);
+        addToken(keyword(start, current - start));
+    }
+
+    /** Keyword lookup as a switch over the first letters, so no string is built. */
+    private TokenType keyword(int start, int length) {
+        return switch (source.charAt(start)) {
+            case 'a' -> rest(start, length, 1, "nd", AND);
+            case 'b' -> rest(start, length, 1, "reak", BREAK);
+            case 'c' -> length < 2 ? IDENTIFIER : switch (source.charAt(start + 1)) {
+                case 'l' -> rest(start, length, 2, "ass", CLASS);
+                case 'o' -> rest(start, length, 2, "ntinue", CONTINUE);
+                default -> IDENTIFIER;
+            };
+            case 'e' -> rest(start, length, 1, "lse", ELSE);
+            case 'f' -> length < 2 ? IDENTIFIER : switch (source.charAt(start + 1)) {
+                case 'a' -> rest(start, length, 2, "lse", FALSE);
+                case 'o' -> rest(start, length, 2, "r", FOR);
+                case 'u' -> rest(start, length, 2, "n", FUN);
+                default -> IDENTIFIER;
+            };
+            case 'i' -> rest(start, length, 1, "f", IF);
+            case 'n' -> rest(start, length, 1, "il", NIL);
+            case 'o' -> rest(start, length, 1, "r", OR);
+            case 'p' -> rest(start, length, 1, "rint", PRINT);
+            case 'r' -> rest(start, length, 1, "eturn", RETURN);
+            case 's' -> rest(start, length, 1, "uper", SUPER);
+            case 't' -> length < 2 ? IDENTIFIER : switch (source.charAt(start + 1)) {
+                case 'h' -> rest(start, length, 2, "is", THIS);
+                case 'r' -> rest(start, length, 2, "ue", TRUE);
+                default -> IDENTIFIER;
+            };
+            case 'v' -> rest(start, length, 1, "ar", VAR);
+            case 'w' -> rest(start, length, 1, "hile", WHILE);
+            default -> IDENTIFIER;
+        };
+    }
+
+    private TokenType rest(int start, int length, int offset, String rest, TokenType type) {
+        return length == offset + rest.length() && source.regionMatches(start + offset, rest, 0, rest.length())
+                ? type : IDENTIFIER;
     }
 
     private boolean match(char expected) {
@@ -132,21 +173,6 @@ public class Scanner {
     }
 
     private void addToken(TokenType type) {
-        addToken(type, null);
-    }
-
-    private void addToken(TokenType type, Object literal) {
-        tokens.add(new Token(type, source.substring(start, current), literal, line));
-    }
-
-    private static java.util.Map<String, TokenType> keywords() {
-        var m = new java.util.HashMap<String, TokenType>();
-        m.put("and", AND);    m.put("class", CLASS); m.put("else", ELSE);
-        m.put("false", FALSE); m.put("fun", FUN);   m.put("for", FOR);
-        m.put("if", IF);      m.put("nil", NIL);    m.put("or", OR);
-        m.put("print", PRINT); m.put("return", RETURN); m.put("super", SUPER);
-        m.put("this", THIS);  m.put("true", TRUE);  m.put("var", VAR);
-        m.put("while", WHILE);
-        return m;
+        tokens.add(type, start, current - start, line);
     }
 }
@@ -1,12 +1,25 @@
 package com.rakshith.boti.lexer;
 
 /**
- * A single token produced by the scanner.
+ * A single token, made from a {@link TokenStream} entry: its type and where it sits in the source. The text is
+ * not copied out; {@link #lexeme} reads it from the type, or for identifiers from {@code literal},
+ * which holds the interned name. For numbers and strings {@code literal} is the value.
  */
-public record Token(TokenType type, String lexeme, Object literal, int line) {
+public record Token(TokenType type, String source, int start, int length, Object literal, int line) {
+
+    /** A token that is not backed by scanned source, e.g. one made up by a tool. */
+    public Token(TokenType type, String lexeme, Object literal, int line) {
+        this(type, lexeme, 0, lexeme.length(), literal, line);
+    }
+
+    public String lexeme() {
+        if (type.text != null) return type.text;
+        if (type == TokenType.IDENTIFIER && literal instanceof String name) return name;
+        return source.substring(start, start + length);
+    }
 
     @Override
     public String toString() {
-        return type + " " + lexeme + (literal != null ? " " + literal : "");
+        return type + " " + lexeme() + (literal != null && type != TokenType.IDENTIFIER ? " " + literal : "");
     }
 }
@@ -0,0 +1,105 @@
+package com.rakshith.boti.lexer;
+
+import java.util.Arrays;
+
+/**
+ * The scanner's output, stored as parallel primitive arrays: a token is an index, with its type,
+ * (start, length) in the source and line. Literal values and {@link Token} objects are only made
+ * when asked for, so tokens the parser merely checks and skips (punctuation, most keywords) cost
+ * 13 bytes each and no allocation.
+ */
+public final class TokenStream {
+
+    private static final TokenType[] TYPES = TokenType.values();
+
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15
+    };
+
+    private final String source;
+    private final NameTable names = new NameTable();
+    private byte[] types;
+    private int[] starts;
+    private int[] lengths;
+    private int[] lines;
+    private int size;
+
+    TokenStream(String source) {
+        this.source = source;
+        // Typical code has a token every five to six characters.
+        int capacity = Math.max(16, source.length() / 5);
+        types = new byte[capacity];
+        starts = new int[capacity];
+        lengths = new int[capacity];
+        lines = new int[capacity];
+    }
+
+    void add(TokenType type, int start, int length, int line) {
+        if (size == types.length) grow();
+        types[size] = (byte) type.ordinal();
+        starts[size] = start;
+        lengths[size] = length;
+        lines[size] = line;
+        size++;
+    }
+
+    private void grow() {
+        int capacity = types.length + (types.length >> 1);
+        types = Arrays.copyOf(types, capacity);
+        starts = Arrays.copyOf(starts, capacity);
+        lengths = Arrays.copyOf(lengths, capacity);
+        lines = Arrays.copyOf(lines, capacity);
+    }
+
+    /** Number of tokens, including the final {@link TokenType#EOF}. */
+    public int size() {
+        return size;
+    }
+
+    public TokenType type(int index) {
+        return TYPES[types[index]];
+    }
+
+    public int line(int index) {
+        return lines[index];
+    }
+
+    /**
+     * The value of a number or string token, or the interned name of an identifier; null for
+     * every other type.
+     */
+    public Object literal(int index) {
+        int start = starts[index];
+        int length = lengths[index];
+        return switch (type(index)) {
+            case NUMBER -> number(start, length);
+            case STRING -> source.substring(start + 1, start + length - 1);
+            case IDENTIFIER -> names.intern(source, start, length);
+            default -> null;
+        };
+    }
+
+    public Token token(int index) {
+        return new Token(type(index), source, starts[index], lengths[index], literal(index), lines[index]);
+    }
+
+    private double number(int start, int length) {
+        long mantissa = 0;
+        int digits = 0;
+        int fraction = -1;
+        for (int i = start; i < start + length; i++) {
+            char c = source.charAt(i);
+            if (c == '.') {
+                fraction = 0;
+                continue;
+            }
+            mantissa = mantissa * 10 + (c - '0');
+            digits++;
+            if (fraction >= 0) fraction++;
+        }
+        // Up to 15 digits the mantissa and the power of ten are exact doubles, so one correctly
+        // rounded division gives the same result as parseDouble.
+        if (digits > 15) return Double.parseDouble(source.substring(start, start + length));
+        return mantissa / POWERS_OF_TEN[Math.max(fraction, 0)];
+    }
+}
@@ -1,25 +1,33 @@
 package com.rakshith.boti.lexer;
 
 /**
- * All token types for the language.
+ * All token types for the language. Punctuation and keywords carry their fixed text.
  */
 public enum TokenType {
     // Single-character
-    LEFT_PAREN, RIGHT_PAREN, LEFT_BRACE, RIGHT_BRACE,
-    COMMA, DOT, MINUS, PLUS, SEMICOLON, SLASH, STAR,
+    LEFT_PAREN("("), RIGHT_PAREN(")"), LEFT_BRACE("{"), RIGHT_BRACE("}"), LEFT_BRACKET("["), RIGHT_BRACKET("]"),
+    COLON(":"), COMMA(","), DOT("."), MINUS("-"), PLUS("+"), SEMICOLON(";"), SLASH("/"), STAR("*"),
 
     // One or two character
-    BANG, BANG_EQUAL,
-    EQUAL, EQUAL_EQUAL,
-    GREATER, GREATER_EQUAL,
-    LESS, LESS_EQUAL,
+    BANG("!"), BANG_EQUAL("!="),
+    EQUAL("="), EQUAL_EQUAL("=="),
+    GREATER(">"), GREATER_EQUAL(">="),
+    LESS("<"), LESS_EQUAL("<="),
 
     // Literals
-    IDENTIFIER, STRING, NUMBER,
+    IDENTIFIER(null), STRING(null), NUMBER(null),
 
     // Keywords
-    AND, CLASS, ELSE, FALSE, FUN, FOR, IF, NIL, OR,
-    PRINT, RETURN, SUPER, THIS, TRUE, VAR, WHILE,
+    AND("and"), BREAK("break"), CLASS("class"), CONTINUE("continue"), ELSE("else"), FALSE("false"),
+    FUN("fun"), FOR("for"), IF("if"), NIL("nil"), OR("or"), PRINT("print"), RETURN("return"),
+    SUPER("super"), THIS("this"), TRUE("true"), VAR("var"), WHILE("while"),
 
-    EOF
+    EOF("");
+
+    /** The lexeme of every token of this type, or null when it varies. */
+    final String text;
+
+    TokenType(String text) {
+        this.text = text;
+    }
 }
@@ -0,0 +1,218 @@
+package com.rakshith.boti.nodes;
+
+import com.rakshith.boti.interpreter.Environment;
+import com.rakshith.boti.interpreter.RuntimeError;
+import com.rakshith.boti.lexer.Token;
+
+import static com.rakshith.boti.interpreter.Values.concat;
+import static com.rakshith.boti.interpreter.Values.isEqual;
+import static com.rakshith.boti.interpreter.Values.isString;
+
+/**
+ * Binary operators. A fresh node is {@link Uninitialized}; its first execution rewrites it to a
+ * double-specialized node when both operands are numbers, or to {@link Generic} otherwise.
+ * Specialized nodes fall back to {@link Generic} the first time an operand is not a number.
+ */
+abstract class BinaryNode extends ExpressionNode {
+
+    enum Kind {
+        ADD, SUBTRACT, MULTIPLY, DIVIDE,
+        LESS, LESS_EQUAL, GREATER, GREATER_EQUAL,
+        EQUAL, NOT_EQUAL;
+
+        static Kind of(Token operator) {
+            return switch (operator.type()) {
+                case PLUS -> ADD;
+                case MINUS -> SUBTRACT;
+                case STAR -> MULTIPLY;
+                case SLASH -> DIVIDE;
+                case LESS -> LESS;
+                case LESS_EQUAL -> LESS_EQUAL;
+                case GREATER -> GREATER;
+                case GREATER_EQUAL -> GREATER_EQUAL;
+                case EQUAL_EQUAL -> EQUAL;
+                case BANG_EQUAL -> NOT_EQUAL;
+                default -> throw new RuntimeError(operator, "Unknown binary operator.");
+            };
+        }
+    }
+
+    protected final Kind kind;
+    protected final Token operator;
+    protected ExpressionNode left;
+    protected ExpressionNode right;
+
+    BinaryNode(Kind kind, Token operator, ExpressionNode left, ExpressionNode right) {
+        this.kind = kind;
+        this.operator = operator;
+        this.left = adopt(left);
+        this.right = adopt(right);
+    }
+
+    static BinaryNode create(Token operator, ExpressionNode left, ExpressionNode right) {
+        return new Uninitialized(Kind.of(operator), operator, left, right);
+    }
+
+    @Override
+    protected void replaceChild(Node oldChild, Node newChild) {
+        if (left == oldChild) left = (ExpressionNode) newChild;
+        if (right == oldChild) right = (ExpressionNode) newChild;
+    }
+
+    /** Rewrites this node to the generic version and applies it to already-evaluated operands. */
+    protected final Object generalize(Object leftValue, Object rightValue) {
+        return replace(new Generic(kind, operator, left, right)).apply(leftValue, rightValue);
+    }
+
+    /** Operator semantics on boxed values; mirrors {@code Interpreter.visitBinary}. */
+    protected final Object apply(Object l, Object r) {
+        switch (kind) {
+            case ADD -> {
+                if (l instanceof Double a && r instanceof Double b) return a + b;
+                if (isString(l) || isString(r)) return concat(l, r);
+                throw new RuntimeError(operator, "Operands must be two numbers or two strings.");
+            }
+            case EQUAL -> { return isEqual(l, r); }
+            case NOT_EQUAL -> { return !isEqual(l, r); }
+            default -> { }
+        }
+        if (!(l instanceof Double a && r instanceof Double b)) {
+            throw new RuntimeError(operator, "Operands must be numbers.");
+        }
+        return switch (kind) {
+            case SUBTRACT -> a - b;
+            case MULTIPLY -> a * b;
+            case DIVIDE -> divide(a, b);
+            case LESS -> a < b;
+            case LESS_EQUAL -> a <= b;
+            case GREATER -> a > b;
+            case GREATER_EQUAL -> a >= b;
+            default -> throw new IllegalStateException(kind.name());
+        };
+    }
+
+    protected final double divide(double a, double b) {
+        if (b == 0) throw new RuntimeError(operator, "Division by zero.");
+        return a / b;
+    }
+
+    /** Not executed yet: picks a specialization from the first operand values it sees. */
+    static final class Uninitialized extends BinaryNode {
+
+        Uninitialized(Kind kind, Token operator, ExpressionNode left, ExpressionNode right) {
+            super(kind, operator, left, right);
+        }
+
+        @Override
+        Object execute(Environment frame) {
+            Object l = left.execute(frame);
+            Object r = right.execute(frame);
+            BinaryNode specialized = l instanceof Double && r instanceof Double
+                    ? specializeDouble()
+                    : new Generic(kind, operator, left, right);
+            return replace(specialized).apply(l, r);
+        }
+
+        private BinaryNode specializeDouble() {
+            return switch (kind) {
+                case ADD, SUBTRACT, MULTIPLY, DIVIDE -> new DoubleArithmetic(kind, operator, left, right);
+                case EQUAL, NOT_EQUAL, LESS, LESS_EQUAL, GREATER, GREATER_EQUAL ->
+                        new DoubleComparison(kind, operator, left, right);
+            };
+        }
+    }
+
+    /** Handles any operand types; never rewrites again. */
+    static final class Generic extends BinaryNode {
+
+        Generic(Kind kind, Token operator, ExpressionNode left, ExpressionNode right) {
+            super(kind, operator, left, right);
+        }
+
+        @Override
+        Object execute(Environment frame) {
+            Object l = left.execute(frame);
+            Object r = right.execute(frame);
+            return apply(l, r);
+        }
+    }
+
+    /** {@code + - * /} on unboxed doubles. */
+    static final class DoubleArithmetic extends BinaryNode {
+
+        DoubleArithmetic(Kind kind, Token operator, ExpressionNode left, ExpressionNode right) {
+            super(kind, operator, left, right);
+        }
+
+        @Override
+        Object execute(Environment frame) {
+            try {
+                return executeDouble(frame);
+            } catch (UnexpectedResultException e) {
+                return e.result();
+            }
+        }
+
+        @Override
+        double executeDouble(Environment frame) throws UnexpectedResultException {
+            double a;
+            try {
+                a = left.executeDouble(frame);
+            } catch (UnexpectedResultException e) {
+                throw new UnexpectedResultException(generalize(e.result(), right.execute(frame)));
+            }
+            double b;
+            try {
+                b = right.executeDouble(frame);
+            } catch (UnexpectedResultException e) {
+                throw new UnexpectedResultException(generalize(a, e.result()));
+            }
+            return switch (kind) {
+                case ADD -> a + b;
+                case SUBTRACT -> a - b;
+                case MULTIPLY -> a * b;
+                default -> divide(a, b);
+            };
+        }
+    }
+
+    /** Comparisons and equality on unboxed doubles, producing an unboxed condition. */
+    static final class DoubleComparison extends BinaryNode {
+
+        DoubleComparison(Kind kind, Token operator, ExpressionNode left, ExpressionNode right) {
+            super(kind, operator, left, right);
+        }
+
+        @Override
+        Object execute(Environment frame) {
+            // Comparisons always produce a boolean, generic or not.
+            return executeCondition(frame);
+        }
+
+        @Override
+        boolean executeCondition(Environment frame) {
+            double a;
+            try {
+                a = left.executeDouble(frame);
+            } catch (UnexpectedResultException e) {
+                return (Boolean) generalize(e.result(), right.execute(frame));
+            }
+            double b;
+            try {
+                b = right.executeDouble(frame);
+            } catch (UnexpectedResultException e) {
+                return (Boolean) generalize(a, e.result());
+            }
+            return switch (kind) {
+                case LESS -> a < b;
+                case LESS_EQUAL -> a <= b;
+                case GREATER -> a > b;
+                case GREATER_EQUAL -> a >= b;
+                // Double.equals semantics, as in Values.isEqual: NaN == NaN, 0.0 != -0.0.
+                case EQUAL -> Double.doubleToLongBits(a) == Double.doubleToLongBits(b);
+                case NOT_EQUAL -> Double.doubleToLongBits(a) != Double.doubleToLongBits(b);
+                default -> throw new IllegalStateException(kind.name());
+            };
+        }
+    }
+}
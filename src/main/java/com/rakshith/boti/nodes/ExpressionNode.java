@@ -0,0 +1,23 @@
+package com.rakshith.boti.nodes;
+
+import com.rakshith.boti.interpreter.Environment;
+import com.rakshith.boti.interpreter.Values;
+
+/**
+ * An executable expression. {@link #execute} always works; the specialized entry points let
+ * parents that expect a number or a condition avoid boxing the result.
+ */
+abstract class ExpressionNode extends Node {
+
+    abstract Object execute(Environment frame);
+
+    double executeDouble(Environment frame) throws UnexpectedResultException {
+        Object value = execute(frame);
+        if (value instanceof Double d) return d;
+        throw new UnexpectedResultException(value);
+    }
+
+    boolean executeCondition(Environment frame) {
+        return Values.isTruthy(execute(frame));
+    }
+}
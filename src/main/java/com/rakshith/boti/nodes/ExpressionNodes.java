@@ -0,0 +1,685 @@
+package com.rakshith.boti.nodes;
+
+import com.rakshith.boti.ast.PropertyCache;
+import com.rakshith.boti.interpreter.BotiArray;
+import com.rakshith.boti.interpreter.BotiClass;
+import com.rakshith.boti.interpreter.BotiInstance;
+import com.rakshith.boti.interpreter.BotiMap;
+import com.rakshith.boti.interpreter.BoundMethod;
+import com.rakshith.boti.interpreter.Environment;
+import com.rakshith.boti.interpreter.NativeFunction;
+import com.rakshith.boti.interpreter.RuntimeError;
+import com.rakshith.boti.lexer.Token;
+
+import static com.rakshith.boti.interpreter.Values.isTruthy;
+
+/**
+ * Leaf and non-arithmetic expression nodes. Binary operators live in {@link BinaryNode}.
+ */
+final class ExpressionNodes {
+
+    private ExpressionNodes() { }
+
+    static final class Literal extends ExpressionNode {
+        private final Object value;
+
+        Literal(Object value) {
+            this.value = value;
+        }
+
+        @Override
+        Object execute(Environment frame) {
+            return value;
+        }
+    }
+
+    /** A number literal, kept unboxed for {@link #executeDouble}. */
+    static final class NumberLiteral extends ExpressionNode {
+        private final double value;
+        private final Double boxed;
+
+        NumberLiteral(double value) {
+            this.value = value;
+            this.boxed = value;
+        }
+
+        @Override
+        Object execute(Environment frame) {
+            return boxed;
+        }
+
+        @Override
+        double executeDouble(Environment frame) {
+            return value;
+        }
+    }
+
+    static final class ReadLocal extends ExpressionNode {
+        private final int depth;
+        private final int slot;
+
+        ReadLocal(int depth, int slot) {
+            this.depth = depth;
+            this.slot = slot;
+        }
+
+        @Override
+        Object execute(Environment frame) {
+            return depth == 0 ? frame.get(slot) : frame.getAt(depth, slot);
+        }
+    }
+
+    static final class ReadGlobal extends ExpressionNode {
+        private final Environment globals;
+        private final Token name;
+        private final int slot;
+
+        ReadGlobal(Environment globals, Token name, int slot) {
+            this.globals = globals;
+            this.name = name;
+            this.slot = slot;
+        }
+
+        @Override
+        Object execute(Environment frame) {
+            return globals.getGlobal(name, slot);
+        }
+    }
+
+    static final class WriteLocal extends ExpressionNode {
+        private final int depth;
+        private final int slot;
+        private ExpressionNode value;
+
+        WriteLocal(int depth, int slot, ExpressionNode value) {
+            this.depth = depth;
+            this.slot = slot;
+            this.value = adopt(value);
+        }
+
+        @Override
+        protected void replaceChild(Node oldChild, Node newChild) {
+            value = (ExpressionNode) newChild;
+        }
+
+        @Override
+        Object execute(Environment frame) {
+            Object result = value.execute(frame);
+            frame.assignAt(depth, slot, result);
+            return result;
+        }
+    }
+
+    static final class WriteGlobal extends ExpressionNode {
+        private final Environment globals;
+        private final Token name;
+        private final int slot;
+        private ExpressionNode value;
+
+        WriteGlobal(Environment globals, Token name, int slot, ExpressionNode value) {
+            this.globals = globals;
+            this.name = name;
+            this.slot = slot;
+            this.value = adopt(value);
+        }
+
+        @Override
+        protected void replaceChild(Node oldChild, Node newChild) {
+            value = (ExpressionNode) newChild;
+        }
+
+        @Override
+        Object execute(Environment frame) {
+            Object result = value.execute(frame);
+            globals.assignGlobal(name, slot, result);
+            return result;
+        }
+    }
+
+    static final class Negate extends ExpressionNode {
+        private final Token operator;
+        private ExpressionNode operand;
+
+        Negate(Token operator, ExpressionNode operand) {
+            this.operator = operator;
+            this.operand = adopt(operand);
+        }
+
+        @Override
+        protected void replaceChild(Node oldChild, Node newChild) {
+            operand = (ExpressionNode) newChild;
+        }
+
+        @Override
+        Object execute(Environment frame) {
+            return executeDouble(frame);
+        }
+
+        @Override
+        double executeDouble(Environment frame) {
+            try {
+                return -operand.executeDouble(frame);
+            } catch (UnexpectedResultException e) {
+                throw new RuntimeError(operator, "Operand must be a number.");
+            }
+        }
+    }
+
+    static final class Not extends ExpressionNode {
+        private ExpressionNode operand;
+
+        Not(ExpressionNode operand) {
+            this.operand = adopt(operand);
+        }
+
+        @Override
+        protected void replaceChild(Node oldChild, Node newChild) {
+            operand = (ExpressionNode) newChild;
+        }
+
+        @Override
+        Object execute(Environment frame) {
+            return executeCondition(frame);
+        }
+
+        @Override
+        boolean executeCondition(Environment frame) {
+            return !operand.executeCondition(frame);
+        }
+    }
+
+    /** {@code and} / {@code or}: yields the deciding operand itself, not a boolean. */
+    static final class Logical extends ExpressionNode {
+        private final boolean isOr;
+        private ExpressionNode left;
+        private ExpressionNode right;
+
+        Logical(boolean isOr, ExpressionNode left, ExpressionNode right) {
+            this.isOr = isOr;
+            this.left = adopt(left);
+            this.right = adopt(right);
+        }
+
+        @Override
+        protected void replaceChild(Node oldChild, Node newChild) {
+            if (left == oldChild) left = (ExpressionNode) newChild;
+            if (right == oldChild) right = (ExpressionNode) newChild;
+        }
+
+        @Override
+        Object execute(Environment frame) {
+            Object value = left.execute(frame);
+            if (isTruthy(value) == isOr) return value;
+            return right.execute(frame);
+        }
+
+        @Override
+        boolean executeCondition(Environment frame) {
+            return isOr
+                    ? left.executeCondition(frame) || right.executeCondition(frame)
+                    : left.executeCondition(frame) && right.executeCondition(frame);
+        }
+    }
+
+    /** A {@code tail} call is the value of a {@code return}: it hands the callee to the caller's trampoline. */
+    static final class Call extends ExpressionNode {
+        private final Token paren;
+        private ExpressionNode callee;
+        private final ExpressionNode[] arguments;
+        private final ReturnSlot returnSlot;
+        private final boolean tail;
+
+        Call(Token paren, ExpressionNode callee, ExpressionNode[] arguments, ReturnSlot returnSlot, boolean tail) {
+            this.paren = paren;
+            this.callee = adopt(callee);
+            this.arguments = arguments;
+            this.returnSlot = returnSlot;
+            this.tail = tail;
+            for (ExpressionNode argument : arguments) {
+                adopt(argument);
+            }
+        }
+
+        @Override
+        protected void replaceChild(Node oldChild, Node newChild) {
+            if (callee == oldChild) callee = (ExpressionNode) newChild;
+            for (int i = 0; i < arguments.length; i++) {
+                if (arguments[i] == oldChild) arguments[i] = (ExpressionNode) newChild;
+            }
+        }
+
+        @Override
+        Object execute(Environment frame) {
+            return call(callee.execute(frame), frame);
+        }
+
+        /** Calls the already evaluated callee; a native seen here specializes the node. */
+        Object call(Object function, Environment frame) {
+            if (function instanceof NativeFunction.Builtin target && target.arity() == arguments.length) {
+                Object[] values = new Object[arguments.length];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = arguments[i].execute(frame);
+                }
+                return target.call(values, returnSlot.invoker(), paren.line());
+            }
+            if (function instanceof NativeFunction target && target.arity() == arguments.length) {
+                return replace(new NativeCall(paren, callee, arguments, target, returnSlot, tail)).apply(frame);
+            }
+            if (function instanceof NodeFunction target && target.arity() == arguments.length) {
+                Environment calleeFrame = target.newFrame();
+                for (int i = 0; i < arguments.length; i++) {
+                    calleeFrame.set(i, arguments[i].execute(frame));
+                }
+                if (tail) {
+                    returnSlot.tailCall(target, calleeFrame);
+                    return null;
+                }
+                return returnSlot.invoke(target, calleeFrame, paren);
+            }
+            if (function instanceof BoundMethod || function instanceof BotiClass) {
+                Object[] values = new Object[arguments.length];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = arguments[i].execute(frame);
+                }
+                return returnSlot.invoker().call(function, values, paren.line());
+            }
+            for (ExpressionNode argument : arguments) {
+                argument.execute(frame);
+            }
+            int arity = switch (function) {
+                case NodeFunction target -> target.arity();
+                case NativeFunction target -> target.arity();
+                case null, default -> throw new RuntimeError(paren, "Can only call functions and classes.");
+            };
+            throw ReturnSlot.arity(arity, arguments.length, paren.line());
+        }
+    }
+
+    /** {@code object.name}. */
+    static final class GetProperty extends ExpressionNode {
+        private ExpressionNode object;
+        private final Token name;
+        private final PropertyCache cache = new PropertyCache();
+
+        GetProperty(ExpressionNode object, Token name) {
+            this.object = adopt(object);
+            this.name = name;
+        }
+
+        @Override
+        protected void replaceChild(Node oldChild, Node newChild) {
+            object = (ExpressionNode) newChild;
+        }
+
+        @Override
+        Object execute(Environment frame) {
+            return BotiInstance.get(object.execute(frame), name, cache);
+        }
+    }
+
+    /** {@code object.name = value}. */
+    static final class SetProperty extends ExpressionNode {
+        private ExpressionNode object;
+        private final Token name;
+        private ExpressionNode value;
+        private final PropertyCache cache = new PropertyCache();
+
+        SetProperty(ExpressionNode object, Token name, ExpressionNode value) {
+            this.object = adopt(object);
+            this.name = name;
+            this.value = adopt(value);
+        }
+
+        @Override
+        protected void replaceChild(Node oldChild, Node newChild) {
+            if (object == oldChild) object = (ExpressionNode) newChild;
+            if (value == oldChild) value = (ExpressionNode) newChild;
+        }
+
+        @Override
+        Object execute(Environment frame) {
+            Object target = object.execute(frame);
+            return BotiInstance.set(target, name, value.execute(frame), cache);
+        }
+    }
+
+    /** {@code super.method}, bound to {@code this}. */
+    static final class SuperMethod extends ExpressionNode {
+        private ExpressionNode superclass;
+        private ExpressionNode receiver;
+        private final Token method;
+
+        SuperMethod(ExpressionNode superclass, ExpressionNode receiver, Token method) {
+            this.superclass = adopt(superclass);
+            this.receiver = adopt(receiver);
+            this.method = method;
+        }
+
+        @Override
+        protected void replaceChild(Node oldChild, Node newChild) {
+            if (superclass == oldChild) superclass = (ExpressionNode) newChild;
+            if (receiver == oldChild) receiver = (ExpressionNode) newChild;
+        }
+
+        @Override
+        Object execute(Environment frame) {
+            Object klass = superclass.execute(frame);
+            return ((BotiClass) klass).bind(receiver.execute(frame), method);
+        }
+    }
+
+    /**
+     * {@code object.name(...)}: a method found through the node's cache runs on the instance
+     * without being bound first; a function held in a field is called through the invoker.
+     */
+    static final class Invoke extends ExpressionNode {
+        private final Token paren;
+        private ExpressionNode object;
+        private final Token name;
+        private final ExpressionNode[] arguments;
+        private final ReturnSlot returnSlot;
+        private final PropertyCache cache = new PropertyCache();
+
+        Invoke(Token paren, ExpressionNode object, Token name, ExpressionNode[] arguments, ReturnSlot returnSlot) {
+            this.paren = paren;
+            this.object = adopt(object);
+            this.name = name;
+            this.arguments = arguments;
+            this.returnSlot = returnSlot;
+            for (ExpressionNode argument : arguments) {
+                adopt(argument);
+            }
+        }
+
+        @Override
+        protected void replaceChild(Node oldChild, Node newChild) {
+            if (object == oldChild) object = (ExpressionNode) newChild;
+            for (int i = 0; i < arguments.length; i++) {
+                if (arguments[i] == oldChild) arguments[i] = (ExpressionNode) newChild;
+            }
+        }
+
+        @Override
+        Object execute(Environment frame) {
+            BotiInstance instance = BotiInstance.of(object.execute(frame), name.line());
+            PropertyCache.Entry found = instance.find(name, cache);
+            if (found.index() >= 0) {
+                Object function = instance.field(found.index());
+                Object[] values = new Object[arguments.length];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = arguments[i].execute(frame);
+                }
+                return returnSlot.invoker().call(function, values, paren.line());
+            }
+            NodeFunction method = (NodeFunction) found.target();
+            if (method.arity() != arguments.length) {
+                for (ExpressionNode argument : arguments) {
+                    argument.execute(frame);
+                }
+                throw ReturnSlot.arity(method.arity(), arguments.length, paren.line());
+            }
+            Environment calleeFrame = method.newFrame();
+            for (int i = 0; i < arguments.length; i++) {
+                calleeFrame.set(i, arguments[i].execute(frame));
+            }
+            calleeFrame.set(arguments.length, instance);
+            return returnSlot.invoke(method, calleeFrame, paren);
+        }
+    }
+
+    /** An array literal; elements are evaluated unboxed until one is not a number. */
+    static final class ArrayLiteral extends ExpressionNode {
+        private final ExpressionNode[] elements;
+
+        ArrayLiteral(ExpressionNode[] elements) {
+            this.elements = elements;
+            for (ExpressionNode element : elements) {
+                adopt(element);
+            }
+        }
+
+        @Override
+        protected void replaceChild(Node oldChild, Node newChild) {
+            for (int i = 0; i < elements.length; i++) {
+                if (elements[i] == oldChild) elements[i] = (ExpressionNode) newChild;
+            }
+        }
+
+        @Override
+        Object execute(Environment frame) {
+            double[] numbers = new double[elements.length];
+            for (int i = 0; i < elements.length; i++) {
+                try {
+                    numbers[i] = elements[i].executeDouble(frame);
+                } catch (UnexpectedResultException e) {
+                    Object[] values = new Object[elements.length];
+                    for (int j = 0; j < i; j++) {
+                        values[j] = numbers[j];
+                    }
+                    values[i] = e.result();
+                    for (int j = i + 1; j < elements.length; j++) {
+                        values[j] = elements[j].execute(frame);
+                    }
+                    return BotiArray.of(values);
+                }
+            }
+            return new BotiArray(numbers);
+        }
+    }
+
+    /** A map literal; keys and values alternate in {@code entries}. */
+    static final class MapLiteral extends ExpressionNode {
+        private final ExpressionNode[] entries;
+        private final int line;
+
+        MapLiteral(ExpressionNode[] entries, int line) {
+            this.entries = entries;
+            this.line = line;
+            for (ExpressionNode entry : entries) {
+                adopt(entry);
+            }
+        }
+
+        @Override
+        protected void replaceChild(Node oldChild, Node newChild) {
+            for (int i = 0; i < entries.length; i++) {
+                if (entries[i] == oldChild) entries[i] = (ExpressionNode) newChild;
+            }
+        }
+
+        @Override
+        Object execute(Environment frame) {
+            Object[] values = new Object[entries.length];
+            for (int i = 0; i < entries.length; i++) {
+                values[i] = entries[i].execute(frame);
+            }
+            return BotiMap.of(values, line);
+        }
+    }
+
+    /** {@code array[index]}: a number index and the element of a numeric array stay unboxed. */
+    static final class Index extends ExpressionNode {
+        private ExpressionNode array;
+        private ExpressionNode index;
+        private final int line;
+
+        Index(ExpressionNode array, ExpressionNode index, int line) {
+            this.array = adopt(array);
+            this.index = adopt(index);
+            this.line = line;
+        }
+
+        @Override
+        protected void replaceChild(Node oldChild, Node newChild) {
+            if (array == oldChild) array = (ExpressionNode) newChild;
+            if (index == oldChild) index = (ExpressionNode) newChild;
+        }
+
+        @Override
+        Object execute(Environment frame) {
+            Object target = array.execute(frame);
+            double at;
+            try {
+                at = index.executeDouble(frame);
+            } catch (UnexpectedResultException e) {
+                return BotiArray.get(target, e.result(), line);
+            }
+            if (target instanceof BotiMap map) return map.get(at);
+            BotiArray elements = BotiArray.array(target, line);
+            return elements.get(elements.index(at, line));
+        }
+
+        @Override
+        double executeDouble(Environment frame) throws UnexpectedResultException {
+            Object target = array.execute(frame);
+            double at;
+            try {
+                at = index.executeDouble(frame);
+            } catch (UnexpectedResultException e) {
+                throw new UnexpectedResultException(BotiArray.get(target, e.result(), line));
+            }
+            if (target instanceof BotiMap map) {
+                Object value;
+                synchronized (map) {
+                    int entry = map.find(at);
+                    if (entry >= 0 && map.isNumeric()) return map.numberAt(entry);
+                    value = entry < 0 ? null : map.valueAt(entry);
+                }
+                if (value instanceof Double d) return d;
+                throw new UnexpectedResultException(value);
+            }
+            BotiArray elements = BotiArray.array(target, line);
+            int i = elements.index(at, line);
+            double[] numbers = elements.numbers();
+            if (numbers != null) return numbers[i];
+            Object value = elements.get(i);
+            if (value instanceof Double d) return d;
+            throw new UnexpectedResultException(value);
+        }
+    }
+
+    /** {@code array[index] = value}; a number is stored without boxing. */
+    static final class SetIndex extends ExpressionNode {
+        private ExpressionNode array;
+        private ExpressionNode index;
+        private ExpressionNode value;
+        private final int line;
+
+        SetIndex(ExpressionNode array, ExpressionNode index, ExpressionNode value, int line) {
+            this.array = adopt(array);
+            this.index = adopt(index);
+            this.value = adopt(value);
+            this.line = line;
+        }
+
+        @Override
+        protected void replaceChild(Node oldChild, Node newChild) {
+            if (array == oldChild) array = (ExpressionNode) newChild;
+            if (index == oldChild) index = (ExpressionNode) newChild;
+            if (value == oldChild) value = (ExpressionNode) newChild;
+        }
+
+        @Override
+        Object execute(Environment frame) {
+            Object target = array.execute(frame);
+            Object at = index.execute(frame);
+            double number;
+            try {
+                number = value.executeDouble(frame);
+            } catch (UnexpectedResultException e) {
+                return BotiArray.set(target, at, e.result(), line);
+            }
+            if (target instanceof BotiMap map) {
+                map.setNumber(at, number, line);
+                return number;
+            }
+            BotiArray elements = BotiArray.array(target, line);
+            elements.setNumber(elements.index(at, line), number);
+            return number;
+        }
+    }
+
+    /**
+     * A call whose callee has been a native: arguments and result stay unboxed for as long as the
+     * callee evaluates to that same native. Any other callee turns the node back into a {@link Call}.
+     */
+    static final class NativeCall extends ExpressionNode {
+        private final Token paren;
+        private ExpressionNode callee;
+        private final ExpressionNode[] arguments;
+        private final NativeFunction target;
+        private final ReturnSlot returnSlot;
+        private final boolean tail;
+
+        NativeCall(Token paren, ExpressionNode callee, ExpressionNode[] arguments, NativeFunction target,
+                   ReturnSlot returnSlot, boolean tail) {
+            this.paren = paren;
+            this.callee = adopt(callee);
+            this.arguments = arguments;
+            this.target = target;
+            this.returnSlot = returnSlot;
+            this.tail = tail;
+            for (ExpressionNode argument : arguments) {
+                adopt(argument);
+            }
+        }
+
+        @Override
+        protected void replaceChild(Node oldChild, Node newChild) {
+            if (callee == oldChild) callee = (ExpressionNode) newChild;
+            for (int i = 0; i < arguments.length; i++) {
+                if (arguments[i] == oldChild) arguments[i] = (ExpressionNode) newChild;
+            }
+        }
+
+        @Override
+        Object execute(Environment frame) {
+            Object function = callee.execute(frame);
+            if (function != target) return generalize(function, frame);
+            return apply(frame);
+        }
+
+        @Override
+        double executeDouble(Environment frame) throws UnexpectedResultException {
+            Object function = callee.execute(frame);
+            if (function != target) {
+                Object result = generalize(function, frame);
+                if (result instanceof Double d) return d;
+                throw new UnexpectedResultException(result);
+            }
+            return apply(frame);
+        }
+
+        private Object generalize(Object function, Environment frame) {
+            return replace(new Call(paren, callee, arguments, returnSlot, tail)).call(function, frame);
+        }
+
+        /** Evaluates every argument before checking any, like the other engines. */
+        double apply(Environment frame) {
+            int line = paren.line();
+            return switch (target) {
+                case NativeFunction.Nullary n -> n.apply();
+                case NativeFunction.Unary n -> n.apply(argument(0, frame, line));
+                case NativeFunction.Binary n -> {
+                    double x;
+                    try {
+                        x = arguments[0].executeDouble(frame);
+                    } catch (UnexpectedResultException e) {
+                        arguments[1].execute(frame);
+                        x = n.number(e.result(), line);
+                    }
+                    yield n.apply(x, argument(1, frame, line), line);
+                }
+                case NativeFunction.Builtin n -> throw new IllegalStateException("Builtins are called by Call");
+            };
+        }
+
+        private double argument(int index, Environment frame, int line) {
+            try {
+                return arguments[index].executeDouble(frame);
+            } catch (UnexpectedResultException e) {
+                return target.number(e.result(), line);
+            }
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.rakshith.boti.nodes;
+
+/**
+ * Base of the executable node tree. Nodes know their parent so a node can rewrite itself in
+ * place ({@link #replace}) once it has seen the types flowing through it.
+ */
+abstract class Node {
+
+    private Node parent;
+
+    /** Makes {@code child} a child of this node; returns it for field initialization. */
+    protected final <T extends Node> T adopt(T child) {
+        if (child != null) ((Node) child).parent = this;
+        return child;
+    }
+
+    /** Swaps this node for {@code replacement} in the parent and returns the replacement. */
+    protected final <T extends Node> T replace(T replacement) {
+        parent.replaceChild(this, replacement);
+        ((Node) replacement).parent = parent;
+        return replacement;
+    }
+
+    /** Nodes with rewritable children repoint the field that holds {@code oldChild}. */
+    protected void replaceChild(Node oldChild, Node newChild) {
+        throw new IllegalStateException(getClass().getSimpleName() + " has no rewritable children.");
+    }
+}
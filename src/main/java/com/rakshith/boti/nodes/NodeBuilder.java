@@ -0,0 +1,181 @@
+package com.rakshith.boti.nodes;
+
+import com.rakshith.boti.ast.Expr;
+import com.rakshith.boti.ast.Scope;
+import com.rakshith.boti.ast.Stmt;
+import com.rakshith.boti.ast.StmtVisitor;
+import com.rakshith.boti.interpreter.Completion;
+import com.rakshith.boti.interpreter.Environment;
+import com.rakshith.boti.interpreter.Snapshot;
+import com.rakshith.boti.lexer.TokenType;
+
+import java.io.PrintStream;
+import java.util.List;
+
+/**
+ * Translates a resolved AST into uninitialized executable nodes. Global accesses are bound to
+ * the engine's global frame here so nodes never have to walk up to it at run time.
+ */
+final class NodeBuilder implements StmtVisitor<StatementNode> {
+
+    private final Environment globals;
+    private final PrintStream out;
+    private final ReturnSlot returnSlot;
+
+    /** {@code snapshot} is the one {@code globals} were copied in for a task, or null. */
+    NodeBuilder(Environment globals, PrintStream out, Snapshot snapshot) {
+        this.globals = globals;
+        this.out = out;
+        this.returnSlot = new ReturnSlot(this, snapshot);
+    }
+
+    /** A builder for another thread, over a {@link Snapshot} of the globals; see {@link ReturnSlot#adopt}. */
+    NodeBuilder fork() {
+        Snapshot snapshot = new NodeSnapshot();
+        return new NodeBuilder(snapshot.frame(globals), out, snapshot);
+    }
+
+    ReturnSlot returnSlot() {
+        return returnSlot;
+    }
+
+    StatementNode[] build(List<Stmt> statements) {
+        StatementNode[] nodes = new StatementNode[statements.size()];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = statement(statements.get(i));
+        }
+        return nodes;
+    }
+
+    private StatementNode statement(Stmt stmt) {
+        return stmt == null ? null : stmt.accept(this);
+    }
+
+    @Override
+    public StatementNode visitBlock(Stmt.Block stmt) {
+        return new StatementNodes.Block(build(stmt.statements()), stmt.frameSize());
+    }
+
+    @Override
+    public StatementNode visitBreak(Stmt.Break stmt) {
+        return new StatementNodes.Jump(Completion.BREAK);
+    }
+
+    @Override
+    public StatementNode visitContinue(Stmt.Continue stmt) {
+        return new StatementNodes.Jump(Completion.CONTINUE);
+    }
+
+    @Override
+    public StatementNode visitClass(Stmt.Class stmt) {
+        List<Stmt.Function> declarations = stmt.methods();
+        StatementNodes.Function[] methods = new StatementNodes.Function[declarations.size()];
+        for (int i = 0; i < methods.length; i++) {
+            methods[i] = function(declarations.get(i));
+        }
+        return new StatementNodes.Class(stmt.name().lexeme(),
+                stmt.superclass() == null ? null : expression(stmt.superclass()), stmt.name().line(), methods,
+                stmt.depth() == Scope.GLOBAL ? globals : null, stmt.slot());
+    }
+
+    @Override
+    public StatementNode visitExpression(Stmt.Expression stmt) {
+        return new StatementNodes.Expression(expression(stmt.expression()));
+    }
+
+    @Override
+    public StatementNode visitFunction(Stmt.Function stmt) {
+        return new StatementNodes.Function(stmt, build(stmt.body()), returnSlot,
+                stmt.depth() == Scope.GLOBAL ? globals : null, stmt.slot());
+    }
+
+    /** The nodes of a method, or of a function that is not bound to a variable. */
+    StatementNodes.Function function(Stmt.Function declaration) {
+        return new StatementNodes.Function(declaration, build(declaration.body()), returnSlot, null, Scope.UNRESOLVED);
+    }
+
+    @Override
+    public StatementNode visitIf(Stmt.If stmt) {
+        return new StatementNodes.If(expression(stmt.condition()),
+                statement(stmt.thenBranch()), statement(stmt.elseBranch()));
+    }
+
+    @Override
+    public StatementNode visitPrint(Stmt.Print stmt) {
+        return new StatementNodes.Print(expression(stmt.expression()), out);
+    }
+
+    @Override
+    public StatementNode visitReturn(Stmt.Return stmt) {
+        ExpressionNode value = stmt.value() == null ? null
+                : stmt.tailCall() ? call((Expr.Call) stmt.value(), true)
+                : expression(stmt.value());
+        return new StatementNodes.Return(value, returnSlot);
+    }
+
+    @Override
+    public StatementNode visitVar(Stmt.Var stmt) {
+        return define(stmt.depth(), stmt.slot(), stmt.initializer() == null ? null : expression(stmt.initializer()));
+    }
+
+    @Override
+    public StatementNode visitWhile(Stmt.While stmt) {
+        return new StatementNodes.While(expression(stmt.condition()), statement(stmt.body()),
+                stmt.increment() == null ? null : expression(stmt.increment()));
+    }
+
+    private StatementNode define(int depth, int slot, ExpressionNode initializer) {
+        return depth == Scope.GLOBAL
+                ? new StatementNodes.DefineGlobal(globals, slot, initializer)
+                : new StatementNodes.DefineLocal(slot, initializer);
+    }
+
+    private ExpressionNode expression(Expr expr) {
+        return switch (expr) {
+            case Expr.Literal literal -> literal.value() instanceof Double number
+                    ? new ExpressionNodes.NumberLiteral(number)
+                    : new ExpressionNodes.Literal(literal.value());
+            case Expr.Grouping grouping -> expression(grouping.expression());
+            case Expr.Variable variable -> variable.depth() == Scope.GLOBAL
+                    ? new ExpressionNodes.ReadGlobal(globals, variable.name(), variable.slot())
+                    : new ExpressionNodes.ReadLocal(variable.depth(), variable.slot());
+            case Expr.Assign assign -> assign.depth() == Scope.GLOBAL
+                    ? new ExpressionNodes.WriteGlobal(globals, assign.name(), assign.slot(), expression(assign.value()))
+                    : new ExpressionNodes.WriteLocal(assign.depth(), assign.slot(), expression(assign.value()));
+            case Expr.Unary unary -> unary.operator().type() == TokenType.BANG
+                    ? new ExpressionNodes.Not(expression(unary.right()))
+                    : new ExpressionNodes.Negate(unary.operator(), expression(unary.right()));
+            case Expr.Binary binary ->
+                    BinaryNode.create(binary.operator(), expression(binary.left()), expression(binary.right()));
+            case Expr.Logical logical -> new ExpressionNodes.Logical(logical.operator().type() == TokenType.OR,
+                    expression(logical.left()), expression(logical.right()));
+            case Expr.Call call when call.callee() instanceof Expr.Get get -> new ExpressionNodes.Invoke(call.paren(),
+                    expression(get.object()), get.name(), expressions(call.arguments()), returnSlot);
+            case Expr.Call call -> call(call, false);
+            case Expr.Get get -> new ExpressionNodes.GetProperty(expression(get.object()), get.name());
+            case Expr.Set set -> new ExpressionNodes.SetProperty(expression(set.object()), set.name(),
+                    expression(set.value()));
+            case Expr.Super sup -> new ExpressionNodes.SuperMethod(expression(sup.superclass()),
+                    expression(sup.receiver()), sup.method());
+            case Expr.ArrayLiteral array -> new ExpressionNodes.ArrayLiteral(expressions(array.elements()));
+            case Expr.MapLiteral map -> new ExpressionNodes.MapLiteral(expressions(map.entries()), map.brace().line());
+            case Expr.Index index -> new ExpressionNodes.Index(expression(index.array()),
+                    expression(index.index()), index.bracket().line());
+            case Expr.SetIndex set -> new ExpressionNodes.SetIndex(expression(set.array()),
+                    expression(set.index()), expression(set.value()), set.bracket().line());
+        };
+    }
+
+    private ExpressionNode[] expressions(List<Expr> exprs) {
+        ExpressionNode[] nodes = new ExpressionNode[exprs.size()];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = expression(exprs.get(i));
+        }
+        return nodes;
+    }
+
+    private ExpressionNode call(Expr.Call call, boolean tail) {
+        ExpressionNode[] arguments = expressions(call.arguments());
+        return new ExpressionNodes.Call(call.paren(), expression(call.callee()), arguments, returnSlot, tail);
+    }
+}
@@ -0,0 +1,66 @@
+package com.rakshith.boti.nodes;
+
+import com.rakshith.boti.ast.Stmt;
+import com.rakshith.boti.interpreter.Completion;
+import com.rakshith.boti.interpreter.Environment;
+
+/**
+ * A closure of the node engine: the shared body nodes plus the frame it was declared in. The
+ * body belongs to the engine of one thread, whose {@link ReturnSlot} it returns through.
+ */
+final class NodeFunction {
+
+    private final Stmt.Function declaration;
+    private final int arity;
+    private final int frameSize;
+    private final StatementNode[] body;
+    private final ReturnSlot returnSlot;
+    private final Environment closure;
+
+    NodeFunction(Stmt.Function declaration, StatementNode[] body, ReturnSlot returnSlot, Environment closure) {
+        this.declaration = declaration;
+        this.arity = declaration.params().size();
+        this.frameSize = declaration.frameSize();
+        this.body = body;
+        this.returnSlot = returnSlot;
+        this.closure = closure;
+    }
+
+    Stmt.Function declaration() {
+        return declaration;
+    }
+
+    StatementNode[] body() {
+        return body;
+    }
+
+    int arity() {
+        return arity;
+    }
+
+    ReturnSlot returnSlot() {
+        return returnSlot;
+    }
+
+    Environment closure() {
+        return closure;
+    }
+
+    /** A frame for one call; the caller stores the arguments in slots 0..arity-1. */
+    Environment newFrame() {
+        return new Environment(closure, frameSize);
+    }
+
+    /** Runs the body once; calls go through {@link ReturnSlot#invoke}, which also makes its tail call. */
+    Object run(Environment frame) {
+        if (StatementNodes.executeAll(body, frame) == Completion.RETURN) {
+            return returnSlot.take();
+        }
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return "<fn " + declaration.name().lexeme() + ">";
+    }
+}
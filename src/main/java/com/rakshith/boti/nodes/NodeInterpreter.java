@@ -0,0 +1,51 @@
+package com.rakshith.boti.nodes;
+
+import com.rakshith.boti.HadError;
+import com.rakshith.boti.ast.Stmt;
+import com.rakshith.boti.interpreter.Environment;
+import com.rakshith.boti.interpreter.Natives;
+import com.rakshith.boti.interpreter.Resolver;
+import com.rakshith.boti.interpreter.RuntimeError;
+
+import java.io.PrintStream;
+import java.util.List;
+
+/**
+ * Self-specializing AST interpreter. The resolved AST is translated into executable nodes that
+ * rewrite themselves to the operand types they observe: arithmetic and comparisons on numbers
+ * run on unboxed doubles until a non-number shows up, at which point the node falls back to the
+ * generic version for good. Semantics and error messages match the tree-walking
+ * {@link com.rakshith.boti.interpreter.Interpreter}.
+ */
+public class NodeInterpreter {
+
+    private final Environment globals = new Environment();
+    private final HadError errors;
+    private final NodeBuilder builder;
+
+    /** {@code print} writes to {@code out}; runtime errors go to {@code errors}. */
+    public NodeInterpreter(PrintStream out, HadError errors) {
+        this.errors = errors;
+        this.builder = new NodeBuilder(globals, out, null);
+        Natives.define(globals);
+    }
+
+    public Environment globals() {
+        return globals;
+    }
+
+    /** Runs the statements, then waits for the tasks they spawned. */
+    public void interpret(List<Stmt> statements) {
+        globals.reserveGlobals(Resolver.globalCount(statements));
+        try {
+            StatementNode[] nodes = builder.build(statements);
+            builder.returnSlot().invoker().tasks().scope(() -> {
+                for (StatementNode statement : nodes) {
+                    statement.execute(globals);
+                }
+            });
+        } catch (RuntimeError e) {
+            errors.reportRuntime(e.getMessage(), e.line);
+        }
+    }
+}
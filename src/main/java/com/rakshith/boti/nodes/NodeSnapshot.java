@@ -0,0 +1,20 @@
+package com.rakshith.boti.nodes;
+
+import com.rakshith.boti.interpreter.Snapshot;
+
+/**
+ * The {@link Snapshot} of the node engine, whose function values are {@link NodeFunction}s over
+ * frames. A fork builds its own nodes for a copied function when it first calls it, as for any
+ * function another engine made.
+ */
+final class NodeSnapshot extends Snapshot {
+
+    @Override
+    protected Object copy(Object value) {
+        if (value instanceof NodeFunction function) {
+            return new NodeFunction(function.declaration(), function.body(), function.returnSlot(),
+                    frame(function.closure()));
+        }
+        return value;
+    }
+}
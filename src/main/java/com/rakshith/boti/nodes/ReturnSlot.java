@@ -0,0 +1,157 @@
+package com.rakshith.boti.nodes;
+
+import com.rakshith.boti.ast.Stmt;
+import com.rakshith.boti.interpreter.BotiClass;
+import com.rakshith.boti.interpreter.BotiInstance;
+import com.rakshith.boti.interpreter.BoundMethod;
+import com.rakshith.boti.interpreter.CallDepth;
+import com.rakshith.boti.interpreter.Environment;
+import com.rakshith.boti.interpreter.NativeFunction;
+import com.rakshith.boti.interpreter.RuntimeError;
+import com.rakshith.boti.interpreter.Snapshot;
+import com.rakshith.boti.interpreter.Tasks;
+import com.rakshith.boti.lexer.Token;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Carries the value of a {@code return} from the return node to the function call that receives
+ * its {@code Completion.RETURN}. One per engine; a call reads it before anything else can return.
+ * A {@code return} of a call leaves the callee here instead, for {@link #invoke} to run in a loop.
+ * An engine and its nodes, which rewrite themselves, run on one thread; a task gets a
+ * {@linkplain NativeFunction.Invoker#fork fork} over a {@link Snapshot} of the variables, which
+ * builds its own nodes for the functions it calls.
+ */
+final class ReturnSlot {
+
+    private final NodeBuilder builder;
+    private final Snapshot snapshot;
+    private final CallDepth callDepth = new CallDepth();
+    private final Tasks tasks = new Tasks();
+    private final NativeFunction.Invoker invoker = new NativeFunction.Invoker() {
+        @Override
+        public Object call(Object callee, Object[] arguments, int line) {
+            return callFunction(callee, arguments, line);
+        }
+
+        @Override
+        public NativeFunction.Invoker fork() {
+            return builder.fork().returnSlot().invoker;
+        }
+
+        @Override
+        public Object capture(Object value) {
+            return snapshot == null ? value : snapshot.value(value);
+        }
+
+        @Override
+        public Tasks tasks() {
+            return tasks;
+        }
+    };
+    // This engine's versions of closures that other engines made, and of their declarations.
+    private final Map<NodeFunction, NodeFunction> adopted = new IdentityHashMap<>();
+    private final Map<Stmt.Function, StatementNodes.Function> adoptedNodes = new IdentityHashMap<>();
+    private Object value;
+    private NodeFunction tailCallee;
+    private Environment tailFrame;
+
+    ReturnSlot(NodeBuilder builder, Snapshot snapshot) {
+        this.builder = builder;
+        this.snapshot = snapshot;
+    }
+
+    void set(Object value) {
+        this.value = value;
+    }
+
+    Object take() {
+        Object result = value;
+        value = null;
+        return result;
+    }
+
+    void tailCall(NodeFunction function, Environment frame) {
+        tailCallee = function;
+        tailFrame = frame;
+    }
+
+    /** How natives call back into the engine. */
+    NativeFunction.Invoker invoker() {
+        return invoker;
+    }
+
+    private Object callFunction(Object callee, Object[] arguments, int line) {
+        return switch (callee) {
+            case NodeFunction function when function.arity() == arguments.length -> {
+                Environment frame = function.newFrame();
+                for (int i = 0; i < arguments.length; i++) {
+                    frame.set(i, arguments[i]);
+                }
+                yield invoke(function, frame, line);
+            }
+            case NativeFunction function when function.arity() == arguments.length ->
+                    function.call(arguments, invoker, line);
+            case BoundMethod bound -> callMethod(bound.method(), bound.receiver(), arguments, line);
+            case BotiClass klass -> {
+                BotiInstance instance = new BotiInstance(klass);
+                if (klass.initializer() != null) {
+                    callMethod(klass.initializer(), instance, arguments, line);
+                } else if (arguments.length != 0) {
+                    throw arity(0, arguments.length, line);
+                }
+                yield instance;
+            }
+            case NodeFunction function -> throw arity(function.arity(), arguments.length, line);
+            case NativeFunction function -> throw arity(function.arity(), arguments.length, line);
+            case null, default -> throw new RuntimeError(line, "Can only call functions and classes.");
+        };
+    }
+
+    private Object callMethod(Object method, BotiInstance receiver, Object[] arguments, int line) {
+        var function = (NodeFunction) method;
+        if (function.arity() != arguments.length) throw arity(function.arity(), arguments.length, line);
+        Environment frame = function.newFrame();
+        for (int i = 0; i < arguments.length; i++) {
+            frame.set(i, arguments[i]);
+        }
+        frame.set(arguments.length, receiver);
+        return invoke(function, frame, line);
+    }
+
+    static RuntimeError arity(int expected, int got, int line) {
+        return new RuntimeError(line, "Expected " + expected + " arguments but got " + got + ".");
+    }
+
+    /** Runs {@code function} in {@code frame}, followed by any tail calls it makes. */
+    Object invoke(NodeFunction function, Environment frame, Token paren) {
+        return invoke(function, frame, paren.line());
+    }
+
+    private Object invoke(NodeFunction function, Environment frame, int line) {
+        callDepth.enter(line);
+        try {
+            Object result = adopt(function).run(frame);
+            while (tailCallee != null) {
+                function = tailCallee;
+                frame = tailFrame;
+                tailCallee = null;
+                tailFrame = null;
+                result = adopt(function).run(frame);
+            }
+            return result;
+        } catch (StackOverflowError e) {
+            throw CallDepth.overflow(line);
+        } finally {
+            callDepth.exit();
+        }
+    }
+
+    /** {@code function}, or this engine's version of it if another engine made it. */
+    private NodeFunction adopt(NodeFunction function) {
+        if (function.returnSlot() == this) return function;
+        return adopted.computeIfAbsent(function, f -> adoptedNodes
+                .computeIfAbsent(f.declaration(), builder::function).close(f.closure()));
+    }
+}
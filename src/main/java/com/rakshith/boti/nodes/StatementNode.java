@@ -0,0 +1,12 @@
+package com.rakshith.boti.nodes;
+
+import com.rakshith.boti.interpreter.Completion;
+import com.rakshith.boti.interpreter.Environment;
+
+/**
+ * An executable statement; the {@link Completion} tells enclosing loops and functions how it ended.
+ */
+abstract class StatementNode extends Node {
+
+    abstract Completion execute(Environment frame);
+}
@@ -0,0 +1,294 @@
+package com.rakshith.boti.nodes;
+
+import com.rakshith.boti.ast.Stmt;
+import com.rakshith.boti.interpreter.BotiClass;
+import com.rakshith.boti.interpreter.Completion;
+import com.rakshith.boti.interpreter.Environment;
+
+import java.io.PrintStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.rakshith.boti.interpreter.Values.stringify;
+
+/**
+ * Statement nodes. Statements never rewrite themselves, but they own expression children that may.
+ */
+final class StatementNodes {
+
+    private StatementNodes() { }
+
+    /** Runs {@code statements} in order until one completes abruptly. */
+    static Completion executeAll(StatementNode[] statements, Environment frame) {
+        for (StatementNode statement : statements) {
+            Completion completion = statement.execute(frame);
+            if (completion != Completion.NORMAL) return completion;
+        }
+        return Completion.NORMAL;
+    }
+
+    /** Base for statements with a single expression child. */
+    private abstract static class WithExpression extends StatementNode {
+        protected ExpressionNode expression;
+
+        WithExpression(ExpressionNode expression) {
+            this.expression = adopt(expression);
+        }
+
+        @Override
+        protected void replaceChild(Node oldChild, Node newChild) {
+            expression = (ExpressionNode) newChild;
+        }
+    }
+
+    static final class Expression extends WithExpression {
+        Expression(ExpressionNode expression) {
+            super(expression);
+        }
+
+        @Override
+        Completion execute(Environment frame) {
+            expression.execute(frame);
+            return Completion.NORMAL;
+        }
+    }
+
+    static final class Print extends WithExpression {
+        private final PrintStream out;
+
+        Print(ExpressionNode expression, PrintStream out) {
+            super(expression);
+            this.out = out;
+        }
+
+        @Override
+        Completion execute(Environment frame) {
+            out.println(stringify(expression.execute(frame)));
+            return Completion.NORMAL;
+        }
+    }
+
+    static final class Return extends WithExpression {
+        private final ReturnSlot returnSlot;
+
+        Return(ExpressionNode value, ReturnSlot returnSlot) {
+            super(value);
+            this.returnSlot = returnSlot;
+        }
+
+        @Override
+        Completion execute(Environment frame) {
+            returnSlot.set(expression == null ? null : expression.execute(frame));
+            return Completion.RETURN;
+        }
+    }
+
+    /** {@code break} or {@code continue}. */
+    static final class Jump extends StatementNode {
+        private final Completion completion;
+
+        Jump(Completion completion) {
+            this.completion = completion;
+        }
+
+        @Override
+        Completion execute(Environment frame) {
+            return completion;
+        }
+    }
+
+    /** {@code var} in a block or function: the slot lives in the current frame. */
+    static final class DefineLocal extends WithExpression {
+        private final int slot;
+
+        DefineLocal(int slot, ExpressionNode initializer) {
+            super(initializer);
+            this.slot = slot;
+        }
+
+        @Override
+        Completion execute(Environment frame) {
+            frame.set(slot, expression == null ? null : expression.execute(frame));
+            return Completion.NORMAL;
+        }
+    }
+
+    static final class DefineGlobal extends WithExpression {
+        private final Environment globals;
+        private final int slot;
+
+        DefineGlobal(Environment globals, int slot, ExpressionNode initializer) {
+            super(initializer);
+            this.globals = globals;
+            this.slot = slot;
+        }
+
+        @Override
+        Completion execute(Environment frame) {
+            globals.defineGlobal(slot, expression == null ? null : expression.execute(frame));
+            return Completion.NORMAL;
+        }
+    }
+
+    /** Creates a closure over the current frame; the body nodes are shared by every closure. */
+    static final class Function extends StatementNode {
+        private final Stmt.Function declaration;
+        private final StatementNode[] body;
+        private final ReturnSlot returnSlot;
+        private final Environment globals;
+        private final int slot;
+
+        /** {@code globals} is null for a function declared in a local scope. */
+        Function(Stmt.Function declaration, StatementNode[] body, ReturnSlot returnSlot, Environment globals,
+                 int slot) {
+            this.declaration = declaration;
+            this.returnSlot = returnSlot;
+            this.body = body;
+            this.globals = globals;
+            this.slot = slot;
+            for (StatementNode statement : body) {
+                adopt(statement);
+            }
+        }
+
+        @Override
+        Completion execute(Environment frame) {
+            NodeFunction function = close(frame);
+            if (globals != null) {
+                globals.defineGlobal(slot, function);
+            } else {
+                frame.set(slot, function);
+            }
+            return Completion.NORMAL;
+        }
+
+        NodeFunction close(Environment frame) {
+            return new NodeFunction(declaration, body, returnSlot, frame);
+        }
+    }
+
+    /** Makes a class whose methods close over the current frame, or over a frame holding {@code super}. */
+    static final class Class extends StatementNode {
+        private final String name;
+        private ExpressionNode superclass;
+        private final int line;
+        private final Function[] methods;
+        private final Environment globals;
+        private final int slot;
+
+        /** {@code globals} is null for a class declared in a local scope. */
+        Class(String name, ExpressionNode superclass, int line, Function[] methods, Environment globals, int slot) {
+            this.name = name;
+            this.superclass = adopt(superclass);
+            this.line = line;
+            this.methods = methods;
+            this.globals = globals;
+            this.slot = slot;
+            for (Function method : methods) {
+                adopt(method);
+            }
+        }
+
+        @Override
+        protected void replaceChild(Node oldChild, Node newChild) {
+            superclass = (ExpressionNode) newChild;
+        }
+
+        @Override
+        Completion execute(Environment frame) {
+            BotiClass parent = null;
+            Environment scope = frame;
+            if (superclass != null) {
+                parent = BotiClass.superclass(superclass.execute(frame), line);
+                scope = new Environment(frame, 1);
+                scope.set(0, parent);
+            }
+            Map<String, Object> table = new HashMap<>();
+            for (Function method : methods) {
+                table.put(method.declaration.name().lexeme(), method.close(scope));
+            }
+            BotiClass klass = new BotiClass(name, parent, table);
+            if (globals != null) {
+                globals.defineGlobal(slot, klass);
+            } else {
+                frame.set(slot, klass);
+            }
+            return Completion.NORMAL;
+        }
+    }
+
+    static final class Block extends StatementNode {
+        private final StatementNode[] statements;
+        private final int frameSize;
+
+        Block(StatementNode[] statements, int frameSize) {
+            this.statements = statements;
+            this.frameSize = frameSize;
+            for (StatementNode statement : statements) {
+                adopt(statement);
+            }
+        }
+
+        @Override
+        Completion execute(Environment frame) {
+            if (frameSize == 0) return executeAll(statements, frame);
+            return executeAll(statements, new Environment(frame, frameSize));
+        }
+    }
+
+    static final class If extends StatementNode {
+        private ExpressionNode condition;
+        private final StatementNode thenBranch;
+        private final StatementNode elseBranch;
+
+        If(ExpressionNode condition, StatementNode thenBranch, StatementNode elseBranch) {
+            this.condition = adopt(condition);
+            this.thenBranch = adopt(thenBranch);
+            this.elseBranch = adopt(elseBranch);
+        }
+
+        @Override
+        protected void replaceChild(Node oldChild, Node newChild) {
+            condition = (ExpressionNode) newChild;
+        }
+
+        @Override
+        Completion execute(Environment frame) {
+            if (condition.executeCondition(frame)) {
+                return thenBranch.execute(frame);
+            } else if (elseBranch != null) {
+                return elseBranch.execute(frame);
+            }
+            return Completion.NORMAL;
+        }
+    }
+
+    static final class While extends StatementNode {
+        private ExpressionNode condition;
+        private final StatementNode body;
+        private ExpressionNode increment;
+
+        While(ExpressionNode condition, StatementNode body, ExpressionNode increment) {
+            this.condition = adopt(condition);
+            this.body = adopt(body);
+            this.increment = adopt(increment);
+        }
+
+        @Override
+        protected void replaceChild(Node oldChild, Node newChild) {
+            if (condition == oldChild) condition = (ExpressionNode) newChild;
+            if (increment == oldChild) increment = (ExpressionNode) newChild;
+        }
+
+        @Override
+        Completion execute(Environment frame) {
+            while (condition.executeCondition(frame)) {
+                Completion completion = body.execute(frame);
+                if (completion == Completion.BREAK) break;
+                if (completion == Completion.RETURN) return completion;
+                if (increment != null) increment.execute(frame);
+            }
+            return Completion.NORMAL;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.rakshith.boti.nodes;
+
+/**
+ * Thrown by a type-specialized {@code execute} method when the value it produced does not have the
+ * expected type. Carries the value so the caller can continue generically without re-executing.
+ */
+final class UnexpectedResultException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient Object result;
+
+    UnexpectedResultException(Object result) {
+        super(null, null, false, false);
+        this.result = result;
+    }
+
+    Object result() {
+        return result;
+    }
+}
@@ -4,6 +4,7 @@ import com.rakshith.boti.HadError;
 import com.rakshith.boti.ast.Expr;
 import com.rakshith.boti.ast.Stmt;
 import com.rakshith.boti.lexer.Token;
+import com.rakshith.boti.lexer.TokenStream;
 import com.rakshith.boti.lexer.TokenType;
 
 import java.util.ArrayList;
@@ -13,14 +14,18 @@ import static com.rakshith.boti.lexer.TokenType.*;
 
 /**
  * Recursive-descent parser: tokens → AST (list of statements).
+ * Checks read token types straight from the {@link TokenStream}; a {@link Token} object is only
+ * made for tokens that end up in the AST or in an error message.
  */
 public class Parser {
 
-    private final List<Token> tokens;
+    private final TokenStream tokens;
+    private final HadError errors;
     private int current;
 
-    public Parser(List<Token> tokens) {
+    public Parser(TokenStream tokens, HadError errors) {
         this.tokens = tokens;
+        this.errors = errors;
     }
 
     public List<Stmt> parse() {
@@ -84,6 +89,8 @@ public class Parser {
     }
 
     private Stmt statement() {
+        if (match(BREAK)) return breakStatement();
+        if (match(CONTINUE)) return continueStatement();
         if (match(FOR)) return forStatement();
         if (match(IF)) return ifStatement();
         if (match(PRINT)) return printStatement();
@@ -106,13 +113,24 @@ public class Parser {
         if (!check(RIGHT_PAREN)) increment = expression();
         consume(RIGHT_PAREN, "Expect ')' after for clauses.");
         Stmt body = statement();
-        if (increment != null) body = new Stmt.Block(List.of(body, new Stmt.Expression(increment)));
         if (condition == null) condition = new Expr.Literal(true);
-        body = new Stmt.While(condition, body);
+        body = new Stmt.While(condition, body, increment);
         if (initializer != null) body = new Stmt.Block(List.of(initializer, body));
         return body;
     }
 
+    private Stmt breakStatement() {
+        Token keyword = previous();
+        consume(SEMICOLON, "Expect ';' after 'break'.");
+        return new Stmt.Break(keyword);
+    }
+
+    private Stmt continueStatement() {
+        Token keyword = previous();
+        consume(SEMICOLON, "Expect ';' after 'continue'.");
+        return new Stmt.Continue(keyword);
+    }
+
     private Stmt ifStatement() {
         consume(LEFT_PAREN, "Expect '(' after 'if'.");
         Expr condition = expression();
@@ -123,9 +141,10 @@ public class Parser {
     }
 
     private Stmt printStatement() {
+        Token keyword = previous();
         Expr value = expression();
         consume(SEMICOLON, "Expect ';' after value.");
-        return new Stmt.Print(value);
+        return new Stmt.Print(keyword, value);
     }
 
     private Stmt returnStatement() {
@@ -171,6 +190,12 @@ public class Parser {
             if (expr instanceof Expr.Variable v) {
                 return new Expr.Assign(v.name(), value);
             }
+            if (expr instanceof Expr.Index i) {
+                return new Expr.SetIndex(i.array(), i.bracket(), i.index(), value);
+            }
+            if (expr instanceof Expr.Get get) {
+                return new Expr.Set(get.object(), get.name(), value);
+            }
             error(equals, "Invalid assignment target.");
         }
         return expr;
@@ -247,10 +272,20 @@ public class Parser {
 
     private Expr call() {
         Expr expr = primary();
-        while (match(LEFT_PAREN)) {
-            expr = finishCall(expr);
+        while (true) {
+            if (match(LEFT_PAREN)) {
+                expr = finishCall(expr);
+            } else if (match(LEFT_BRACKET)) {
+                Expr index = expression();
+                Token bracket = consume(RIGHT_BRACKET, "Expect ']' after index.");
+                expr = new Expr.Index(expr, bracket, index);
+            } else if (match(DOT)) {
+                Token name = consume(IDENTIFIER, "Expect property name after '.'.");
+                expr = new Expr.Get(expr, name);
+            } else {
+                return expr;
+            }
         }
-        return expr;
     }
 
     private Expr finishCall(Expr callee) {
@@ -269,23 +304,61 @@ public class Parser {
         if (match(FALSE)) return new Expr.Literal(false);
         if (match(TRUE)) return new Expr.Literal(true);
         if (match(NIL)) return new Expr.Literal(null);
-        if (match(NUMBER, STRING)) return new Expr.Literal(previous().literal());
+        if (match(NUMBER, STRING)) return new Expr.Literal(tokens.literal(current - 1));
         if (match(THIS)) return new Expr.Variable(previous());
+        if (match(SUPER)) {
+            Token keyword = previous();
+            consume(DOT, "Expect '.' after 'super'.");
+            Token method = consume(IDENTIFIER, "Expect superclass method name.");
+            Token self = new Token(THIS, "this", null, keyword.line());
+            return new Expr.Super(keyword, method, new Expr.Variable(keyword), new Expr.Variable(self));
+        }
         if (match(IDENTIFIER)) return new Expr.Variable(previous());
         if (match(LEFT_PAREN)) {
             Expr expr = expression();
             consume(RIGHT_PAREN, "Expect ')' after expression.");
             return new Expr.Grouping(expr);
         }
+        if (match(LEFT_BRACKET)) {
+            Token bracket = previous();
+            List<Expr> elements = new ArrayList<>();
+            if (!check(RIGHT_BRACKET)) {
+                do {
+                    elements.add(expression());
+                } while (match(COMMA));
+            }
+            consume(RIGHT_BRACKET, "Expect ']' after array elements.");
+            return new Expr.ArrayLiteral(bracket, elements);
+        }
+        if (match(LEFT_BRACE)) {
+            Token brace = previous();
+            List<Expr> entries = new ArrayList<>();
+            if (!check(RIGHT_BRACE)) {
+                do {
+                    entries.add(expression());
+                    consume(COLON, "Expect ':' after map key.");
+                    entries.add(expression());
+                } while (match(COMMA));
+            }
+            consume(RIGHT_BRACE, "Expect '}' after map entries.");
+            return new Expr.MapLiteral(brace, entries);
+        }
         throw error(peek(), "Expect expression.");
     }
 
+    private boolean match(TokenType type) {
+        if (!check(type)) return false;
+        current++;
+        return true;
+    }
+
+    private boolean match(TokenType first, TokenType second) {
+        return match(first) || match(second);
+    }
+
     private boolean match(TokenType... types) {
         for (TokenType type : types) {
-            if (check(type)) {
-                advance();
-                return true;
-            }
+            if (match(type)) return true;
         }
         return false;
     }
@@ -296,7 +369,7 @@ public class Parser {
     }
 
     private boolean check(TokenType type) {
-        return !isAtEnd() && peek().type() == type;
+        return !isAtEnd() && tokens.type(current) == type;
     }
 
     private Token advance() {
@@ -305,31 +378,31 @@ public class Parser {
     }
 
     private boolean isAtEnd() {
-        return peek().type() == EOF;
+        return tokens.type(current) == EOF;
     }
 
     private Token peek() {
-        return tokens.get(current);
+        return tokens.token(current);
     }
 
     private Token previous() {
-        return tokens.get(current - 1);
+        return tokens.token(current - 1);
     }
 
     private ParseError error(Token token, String message) {
-        HadError.report(token.line(), " at '" + token.lexeme() + "'", message);
+        errors.report(token.line(), " at '" + token.lexeme() + "'", message);
         return new ParseError(token, message);
     }
 
     private void synchronize() {
-        advance();
+        if (!isAtEnd()) current++;
         while (!isAtEnd()) {
-            if (previous().type() == SEMICOLON) return;
-            switch (peek().type()) {
+            if (tokens.type(current - 1) == SEMICOLON) return;
+            switch (tokens.type(current)) {
                 case CLASS, FUN, VAR, FOR, IF, WHILE, PRINT, RETURN -> { return; }
                 default -> {}
             }
-            advance();
+            current++;
         }
     }
 
@@ -0,0 +1,77 @@
+package com.rakshith.boti.script;
+
+import com.rakshith.boti.BotiScript;
+import com.rakshith.boti.ScriptError;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.script.Bindings;
+import javax.script.CompiledScript;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngine;
+import javax.script.ScriptException;
+
+/**
+ * A {@link BotiScript} behind {@code javax.script}. Each evaluation binds the context's variables,
+ * engine scope over global scope, and copies what the script printed to the context's writer
+ * once it ends.
+ */
+final class BotiCompiledScript extends CompiledScript {
+
+    private final BotiScriptEngine engine;
+    private final BotiScript script;
+
+    BotiCompiledScript(BotiScriptEngine engine, BotiScript script) {
+        this.engine = engine;
+        this.script = script;
+    }
+
+    @Override
+    public Object eval(ScriptContext context) throws ScriptException {
+        Map<String, Object> bindings = new HashMap<>();
+        // A lower scope value takes precedence, so engine scope comes first.
+        List<Integer> scopes = new ArrayList<>(context.getScopes());
+        Collections.sort(scopes);
+        for (int scope : scopes) {
+            Bindings values = context.getBindings(scope);
+            if (values == null) continue;
+            for (Map.Entry<String, Object> binding : values.entrySet()) {
+                bindings.putIfAbsent(binding.getKey(), binding.getValue());
+            }
+        }
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try {
+            return script.eval(bindings, new PrintStream(output, false, StandardCharsets.UTF_8));
+        } catch (ScriptError e) {
+            throw BotiScriptEngine.exception(e, context);
+        } catch (IllegalArgumentException e) {
+            throw new ScriptException(e.getMessage());
+        } finally {
+            write(output, context.getWriter());
+        }
+    }
+
+    private static void write(ByteArrayOutputStream output, Writer writer) throws ScriptException {
+        if (output.size() == 0 || writer == null) return;
+        try {
+            writer.write(output.toString(StandardCharsets.UTF_8));
+            writer.flush();
+        } catch (IOException e) {
+            throw new ScriptException(e);
+        }
+    }
+
+    @Override
+    public ScriptEngine getEngine() {
+        return engine;
+    }
+}
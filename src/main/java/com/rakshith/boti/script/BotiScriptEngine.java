@@ -0,0 +1,90 @@
+package com.rakshith.boti.script;
+
+import com.rakshith.boti.BotiEngine;
+import com.rakshith.boti.BotiScript;
+import com.rakshith.boti.ScriptError;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import javax.script.AbstractScriptEngine;
+import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineFactory;
+import javax.script.ScriptException;
+import javax.script.SimpleBindings;
+
+/**
+ * Boti as a {@code javax.script} engine. {@link #compile} gives a {@link BotiCompiledScript} to
+ * evaluate repeatedly; {@code eval} compiles and evaluates once. Variables come from the
+ * context's bindings and are read, never written back.
+ */
+public final class BotiScriptEngine extends AbstractScriptEngine implements Compilable {
+
+    private final ScriptEngineFactory factory;
+    private final BotiEngine engine;
+
+    BotiScriptEngine(ScriptEngineFactory factory, BotiEngine engine) {
+        this.factory = factory;
+        this.engine = engine;
+    }
+
+    @Override
+    public CompiledScript compile(String script) throws ScriptException {
+        try {
+            return new BotiCompiledScript(this, BotiScript.compile(engine, script));
+        } catch (ScriptError e) {
+            throw exception(e, context);
+        }
+    }
+
+    @Override
+    public CompiledScript compile(Reader script) throws ScriptException {
+        return compile(read(script));
+    }
+
+    @Override
+    public Object eval(String script, ScriptContext context) throws ScriptException {
+        try {
+            return new BotiCompiledScript(this, BotiScript.compile(engine, script)).eval(context);
+        } catch (ScriptError e) {
+            throw exception(e, context);
+        }
+    }
+
+    @Override
+    public Object eval(Reader reader, ScriptContext context) throws ScriptException {
+        return eval(read(reader), context);
+    }
+
+    @Override
+    public Bindings createBindings() {
+        return new SimpleBindings();
+    }
+
+    @Override
+    public ScriptEngineFactory getFactory() {
+        return factory;
+    }
+
+    static ScriptException exception(ScriptError error, ScriptContext context) {
+        Object file = context.getAttribute(ScriptEngine.FILENAME);
+        return new ScriptException(error.getMessage(), file == null ? null : file.toString(), error.line());
+    }
+
+    private static String read(Reader reader) throws ScriptException {
+        StringBuilder text = new StringBuilder();
+        char[] buffer = new char[8192];
+        try {
+            for (int n; (n = reader.read(buffer)) >= 0; ) {
+                text.append(buffer, 0, n);
+            }
+        } catch (IOException e) {
+            throw new ScriptException(e);
+        }
+        return text.toString();
+    }
+}
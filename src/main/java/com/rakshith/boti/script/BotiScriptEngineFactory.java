@@ -0,0 +1,91 @@
+package com.rakshith.boti.script;
+
+import com.rakshith.boti.BotiEngine;
+
+import java.util.List;
+
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineFactory;
+
+/**
+ * Registers Boti with {@code javax.script}, under the name and extension {@code boti}. Its engines
+ * run scripts on the bytecode VM, the fastest on loops, and a {@link BotiCompiledScript} keeps
+ * the bytecode along with the resolved program.
+ */
+public final class BotiScriptEngineFactory implements ScriptEngineFactory {
+
+    private static final BotiEngine ENGINE = new BotiEngine(BotiEngine.Kind.VM);
+
+    @Override
+    public String getEngineName() {
+        return "Boti";
+    }
+
+    @Override
+    public String getEngineVersion() {
+        return "1.0";
+    }
+
+    @Override
+    public List<String> getExtensions() {
+        return List.of("boti");
+    }
+
+    @Override
+    public List<String> getMimeTypes() {
+        return List.of();
+    }
+
+    @Override
+    public List<String> getNames() {
+        return List.of("boti", "Boti");
+    }
+
+    @Override
+    public String getLanguageName() {
+        return "Boti";
+    }
+
+    @Override
+    public String getLanguageVersion() {
+        return "1.0";
+    }
+
+    @Override
+    public Object getParameter(String key) {
+        return switch (key) {
+            case ScriptEngine.ENGINE -> getEngineName();
+            case ScriptEngine.ENGINE_VERSION -> getEngineVersion();
+            case ScriptEngine.NAME -> getNames().getFirst();
+            case ScriptEngine.LANGUAGE -> getLanguageName();
+            case ScriptEngine.LANGUAGE_VERSION -> getLanguageVersion();
+            // Executions share nothing, so one engine may evaluate on any number of threads.
+            case "THREADING" -> "STATELESS";
+            default -> null;
+        };
+    }
+
+    @Override
+    public String getMethodCallSyntax(String object, String method, String... arguments) {
+        return object + "." + method + "(" + String.join(", ", arguments) + ")";
+    }
+
+    @Override
+    public String getOutputStatement(String toDisplay) {
+        return "print \"" + toDisplay + "\";";
+    }
+
+    @Override
+    public String getProgram(String... statements) {
+        StringBuilder program = new StringBuilder();
+        for (String statement : statements) {
+            program.append(statement).append(";\n");
+        }
+        return program.toString();
+    }
+
+    @Override
+    public ScriptEngine getScriptEngine() {
+        return new BotiScriptEngine(this, ENGINE);
+    }
+}
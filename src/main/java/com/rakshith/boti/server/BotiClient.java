@@ -0,0 +1,104 @@
+package com.rakshith.boti.server;
+
+import com.rakshith.boti.Boti;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * What {@code bin/boti} starts: hands a script's command line to the {@link BotiServer} when one
+ * is listening, copies back what it prints and exits with its status. Otherwise, and for the REPL
+ * and {@code --server} itself, it runs {@link Boti} in this process. The client is still a JVM,
+ * so it pays the JVM's startup; what the server saves is loading, compiling and warming up the
+ * interpreter for each script.
+ */
+public final class BotiClient {
+
+    static final int VERSION = 1;
+    static final byte STDOUT = 'O';
+    static final byte STDERR = 'E';
+    static final byte EXIT = 'X';
+
+    private BotiClient() { }
+
+    public static void main(String[] args) throws Exception {
+        if (forwards(args)) {
+            SocketChannel channel = connect(socket());
+            if (channel != null) System.exit(forward(channel, args));
+        }
+        Boti.main(args);
+    }
+
+    /**
+     * {@code -Dboti.socket}, else {@code ~/.cache/boti/server/server.sock}: a directory of its own
+     * beside the script cache, since the server requires one only its owner can use.
+     */
+    static Path socket() {
+        String setting = System.getProperty("boti.socket");
+        return setting != null
+                ? Path.of(setting)
+                : Path.of(System.getProperty("user.home"), ".cache", "boti", "server", "server.sock");
+    }
+
+    /** Command lines with a script go to the server; the REPL needs this terminal. */
+    private static boolean forwards(String[] args) {
+        for (String arg : args) {
+            if (!arg.startsWith("--")) return true;
+        }
+        return false;
+    }
+
+    /** A connection to the server on {@code socket}, or null if none is listening. */
+    static SocketChannel connect(Path socket) {
+        if (!Files.exists(socket)) return null;
+        try {
+            return SocketChannel.open(UnixDomainSocketAddress.of(socket));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Sends the protocol version, working directory and arguments, then copies the frames that
+     * come back, each a tag and a length-prefixed payload, until the exit status.
+     */
+    private static int forward(SocketChannel channel, String[] args) throws IOException {
+        try (channel) {
+            DataOutputStream request = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            request.writeInt(VERSION);
+            request.writeUTF(Path.of("").toAbsolutePath().toString());
+            request.writeInt(args.length);
+            for (String arg : args) {
+                request.writeUTF(arg);
+            }
+            request.flush();
+
+            DataInputStream response = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            FileOutputStream stdout = new FileOutputStream(FileDescriptor.out);
+            FileOutputStream stderr = new FileOutputStream(FileDescriptor.err);
+            byte[] buffer = new byte[8192];
+            for (;;) {
+                byte tag = response.readByte();
+                if (tag == EXIT) return response.readInt();
+                int length = response.readInt();
+                if (length > buffer.length) buffer = new byte[length];
+                response.readFully(buffer, 0, length);
+                (tag == STDOUT ? stdout : stderr).write(buffer, 0, length);
+            }
+        } catch (EOFException e) {
+            System.err.println("Boti server closed the connection; restart it with: boti --server");
+            return 1;
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.rakshith.boti.server;
+
+import com.rakshith.boti.Boti;
+import com.rakshith.boti.interpreter.CallDepth;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code boti --server}: a long-lived JVM that runs the command lines {@link BotiClient}s send
+ * over a Unix domain socket, so a script starts on warm, fully compiled interpreter code instead
+ * of a fresh JVM. Each connection runs on one of a fixed number of worker threads, as one
+ * {@link Boti#run} with its own execution; connections beyond those wait in a bounded queue, and
+ * past that are turned away. Output goes back in frames: {@code O} or {@code E} with a
+ * length-prefixed payload for stdout and stderr, then {@code X} with the exit status.
+ *
+ * <p>Scripts have no way to read stdin, so it is not forwarded. Clients run scripts with the
+ * server's permissions, so the socket is bound inside a directory only its owner can enter, and
+ * clients see error messages but never the server's stack traces. System properties such as
+ * {@code boti.cache} are the server's.
+ */
+public final class BotiServer {
+
+    /** Scripts run at once, {@code -Dboti.server.threads}; as many again may wait. */
+    private static final int WORKERS =
+            Integer.getInteger("boti.server.threads", Math.max(4, Runtime.getRuntime().availableProcessors()));
+
+    private BotiServer() { }
+
+    public static Path socket() {
+        return BotiClient.socket();
+    }
+
+    /** Serves until the process is stopped; returns 1 if it cannot start. */
+    public static int serve(Path socket) throws IOException {
+        SocketChannel running = BotiClient.connect(socket);
+        if (running != null) {
+            running.close();
+            System.err.println("A Boti server is already listening on " + socket);
+            return 1;
+        }
+        Path directory = socket.toAbsolutePath().getParent();
+        if (!privateDirectory(directory)) {
+            System.err.println("The socket's directory " + directory + " must be usable by its owner only (mode 700).");
+            return 1;
+        }
+        // Left over from a server that did not shut down cleanly.
+        Files.deleteIfExists(socket);
+        ExecutorService workers = new ThreadPoolExecutor(WORKERS, WORKERS, 0, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(WORKERS), BotiServer::worker);
+        try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            server.bind(UnixDomainSocketAddress.of(socket));
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    Files.deleteIfExists(socket);
+                } catch (IOException ignored) {
+                    // The next server removes it.
+                }
+            }));
+            System.err.println("Boti server listening on " + socket);
+            for (;;) {
+                SocketChannel client = server.accept();
+                try {
+                    workers.execute(() -> handle(client));
+                } catch (RejectedExecutionException e) {
+                    refuse(client);
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates {@code directory} with access for its owner only, or checks that an existing one
+     * has no more; either way no one else can reach the socket, even before it is bound.
+     */
+    private static boolean privateDirectory(Path directory) throws IOException {
+        try {
+            if (Files.notExists(directory)) {
+                if (directory.getParent() != null) Files.createDirectories(directory.getParent());
+                try {
+                    Files.createDirectory(directory, PosixFilePermissions.asFileAttribute(
+                            PosixFilePermissions.fromString("rwx------")));
+                } catch (FileAlreadyExistsException e) {
+                    // Made meanwhile by another server; checked below like any other.
+                }
+            }
+            PosixFileAttributes attributes = Files.readAttributes(directory, PosixFileAttributes.class);
+            return attributes.owner().getName().equals(System.getProperty("user.name"))
+                    && PosixFilePermissions.toString(attributes.permissions()).endsWith("------");
+        } catch (UnsupportedOperationException e) {
+            // Not a POSIX file system: the socket keeps the directory's access rules.
+            return true;
+        }
+    }
+
+    private static Thread worker(Runnable connection) {
+        Thread thread = new Thread(null, connection, "boti-client", CallDepth.STACK_BYTES);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /** Answers a connection no worker can take with an error, so its client does not hang. */
+    private static void refuse(SocketChannel channel) {
+        try (channel) {
+            Frames frames = new Frames(Channels.newOutputStream(channel));
+            byte[] message = ("The Boti server is busy; try again later." + System.lineSeparator())
+                    .getBytes(StandardCharsets.UTF_8);
+            frames.frame(BotiClient.STDERR, message, 0, message.length);
+            frames.exit(1);
+        } catch (IOException e) {
+            // The client went away.
+        }
+    }
+
+    private static void handle(SocketChannel channel) {
+        try (channel) {
+            DataInputStream request = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            if (request.readInt() != BotiClient.VERSION) return;
+            Path directory = Path.of(request.readUTF());
+            String[] args = new String[request.readInt()];
+            for (int i = 0; i < args.length; i++) {
+                args[i] = request.readUTF();
+            }
+
+            Frames frames = new Frames(Channels.newOutputStream(channel));
+            PrintStream out = new PrintStream(
+                    new BufferedOutputStream(frames.stream(BotiClient.STDOUT, null), 8192), false, StandardCharsets.UTF_8);
+            PrintStream err = new PrintStream(frames.stream(BotiClient.STDERR, out), true, StandardCharsets.UTF_8);
+            int status;
+            try {
+                status = Boti.run(args, directory, out, err, false);
+            } catch (IOException e) {
+                // The script could not be read; a local run would say the same on its first line.
+                err.println(e);
+                status = 1;
+            } catch (RuntimeException e) {
+                // A bug in Boti rather than in the script: the details stay in the server's log.
+                err.println("Internal error in the Boti server; see its log.");
+                e.printStackTrace();
+                status = 1;
+            }
+            out.flush();
+            frames.exit(status);
+        } catch (IOException e) {
+            // The client went away; there is no one left to report to.
+        }
+    }
+
+    /** The response to one client: stdout and stderr frames, then the exit status. */
+    private static final class Frames {
+
+        private final DataOutputStream response;
+
+        Frames(OutputStream connection) {
+            this.response = new DataOutputStream(new BufferedOutputStream(connection, 8192 + 5));
+        }
+
+        /** A stream of {@code tag} frames that first flushes {@code before}, to keep output in order. */
+        OutputStream stream(byte tag, OutputStream before) {
+            return new OutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    write(new byte[] { (byte) b }, 0, 1);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    if (before != null) before.flush();
+                    frame(tag, b, off, len);
+                }
+            };
+        }
+
+        synchronized void frame(byte tag, byte[] b, int off, int len) throws IOException {
+            response.writeByte(tag);
+            response.writeInt(len);
+            response.write(b, off, len);
+            response.flush();
+        }
+
+        synchronized void exit(int status) throws IOException {
+            response.writeByte(BotiClient.EXIT);
+            response.writeInt(status);
+            response.flush();
+        }
+    }
+}
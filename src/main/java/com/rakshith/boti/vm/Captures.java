@@ -0,0 +1,249 @@
+package com.rakshith.boti.vm;
+
+import com.rakshith.boti.ast.Expr;
+import com.rakshith.boti.ast.ExprVisitor;
+import com.rakshith.boti.ast.Scope;
+import com.rakshith.boti.ast.Stmt;
+import com.rakshith.boti.ast.StmtVisitor;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds the locals that inner functions reference, so the compiler can keep exactly those in
+ * heap {@link Cell}s and every other local in a plain stack slot. The result maps each scope
+ * node ({@link Stmt.Block}, {@link Stmt.Function}, or a subclass's {@link Stmt.Class}, whose one
+ * slot is {@code super}) to a per-slot "captured" flag.
+ */
+final class Captures implements ExprVisitor<Void>, StmtVisitor<Void> {
+
+    private record ScopeInfo(Stmt.Function function, boolean[] captured) { }
+
+    private final Map<Object, boolean[]> captured = new IdentityHashMap<>();
+    private final List<ScopeInfo> scopes = new ArrayList<>();
+    private Stmt.Function currentFunction;
+
+    static Map<Object, boolean[]> analyze(List<Stmt> statements) {
+        Captures analysis = new Captures();
+        analysis.visitAll(statements);
+        return analysis.captured;
+    }
+
+    private void visitAll(List<Stmt> statements) {
+        for (Stmt statement : statements) {
+            statement.accept(this);
+        }
+    }
+
+    private void visit(Expr expr) {
+        if (expr != null) expr.accept(this);
+    }
+
+    private void beginScope(Object node, int frameSize) {
+        boolean[] flags = new boolean[frameSize];
+        captured.put(node, flags);
+        scopes.add(new ScopeInfo(currentFunction, flags));
+    }
+
+    private void endScope() {
+        scopes.remove(scopes.size() - 1);
+    }
+
+    private void reference(int depth, int slot) {
+        if (depth == Scope.GLOBAL) return;
+        ScopeInfo target = scopes.get(scopes.size() - 1 - depth);
+        if (target.function() != currentFunction) {
+            target.captured()[slot] = true;
+        }
+    }
+
+    @Override
+    public Void visitBlock(Stmt.Block stmt) {
+        if (stmt.frameSize() == 0) {
+            visitAll(stmt.statements());
+            return null;
+        }
+        beginScope(stmt, stmt.frameSize());
+        visitAll(stmt.statements());
+        endScope();
+        return null;
+    }
+
+    @Override
+    public Void visitBreak(Stmt.Break stmt) {
+        return null;
+    }
+
+    @Override
+    public Void visitClass(Stmt.Class stmt) {
+        visit(stmt.superclass());
+        if (stmt.superclass() != null) beginScope(stmt, 1);
+        for (Stmt.Function method : stmt.methods()) {
+            visitFunction(method);
+        }
+        if (stmt.superclass() != null) endScope();
+        return null;
+    }
+
+    @Override
+    public Void visitContinue(Stmt.Continue stmt) {
+        return null;
+    }
+
+    @Override
+    public Void visitExpression(Stmt.Expression stmt) {
+        visit(stmt.expression());
+        return null;
+    }
+
+    @Override
+    public Void visitFunction(Stmt.Function stmt) {
+        Stmt.Function enclosing = currentFunction;
+        currentFunction = stmt;
+        beginScope(stmt, stmt.frameSize());
+        visitAll(stmt.body());
+        endScope();
+        currentFunction = enclosing;
+        return null;
+    }
+
+    @Override
+    public Void visitIf(Stmt.If stmt) {
+        visit(stmt.condition());
+        stmt.thenBranch().accept(this);
+        if (stmt.elseBranch() != null) stmt.elseBranch().accept(this);
+        return null;
+    }
+
+    @Override
+    public Void visitPrint(Stmt.Print stmt) {
+        visit(stmt.expression());
+        return null;
+    }
+
+    @Override
+    public Void visitReturn(Stmt.Return stmt) {
+        visit(stmt.value());
+        return null;
+    }
+
+    @Override
+    public Void visitVar(Stmt.Var stmt) {
+        visit(stmt.initializer());
+        return null;
+    }
+
+    @Override
+    public Void visitWhile(Stmt.While stmt) {
+        visit(stmt.condition());
+        stmt.body().accept(this);
+        visit(stmt.increment());
+        return null;
+    }
+
+    @Override
+    public Void visitAssign(Expr.Assign expr) {
+        visit(expr.value());
+        reference(expr.depth(), expr.slot());
+        return null;
+    }
+
+    @Override
+    public Void visitBinary(Expr.Binary expr) {
+        visit(expr.left());
+        visit(expr.right());
+        return null;
+    }
+
+    @Override
+    public Void visitCall(Expr.Call expr) {
+        visit(expr.callee());
+        for (Expr argument : expr.arguments()) {
+            visit(argument);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitArrayLiteral(Expr.ArrayLiteral expr) {
+        for (Expr element : expr.elements()) {
+            visit(element);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitMapLiteral(Expr.MapLiteral expr) {
+        for (Expr entry : expr.entries()) {
+            visit(entry);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitIndex(Expr.Index expr) {
+        visit(expr.array());
+        visit(expr.index());
+        return null;
+    }
+
+    @Override
+    public Void visitSetIndex(Expr.SetIndex expr) {
+        visit(expr.array());
+        visit(expr.index());
+        visit(expr.value());
+        return null;
+    }
+
+    @Override
+    public Void visitGet(Expr.Get expr) {
+        visit(expr.object());
+        return null;
+    }
+
+    @Override
+    public Void visitSet(Expr.Set expr) {
+        visit(expr.object());
+        visit(expr.value());
+        return null;
+    }
+
+    @Override
+    public Void visitSuper(Expr.Super expr) {
+        visit(expr.superclass());
+        visit(expr.receiver());
+        return null;
+    }
+
+    @Override
+    public Void visitGrouping(Expr.Grouping expr) {
+        visit(expr.expression());
+        return null;
+    }
+
+    @Override
+    public Void visitLiteral(Expr.Literal expr) {
+        return null;
+    }
+
+    @Override
+    public Void visitLogical(Expr.Logical expr) {
+        visit(expr.left());
+        visit(expr.right());
+        return null;
+    }
+
+    @Override
+    public Void visitUnary(Expr.Unary expr) {
+        visit(expr.right());
+        return null;
+    }
+
+    @Override
+    public Void visitVariable(Expr.Variable expr) {
+        reference(expr.depth(), expr.slot());
+        return null;
+    }
+}
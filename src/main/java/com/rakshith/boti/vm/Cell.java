@@ -0,0 +1,12 @@
+package com.rakshith.boti.vm;
+
+/**
+ * Heap box for a local variable that is captured by a closure.
+ */
+final class Cell {
+    Object value;
+
+    Cell(Object value) {
+        this.value = value;
+    }
+}
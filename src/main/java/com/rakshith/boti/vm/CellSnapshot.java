@@ -0,0 +1,30 @@
+package com.rakshith.boti.vm;
+
+import com.rakshith.boti.interpreter.Snapshot;
+
+/**
+ * The {@link Snapshot} of the VM, whose function values are {@link Closure}s over the
+ * {@link Cell}s of captured variables; a closure that captured nothing is shared as it is.
+ */
+final class CellSnapshot extends Snapshot {
+
+    @Override
+    protected Object copy(Object value) {
+        return switch (value) {
+            case Closure closure when closure.upvalues().length > 0 -> {
+                Cell[] upvalues = new Cell[closure.upvalues().length];
+                for (int i = 0; i < upvalues.length; i++) {
+                    upvalues[i] = (Cell) value(closure.upvalues()[i]);
+                }
+                yield new Closure(closure.function(), upvalues);
+            }
+            case Cell cell -> {
+                Cell copy = new Cell(null);
+                remember(cell, copy);
+                copy.value = value(cell.value);
+                yield copy;
+            }
+            default -> value;
+        };
+    }
+}
@@ -0,0 +1,72 @@
+package com.rakshith.boti.vm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A growable instruction buffer with its constant pools and a line number per code word.
+ */
+final class Chunk {
+
+    private int[] code = new int[64];
+    private int[] lines = new int[64];
+    private int count;
+    private final List<Object> constants = new ArrayList<>();
+    private double[] numbers = new double[8];
+    private int numberCount;
+
+    int count() {
+        return count;
+    }
+
+    void write(int word, int line) {
+        if (count == code.length) {
+            code = Arrays.copyOf(code, count * 2);
+            lines = Arrays.copyOf(lines, count * 2);
+        }
+        code[count] = word;
+        lines[count] = line;
+        count++;
+    }
+
+    void patch(int offset, int word) {
+        code[offset] = word;
+    }
+
+    int addConstant(Object value) {
+        for (int i = 0; i < constants.size(); i++) {
+            if (constants.get(i) == value || (value instanceof String && value.equals(constants.get(i)))) {
+                return i;
+            }
+        }
+        constants.add(value);
+        return constants.size() - 1;
+    }
+
+    int addNumber(double value) {
+        for (int i = 0; i < numberCount; i++) {
+            if (Double.compare(numbers[i], value) == 0) return i;
+        }
+        if (numberCount == numbers.length) numbers = Arrays.copyOf(numbers, numberCount * 2);
+        numbers[numberCount] = value;
+        return numberCount++;
+    }
+
+    /** Trimmed copies for the VM; call once compilation of the owning function is complete. */
+    int[] code() {
+        return Arrays.copyOf(code, count);
+    }
+
+    int[] lines() {
+        return Arrays.copyOf(lines, count);
+    }
+
+    Object[] constants() {
+        return constants.toArray();
+    }
+
+    double[] numbers() {
+        return Arrays.copyOf(numbers, numberCount);
+    }
+}
@@ -0,0 +1,12 @@
+package com.rakshith.boti.vm;
+
+/**
+ * Runtime function value: compiled code plus the cells it captured.
+ */
+record Closure(CompiledFunction function, Cell[] upvalues) {
+
+    @Override
+    public String toString() {
+        return function.toString();
+    }
+}
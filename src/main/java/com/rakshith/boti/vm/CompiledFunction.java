@@ -0,0 +1,15 @@
+package com.rakshith.boti.vm;
+
+/**
+ * Immutable output of the compiler for one function (or the top-level script).
+ * {@code frameSize} is the number of registers a call needs above its base. Any number of VMs
+ * may run the same script at once; the property caches among the constants tolerate the races.
+ */
+public record CompiledFunction(String name, int arity, int frameSize, int upvalueCount,
+                               int[] code, int[] lines, Object[] constants, double[] numbers) {
+
+    @Override
+    public String toString() {
+        return name == null ? "<script>" : "<fn " + name + ">";
+    }
+}
@@ -0,0 +1,753 @@
+package com.rakshith.boti.vm;
+
+import com.rakshith.boti.ast.Expr;
+import com.rakshith.boti.ast.PropertyCache;
+import com.rakshith.boti.ast.Scope;
+import com.rakshith.boti.ast.Stmt;
+import com.rakshith.boti.ast.StmtVisitor;
+import com.rakshith.boti.lexer.TokenType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+/**
+ * Compiles a resolved AST into register code for the {@link VM}.
+ * Each function gets one register file: parameters first, then locals (block scopes are
+ * flattened into it and their registers reused once the block ends), then temporaries.
+ * Locals captured by inner functions are boxed in a {@link Cell} at declaration.
+ */
+public final class Compiler implements StmtVisitor<Void> {
+
+    private static final class FunctionState {
+        final FunctionState enclosing;
+        final Chunk chunk = new Chunk();
+        final List<int[]> upvalues = new ArrayList<>(); // {isLocal, index}
+        final List<Loop> loops = new ArrayList<>();
+        int localCount;
+        int nextRegister;
+        int frameSize;
+
+        FunctionState(FunctionState enclosing) {
+            this.enclosing = enclosing;
+        }
+    }
+
+    /** Jumps out of the innermost loop still waiting for their target. */
+    private static final class Loop {
+        final List<Integer> breaks = new ArrayList<>();
+        final List<Integer> continues = new ArrayList<>();
+    }
+
+    /** A resolver scope: maps its slots to registers of the owning function. */
+    private record ScopeState(FunctionState owner, int[] registers, boolean[] captured, int firstLocal) { }
+
+    private Map<Object, boolean[]> captures;
+    private final List<ScopeState> scopes = new ArrayList<>();
+    private FunctionState current;
+    private int line = 1;
+
+    public CompiledFunction compile(List<Stmt> statements) {
+        captures = Captures.analyze(statements);
+        current = new FunctionState(null);
+        for (Stmt statement : statements) {
+            statement(statement);
+        }
+        emit(OpCode.RETURN_NIL);
+        return finish(current, null, 0);
+    }
+
+    private static CompiledFunction finish(FunctionState state, String name, int arity) {
+        Chunk chunk = state.chunk;
+        return new CompiledFunction(name, arity, state.frameSize, state.upvalues.size(),
+                chunk.code(), chunk.lines(), chunk.constants(), chunk.numbers());
+    }
+
+    // --- Emission helpers -------------------------------------------------------------------
+
+    private void emit(int... words) {
+        for (int word : words) {
+            current.chunk.write(word, line);
+        }
+    }
+
+    /** Emits a jump whose target is the last operand and returns that operand's offset. */
+    private int emitJump(int... words) {
+        emit(words);
+        return current.chunk.count() - 1;
+    }
+
+    private void patchJump(int offset) {
+        current.chunk.patch(offset, current.chunk.count());
+    }
+
+    // --- Registers and scopes ---------------------------------------------------------------
+
+    private int allocate() {
+        int register = current.nextRegister++;
+        current.frameSize = Math.max(current.frameSize, current.nextRegister);
+        return register;
+    }
+
+    private boolean isTemporary(int register) {
+        return register >= current.localCount;
+    }
+
+    private void statement(Stmt stmt) {
+        stmt.accept(this);
+        current.nextRegister = current.localCount;
+    }
+
+    private void beginScope(Object node, int frameSize) {
+        int[] registers = new int[frameSize];
+        Arrays.fill(registers, -1);
+        scopes.add(new ScopeState(current, registers, captures.get(node), current.localCount));
+    }
+
+    private void endScope() {
+        ScopeState scope = scopes.remove(scopes.size() - 1);
+        current.localCount = scope.firstLocal();
+        current.nextRegister = scope.firstLocal();
+    }
+
+    private ScopeState innermost() {
+        return scopes.get(scopes.size() - 1);
+    }
+
+    /** Turns the register just past the locals into the local for {@code slot}. */
+    private int declareLocal(int slot) {
+        int register = current.localCount++;
+        current.nextRegister = Math.max(current.nextRegister, current.localCount);
+        current.frameSize = Math.max(current.frameSize, current.localCount);
+        innermost().registers()[slot] = register;
+        return register;
+    }
+
+    private ScopeState scopeAt(int depth) {
+        return scopes.get(scopes.size() - 1 - depth);
+    }
+
+    /** Register of a plain (uncaptured) local of the current function, or -1. */
+    private int plainLocal(Expr expr) {
+        if (expr instanceof Expr.Variable v && v.depth() != Scope.GLOBAL) {
+            ScopeState scope = scopeAt(v.depth());
+            if (scope.owner() == current && !scope.captured()[v.slot()]) return scope.registers()[v.slot()];
+        }
+        return -1;
+    }
+
+    private static int resolveUpvalue(FunctionState function, FunctionState owner, int register) {
+        if (function.enclosing == owner) {
+            return addUpvalue(function, 1, register);
+        }
+        return addUpvalue(function, 0, resolveUpvalue(function.enclosing, owner, register));
+    }
+
+    private static int addUpvalue(FunctionState function, int isLocal, int index) {
+        for (int i = 0; i < function.upvalues.size(); i++) {
+            int[] upvalue = function.upvalues.get(i);
+            if (upvalue[0] == isLocal && upvalue[1] == index) return i;
+        }
+        function.upvalues.add(new int[] { isLocal, index });
+        return function.upvalues.size() - 1;
+    }
+
+    // --- Statements -------------------------------------------------------------------------
+
+    @Override
+    public Void visitBlock(Stmt.Block stmt) {
+        if (stmt.frameSize() == 0) {
+            // Folded into the enclosing scope: its locals are dead after it, so their registers are free.
+            int firstLocal = current.localCount;
+            for (Stmt statement : stmt.statements()) {
+                statement(statement);
+            }
+            current.localCount = firstLocal;
+            current.nextRegister = firstLocal;
+            return null;
+        }
+        beginScope(stmt, stmt.frameSize());
+        hoist(stmt.statements());
+        for (Stmt statement : stmt.statements()) {
+            statement(statement);
+        }
+        endScope();
+        return null;
+    }
+
+    /**
+     * Makes the cells of the functions and classes that {@code statements} declare before any of
+     * them runs, if inner functions refer to them: a function declared earlier may call them.
+     */
+    private void hoist(List<Stmt> statements) {
+        ScopeState scope = innermost();
+        for (Stmt statement : statements) {
+            int slot = switch (statement) {
+                case Stmt.Function s when s.depth() == 0 -> s.slot();
+                case Stmt.Class s when s.depth() == 0 -> s.slot();
+                default -> -1;
+            };
+            if (slot >= 0 && scope.captured()[slot] && scope.registers()[slot] < 0) {
+                int local = declareLocal(slot);
+                emit(OpCode.LOAD_NIL, local);
+                emit(OpCode.BOX, local);
+            }
+        }
+    }
+
+    @Override
+    public Void visitBreak(Stmt.Break stmt) {
+        line = stmt.keyword().line();
+        innermostLoop().breaks.add(emitJump(OpCode.JUMP, -1));
+        return null;
+    }
+
+    @Override
+    public Void visitContinue(Stmt.Continue stmt) {
+        line = stmt.keyword().line();
+        innermostLoop().continues.add(emitJump(OpCode.JUMP, -1));
+        return null;
+    }
+
+    private Loop innermostLoop() {
+        return current.loops.get(current.loops.size() - 1);
+    }
+
+    @Override
+    public Void visitClass(Stmt.Class stmt) {
+        line = stmt.name().line();
+        define(stmt.depth(), stmt.slot(), register -> klass(stmt, register));
+        return null;
+    }
+
+    /**
+     * Makes the class in {@code destination}: its methods are closures in consecutive registers,
+     * and in a subclass they capture a cell holding the superclass as their {@code super}.
+     */
+    private void klass(Stmt.Class stmt, int destination) {
+        int mark = current.nextRegister;
+        int superclass = -1;
+        if (stmt.superclass() != null) {
+            superclass = allocate();
+            load(stmt.superclass(), superclass);
+            int cell = allocate();
+            boolean[] captured = captures.get(stmt);
+            if (captured[0]) {
+                emit(OpCode.MOVE, cell, superclass);
+                emit(OpCode.BOX, cell);
+            }
+            scopes.add(new ScopeState(current, new int[] { cell }, captured, current.localCount));
+        }
+        int first = current.nextRegister;
+        for (Stmt.Function method : stmt.methods()) {
+            closure(method, allocate(), true);
+        }
+        if (superclass >= 0) scopes.remove(scopes.size() - 1);
+        line = stmt.name().line();
+        emit(OpCode.CLASS, destination, current.chunk.addConstant(stmt.name().lexeme()), superclass, first,
+                stmt.methods().size());
+        current.nextRegister = mark;
+    }
+
+    @Override
+    public Void visitExpression(Stmt.Expression stmt) {
+        if (stmt.expression() instanceof Expr.Assign assign) {
+            assign(assign, -1);
+        } else if (stmt.expression() instanceof Expr.SetIndex set) {
+            setIndex(set, -1);
+        } else if (stmt.expression() instanceof Expr.Set set) {
+            setProperty(set, -1);
+        } else {
+            compile(stmt.expression());
+        }
+        return null;
+    }
+
+    @Override
+    public Void visitFunction(Stmt.Function stmt) {
+        line = stmt.name().line();
+        define(stmt.depth(), stmt.slot(), register -> closure(stmt, register, false));
+        return null;
+    }
+
+    /** Declares a function or class, whose value {@code value} compiles into a given register. */
+    private void define(int depth, int slot, IntConsumer value) {
+        if (depth == Scope.GLOBAL) {
+            int register = allocate();
+            value.accept(register);
+            emit(OpCode.DEFINE_GLOBAL, slot, register);
+            return;
+        }
+        ScopeState scope = innermost();
+        boolean captured = scope.captured()[slot];
+        int existing = scope.registers()[slot];
+        if (existing >= 0 && !captured) {
+            value.accept(existing);
+        } else if (existing >= 0) {
+            int register = allocate();
+            value.accept(register);
+            emit(OpCode.SET_CELL, existing, register);
+        } else if (captured) {
+            // The body refers to the name through its cell, so the cell must exist first.
+            int local = declareLocal(slot);
+            emit(OpCode.LOAD_NIL, local);
+            emit(OpCode.BOX, local);
+            int register = allocate();
+            value.accept(register);
+            emit(OpCode.SET_CELL, local, register);
+        } else {
+            int register = allocate();
+            value.accept(register);
+            declareLocal(slot);
+        }
+    }
+
+    /**
+     * Compiles a function and makes a closure of it in {@code destination}. A method's frame has
+     * {@code this} after the parameters, where calls put the receiver.
+     */
+    private void closure(Stmt.Function stmt, int destination, boolean method) {
+        FunctionState enclosing = current;
+        current = new FunctionState(enclosing);
+        beginScope(stmt, stmt.frameSize());
+        int arity = stmt.params().size();
+        int locals = method ? arity + 1 : arity;
+        for (int i = 0; i < locals; i++) {
+            declareLocal(i);
+        }
+        for (int i = 0; i < locals; i++) {
+            if (innermost().captured()[i]) emit(OpCode.BOX, i);
+        }
+        hoist(stmt.body());
+        for (Stmt statement : stmt.body()) {
+            statement(statement);
+        }
+        emit(OpCode.RETURN_NIL);
+        endScope();
+        FunctionState compiled = current;
+        current = enclosing;
+
+        line = stmt.name().line();
+        int constant = current.chunk.addConstant(finish(compiled, stmt.name().lexeme(), arity));
+        emit(OpCode.CLOSURE, destination, constant);
+        for (int[] upvalue : compiled.upvalues) {
+            emit(upvalue[0], upvalue[1]);
+        }
+    }
+
+    @Override
+    public Void visitIf(Stmt.If stmt) {
+        int elseJump = jumpUnless(stmt.condition());
+        statement(stmt.thenBranch());
+        if (stmt.elseBranch() == null) {
+            patchJump(elseJump);
+            return null;
+        }
+        int endJump = emitJump(OpCode.JUMP, -1);
+        patchJump(elseJump);
+        statement(stmt.elseBranch());
+        patchJump(endJump);
+        return null;
+    }
+
+    @Override
+    public Void visitPrint(Stmt.Print stmt) {
+        int register = compile(stmt.expression());
+        emit(OpCode.PRINT, register);
+        return null;
+    }
+
+    @Override
+    public Void visitReturn(Stmt.Return stmt) {
+        if (stmt.value() == null) {
+            line = stmt.keyword().line();
+            emit(OpCode.RETURN_NIL);
+            return null;
+        }
+        if (stmt.tailCall()) {
+            Expr.Call call = (Expr.Call) stmt.value();
+            int callee = allocate();
+            compileInto(call.callee(), callee);
+            for (Expr argument : call.arguments()) {
+                compileInto(argument, allocate());
+            }
+            line = call.paren().line();
+            emit(OpCode.TAIL_CALL, callee, call.arguments().size());
+            emit(OpCode.RETURN, callee);
+            return null;
+        }
+        int register = compile(stmt.value());
+        line = stmt.keyword().line();
+        emit(OpCode.RETURN, register);
+        return null;
+    }
+
+    @Override
+    public Void visitVar(Stmt.Var stmt) {
+        line = stmt.name().line();
+        declare(stmt.depth(), stmt.slot(), stmt.initializer());
+        return null;
+    }
+
+    private void declare(int depth, int slot, Expr initializer) {
+        Expr value = initializer != null ? initializer : new Expr.Literal(null);
+        if (depth == Scope.GLOBAL) {
+            int register = compile(value);
+            emit(OpCode.DEFINE_GLOBAL, slot, register);
+            return;
+        }
+        ScopeState scope = innermost();
+        boolean captured = scope.captured()[slot];
+        int existing = scope.registers()[slot];
+        if (existing < 0) {
+            int register = allocate();
+            compileInto(value, register);
+            declareLocal(slot);
+            if (captured) emit(OpCode.BOX, register);
+        } else if (captured) {
+            emit(OpCode.SET_CELL, existing, compile(value));
+        } else {
+            compileInto(value, existing);
+        }
+    }
+
+    @Override
+    public Void visitWhile(Stmt.While stmt) {
+        int loopStart = current.chunk.count();
+        int exitJump = jumpUnless(stmt.condition());
+        Loop loop = new Loop();
+        current.loops.add(loop);
+        statement(stmt.body());
+        current.loops.remove(current.loops.size() - 1);
+        loop.continues.forEach(this::patchJump);
+        if (stmt.increment() != null) {
+            statement(new Stmt.Expression(stmt.increment()));
+        }
+        emit(OpCode.JUMP, loopStart);
+        patchJump(exitJump);
+        loop.breaks.forEach(this::patchJump);
+        return null;
+    }
+
+    // --- Expressions ------------------------------------------------------------------------
+
+    /** Returns a register holding the value of {@code expr}: a plain local's own, or a new temporary. */
+    private int compile(Expr expr) {
+        if (expr instanceof Expr.Grouping g) return compile(g.expression());
+        int local = plainLocal(expr);
+        if (local >= 0) return local;
+        int register = allocate();
+        compileInto(expr, register);
+        return register;
+    }
+
+    /** Like {@link #compile} but copies plain locals if {@code later} could reassign them first. */
+    private int compileOperand(Expr expr, Expr... later) {
+        int register = compile(expr);
+        if (!isTemporary(register) && Arrays.stream(later).anyMatch(Compiler::assigns)) {
+            int copy = allocate();
+            emit(OpCode.MOVE, copy, register);
+            return copy;
+        }
+        return register;
+    }
+
+    private void compileInto(Expr expr, int destination) {
+        int mark = current.nextRegister;
+        switch (expr) {
+            case Expr.Literal literal -> {
+                Object value = literal.value();
+                if (value == null) emit(OpCode.LOAD_NIL, destination);
+                else if (value.equals(Boolean.TRUE)) emit(OpCode.LOAD_TRUE, destination);
+                else if (value.equals(Boolean.FALSE)) emit(OpCode.LOAD_FALSE, destination);
+                else emit(OpCode.LOAD_CONSTANT, destination, current.chunk.addConstant(value));
+            }
+            case Expr.Grouping grouping -> compileInto(grouping.expression(), destination);
+            case Expr.Variable variable -> load(variable, destination);
+            case Expr.Assign assign -> assign(assign, destination);
+            case Expr.Unary unary -> {
+                int operand = compile(unary.right());
+                line = unary.operator().line();
+                emit(unary.operator().type() == TokenType.BANG ? OpCode.NOT : OpCode.NEGATE, destination, operand);
+            }
+            case Expr.Binary binary -> binary(binary, destination);
+            case Expr.Logical logical -> logical(logical, destination);
+            case Expr.Call call -> call(call, destination);
+            case Expr.ArrayLiteral array -> {
+                // Like call arguments, the elements go to consecutive registers.
+                int first = current.nextRegister;
+                for (Expr element : array.elements()) {
+                    compileInto(element, allocate());
+                }
+                line = array.bracket().line();
+                emit(OpCode.NEW_ARRAY, destination, first, array.elements().size());
+            }
+            case Expr.MapLiteral map -> {
+                int first = current.nextRegister;
+                for (Expr entry : map.entries()) {
+                    compileInto(entry, allocate());
+                }
+                line = map.brace().line();
+                emit(OpCode.NEW_MAP, destination, first, map.entries().size() / 2);
+            }
+            case Expr.Index index -> {
+                int array = compileOperand(index.array(), index.index());
+                int at = compile(index.index());
+                line = index.bracket().line();
+                emit(OpCode.GET_INDEX, destination, array, at);
+            }
+            case Expr.SetIndex set -> setIndex(set, destination);
+            case Expr.Get get -> {
+                int object = compile(get.object());
+                line = get.name().line();
+                emit(OpCode.GET_PROPERTY, destination, object, current.chunk.addConstant(get.name()),
+                        current.chunk.addConstant(new PropertyCache()));
+            }
+            case Expr.Set set -> setProperty(set, destination);
+            case Expr.Super sup -> {
+                int superclass = compile(sup.superclass());
+                int receiver = compile(sup.receiver());
+                line = sup.method().line();
+                emit(OpCode.GET_SUPER, destination, superclass, receiver, current.chunk.addConstant(sup.method()));
+            }
+        }
+        current.nextRegister = mark;
+    }
+
+    /** Compiles an element assignment; the value also lands in {@code destination} unless it is -1. */
+    private void setIndex(Expr.SetIndex set, int destination) {
+        int mark = current.nextRegister;
+        int array = compileOperand(set.array(), set.index(), set.value());
+        int at = compileOperand(set.index(), set.value());
+        int value = compile(set.value());
+        line = set.bracket().line();
+        emit(OpCode.SET_INDEX, array, at, value);
+        if (destination >= 0 && destination != value) emit(OpCode.MOVE, destination, value);
+        current.nextRegister = mark;
+    }
+
+    /** Compiles a field assignment; the value also lands in {@code destination} unless it is -1. */
+    private void setProperty(Expr.Set set, int destination) {
+        int mark = current.nextRegister;
+        int object = compileOperand(set.object(), set.value());
+        int value = compile(set.value());
+        line = set.name().line();
+        emit(OpCode.SET_PROPERTY, object, current.chunk.addConstant(set.name()), value,
+                current.chunk.addConstant(new PropertyCache()));
+        if (destination >= 0 && destination != value) emit(OpCode.MOVE, destination, value);
+        current.nextRegister = mark;
+    }
+
+    private void load(Expr.Variable variable, int destination) {
+        line = variable.name().line();
+        if (variable.depth() == Scope.GLOBAL) {
+            int name = current.chunk.addConstant(variable.name().lexeme());
+            emit(OpCode.GET_GLOBAL, destination, variable.slot(), name);
+            return;
+        }
+        ScopeState scope = scopeAt(variable.depth());
+        int register = scope.registers()[variable.slot()];
+        if (scope.owner() != current) {
+            emit(OpCode.GET_UPVALUE, destination, resolveUpvalue(current, scope.owner(), register));
+        } else if (scope.captured()[variable.slot()]) {
+            emit(OpCode.GET_CELL, destination, register);
+        } else if (register != destination) {
+            emit(OpCode.MOVE, destination, register);
+        }
+    }
+
+    /** Compiles an assignment; the value also lands in {@code destination} unless it is -1. */
+    private void assign(Expr.Assign assign, int destination) {
+        int mark = current.nextRegister;
+        if (assign.depth() != Scope.GLOBAL) {
+            ScopeState scope = scopeAt(assign.depth());
+            int register = scope.registers()[assign.slot()];
+            if (scope.owner() == current && !scope.captured()[assign.slot()]) {
+                compileInto(assign.value(), register);
+                line = assign.name().line();
+                if (destination >= 0 && destination != register) emit(OpCode.MOVE, destination, register);
+                return;
+            }
+        }
+        int value = destination >= 0 ? destination : allocate();
+        compileInto(assign.value(), value);
+        line = assign.name().line();
+        if (assign.depth() == Scope.GLOBAL) {
+            emit(OpCode.SET_GLOBAL, assign.slot(), value, current.chunk.addConstant(assign.name().lexeme()));
+        } else {
+            ScopeState scope = scopeAt(assign.depth());
+            int register = scope.registers()[assign.slot()];
+            if (scope.owner() != current) {
+                emit(OpCode.SET_UPVALUE, resolveUpvalue(current, scope.owner(), register), value);
+            } else {
+                emit(OpCode.SET_CELL, register, value);
+            }
+        }
+        current.nextRegister = mark;
+    }
+
+    private void binary(Expr.Binary binary, int destination) {
+        int left = compileOperand(binary.left(), binary.right());
+        TokenType type = binary.operator().type();
+        if (numberLiteral(binary.right()) != null && numberOperator(type) >= 0) {
+            line = binary.operator().line();
+            int number = current.chunk.addNumber(numberLiteral(binary.right()));
+            emit(numberOperator(type), destination, left, number);
+            return;
+        }
+        int right = compile(binary.right());
+        line = binary.operator().line();
+        int op = switch (type) {
+            case PLUS -> OpCode.ADD;
+            case MINUS -> OpCode.SUBTRACT;
+            case STAR -> OpCode.MULTIPLY;
+            case SLASH -> OpCode.DIVIDE;
+            case EQUAL_EQUAL -> OpCode.EQUAL;
+            case BANG_EQUAL -> OpCode.NOT_EQUAL;
+            case LESS -> OpCode.LESS;
+            case LESS_EQUAL -> OpCode.LESS_EQUAL;
+            case GREATER -> OpCode.GREATER;
+            case GREATER_EQUAL -> OpCode.GREATER_EQUAL;
+            default -> throw new IllegalStateException("Unknown binary operator " + type);
+        };
+        emit(op, destination, left, right);
+    }
+
+    private static int numberOperator(TokenType type) {
+        return switch (type) {
+            case PLUS -> OpCode.ADD_N;
+            case MINUS -> OpCode.SUBTRACT_N;
+            case STAR -> OpCode.MULTIPLY_N;
+            case SLASH -> OpCode.DIVIDE_N;
+            default -> -1;
+        };
+    }
+
+    private static Double numberLiteral(Expr expr) {
+        if (expr instanceof Expr.Grouping g) return numberLiteral(g.expression());
+        return expr instanceof Expr.Literal literal && literal.value() instanceof Double d ? d : null;
+    }
+
+    private void logical(Expr.Logical logical, int destination) {
+        if (!isTemporary(destination)) {
+            // Writing the left operand into a local early could clobber a read on the right.
+            int register = allocate();
+            logical(logical, register);
+            emit(OpCode.MOVE, destination, register);
+            return;
+        }
+        compileInto(logical.left(), destination);
+        line = logical.operator().line();
+        int op = logical.operator().type() == TokenType.OR ? OpCode.JUMP_IF_TRUE : OpCode.JUMP_IF_FALSE;
+        int endJump = emitJump(op, destination, -1);
+        compileInto(logical.right(), destination);
+        patchJump(endJump);
+    }
+
+    private void call(Expr.Call call, int destination) {
+        // Arguments must sit in the registers right after the callee; reuse the destination
+        // as the callee register when it is the topmost temporary.
+        int callee = destination == current.nextRegister - 1 && isTemporary(destination) ? destination : allocate();
+        if (call.callee() instanceof Expr.Get get) {
+            invoke(call, get, callee);
+        } else {
+            compileInto(call.callee(), callee);
+            for (Expr argument : call.arguments()) {
+                compileInto(argument, allocate());
+            }
+            line = call.paren().line();
+            emit(OpCode.CALL, callee, call.arguments().size());
+        }
+        if (callee != destination) emit(OpCode.MOVE, destination, callee);
+    }
+
+    /**
+     * Compiles {@code object.name(arguments)} so that a method runs without a bound method being
+     * made: the receiver waits in the register after the arguments, where the callee's frame has
+     * {@code this}.
+     */
+    private void invoke(Expr.Call call, Expr.Get get, int callee) {
+        int count = call.arguments().size();
+        compileInto(get.object(), callee);
+        for (int i = 0; i <= count; i++) {
+            allocate();
+        }
+        line = get.name().line();
+        emit(OpCode.GET_METHOD, callee, count, current.chunk.addConstant(get.name()),
+                current.chunk.addConstant(new PropertyCache()));
+        for (int i = 0; i < count; i++) {
+            compileInto(call.arguments().get(i), callee + 1 + i);
+        }
+        line = call.paren().line();
+        emit(OpCode.CALL, callee, count);
+    }
+
+    /** Emits a branch taken when {@code condition} is falsey; returns the jump operand to patch. */
+    private int jumpUnless(Expr condition) {
+        if (condition instanceof Expr.Grouping g) return jumpUnless(g.expression());
+        int mark = current.nextRegister;
+        int jump;
+        if (condition instanceof Expr.Binary binary && comparisonJump(binary.operator().type()) >= 0) {
+            TokenType type = binary.operator().type();
+            int left = compileOperand(binary.left(), binary.right());
+            Double number = numberLiteral(binary.right());
+            if (number != null && numberComparisonJump(type) >= 0) {
+                line = binary.operator().line();
+                jump = emitJump(numberComparisonJump(type), left, current.chunk.addNumber(number), -1);
+            } else {
+                int right = compile(binary.right());
+                line = binary.operator().line();
+                jump = emitJump(comparisonJump(type), left, right, -1);
+            }
+        } else {
+            jump = emitJump(OpCode.JUMP_IF_FALSE, compile(condition), -1);
+        }
+        current.nextRegister = mark;
+        return jump;
+    }
+
+    private static int comparisonJump(TokenType type) {
+        return switch (type) {
+            case EQUAL_EQUAL -> OpCode.JUMP_UNLESS_EQUAL;
+            case BANG_EQUAL -> OpCode.JUMP_UNLESS_NOT_EQUAL;
+            case LESS -> OpCode.JUMP_UNLESS_LESS;
+            case LESS_EQUAL -> OpCode.JUMP_UNLESS_LESS_EQUAL;
+            case GREATER -> OpCode.JUMP_UNLESS_GREATER;
+            case GREATER_EQUAL -> OpCode.JUMP_UNLESS_GREATER_EQUAL;
+            default -> -1;
+        };
+    }
+
+    private static int numberComparisonJump(TokenType type) {
+        return switch (type) {
+            case LESS -> OpCode.JUMP_UNLESS_LESS_N;
+            case LESS_EQUAL -> OpCode.JUMP_UNLESS_LESS_EQUAL_N;
+            case GREATER -> OpCode.JUMP_UNLESS_GREATER_N;
+            case GREATER_EQUAL -> OpCode.JUMP_UNLESS_GREATER_EQUAL_N;
+            default -> -1;
+        };
+    }
+
+    /** True if evaluating {@code expr} may assign a variable. */
+    private static boolean assigns(Expr expr) {
+        return switch (expr) {
+            case Expr.Assign assign -> true;
+            case Expr.Literal literal -> false;
+            case Expr.Variable variable -> false;
+            case Expr.Grouping grouping -> assigns(grouping.expression());
+            case Expr.Unary unary -> assigns(unary.right());
+            case Expr.Binary binary -> assigns(binary.left()) || assigns(binary.right());
+            case Expr.Logical logical -> assigns(logical.left()) || assigns(logical.right());
+            case Expr.Call call -> assigns(call.callee()) || call.arguments().stream().anyMatch(Compiler::assigns);
+            case Expr.ArrayLiteral array -> array.elements().stream().anyMatch(Compiler::assigns);
+            case Expr.MapLiteral map -> map.entries().stream().anyMatch(Compiler::assigns);
+            case Expr.Index index -> assigns(index.array()) || assigns(index.index());
+            case Expr.SetIndex set -> assigns(set.array()) || assigns(set.index()) || assigns(set.value());
+            case Expr.Get get -> assigns(get.object());
+            case Expr.Set set -> assigns(set.object()) || assigns(set.value());
+            case Expr.Super sup -> false;
+        };
+    }
+}
@@ -0,0 +1,81 @@
+package com.rakshith.boti.vm;
+
+/**
+ * Register-machine instruction set. Each instruction is an opcode followed by its operands in
+ * the {@code int[]} code array. "r" operands are frame registers, "k" index the object constants,
+ * "n" index the numeric constants and "t" are absolute jump targets.
+ */
+final class OpCode {
+
+    static final int MOVE = 0;            // r dst, r src
+    static final int LOAD_CONSTANT = 1;   // r dst, k
+    static final int LOAD_NIL = 2;        // r dst
+    static final int LOAD_TRUE = 3;       // r dst
+    static final int LOAD_FALSE = 4;      // r dst
+
+    static final int GET_GLOBAL = 5;      // r dst, slot, k name
+    static final int SET_GLOBAL = 6;      // slot, r src, k name
+    static final int DEFINE_GLOBAL = 7;   // slot, r src
+    static final int BOX = 8;             // r: replaces the value with a Cell holding it
+    static final int GET_CELL = 9;        // r dst, r cell
+    static final int SET_CELL = 10;       // r cell, r src
+    static final int GET_UPVALUE = 11;    // r dst, upvalue index
+    static final int SET_UPVALUE = 12;    // upvalue index, r src
+
+    static final int ADD = 13;            // r dst, r a, r b
+    static final int SUBTRACT = 14;
+    static final int MULTIPLY = 15;
+    static final int DIVIDE = 16;
+    static final int ADD_N = 17;          // r dst, r a, n b
+    static final int SUBTRACT_N = 18;
+    static final int MULTIPLY_N = 19;
+    static final int DIVIDE_N = 20;
+    static final int NEGATE = 21;         // r dst, r a
+    static final int NOT = 22;            // r dst, r a
+    static final int EQUAL = 23;          // r dst, r a, r b
+    static final int NOT_EQUAL = 24;
+    static final int LESS = 25;
+    static final int LESS_EQUAL = 26;
+    static final int GREATER = 27;
+    static final int GREATER_EQUAL = 28;
+
+    static final int JUMP = 29;           // t
+    static final int JUMP_IF_FALSE = 30;  // r, t
+    static final int JUMP_IF_TRUE = 31;   // r, t
+    // Fused compare-and-branch: jump to t when the comparison is false.
+    static final int JUMP_UNLESS_EQUAL = 32;         // r a, r b, t
+    static final int JUMP_UNLESS_NOT_EQUAL = 33;     // r a, r b, t
+    static final int JUMP_UNLESS_LESS = 34;          // r a, r b, t
+    static final int JUMP_UNLESS_LESS_EQUAL = 35;
+    static final int JUMP_UNLESS_GREATER = 36;
+    static final int JUMP_UNLESS_GREATER_EQUAL = 37;
+    static final int JUMP_UNLESS_LESS_N = 38;        // r a, n b, t
+    static final int JUMP_UNLESS_LESS_EQUAL_N = 39;
+    static final int JUMP_UNLESS_GREATER_N = 40;
+    static final int JUMP_UNLESS_GREATER_EQUAL_N = 41;
+
+    static final int CALL = 42;           // r callee, argument count; arguments follow the callee
+    static final int CLOSURE = 43;        // r dst, k function, then per upvalue: isLocal, index
+    static final int RETURN = 44;         // r src
+    static final int RETURN_NIL = 45;
+    static final int PRINT = 46;          // r src
+    static final int TAIL_CALL = 47;      // as CALL, but replaces the current frame; a native
+                                          // callee, a bound method or a class returns through
+                                          // the RETURN that follows
+
+    static final int NEW_ARRAY = 48;      // r dst, r first element, element count
+    static final int GET_INDEX = 49;      // r dst, r array, r index
+    static final int SET_INDEX = 50;      // r array, r index, r src
+    static final int NEW_MAP = 51;        // r dst, r first key, entry count (keys and values alternate)
+
+    static final int CLASS = 52;          // r dst, k name, r superclass or -1, r first method, method count
+    static final int GET_PROPERTY = 53;   // r dst, r object, k name, k cache
+    static final int SET_PROPERTY = 54;   // r object, k name, r src, k cache
+    static final int GET_SUPER = 55;      // r dst, r superclass, r receiver, k name
+    // object.name(arguments) is GET_METHOD, the arguments, then CALL: GET_METHOD leaves a method
+    // in r and the receiver in the register after the arguments, where the method's frame has
+    // this, or else the field's value in r.
+    static final int GET_METHOD = 56;     // r object, argument count, k name, k cache
+
+    private OpCode() { }
+}
@@ -0,0 +1,868 @@
+package com.rakshith.boti.vm;
+
+import com.rakshith.boti.HadError;
+import com.rakshith.boti.ast.PropertyCache;
+import com.rakshith.boti.interpreter.BotiArray;
+import com.rakshith.boti.interpreter.BotiClass;
+import com.rakshith.boti.interpreter.BotiInstance;
+import com.rakshith.boti.interpreter.BotiMap;
+import com.rakshith.boti.interpreter.BoundMethod;
+import com.rakshith.boti.interpreter.CallDepth;
+import com.rakshith.boti.interpreter.NativeFunction;
+import com.rakshith.boti.interpreter.Natives;
+import com.rakshith.boti.interpreter.RuntimeError;
+import com.rakshith.boti.interpreter.Snapshot;
+import com.rakshith.boti.interpreter.Tasks;
+import com.rakshith.boti.lexer.Token;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.rakshith.boti.interpreter.Values.concat;
+import static com.rakshith.boti.interpreter.Values.isEqual;
+import static com.rakshith.boti.interpreter.Values.isString;
+import static com.rakshith.boti.interpreter.Values.isTruthy;
+import static com.rakshith.boti.interpreter.Values.stringify;
+
+/**
+ * Register-based bytecode interpreter. One dispatch loop runs every frame; calls and returns
+ * switch the cached code/base registers instead of recursing on the Java stack, and a tail call
+ * reuses the caller's frame.
+ *
+ * <p>Numbers are kept unboxed: a register whose object slot holds {@link #NUMBER} has its value
+ * in the parallel {@code double[]}. Registers never hold {@code Double} objects; values are
+ * boxed only when they leave the register file (cells, printing, equality). Globals are kept
+ * the same way, in {@code globals} and {@code globalNumbers}, so a loop over a global counter
+ * does not box either.
+ * Globals persist across {@link #interpret} calls (REPL). A native that calls back into the
+ * script, such as {@code map}, runs a nested dispatch loop over the frames above its own.
+ * A method's receiver goes in the register after the arguments, which its frame has as
+ * {@code this}; {@code object.name(...)} puts it there without binding the method.
+ * A task runs on a {@linkplain NativeFunction.Invoker#fork fork} with registers and frames of its
+ * own over a {@link CellSnapshot} of the globals and of the cells its closures captured.
+ */
+public final class VM {
+
+    private static final Object NUMBER = new Object();
+    private static final Object UNDEFINED = new Object();
+    private static final int MAX_FRAMES = CallDepth.LIMIT + 1;
+
+    private Object[] globals;
+    private double[] globalNumbers;
+    // Grown on demand; small to start, as an embedded script makes a VM per evaluation.
+    private Object[] registers = new Object[256];
+    private double[] numbers = new double[256];
+
+    private Closure[] frameClosures = new Closure[64];
+    private int[] frameReturns = new int[64];
+    private int[] frameBases = new int[64];
+
+    private final PrintStream out;
+    private final HadError errors;
+    private final Tasks tasks = new Tasks();
+    private final Snapshot snapshot;
+    private final NativeFunction.Invoker invoker = new NativeFunction.Invoker() {
+        @Override
+        public Object call(Object callee, Object[] arguments, int line) {
+            return callFunction(callee, arguments, line);
+        }
+
+        @Override
+        public NativeFunction.Invoker fork() {
+            return new VM(VM.this, new CellSnapshot()).invoker;
+        }
+
+        @Override
+        public Object capture(Object value) {
+            return snapshot == null ? value : snapshot.value(value);
+        }
+
+        @Override
+        public Tasks tasks() {
+            return tasks;
+        }
+    };
+    // Where the native being called sits: its register and the number of frames below it.
+    private int nativeRegister;
+    private int nativeFrames;
+
+    /** {@code print} writes to {@code out}; runtime errors go to {@code errors}. */
+    public VM(PrintStream out, HadError errors) {
+        this.out = out;
+        this.errors = errors;
+        this.snapshot = null;
+        this.globals = new Object[16];
+        this.globalNumbers = new double[16];
+        Arrays.fill(globals, UNDEFINED);
+        List<NativeFunction> natives = Natives.all();
+        growGlobals(natives.size() - 1);
+        for (int slot = 0; slot < natives.size(); slot++) {
+            globals[slot] = natives.get(slot);
+        }
+    }
+
+    /** A VM for a task on another thread, over a {@code snapshot} of the globals of {@code parent}. */
+    private VM(VM parent, Snapshot snapshot) {
+        this.out = parent.out;
+        this.errors = parent.errors;
+        this.snapshot = snapshot;
+        this.globals = parent.globals.clone();
+        this.globalNumbers = parent.globalNumbers.clone();
+        for (int slot = 0; slot < globals.length; slot++) {
+            if (globals[slot] != UNDEFINED && globals[slot] != NUMBER) globals[slot] = snapshot.value(globals[slot]);
+        }
+    }
+
+    /** Runs the script, then waits for the tasks it spawned. */
+    public void interpret(CompiledFunction script) {
+        try {
+            tasks.scope(() -> run(new Closure(script, new Cell[0]), 0, 1));
+        } catch (RuntimeError e) {
+            errors.reportRuntime(e.getMessage(), e.line);
+        }
+    }
+
+    /**
+     * Runs {@code entry}, whose arguments are in the registers from {@code base} on, as frame
+     * number {@code entryFrame}, and returns its result.
+     */
+    private Object run(Closure entry, int base, int entryFrame) {
+        int fp = entryFrame;
+        Closure closure = entry;
+        CompiledFunction function = entry.function();
+        int[] code = function.code();
+        Object[] constants = function.constants();
+        double[] constantNumbers = function.numbers();
+        ensureRegisters(base + function.frameSize());
+        Object[] regs = registers;
+        double[] nums = numbers;
+        int ip = 0;
+
+        for (;;) {
+            switch (code[ip]) {
+                case OpCode.MOVE -> {
+                    int d = base + code[ip + 1];
+                    int s = base + code[ip + 2];
+                    regs[d] = regs[s];
+                    nums[d] = nums[s];
+                    ip += 3;
+                }
+                case OpCode.LOAD_CONSTANT -> {
+                    put(base + code[ip + 1], constants[code[ip + 2]]);
+                    ip += 3;
+                }
+                case OpCode.LOAD_NIL -> {
+                    regs[base + code[ip + 1]] = null;
+                    ip += 2;
+                }
+                case OpCode.LOAD_TRUE -> {
+                    regs[base + code[ip + 1]] = Boolean.TRUE;
+                    ip += 2;
+                }
+                case OpCode.LOAD_FALSE -> {
+                    regs[base + code[ip + 1]] = Boolean.FALSE;
+                    ip += 2;
+                }
+                case OpCode.GET_GLOBAL -> {
+                    int d = base + code[ip + 1];
+                    int slot = code[ip + 2];
+                    Object value = slot < globals.length ? globals[slot] : UNDEFINED;
+                    if (value == UNDEFINED) throw undefined(function, ip, constants[code[ip + 3]]);
+                    regs[d] = value;
+                    nums[d] = globalNumbers[slot];
+                    ip += 4;
+                }
+                case OpCode.SET_GLOBAL -> {
+                    int slot = code[ip + 1];
+                    if (slot >= globals.length || globals[slot] == UNDEFINED) {
+                        throw undefined(function, ip, constants[code[ip + 3]]);
+                    }
+                    int s = base + code[ip + 2];
+                    globals[slot] = regs[s];
+                    globalNumbers[slot] = nums[s];
+                    ip += 4;
+                }
+                case OpCode.DEFINE_GLOBAL -> {
+                    int slot = code[ip + 1];
+                    if (slot >= globals.length) growGlobals(slot);
+                    int s = base + code[ip + 2];
+                    globals[slot] = regs[s];
+                    globalNumbers[slot] = nums[s];
+                    ip += 3;
+                }
+                case OpCode.BOX -> {
+                    int r = base + code[ip + 1];
+                    regs[r] = new Cell(get(r));
+                    ip += 2;
+                }
+                case OpCode.GET_CELL -> {
+                    put(base + code[ip + 1], ((Cell) regs[base + code[ip + 2]]).value);
+                    ip += 3;
+                }
+                case OpCode.SET_CELL -> {
+                    ((Cell) regs[base + code[ip + 1]]).value = get(base + code[ip + 2]);
+                    ip += 3;
+                }
+                case OpCode.GET_UPVALUE -> {
+                    put(base + code[ip + 1], closure.upvalues()[code[ip + 2]].value);
+                    ip += 3;
+                }
+                case OpCode.SET_UPVALUE -> {
+                    closure.upvalues()[code[ip + 1]].value = get(base + code[ip + 2]);
+                    ip += 3;
+                }
+                case OpCode.ADD -> {
+                    int d = base + code[ip + 1];
+                    int a = base + code[ip + 2];
+                    int b = base + code[ip + 3];
+                    if (regs[a] == NUMBER && regs[b] == NUMBER) {
+                        nums[d] = nums[a] + nums[b];
+                        regs[d] = NUMBER;
+                    } else {
+                        Object left = get(a);
+                        Object right = get(b);
+                        if (!isString(left) && !isString(right)) {
+                            throw error(function, ip, "Operands must be two numbers or two strings.");
+                        }
+                        regs[d] = concat(left, right);
+                    }
+                    ip += 4;
+                }
+                case OpCode.SUBTRACT -> {
+                    int d = base + code[ip + 1];
+                    int a = base + code[ip + 2];
+                    int b = base + code[ip + 3];
+                    if (regs[a] != NUMBER || regs[b] != NUMBER) throw numberOperands(function, ip);
+                    nums[d] = nums[a] - nums[b];
+                    regs[d] = NUMBER;
+                    ip += 4;
+                }
+                case OpCode.MULTIPLY -> {
+                    int d = base + code[ip + 1];
+                    int a = base + code[ip + 2];
+                    int b = base + code[ip + 3];
+                    if (regs[a] != NUMBER || regs[b] != NUMBER) throw numberOperands(function, ip);
+                    nums[d] = nums[a] * nums[b];
+                    regs[d] = NUMBER;
+                    ip += 4;
+                }
+                case OpCode.DIVIDE -> {
+                    int d = base + code[ip + 1];
+                    int a = base + code[ip + 2];
+                    int b = base + code[ip + 3];
+                    if (regs[a] != NUMBER || regs[b] != NUMBER) throw numberOperands(function, ip);
+                    if (nums[b] == 0) throw error(function, ip, "Division by zero.");
+                    nums[d] = nums[a] / nums[b];
+                    regs[d] = NUMBER;
+                    ip += 4;
+                }
+                case OpCode.ADD_N -> {
+                    int d = base + code[ip + 1];
+                    int a = base + code[ip + 2];
+                    if (regs[a] == NUMBER) {
+                        nums[d] = nums[a] + constantNumbers[code[ip + 3]];
+                        regs[d] = NUMBER;
+                    } else if (isString(regs[a])) {
+                        regs[d] = concat(regs[a], constantNumbers[code[ip + 3]]);
+                    } else {
+                        throw error(function, ip, "Operands must be two numbers or two strings.");
+                    }
+                    ip += 4;
+                }
+                case OpCode.SUBTRACT_N -> {
+                    int d = base + code[ip + 1];
+                    int a = base + code[ip + 2];
+                    if (regs[a] != NUMBER) throw numberOperands(function, ip);
+                    nums[d] = nums[a] - constantNumbers[code[ip + 3]];
+                    regs[d] = NUMBER;
+                    ip += 4;
+                }
+                case OpCode.MULTIPLY_N -> {
+                    int d = base + code[ip + 1];
+                    int a = base + code[ip + 2];
+                    if (regs[a] != NUMBER) throw numberOperands(function, ip);
+                    nums[d] = nums[a] * constantNumbers[code[ip + 3]];
+                    regs[d] = NUMBER;
+                    ip += 4;
+                }
+                case OpCode.DIVIDE_N -> {
+                    int d = base + code[ip + 1];
+                    int a = base + code[ip + 2];
+                    if (regs[a] != NUMBER) throw numberOperands(function, ip);
+                    double divisor = constantNumbers[code[ip + 3]];
+                    if (divisor == 0) throw error(function, ip, "Division by zero.");
+                    nums[d] = nums[a] / divisor;
+                    regs[d] = NUMBER;
+                    ip += 4;
+                }
+                case OpCode.NEGATE -> {
+                    int d = base + code[ip + 1];
+                    int a = base + code[ip + 2];
+                    if (regs[a] != NUMBER) throw error(function, ip, "Operand must be a number.");
+                    nums[d] = -nums[a];
+                    regs[d] = NUMBER;
+                    ip += 3;
+                }
+                case OpCode.NOT -> {
+                    regs[base + code[ip + 1]] = !isTruthy(regs[base + code[ip + 2]]);
+                    ip += 3;
+                }
+                case OpCode.EQUAL -> {
+                    regs[base + code[ip + 1]] = equal(base + code[ip + 2], base + code[ip + 3]);
+                    ip += 4;
+                }
+                case OpCode.NOT_EQUAL -> {
+                    regs[base + code[ip + 1]] = !equal(base + code[ip + 2], base + code[ip + 3]);
+                    ip += 4;
+                }
+                case OpCode.LESS -> {
+                    int a = base + code[ip + 2];
+                    int b = base + code[ip + 3];
+                    if (regs[a] != NUMBER || regs[b] != NUMBER) throw numberOperands(function, ip);
+                    regs[base + code[ip + 1]] = nums[a] < nums[b];
+                    ip += 4;
+                }
+                case OpCode.LESS_EQUAL -> {
+                    int a = base + code[ip + 2];
+                    int b = base + code[ip + 3];
+                    if (regs[a] != NUMBER || regs[b] != NUMBER) throw numberOperands(function, ip);
+                    regs[base + code[ip + 1]] = nums[a] <= nums[b];
+                    ip += 4;
+                }
+                case OpCode.GREATER -> {
+                    int a = base + code[ip + 2];
+                    int b = base + code[ip + 3];
+                    if (regs[a] != NUMBER || regs[b] != NUMBER) throw numberOperands(function, ip);
+                    regs[base + code[ip + 1]] = nums[a] > nums[b];
+                    ip += 4;
+                }
+                case OpCode.GREATER_EQUAL -> {
+                    int a = base + code[ip + 2];
+                    int b = base + code[ip + 3];
+                    if (regs[a] != NUMBER || regs[b] != NUMBER) throw numberOperands(function, ip);
+                    regs[base + code[ip + 1]] = nums[a] >= nums[b];
+                    ip += 4;
+                }
+                case OpCode.JUMP -> ip = code[ip + 1];
+                case OpCode.JUMP_IF_FALSE -> ip = isTruthy(regs[base + code[ip + 1]]) ? ip + 3 : code[ip + 2];
+                case OpCode.JUMP_IF_TRUE -> ip = isTruthy(regs[base + code[ip + 1]]) ? code[ip + 2] : ip + 3;
+                case OpCode.JUMP_UNLESS_EQUAL ->
+                        ip = equal(base + code[ip + 1], base + code[ip + 2]) ? ip + 4 : code[ip + 3];
+                case OpCode.JUMP_UNLESS_NOT_EQUAL ->
+                        ip = equal(base + code[ip + 1], base + code[ip + 2]) ? code[ip + 3] : ip + 4;
+                case OpCode.JUMP_UNLESS_LESS -> {
+                    int a = base + code[ip + 1];
+                    int b = base + code[ip + 2];
+                    if (regs[a] != NUMBER || regs[b] != NUMBER) throw numberOperands(function, ip);
+                    ip = nums[a] < nums[b] ? ip + 4 : code[ip + 3];
+                }
+                case OpCode.JUMP_UNLESS_LESS_EQUAL -> {
+                    int a = base + code[ip + 1];
+                    int b = base + code[ip + 2];
+                    if (regs[a] != NUMBER || regs[b] != NUMBER) throw numberOperands(function, ip);
+                    ip = nums[a] <= nums[b] ? ip + 4 : code[ip + 3];
+                }
+                case OpCode.JUMP_UNLESS_GREATER -> {
+                    int a = base + code[ip + 1];
+                    int b = base + code[ip + 2];
+                    if (regs[a] != NUMBER || regs[b] != NUMBER) throw numberOperands(function, ip);
+                    ip = nums[a] > nums[b] ? ip + 4 : code[ip + 3];
+                }
+                case OpCode.JUMP_UNLESS_GREATER_EQUAL -> {
+                    int a = base + code[ip + 1];
+                    int b = base + code[ip + 2];
+                    if (regs[a] != NUMBER || regs[b] != NUMBER) throw numberOperands(function, ip);
+                    ip = nums[a] >= nums[b] ? ip + 4 : code[ip + 3];
+                }
+                case OpCode.JUMP_UNLESS_LESS_N -> {
+                    int a = base + code[ip + 1];
+                    if (regs[a] != NUMBER) throw numberOperands(function, ip);
+                    ip = nums[a] < constantNumbers[code[ip + 2]] ? ip + 4 : code[ip + 3];
+                }
+                case OpCode.JUMP_UNLESS_LESS_EQUAL_N -> {
+                    int a = base + code[ip + 1];
+                    if (regs[a] != NUMBER) throw numberOperands(function, ip);
+                    ip = nums[a] <= constantNumbers[code[ip + 2]] ? ip + 4 : code[ip + 3];
+                }
+                case OpCode.JUMP_UNLESS_GREATER_N -> {
+                    int a = base + code[ip + 1];
+                    if (regs[a] != NUMBER) throw numberOperands(function, ip);
+                    ip = nums[a] > constantNumbers[code[ip + 2]] ? ip + 4 : code[ip + 3];
+                }
+                case OpCode.JUMP_UNLESS_GREATER_EQUAL_N -> {
+                    int a = base + code[ip + 1];
+                    if (regs[a] != NUMBER) throw numberOperands(function, ip);
+                    ip = nums[a] >= constantNumbers[code[ip + 2]] ? ip + 4 : code[ip + 3];
+                }
+                case OpCode.CALL -> {
+                    int calleeRegister = base + code[ip + 1];
+                    int argCount = code[ip + 2];
+                    if (regs[calleeRegister] instanceof NativeFunction intrinsic && argCount == intrinsic.arity()) {
+                        callNative(intrinsic, calleeRegister, fp, function.lines()[ip]);
+                        regs = registers;
+                        nums = numbers;
+                        ip += 3;
+                        continue;
+                    }
+                    if (!(regs[calleeRegister] instanceof Closure callee)) {
+                        // Call the method or initializer instead, or step over a class with none.
+                        if (!unwrap(function, ip, calleeRegister, argCount)) ip += 3;
+                        regs = registers;
+                        nums = numbers;
+                        continue;
+                    }
+                    CompiledFunction target = callee.function();
+                    if (argCount != target.arity()) {
+                        throw error(function, ip, "Expected " + target.arity() + " arguments but got " + argCount + ".");
+                    }
+                    if (fp == MAX_FRAMES) throw error(function, ip, "Stack overflow.");
+                    if (fp == frameClosures.length) growFrames();
+                    frameClosures[fp - 1] = closure;
+                    frameReturns[fp - 1] = ip + 3;
+                    frameBases[fp - 1] = base;
+                    fp++;
+
+                    closure = callee;
+                    function = target;
+                    code = target.code();
+                    constants = target.constants();
+                    constantNumbers = target.numbers();
+                    base = calleeRegister + 1;
+                    ip = 0;
+                    if (base + target.frameSize() > regs.length) {
+                        ensureRegisters(base + target.frameSize());
+                        regs = registers;
+                        nums = numbers;
+                    }
+                }
+                case OpCode.TAIL_CALL -> {
+                    int calleeRegister = base + code[ip + 1];
+                    int argCount = code[ip + 2];
+                    if (regs[calleeRegister] instanceof NativeFunction intrinsic && argCount == intrinsic.arity()) {
+                        callNative(intrinsic, calleeRegister, fp, function.lines()[ip]);
+                        regs = registers;
+                        nums = numbers;
+                        ip += 3;
+                        continue;
+                    }
+                    if (!(regs[calleeRegister] instanceof Closure callee)) {
+                        // A method call is not a tail call: its receiver lies past the arguments,
+                        // so it runs as by CALL and returns through the RETURN that follows.
+                        if (unwrap(function, ip, calleeRegister, argCount)) {
+                            if (fp == MAX_FRAMES) throw error(function, ip, "Stack overflow.");
+                            if (fp == frameClosures.length) growFrames();
+                            frameClosures[fp - 1] = closure;
+                            frameReturns[fp - 1] = ip + 3;
+                            frameBases[fp - 1] = base;
+                            fp++;
+                            closure = (Closure) registers[calleeRegister];
+                            function = closure.function();
+                            code = function.code();
+                            constants = function.constants();
+                            constantNumbers = function.numbers();
+                            base = calleeRegister + 1;
+                            ip = 0;
+                            ensureRegisters(base + function.frameSize());
+                        } else {
+                            ip += 3;
+                        }
+                        regs = registers;
+                        nums = numbers;
+                        continue;
+                    }
+                    CompiledFunction target = callee.function();
+                    if (argCount != target.arity()) {
+                        throw error(function, ip, "Expected " + target.arity() + " arguments but got " + argCount + ".");
+                    }
+                    // The callee and its arguments take the place of the current frame's, so the
+                    // callee returns straight to our caller. Captured locals live in cells, not here.
+                    System.arraycopy(regs, calleeRegister, regs, base - 1, argCount + 1);
+                    System.arraycopy(nums, calleeRegister, nums, base - 1, argCount + 1);
+                    closure = callee;
+                    function = target;
+                    code = target.code();
+                    constants = target.constants();
+                    constantNumbers = target.numbers();
+                    ip = 0;
+                    if (base + target.frameSize() > regs.length) {
+                        ensureRegisters(base + target.frameSize());
+                        regs = registers;
+                        nums = numbers;
+                    }
+                }
+                case OpCode.CLASS -> {
+                    BotiClass superclass = code[ip + 3] < 0 ? null
+                            : BotiClass.superclass(get(base + code[ip + 3]), function.lines()[ip]);
+                    Map<String, Object> methods = new HashMap<>();
+                    for (int i = 0; i < code[ip + 5]; i++) {
+                        Closure method = (Closure) regs[base + code[ip + 4] + i];
+                        methods.put(method.function().name(), method);
+                    }
+                    regs[base + code[ip + 1]] = new BotiClass((String) constants[code[ip + 2]], superclass, methods);
+                    ip += 6;
+                }
+                case OpCode.GET_PROPERTY -> {
+                    put(base + code[ip + 1], BotiInstance.get(regs[base + code[ip + 2]],
+                            (Token) constants[code[ip + 3]], (PropertyCache) constants[code[ip + 4]]));
+                    ip += 5;
+                }
+                case OpCode.SET_PROPERTY -> {
+                    BotiInstance.set(regs[base + code[ip + 1]], (Token) constants[code[ip + 2]],
+                            get(base + code[ip + 3]), (PropertyCache) constants[code[ip + 4]]);
+                    ip += 5;
+                }
+                case OpCode.GET_SUPER -> {
+                    BotiClass superclass = (BotiClass) regs[base + code[ip + 2]];
+                    regs[base + code[ip + 1]] = superclass.bind(regs[base + code[ip + 3]], (Token) constants[code[ip + 4]]);
+                    ip += 5;
+                }
+                case OpCode.GET_METHOD -> {
+                    int object = base + code[ip + 1];
+                    Token name = (Token) constants[code[ip + 3]];
+                    PropertyCache cache = (PropertyCache) constants[code[ip + 4]];
+                    BotiInstance instance = BotiInstance.of(regs[object], name.line());
+                    PropertyCache.Entry found = instance.find(name, cache);
+                    if (found.index() >= 0) {
+                        put(object, instance.field(found.index()));
+                    } else {
+                        // The method and receiver are where a call of a bound method would put them.
+                        regs[object] = found.target();
+                        regs[object + 1 + code[ip + 2]] = instance;
+                    }
+                    ip += 5;
+                }
+                case OpCode.CLOSURE -> {
+                    CompiledFunction target = (CompiledFunction) constants[code[ip + 2]];
+                    Cell[] upvalues = new Cell[target.upvalueCount()];
+                    int operand = ip + 3;
+                    for (int i = 0; i < upvalues.length; i++, operand += 2) {
+                        upvalues[i] = code[operand] != 0
+                                ? (Cell) regs[base + code[operand + 1]]
+                                : closure.upvalues()[code[operand + 1]];
+                    }
+                    regs[base + code[ip + 1]] = new Closure(target, upvalues);
+                    ip = operand;
+                }
+                case OpCode.RETURN, OpCode.RETURN_NIL -> {
+                    int result = code[ip] == OpCode.RETURN ? base + code[ip + 1] : -1;
+                    fp--;
+                    if (fp < entryFrame) return result < 0 ? null : get(result);
+                    int destination = base - 1;
+                    if (result < 0) {
+                        regs[destination] = null;
+                    } else {
+                        regs[destination] = regs[result];
+                        nums[destination] = nums[result];
+                    }
+                    closure = frameClosures[fp - 1];
+                    function = closure.function();
+                    code = function.code();
+                    constants = function.constants();
+                    constantNumbers = function.numbers();
+                    ip = frameReturns[fp - 1];
+                    base = frameBases[fp - 1];
+                }
+                case OpCode.NEW_ARRAY -> {
+                    int first = base + code[ip + 2];
+                    int count = code[ip + 3];
+                    boolean numeric = true;
+                    for (int i = first; i < first + count; i++) {
+                        numeric &= regs[i] == NUMBER;
+                    }
+                    if (numeric) {
+                        regs[base + code[ip + 1]] = new BotiArray(Arrays.copyOfRange(nums, first, first + count));
+                    } else {
+                        Object[] elements = new Object[count];
+                        for (int i = 0; i < count; i++) {
+                            elements[i] = get(first + i);
+                        }
+                        regs[base + code[ip + 1]] = BotiArray.of(elements);
+                    }
+                    ip += 4;
+                }
+                case OpCode.NEW_MAP -> {
+                    int first = base + code[ip + 2];
+                    int end = first + 2 * code[ip + 3];
+                    int line = function.lines()[ip];
+                    BotiMap map = new BotiMap();
+                    for (int k = first; k < end; k += 2) {
+                        if (regs[k] == NUMBER && regs[k + 1] == NUMBER) {
+                            map.setNumber(nums[k], nums[k + 1]);
+                        } else {
+                            map.set(get(k), get(k + 1), line);
+                        }
+                    }
+                    regs[base + code[ip + 1]] = map;
+                    ip += 4;
+                }
+                case OpCode.GET_INDEX -> {
+                    int d = base + code[ip + 1];
+                    int a = base + code[ip + 2];
+                    int i = base + code[ip + 3];
+                    if (regs[a] instanceof BotiArray array && regs[i] == NUMBER) {
+                        int index = array.index(nums[i], function.lines()[ip]);
+                        double[] elements = array.numbers();
+                        if (elements != null) {
+                            nums[d] = elements[index];
+                            regs[d] = NUMBER;
+                        } else {
+                            put(d, array.get(index));
+                        }
+                    } else if (regs[a] instanceof BotiMap map && regs[i] == NUMBER) {
+                        synchronized (map) {
+                            int found = map.find(nums[i]);
+                            if (found >= 0 && map.isNumeric()) {
+                                nums[d] = map.numberAt(found);
+                                regs[d] = NUMBER;
+                            } else {
+                                put(d, found < 0 ? null : map.valueAt(found));
+                            }
+                        }
+                    } else {
+                        put(d, BotiArray.get(get(a), get(i), function.lines()[ip]));
+                    }
+                    ip += 4;
+                }
+                case OpCode.SET_INDEX -> {
+                    int a = base + code[ip + 1];
+                    int i = base + code[ip + 2];
+                    int v = base + code[ip + 3];
+                    if (regs[a] instanceof BotiArray array && regs[i] == NUMBER) {
+                        int index = array.index(nums[i], function.lines()[ip]);
+                        if (regs[v] == NUMBER) {
+                            array.setNumber(index, nums[v]);
+                        } else {
+                            array.set(index, regs[v]);
+                        }
+                    } else if (regs[a] instanceof BotiMap map && regs[v] == NUMBER) {
+                        if (regs[i] == NUMBER) {
+                            map.setNumber(nums[i], nums[v]);
+                        } else {
+                            map.setNumber(get(i), nums[v], function.lines()[ip]);
+                        }
+                    } else {
+                        BotiArray.set(get(a), get(i), get(v), function.lines()[ip]);
+                    }
+                    ip += 4;
+                }
+                case OpCode.PRINT -> {
+                    out.println(stringify(get(base + code[ip + 1])));
+                    ip += 2;
+                }
+                default -> throw new IllegalStateException("Unknown opcode " + code[ip]);
+            }
+        }
+    }
+
+    /**
+     * Prepares a call of a value that is not a closure: a bound method leaves its method in the
+     * callee's register and its receiver in the register after the arguments, and so does a class
+     * with its initializer and a new instance. Returns false when the call is already done, as
+     * for a class without an initializer, whose instance then takes the callee's register.
+     */
+    private boolean unwrap(CompiledFunction function, int ip, int calleeRegister, int argCount) {
+        BotiInstance receiver;
+        Object method;
+        switch (registers[calleeRegister]) {
+            case BoundMethod bound -> {
+                receiver = bound.receiver();
+                method = bound.method();
+            }
+            case BotiClass klass -> {
+                receiver = new BotiInstance(klass);
+                method = klass.initializer();
+                if (method == null) {
+                    if (argCount != 0) throw error(function, ip, "Expected 0 arguments but got " + argCount + ".");
+                    registers[calleeRegister] = receiver;
+                    return false;
+                }
+            }
+            case null, default -> throw notCallable(function, ip, registers[calleeRegister]);
+        }
+        ensureRegisters(calleeRegister + 2 + argCount);
+        registers[calleeRegister] = method;
+        registers[calleeRegister + 1 + argCount] = receiver;
+        return true;
+    }
+
+    /**
+     * Runs a native on the unboxed argument registers after the callee's and leaves the result,
+     * unboxed, in the callee's register. Unlike a closure call this pushes no frame; a builtin
+     * that calls back runs its callee as frame {@code frames + 1}.
+     */
+    private void callNative(NativeFunction intrinsic, int calleeRegister, int frames, int line) {
+        double result;
+        switch (intrinsic) {
+            case NativeFunction.Nullary n -> result = n.apply();
+            case NativeFunction.Unary n -> result = n.apply(number(intrinsic, calleeRegister + 1, line));
+            case NativeFunction.Binary n -> result = n.apply(number(intrinsic, calleeRegister + 1, line),
+                    number(intrinsic, calleeRegister + 2, line), line);
+            case NativeFunction.Builtin n -> {
+                Object[] arguments = new Object[n.arity()];
+                for (int i = 0; i < arguments.length; i++) {
+                    arguments[i] = get(calleeRegister + 1 + i);
+                }
+                nativeRegister = calleeRegister;
+                nativeFrames = frames;
+                put(calleeRegister, n.call(arguments, invoker, line));
+                return;
+            }
+        }
+        numbers[calleeRegister] = result;
+        registers[calleeRegister] = NUMBER;
+    }
+
+    /**
+     * Calls a function value for a native: the callee and its arguments take the native's
+     * registers, whose arguments the native has already read, and run as the next frame up.
+     */
+    private Object callFunction(Object callee, Object[] arguments, int line) {
+        switch (callee) {
+            case Closure closure when closure.function().arity() == arguments.length -> {
+                return callClosure(closure, arguments, null, line);
+            }
+            case BoundMethod bound -> {
+                return callMethod(bound.method(), bound.receiver(), arguments, line);
+            }
+            case BotiClass klass -> {
+                BotiInstance instance = new BotiInstance(klass);
+                if (klass.initializer() != null) {
+                    callMethod(klass.initializer(), instance, arguments, line);
+                } else if (arguments.length != 0) {
+                    throw new RuntimeError(line, "Expected 0 arguments but got " + arguments.length + ".");
+                }
+                return instance;
+            }
+            case NativeFunction function when function.arity() == arguments.length -> {
+                return function.call(arguments, invoker, line);
+            }
+            case Closure closure -> throw new RuntimeError(line,
+                    "Expected " + closure.function().arity() + " arguments but got " + arguments.length + ".");
+            case NativeFunction function -> throw new RuntimeError(line,
+                    "Expected " + function.arity() + " arguments but got " + arguments.length + ".");
+            case null, default -> throw new RuntimeError(line, "Can only call functions and classes.");
+        }
+    }
+
+    /** Runs a closure for a native, with the receiver after the arguments if it is a method. */
+    private Object callClosure(Closure closure, Object[] arguments, BotiInstance receiver, int line) {
+        int register = nativeRegister;
+        int frames = nativeFrames;
+        if (frames == MAX_FRAMES) throw new RuntimeError(line, "Stack overflow.");
+        ensureRegisters(register + 2 + arguments.length);
+        registers[register] = closure;
+        for (int i = 0; i < arguments.length; i++) {
+            put(register + 1 + i, arguments[i]);
+        }
+        if (receiver != null) registers[register + 1 + arguments.length] = receiver;
+        try {
+            return run(closure, register + 1, frames + 1);
+        } finally {
+            nativeRegister = register;
+            nativeFrames = frames;
+        }
+    }
+
+    private Object callMethod(Object method, BotiInstance receiver, Object[] arguments, int line) {
+        Closure closure = (Closure) method;
+        if (closure.function().arity() != arguments.length) {
+            throw new RuntimeError(line,
+                    "Expected " + closure.function().arity() + " arguments but got " + arguments.length + ".");
+        }
+        return callClosure(closure, arguments, receiver, line);
+    }
+
+    private double number(NativeFunction intrinsic, int register, int line) {
+        return registers[register] == NUMBER ? numbers[register] : intrinsic.number(registers[register], line);
+    }
+
+    /** Reads a register as a boxed value. */
+    private Object get(int register) {
+        Object value = registers[register];
+        return value == NUMBER ? (Object) numbers[register] : value;
+    }
+
+    /** Writes a boxed value into a register, unboxing numbers. */
+    private void put(int register, Object value) {
+        if (value instanceof Double d) {
+            numbers[register] = d;
+            registers[register] = NUMBER;
+        } else {
+            registers[register] = value;
+        }
+    }
+
+    private boolean equal(int a, int b) {
+        if (registers[a] == NUMBER && registers[b] == NUMBER) {
+            // Same as Double.equals, which the tree-walker uses: NaN equals NaN, 0.0 differs from -0.0.
+            return Double.doubleToLongBits(numbers[a]) == Double.doubleToLongBits(numbers[b]);
+        }
+        return isEqual(get(a), get(b));
+    }
+
+    private void ensureRegisters(int size) {
+        if (size > registers.length) {
+            int length = Math.max(size, registers.length * 2);
+            registers = Arrays.copyOf(registers, length);
+            numbers = Arrays.copyOf(numbers, length);
+        }
+    }
+
+    private void growFrames() {
+        int size = frameClosures.length * 2;
+        frameClosures = Arrays.copyOf(frameClosures, size);
+        frameReturns = Arrays.copyOf(frameReturns, size);
+        frameBases = Arrays.copyOf(frameBases, size);
+    }
+
+    public void defineGlobal(int slot, Object value) {
+        if (slot >= globals.length) growGlobals(slot);
+        if (value instanceof Double d) {
+            globals[slot] = NUMBER;
+            globalNumbers[slot] = d;
+        } else {
+            globals[slot] = value;
+        }
+    }
+
+    /** The value of a global, or null if it was never defined. */
+    public Object global(int slot) {
+        Object value = slot < globals.length ? globals[slot] : UNDEFINED;
+        if (value == NUMBER) return globalNumbers[slot];
+        return value == UNDEFINED ? null : value;
+    }
+
+    /** Makes room for globals up to slot {@code count - 1}; call it before running a script that defines them. */
+    public void reserveGlobals(int count) {
+        if (count > globals.length) growGlobals(count - 1);
+    }
+
+    private void growGlobals(int slot) {
+        int oldLength = globals.length;
+        globals = Arrays.copyOf(globals, Math.max(slot + 1, oldLength * 2));
+        globalNumbers = Arrays.copyOf(globalNumbers, globals.length);
+        Arrays.fill(globals, oldLength, globals.length, UNDEFINED);
+    }
+
+    private static RuntimeError error(CompiledFunction function, int ip, String message) {
+        return new RuntimeError(function.lines()[ip], message);
+    }
+
+    /** A native called with the wrong number of arguments fails like a function; anything else cannot be called. */
+    private static RuntimeError notCallable(CompiledFunction function, int ip, Object callee) {
+        return callee instanceof NativeFunction intrinsic
+                ? error(function, ip, "Expected " + intrinsic.arity() + " arguments but got " + function.code()[ip + 2] + ".")
+                : error(function, ip, "Can only call functions and classes.");
+    }
+
+    private static RuntimeError numberOperands(CompiledFunction function, int ip) {
+        return error(function, ip, "Operands must be numbers.");
+    }
+
+    private static RuntimeError undefined(CompiledFunction function, int ip, Object name) {
+        return error(function, ip, "Undefined variable '" + name + "'.");
+    }
+}
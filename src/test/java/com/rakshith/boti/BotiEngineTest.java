@@ -0,0 +1,86 @@
+package com.rakshith.boti;
+
+import com.rakshith.boti.ast.Stmt;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BotiEngineTest {
+
+    /** Counts in a global, calls a hot function, makes instances and fills a map. */
+    private static final String SCRIPT = """
+            class Counter {
+              init() { this.count = 0; }
+              add(n) { this.count = this.count + n; return this; }
+            }
+            fun square(x) { return x * x; }
+            var total = 0;
+            var counter = Counter();
+            var seen = {};
+            for (var i = 0; i < 2000; i = i + 1) {
+              total = total + square(mod(i, 10));
+              counter.add(1);
+              seen[mod(i, 7)] = true;
+            }
+            print total;
+            print counter.count;
+            print len(seen);
+            """;
+
+    @ParameterizedTest
+    @EnumSource(BotiEngine.Kind.class)
+    void oneProgramRunsOnManyThreadsAtOnce(BotiEngine.Kind kind) throws Exception {
+        BotiEngine engine = new BotiEngine(kind);
+        List<Stmt> program = BotiEngine.compile(SCRIPT, new PrintStream(OutputStream.nullOutputStream()));
+        ExecutorService threads = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> runs = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                runs.add(threads.submit(() -> {
+                    ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    PrintStream stream = new PrintStream(out, true, StandardCharsets.UTF_8);
+                    Execution execution = engine.newExecution(stream, stream);
+                    execution.execute(program);
+                    return out.toString(StandardCharsets.UTF_8);
+                }));
+            }
+            for (Future<String> run : runs) {
+                assertEquals("57000\n2000\n7\n", run.get());
+            }
+        } finally {
+            threads.shutdown();
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(BotiEngine.Kind.class)
+    void executionsDoNotShareGlobalsOrErrors(BotiEngine.Kind kind) {
+        BotiEngine engine = new BotiEngine(kind);
+        ByteArrayOutputStream failed = new ByteArrayOutputStream();
+        PrintStream failedStream = new PrintStream(failed, true, StandardCharsets.UTF_8);
+        Execution first = engine.newExecution(failedStream, failedStream);
+        first.run("var x = 1;\nnil + x;\n");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PrintStream stream = new PrintStream(out, true, StandardCharsets.UTF_8);
+        Execution second = engine.newExecution(stream, stream);
+        second.run("var x = 2;\nprint x;\n");
+        assertTrue(first.errors().hadRuntimeError());
+        assertFalse(second.errors().hadRuntimeError());
+        assertEquals("2\n", out.toString(StandardCharsets.UTF_8));
+    }
+}
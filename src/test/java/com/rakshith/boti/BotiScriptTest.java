@@ -0,0 +1,100 @@
+package com.rakshith.boti;
+
+import com.rakshith.boti.interpreter.BotiArray;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineManager;
+import javax.script.ScriptException;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BotiScriptTest {
+
+    @ParameterizedTest
+    @EnumSource(BotiEngine.Kind.class)
+    void evaluatesWithBindings(BotiEngine.Kind kind) {
+        BotiScript total = BotiScript.compile(new BotiEngine(kind), "price * (1 + tax);");
+        assertEquals(120.0, total.eval(Map.of("price", 100, "tax", 0.2)));
+        assertEquals(100.0, total.inputs().set("price", 80).set("tax", 0.25).eval());
+        assertEquals(55.0, (double) total.eval(Map.of("price", 50, "tax", 0.1, "unused", "x")), 1e-9);
+    }
+
+    @ParameterizedTest
+    @EnumSource(BotiEngine.Kind.class)
+    void inputsCanBeChangedBetweenEvaluations(BotiEngine.Kind kind) {
+        BotiScript script = BotiScript.compile(new BotiEngine(kind), """
+                var sum = 0;
+                for (var i = 0; i < n; i = i + 1) sum = sum + i;
+                sum;
+                """);
+        BotiScript.Inputs inputs = script.inputs();
+        assertEquals(45.0, inputs.set("n", 10).eval());
+        assertEquals(4950.0, inputs.set("n", 100).eval());
+    }
+
+    @ParameterizedTest
+    @EnumSource(BotiEngine.Kind.class)
+    void resultsAreJavaValues(BotiEngine.Kind kind) {
+        BotiEngine engine = new BotiEngine(kind);
+        assertEquals("ab", BotiScript.compile(engine, "var a = \"a\"; a + \"b\";").eval());
+        assertEquals(true, BotiScript.compile(engine, "1 < 2;").eval());
+        assertNull(BotiScript.compile(engine, "var x = 1;").eval());
+        BotiArray array = BotiArray.of(new Object[] { 1.0, 2.0 });
+        assertEquals(2.0, BotiScript.compile(engine, "len(xs);").eval(Map.of("xs", array)));
+    }
+
+    @ParameterizedTest
+    @EnumSource(BotiEngine.Kind.class)
+    void printGoesToTheGivenStream(BotiEngine.Kind kind) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BotiScript.compile(new BotiEngine(kind), "print greeting + \"!\";")
+                .eval(Map.of("greeting", "hi"), new PrintStream(out, true, StandardCharsets.UTF_8));
+        assertEquals("hi!\n", out.toString(StandardCharsets.UTF_8));
+    }
+
+    @ParameterizedTest
+    @EnumSource(BotiEngine.Kind.class)
+    void errorsAreThrown(BotiEngine.Kind kind) {
+        BotiEngine engine = new BotiEngine(kind);
+        ScriptError compile = assertThrows(ScriptError.class, () -> BotiScript.compile(engine, "var = 1;"));
+        assertEquals(1, compile.line());
+        BotiScript script = BotiScript.compile(engine, "var y = 1;\nx - y;");
+        ScriptError runtime = assertThrows(ScriptError.class, () -> script.eval(Map.of("x", "s")));
+        assertEquals("Operands must be numbers.", runtime.getMessage());
+        assertEquals(2, runtime.line());
+        assertThrows(IllegalArgumentException.class, () -> script.eval(Map.of("x", new Object())));
+    }
+
+    @Test
+    void runsAsAJavaxScriptEngine() throws ScriptException {
+        ScriptEngine engine = new ScriptEngineManager().getEngineByName("boti");
+        StringWriter out = new StringWriter();
+        engine.getContext().setWriter(out);
+        Bindings bindings = engine.createBindings();
+        bindings.put("n", 3);
+        assertEquals(9.0, engine.eval("print \"squaring\"; n * n;", bindings));
+        CompiledScript square = ((Compilable) engine).compile("n * n;");
+        engine.put("n", 4);
+        assertEquals(16.0, square.eval());
+        assertEquals("squaring\n", out.toString());
+
+        ScriptException error = assertThrows(ScriptException.class, () -> engine.eval("nil + 1;"));
+        assertEquals(1, error.getLineNumber());
+        assertThrows(ScriptException.class, () -> engine.eval("fun ("));
+    }
+}
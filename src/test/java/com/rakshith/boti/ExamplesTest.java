@@ -0,0 +1,28 @@
+package com.rakshith.boti;
+
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.TestFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/** Every engine prints the same for each script in {@code examples/}, and none fails. */
+class ExamplesTest {
+
+    @TestFactory
+    Stream<DynamicTest> enginesAgreeOnTheExamples() throws IOException {
+        try (Stream<Path> files = Files.list(Path.of("examples"))) {
+            return files.filter(file -> file.toString().endsWith(".boti")).sorted().toList().stream()
+                    .map(file -> DynamicTest.dynamicTest(file.getFileName().toString(), () -> {
+                        ScriptRunner.Result result = ScriptRunner.runOnAll(Files.readString(file));
+                        assertEquals(0, result.status(), result.err());
+                        assertFalse(result.out().isEmpty());
+                    }));
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.rakshith.boti;
+
+import com.rakshith.boti.interpreter.CallDepth;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Runs scripts for tests as {@code boti} runs a file: on a thread with {@link CallDepth#STACK_BYTES}
+ * of stack, with output and errors captured and the exit status {@code boti} would give.
+ */
+public final class ScriptRunner {
+
+    /** What a run printed to stdout and stderr, and its exit status: 0, 64, 65 or 70. */
+    public record Result(String out, String err, int status) { }
+
+    private ScriptRunner() { }
+
+    public static Result run(BotiEngine.Kind kind, String source) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        int[] status = new int[1];
+        RuntimeException[] failure = new RuntimeException[1];
+        Thread thread = new Thread(null, () -> {
+            try {
+                PrintStream outStream = new PrintStream(out, true, StandardCharsets.UTF_8);
+                Execution execution = new BotiEngine(kind).newExecution(outStream,
+                        new PrintStream(err, true, StandardCharsets.UTF_8));
+                execution.run(source);
+                outStream.flush();
+                status[0] = execution.errors().hadError() ? 65 : execution.errors().hadRuntimeError() ? 70 : 0;
+            } catch (RuntimeException e) {
+                failure[0] = e;
+            }
+        }, "boti-test", CallDepth.STACK_BYTES);
+        thread.start();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+        if (failure[0] != null) throw failure[0];
+        return new Result(out.toString(StandardCharsets.UTF_8), err.toString(StandardCharsets.UTF_8), status[0]);
+    }
+
+    /** Runs {@code source} on every engine, checks that they all agree, and returns the tree-walker's result. */
+    public static Result runOnAll(String source) {
+        Result reference = run(BotiEngine.Kind.TREE, source);
+        for (BotiEngine.Kind kind : BotiEngine.Kind.values()) {
+            assertEquals(reference, run(kind, source), "--engine=" + kind.name().toLowerCase());
+        }
+        return reference;
+    }
+
+    /** Checks that every engine prints {@code expected} for {@code source} and exits normally. */
+    public static void assertPrints(String expected, String source) {
+        assertEquals(new Result(expected, "", 0), runOnAll(source));
+    }
+
+    /** Runs the command line {@code boti args...} in {@code directory}, with any exit status. */
+    public static Result boti(Path directory, String... args) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        FutureTask<Integer> task = new FutureTask<>(() -> Boti.run(args, directory,
+                new PrintStream(out, true, StandardCharsets.UTF_8), new PrintStream(err, true, StandardCharsets.UTF_8),
+                false));
+        new Thread(null, task, "boti-test", CallDepth.STACK_BYTES).start();
+        int status;
+        try {
+            status = task.get();
+        } catch (InterruptedException | ExecutionException e) {
+            throw new IllegalStateException(e);
+        }
+        return new Result(out.toString(StandardCharsets.UTF_8), err.toString(StandardCharsets.UTF_8), status);
+    }
+}
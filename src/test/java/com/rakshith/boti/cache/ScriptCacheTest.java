@@ -0,0 +1,168 @@
+package com.rakshith.boti.cache;
+
+import com.rakshith.boti.BotiEngine;
+import com.rakshith.boti.ast.Expr;
+import com.rakshith.boti.ast.Scope;
+import com.rakshith.boti.ast.Stmt;
+import com.rakshith.boti.interpreter.CallDepth;
+import com.rakshith.boti.lexer.Token;
+import com.rakshith.boti.lexer.TokenType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.FutureTask;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ScriptCacheTest {
+
+    private static final String SOURCE = """
+            class Greeter {
+              init(name) { this.name = name; }
+              greet() { return "hello " + this.name; }
+            }
+            class Shouter < Greeter {
+              greet() { return super.greet() + "!"; }
+            }
+            fun fib(n) { if (n < 2) return n; return fib(n - 1) + fib(n - 2); }
+            var xs = [1.5, -0.0, 3];
+            {
+              var count = 0;
+              fun next() { count = count + 1; return count; }
+              next();
+              print next();
+            }
+            print Greeter("cache").greet();
+            print Shouter("cache").greet();
+            print fib(15);
+            print xs;
+            """;
+    private static final int HEADER = 8 + 32 + 4;
+
+    @TempDir
+    Path directory;
+
+    private ScriptCache cache;
+    private byte[] source;
+
+    @BeforeEach
+    void open() {
+        System.setProperty("boti.cache", directory.toString());
+        try {
+            cache = ScriptCache.open();
+        } finally {
+            System.clearProperty("boti.cache");
+        }
+        source = SOURCE.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String run(List<Stmt> statements) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PrintStream stream = new PrintStream(out, true, StandardCharsets.UTF_8);
+        new BotiEngine(BotiEngine.Kind.TREE).newExecution(stream, stream).execute(statements);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    /** Stores {@link #SOURCE} and returns the path of its entry. */
+    private Path store() throws IOException {
+        cache.store(source, BotiEngine.compile(SOURCE, new PrintStream(OutputStream.nullOutputStream())));
+        try (Stream<Path> entries = Files.list(directory)) {
+            return entries.filter(p -> p.toString().endsWith(".botic")).findFirst().orElseThrow();
+        }
+    }
+
+    @Test
+    void aStoredScriptLoadsAndRuns() throws IOException {
+        assertNull(cache.load(source));
+        store();
+        List<Stmt> statements = cache.load(source);
+        assertNotNull(statements);
+        assertEquals("2\nhello cache\nhello cache!\n610\n[1.5, -0, 3]\n", run(statements));
+    }
+
+    @Test
+    void corruptEntriesAreMisses() throws IOException {
+        Path entry = store();
+        byte[] stored = Files.readAllBytes(entry);
+        // Every truncation, and random bytes overwritten in the AST.
+        for (int length = HEADER; length < stored.length; length++) {
+            Files.write(entry, Arrays.copyOf(stored, length));
+            assertNull(cache.load(source), "truncated to " + length);
+        }
+        Random random = new Random(42);
+        for (int i = 0; i < 500; i++) {
+            byte[] corrupt = stored.clone();
+            for (int j = 0; j < 3; j++) {
+                corrupt[HEADER + random.nextInt(stored.length - HEADER)] = (byte) random.nextInt(256);
+            }
+            Files.write(entry, corrupt);
+            assertNull(cache.load(source), "corrupt entry " + i);
+        }
+        // A negative or huge string count.
+        for (byte[] count : List.of(new byte[] { 1 }, new byte[] { (byte) 0xFE, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 7 })) {
+            assertThrows(IllegalArgumentException.class, () -> AstCodec.decode(ByteBuffer.wrap(count)));
+        }
+    }
+
+    @Test
+    void referencesOutsideTheirFramesAreRejected() {
+        Token x = new Token(TokenType.IDENTIFIER, "x", "x", 1);
+        Expr.Variable local = new Expr.Variable(x, 0, 3);
+        List<List<Stmt>> programs = List.of(
+                // A local at the top level, where there is no frame.
+                List.of(new Stmt.Expression(new Expr.Variable(x, 0, 0))),
+                // Slot 3 of a one-slot function frame, and a frame that does not hold its parameters.
+                List.of(new Stmt.Function(x, List.of(x), List.of(new Stmt.Expression(local)), Scope.GLOBAL, 0, 1)),
+                List.of(new Stmt.Function(x, List.of(x, x), List.of(), Scope.GLOBAL, 0, 1)),
+                // A global past the natives and the names in the table.
+                List.of(new Stmt.Expression(new Expr.Variable(x, Scope.GLOBAL, 1000))));
+        for (List<Stmt> program : programs) {
+            byte[] ast = AstCodec.encode(program);
+            assertThrows(IllegalArgumentException.class, () -> AstCodec.decode(ByteBuffer.wrap(ast)));
+        }
+        Stmt valid = new Stmt.Function(x, List.of(x), List.of(new Stmt.Expression(new Expr.Variable(x, 0, 0))),
+                Scope.GLOBAL, 0, 1);
+        assertEquals(List.of(valid), AstCodec.decode(ByteBuffer.wrap(AstCodec.encode(List.of(valid)))));
+    }
+
+    /** Compiles {@code source} on a thread with the interpreter's stack, which deep nesting needs. */
+    private static List<Stmt> compile(String source) throws Exception {
+        FutureTask<List<Stmt>> task = new FutureTask<>(
+                () -> BotiEngine.compile(source, new PrintStream(OutputStream.nullOutputStream())));
+        new Thread(null, task, "boti-compile", CallDepth.STACK_BYTES).start();
+        return task.get();
+    }
+
+    @Test
+    void deeplyNestedDataIsRejected() throws Exception {
+        // No strings, one expression statement, then a grouping nested a million deep.
+        byte[] ast = new byte[3 + 1_000_000];
+        ast[1] = 2;
+        Arrays.fill(ast, 3, ast.length, (byte) 19);
+        assertThrows(IllegalArgumentException.class, () -> AstCodec.decode(ByteBuffer.wrap(ast)));
+
+        String nested = "print " + "(".repeat(3000) + "1" + ")".repeat(3000) + ";";
+        List<Stmt> statements = compile(nested);
+        assertThrows(IllegalArgumentException.class, () -> AstCodec.encode(statements));
+        byte[] deep = nested.getBytes(StandardCharsets.UTF_8);
+        cache.store(deep, statements);
+        assertNull(cache.load(deep));
+    }
+}
@@ -0,0 +1,89 @@
+package com.rakshith.boti.events;
+
+import com.rakshith.boti.ScriptRunner;
+import com.rakshith.boti.interpreter.RuntimeStats;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import javax.management.ObjectName;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EventsTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void statsCountStatementsCallsAndAllocations() throws Exception {
+        Files.writeString(directory.resolve("fib.boti"), """
+                fun fib(n) { if (n < 2) return n; return fib(n - 1) + fib(n - 2); }
+                print fib(15);
+                """);
+        // Twice, as under --server: each run publishes its counters over JMX and takes them down.
+        for (int run = 0; run < 2; run++) {
+            ScriptRunner.Result result = ScriptRunner.boti(directory, "--stats", "fib.boti");
+            assertEquals("610\n", result.out());
+            assertEquals("""
+
+                    Statistics
+                      statements executed                3948
+                      calls                              1973
+                      environments allocated             1973
+                      boxed doubles                      2958
+                    """, result.err());
+            assertFalse(ManagementFactory.getPlatformMBeanServer()
+                    .isRegistered(new ObjectName(RuntimeStats.OBJECT_NAME)));
+        }
+        assertEquals(64, ScriptRunner.boti(directory, "--stats", "--engine=nodes", "fib.boti").status());
+    }
+
+    @Test
+    void recordsScriptsCallsAndErrors() throws IOException {
+        Files.writeString(directory.resolve("fail.boti"), """
+                fun f(n) { return n * 2; }
+                f(1);
+                nil + 1;
+                """);
+        Path dump = directory.resolve("boti.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("boti.Script");
+            recording.enable("boti.Call").withThreshold(Duration.ZERO);
+            recording.enable("boti.RuntimeError");
+            recording.start();
+            assertEquals(70, ScriptRunner.boti(directory, "fail.boti").status());
+            recording.stop();
+            recording.dump(dump);
+        }
+        List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+        RecordedEvent script = only(events, "boti.Script");
+        assertEquals("fail.boti", script.getString("script"));
+        assertEquals("tree", script.getString("engine"));
+        RecordedEvent call = only(events, "boti.Call");
+        assertEquals("f", call.getString("function"));
+        assertEquals(1, call.getInt("line"));
+        RecordedEvent error = only(events, "boti.RuntimeError");
+        assertEquals(3, error.getInt("line"));
+        assertTrue(error.getString("message").startsWith("Operands must be"), error.getString("message"));
+    }
+
+    private static RecordedEvent only(List<RecordedEvent> events, String name) {
+        List<RecordedEvent> matching = events.stream().filter(e -> e.getEventType().getName().equals(name)).toList();
+        assertEquals(1, matching.size(), name);
+        return matching.get(0);
+    }
+}
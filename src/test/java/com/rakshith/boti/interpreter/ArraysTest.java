@@ -0,0 +1,86 @@
+package com.rakshith.boti.interpreter;
+
+import com.rakshith.boti.ScriptRunner;
+
+import org.junit.jupiter.api.Test;
+
+import static com.rakshith.boti.ScriptRunner.assertPrints;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ArraysTest {
+
+    @Test
+    void numericArraysSupportTheBulkNatives() {
+        assertPrints("[1, 2, 3]\n[1, 2, 3]\n[2, 3]\n[1, 1.4142135623730951, 1.7320508075688772]\n6.5\n0\n", """
+                var xs = [3, 1, 2];
+                print sort(xs);
+                print xs;
+                print slice([1, 2, 3, 4], 1, 3);
+                print map([1, 2, 3], sqrt);
+                print sum([1, 2, 3.5]);
+                print sum([]);
+                """);
+    }
+
+    @Test
+    void storingAnotherValueKeepsTheElements() {
+        assertPrints("[0, x, 0]\n[[1], a, nil, true]\n[a, b, c]\n", """
+                var ys = fill(3, 0);
+                ys[1] = "x";
+                print ys;
+                var mixed = [1, "a", nil, true];
+                mixed[0] = [1];
+                print mixed;
+                print sort(["b", "a", "c"]);
+                """);
+    }
+
+    @Test
+    void numericLoopsOverArrays() {
+        assertPrints("4950\n328350\n", """
+                var xs = range(0, 100);
+                var total = 0;
+                for (var i = 0; i < len(xs); i = i + 1) total = total + xs[i];
+                print total;
+                for (var i = 0; i < len(xs); i = i + 1) xs[i] = xs[i] * xs[i];
+                print sum(xs);
+                """);
+    }
+
+    @Test
+    void arraysCompareByIdentity() {
+        assertPrints("false\ntrue\n", """
+                var a = [1];
+                var b = a;
+                print a == [1];
+                print a == b;
+                """);
+    }
+
+    @Test
+    void cyclesPrintAPlaceholder() {
+        assertPrints("[[...]]\n[[[...]]]\n[[1], [1]]\n", """
+                var a = [1];
+                a[0] = a;
+                print a;
+                var b = [1];
+                var c = [b];
+                b[0] = c;
+                print b;
+                var shared = [1];
+                print [shared, shared];
+                """);
+    }
+
+    @Test
+    void indicesAreChecked() {
+        ScriptRunner.Result result = ScriptRunner.runOnAll("""
+                var xs = [1, 2, 3];
+                print xs[2];
+                xs[3] = 1;
+                """);
+        assertEquals("3\n", result.out());
+        assertEquals("Array index out of range.\n[line 3]\n", result.err());
+        assertEquals(70, result.status());
+    }
+}
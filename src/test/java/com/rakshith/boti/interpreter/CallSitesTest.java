@@ -0,0 +1,67 @@
+package com.rakshith.boti.interpreter;
+
+import com.rakshith.boti.ScriptRunner;
+
+import org.junit.jupiter.api.Test;
+
+import static com.rakshith.boti.ScriptRunner.assertPrints;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CallSitesTest {
+
+    @Test
+    void aSiteFollowsItsCalleeAsItChanges() {
+        assertPrints("300\n499\n2\n", """
+                fun one(x) { return 1; }
+                fun two(x) { return 2; }
+                fun three(x) { return 3; }
+                fun apply(f, x) { return f(x); }
+                var total = 0;
+                for (var i = 0; i < 100; i = i + 1) total = total + apply(three, i);
+                print total;
+                var fs = [one, two, three, abs];
+                for (var i = 0; i < 100; i = i + 1) total = total + apply(fs[mod(i, 3)], i);
+                print total;
+                print apply(abs, -2);
+                """);
+    }
+
+    @Test
+    void closuresFromOneDeclarationKeepTheirOwnVariables() {
+        assertPrints("11\n22\n33\n", """
+                fun adder(n) {
+                  fun add(x) { return x + n; }
+                  return add;
+                }
+                var adders = [adder(10), adder(20), adder(30)];
+                for (var i = 0; i < 3; i = i + 1) print adders[i](i + 1);
+                """);
+    }
+
+    @Test
+    void argumentsAreNotSharedBetweenCalls() {
+        assertPrints("1 2\n3 4\n", """
+                fun pair(a, b) {
+                  fun show() { return "" + a + " " + b; }
+                  return show;
+                }
+                var first = pair(1, 2);
+                var second = pair(3, 4);
+                print first();
+                print second();
+                """);
+    }
+
+    @Test
+    void aCachedSiteStillChecksTheArity() {
+        ScriptRunner.Result result = ScriptRunner.runOnAll("""
+                fun one(x) { return x; }
+                fun two(x, y) { return x + y; }
+                fun call(f) { return f(1); }
+                for (var i = 0; i < 100; i = i + 1) call(one);
+                call(two);
+                """);
+        assertEquals("Expected 2 arguments but got 1.\n[line 3]\n", result.err());
+        assertEquals(70, result.status());
+    }
+}
@@ -0,0 +1,90 @@
+package com.rakshith.boti.interpreter;
+
+import com.rakshith.boti.ScriptRunner;
+
+import org.junit.jupiter.api.Test;
+
+import static com.rakshith.boti.ScriptRunner.assertPrints;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ClassesTest {
+
+    @Test
+    void methodsInheritanceAndSuper() {
+        assertPrints("alice 100\nalice 201\ntrue\n", """
+                class Account {
+                  init(owner, balance) {
+                    this.owner = owner;
+                    this.balance = balance;
+                  }
+                  deposit(amount) {
+                    this.balance = this.balance + amount;
+                    return this;
+                  }
+                  describe() { return this.owner + " " + this.balance; }
+                }
+                class Savings < Account {
+                  deposit(amount) { return super.deposit(amount * 1.01); }
+                }
+                var a = Savings("alice", 100);
+                print a.describe();
+                print a.deposit(100).describe();
+                print a.init("bob", 0) == a;
+                """);
+    }
+
+    @Test
+    void fieldsAddedInAnotherOrderAreStillFound() {
+        assertPrints("1\n2\n1\n2\n", """
+                class P { init() { this.a = 1; this.b = 2; } }
+                class Q { init() { this.b = 2; this.a = 1; } }
+                fun both(o) { return o.a + o.b; }
+                for (var i = 0; i < 100; i = i + 1) { both(P()); both(Q()); }
+                var p = P();
+                var q = Q();
+                print p.a;
+                print p.b;
+                print q.a;
+                print q.b;
+                """);
+    }
+
+    @Test
+    void aCallSiteSeesManyClasses() {
+        assertPrints("10\n", """
+                class A { size() { return 1; } }
+                class B { size() { return 2; } }
+                class C { size() { return 3; } }
+                class D { size() { return 4; } }
+                var shapes = [A(), B(), C(), D()];
+                var total = 0;
+                for (var i = 0; i < 4; i = i + 1) total = total + shapes[i].size();
+                print total;
+                """);
+    }
+
+    @Test
+    void aFieldHidesAMethod() {
+        assertPrints("method\nfield\n", """
+                class T { name() { return "method"; } }
+                var t = T();
+                print t.name();
+                fun field() { return "field"; }
+                t.name = field;
+                print t.name();
+                """);
+    }
+
+    @Test
+    void missingPropertiesAreErrors() {
+        ScriptRunner.Result result = ScriptRunner.runOnAll("""
+                class P { init() { this.a = 1; } }
+                var p = P();
+                print p.a;
+                print p.b;
+                """);
+        assertEquals("1\n", result.out());
+        assertEquals("Undefined property 'b'.\n[line 4]\n", result.err());
+        assertEquals(70, result.status());
+    }
+}
@@ -0,0 +1,57 @@
+package com.rakshith.boti.interpreter;
+
+import org.junit.jupiter.api.Test;
+
+import static com.rakshith.boti.ScriptRunner.assertPrints;
+
+class ControlFlowTest {
+
+    @Test
+    void breakAndContinueAffectTheInnermostLoop() {
+        assertPrints("1\n3\n0 0\n1 0\n2 0\n", """
+                for (var i = 0; i < 10; i = i + 1) {
+                  if (i == 5) break;
+                  if (mod(i, 2) == 0) continue;
+                  print i;
+                }
+                for (var i = 0; i < 3; i = i + 1) {
+                  var j = 0;
+                  while (true) {
+                    if (j > 0) break;
+                    print "" + i + " " + j;
+                    j = j + 1;
+                  }
+                }
+                """);
+    }
+
+    @Test
+    void continueInAForLoopRunsTheIncrement() {
+        assertPrints("25\n", """
+                var sum = 0;
+                for (var i = 0; i < 10; i = i + 1) {
+                  if (mod(i, 2) == 0) continue;
+                  sum = sum + i;
+                }
+                print sum;
+                """);
+    }
+
+    @Test
+    void returnLeavesNestedLoopsAndBlocks() {
+        assertPrints("2 6\nnone\n", """
+                fun find(target) {
+                  for (var i = 0; i < 10; i = i + 1) {
+                    var j = 0;
+                    while (j < 10) {
+                      { if (i * j == target) return "" + i + " " + j; }
+                      j = j + 1;
+                    }
+                  }
+                  return "none";
+                }
+                print find(12);
+                print find(97);
+                """);
+    }
+}
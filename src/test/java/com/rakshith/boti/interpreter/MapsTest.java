@@ -0,0 +1,74 @@
+package com.rakshith.boti.interpreter;
+
+import org.junit.jupiter.api.Test;
+
+import static com.rakshith.boti.ScriptRunner.assertPrints;
+
+class MapsTest {
+
+    @Test
+    void numbersAndStringsAreDifferentKeys() {
+        assertPrints("{km: 1000, 1: one, 1: string one}\n1000\none\nstring one\nnil\n", """
+                var m = {"km": 1000, 1: "one", "1": "string one"};
+                print m;
+                print m["km"];
+                print m[1];
+                print m["1"];
+                print m["none"];
+                """);
+    }
+
+    @Test
+    void removeMovesTheLastKeyIntoItsPlace() {
+        assertPrints("[km, 1, 1, mi]\n1000\n[mi, 1, 1]\nfalse\ntrue\n3\nnil\n", """
+                var m = {"km": 1000, 1: "one", "1": "string one"};
+                m["mi"] = 1609;
+                print keys(m);
+                print remove(m, "km");
+                print keys(m);
+                print has(m, "km");
+                print has(m, "mi");
+                print len(m);
+                print remove(m, "km");
+                """);
+    }
+
+    @Test
+    void growingAndShrinkingKeepsEveryEntry() {
+        assertPrints("2000\n1000\n1000000\nnil\n7\n", """
+                var squares = {};
+                for (var i = 0; i < 2000; i = i + 1) squares[i] = i * i;
+                print len(squares);
+                for (var i = 0; i < 2000; i = i + 2) remove(squares, i);
+                print len(squares);
+                print squares[1000 - 1] + 1999;
+                print squares[10];
+                squares[10] = 7;
+                print squares[10];
+                """);
+    }
+
+    @Test
+    void cyclesThroughArraysAndMapsPrintAPlaceholder() {
+        assertPrints("{self: {...}}\n{a: [{...}]}\n[{a: [...]}]\n", """
+                var m = {};
+                m["self"] = m;
+                print m;
+                var a = [1];
+                var n = {"a": a};
+                a[0] = n;
+                print n;
+                print a;
+                """);
+    }
+
+    @Test
+    void replacingAValueKeepsTheKeyOrder() {
+        assertPrints("[a, b]\n3\n", """
+                var m = {"a": 1, "b": 2};
+                m["a"] = 3;
+                print keys(m);
+                print m["a"];
+                """);
+    }
+}
@@ -0,0 +1,62 @@
+package com.rakshith.boti.interpreter;
+
+import com.rakshith.boti.ScriptRunner;
+
+import org.junit.jupiter.api.Test;
+
+import static com.rakshith.boti.ScriptRunner.assertPrints;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class NativesTest {
+
+    @Test
+    void modTakesTheSignOfTheDivisor() {
+        assertPrints("1\n2\n-2\n-1\n-0\n", """
+                print mod(7, 3);
+                print mod(-1, 3);
+                print mod(1, -3);
+                print mod(-7, -3);
+                print mod(-6, 3);
+                """);
+    }
+
+    @Test
+    void modOfFractionsAndLargeNumbers() {
+        assertPrints("1.5\n0.5\n1\n", """
+                print mod(5.5, 2);
+                print mod(-1.5, 2);
+                print mod(9007199254740994, 3);
+                """);
+    }
+
+    @Test
+    void mathFunctions() {
+        assertPrints("4\n1024\n5\n3\n-2\n0\n-2\n-1\n3\n1\n3\n3.141592653589793\n1\n0\nNaN\n", """
+                print sqrt(16);
+                print pow(2, 10);
+                print hypot(3, 4);
+                print round(2.5);
+                print round(-2.5);
+                print round(0.49999999999999994);
+                print floor(-1.5);
+                print ceil(-1.5);
+                print abs(-3);
+                print min(3, 1);
+                print max(3, 1);
+                print atan2(1, 1) * 4;
+                print exp(0);
+                print log(1);
+                print sqrt(-1);
+                """);
+    }
+
+    @Test
+    void nativesCheckTheirArguments() {
+        ScriptRunner.Result count = ScriptRunner.runOnAll("print sqrt(1, 2);\n");
+        assertEquals("Expected 1 arguments but got 2.\n[line 1]\n", count.err());
+        assertEquals(70, count.status());
+        ScriptRunner.Result type = ScriptRunner.runOnAll("var x = \"a\";\nprint sqrt(x);\n");
+        assertEquals(70, type.status());
+        assertEquals("Argument to 'sqrt' must be a number.\n[line 2]\n", type.err());
+    }
+}
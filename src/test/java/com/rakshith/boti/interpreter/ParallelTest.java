@@ -0,0 +1,86 @@
+package com.rakshith.boti.interpreter;
+
+import com.rakshith.boti.ScriptRunner;
+
+import org.junit.jupiter.api.Test;
+
+import static com.rakshith.boti.ScriptRunner.assertPrints;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ParallelTest {
+
+    @Test
+    void pmapKeepsTheOrder() {
+        assertPrints("3000\n0\n9801\n8994001\n", """
+                fun square(x) { return x * x; }
+                var squares = pmap(range(0, 3000), square);
+                print len(squares);
+                print squares[0];
+                print squares[99];
+                print squares[2999];
+                """);
+    }
+
+    @Test
+    void pfilterKeepsMatchingElementsInOrder() {
+        assertPrints("1229\n2\n9973\n[b, d]\n", """
+                fun isPrime(n) {
+                  if (n < 2) return false;
+                  for (var d = 2; d * d <= n; d = d + 1) if (mod(n, d) == 0) return false;
+                  return true;
+                }
+                var primes = pfilter(range(0, 10000), isPrime);
+                print len(primes);
+                print primes[0];
+                print primes[len(primes) - 1];
+                fun notA(s) { return s != "a"; }
+                print pfilter(["a", "b", "a", "d"], notA);
+                """);
+    }
+
+    @Test
+    void preduceFoldsTheChunksInOrder() {
+        assertPrints("4498500\n2999\n0123456789\n7\n", """
+                fun add(a, b) { return a + b; }
+                print preduce(range(0, 3000), add, 0);
+                print preduce(range(0, 3000), max, 0);
+                var digits = fill(10, "");
+                for (var i = 0; i < 10; i = i + 1) digits[i] = "" + i;
+                print preduce(digits, add, "");
+                print preduce([], add, 7);
+                """);
+    }
+
+    @Test
+    void emptyArraysCallNothing() {
+        assertPrints("[]\n[]\n", """
+                fun fail(x) { return nil + 1; }
+                print pmap([], fail);
+                print pfilter([], fail);
+                """);
+    }
+
+    @Test
+    void theErrorAtTheLowestIndexWins() {
+        ScriptRunner.Result result = ScriptRunner.runOnAll("""
+                fun check(x) {
+                  if (x == 7000) return nil + 1;
+                  if (x == 5000) return nil - 1;
+                  return x;
+                }
+                pmap(range(0, 10000), check);
+                """);
+        assertEquals(70, result.status());
+        assertEquals("Operands must be numbers.\n[line 3]\n", result.err());
+    }
+
+    @Test
+    void argumentsAreChecked() {
+        ScriptRunner.Result result = ScriptRunner.runOnAll("""
+                fun id(x) { return x; }
+                pmap(1, id);
+                """);
+        assertEquals(70, result.status());
+        assertEquals("First argument to 'pmap' must be an array.\n[line 2]\n", result.err());
+    }
+}
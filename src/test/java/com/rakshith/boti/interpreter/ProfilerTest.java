@@ -0,0 +1,52 @@
+package com.rakshith.boti.interpreter;
+
+import com.rakshith.boti.ScriptRunner;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProfilerTest {
+
+    private static final String FIB = """
+            fun fib(n) { if (n < 2) return n; return fib(n - 1) + fib(n - 2); }
+            print fib(15);
+            """;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void reportsCallsPerFunctionAndHitsPerLine() throws IOException {
+        Files.writeString(directory.resolve("fib.boti"), FIB);
+        ScriptRunner.Result result = ScriptRunner.boti(directory, "--profile", "fib.boti");
+        assertEquals("610\n", result.out());
+        assertEquals(0, result.status());
+        assertTrue(result.err().matches("(?s).*\\n\\s+1973\\s+[0-9.]+\\s+[0-9.]+\\s+[0-9.]+%\\s+fib:1\\n.*"), result.err());
+        assertTrue(result.err().contains("      3947      1  fun fib(n)"), result.err());
+        assertTrue(result.err().contains("         1      2  print fib(15);"), result.err());
+    }
+
+    @Test
+    void writesFoldedStacks() throws IOException {
+        Files.writeString(directory.resolve("fib.boti"), FIB);
+        assertEquals(0, ScriptRunner.boti(directory, "--profile=fib.folded", "fib.boti").status());
+        List<String> stacks = Files.readAllLines(directory.resolve("fib.folded"));
+        assertTrue(stacks.stream().allMatch(line -> line.matches("<script>(;fib:1)* \\d+")), stacks.toString());
+        assertTrue(stacks.stream().anyMatch(line -> line.matches("<script>(;fib:1){5,} \\d+")), stacks.toString());
+    }
+
+    @Test
+    void profilesOnlyTheTreeWalker() throws IOException {
+        Files.writeString(directory.resolve("fib.boti"), FIB);
+        assertEquals(64, ScriptRunner.boti(directory, "--profile", "--engine=vm", "fib.boti").status());
+        assertEquals(64, ScriptRunner.boti(directory, "--profile").status());
+    }
+}
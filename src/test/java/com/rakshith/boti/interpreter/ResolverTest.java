@@ -0,0 +1,73 @@
+package com.rakshith.boti.interpreter;
+
+import com.rakshith.boti.ScriptRunner;
+
+import org.junit.jupiter.api.Test;
+
+import static com.rakshith.boti.ScriptRunner.assertPrints;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ResolverTest {
+
+    @Test
+    void shadowingFollowsTheBlocks() {
+        assertPrints("inner\nouter\nglobal\n", """
+                var a = "global";
+                {
+                  var a = "outer";
+                  { var a = "inner"; print a; }
+                  print a;
+                }
+                print a;
+                """);
+    }
+
+    @Test
+    void initializerSeesTheOuterVariable() {
+        assertPrints("2\n", """
+                var a = 1;
+                { var a = a + 1; print a; }
+                """);
+    }
+
+    @Test
+    void localFunctionsAreMutuallyRecursive() {
+        assertPrints("true\n", """
+                {
+                  fun isEven(n) { if (n == 0) return true; return isOdd(n - 1); }
+                  fun isOdd(n) { if (n == 0) return false; return isEven(n - 1); }
+                  print isEven(10);
+                }
+                """);
+    }
+
+    @Test
+    void functionBodiesSeeFunctionsAndClassesDeclaredAfterThem() {
+        assertPrints("d3\nb\n", """
+                fun outer(k) {
+                  fun a(n) { if (n == 0) return "a"; return b(n - 1); }
+                  fun b(n) { if (n == 0) return "b"; return a(n - 1); }
+                  class C { m() { return D().n(); } }
+                  class D { n() { return "d" + k; } }
+                  print C().m();
+                  return a(k);
+                }
+                print outer(3);
+                """);
+    }
+
+    @Test
+    void statementsBeforeALocalDeclarationSeeTheOuterName() {
+        assertPrints("global f\nlocal f\n", """
+                fun f() { return "global f"; }
+                { print f(); fun f() { return "local f"; } print f(); }
+                """);
+    }
+
+    @Test
+    void undefinedVariableIsARuntimeError() {
+        ScriptRunner.Result result = ScriptRunner.runOnAll("print missing;");
+        assertEquals(70, result.status());
+        assertEquals("Undefined variable 'missing'.\n[line 1]\n", result.err());
+    }
+}
@@ -0,0 +1,53 @@
+package com.rakshith.boti.interpreter;
+
+import org.junit.jupiter.api.Test;
+
+import static com.rakshith.boti.ScriptRunner.assertPrints;
+
+class RopeTest {
+
+    @Test
+    void repeatedConcatenationBuildsTheWholeString() {
+        assertPrints("5000\n0123456789\n", """
+                var acc = "";
+                for (var i = 0; i < 5000; i = i + 1) acc = acc + "x";
+                print len(acc);
+                var digits = "";
+                for (var i = 0; i < 10; i = i + 1) digits = digits + i;
+                print digits;
+                """);
+    }
+
+    @Test
+    void everyRopeKeepsItsValue() {
+        assertPrints("100\n101\n101\ntrue\ntrue\nfalse\n", """
+                var base = "";
+                for (var i = 0; i < 100; i = i + 1) base = base + "x";
+                var a = base + "a";
+                var b = base + "b";
+                print len(base);
+                print len(a);
+                print len(b);
+                var expected = "";
+                for (var i = 0; i < 100; i = i + 1) expected = expected + "x";
+                print a == expected + "a";
+                print b == expected + "b";
+                print a == b;
+                """);
+    }
+
+    @Test
+    void ropesAreStringsEverywhere() {
+        assertPrints("1\ntrue\nabcabcabcabcabcabcabcabcabcabcabcabcabcabcabcabcabcabcabcabcabcabc!\n", """
+                var key = "";
+                for (var i = 0; i < 22; i = i + 1) key = key + "abc";
+                var m = {};
+                m[key] = 1;
+                var same = "";
+                for (var i = 0; i < 22; i = i + 1) same = same + "abc";
+                print m[same];
+                print has(m, same);
+                print key + "!";
+                """);
+    }
+}
@@ -0,0 +1,73 @@
+package com.rakshith.boti.interpreter;
+
+import com.rakshith.boti.ScriptRunner;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static com.rakshith.boti.ScriptRunner.assertPrints;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScopesTest {
+
+    private static final String NESTED_BLOCKS = """
+            fun f() {
+              var sum = 0;
+              for (var i = 0; i < 100; i = i + 1) {
+                var sq = i * i;
+                { var half = sq / 2; sum = sum + half; }
+              }
+              return sum;
+            }
+            print f();
+            """;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void blocksWithoutClosuresShareTheirFunctionsFrame() throws IOException {
+        assertPrints("164175\n", NESTED_BLOCKS);
+        Files.writeString(directory.resolve("blocks.boti"), NESTED_BLOCKS);
+        ScriptRunner.Result result = ScriptRunner.boti(directory, "--stats", "blocks.boti");
+        assertTrue(result.err().contains("environments allocated                1\n"), result.err());
+    }
+
+    @Test
+    void foldedBlocksKeepTheirOwnSlots() {
+        assertPrints("inner 2\nouter 1\n3\n1\n", """
+                fun f() {
+                  var x = 1;
+                  {
+                    var x = 2;
+                    print "inner " + x;
+                  }
+                  print "outer " + x;
+                  var y = 0;
+                  for (var i = 0; i < 3; i = i + 1) { var y = i; }
+                  { var z = 3; print z; }
+                  { var z; if (z == nil) y = y + 1; }
+                  print y;
+                }
+                f();
+                """);
+    }
+
+    @Test
+    void closuresInALoopBodyKeepThatIterationsVariables() {
+        assertPrints("0\n1\n2\n", """
+                var fs = fill(3, nil);
+                for (var i = 0; i < 3; i = i + 1) {
+                  var j = i;
+                  fun f() { return j; }
+                  fs[i] = f;
+                  if (i == 1) continue;
+                }
+                for (var i = 0; i < 3; i = i + 1) print fs[i]();
+                """);
+    }
+}
@@ -0,0 +1,64 @@
+package com.rakshith.boti.interpreter;
+
+import com.rakshith.boti.ScriptRunner;
+
+import org.junit.jupiter.api.Test;
+
+import static com.rakshith.boti.ScriptRunner.assertPrints;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TailCallTest {
+
+    @Test
+    void tailRecursionRunsInConstantStack() {
+        assertPrints("done\n100000\n", """
+                fun countdown(n) {
+                  if (n == 0) return "done";
+                  return countdown(n - 1);
+                }
+                print countdown(100000);
+                fun steps(n, count) {
+                  if (n == 0) return count;
+                  return steps(n - 1, count + 1);
+                }
+                print steps(100000, 0);
+                """);
+    }
+
+    @Test
+    void mutualTailCallsToo() {
+        assertPrints("false\ntrue\n", """
+                fun even(n) { if (n == 0) return true; return odd(n - 1); }
+                fun odd(n) { if (n == 0) return false; return even(n - 1); }
+                print even(50001);
+                print odd(50001);
+                """);
+    }
+
+    @Test
+    void aTailCallToAClosureSeesItsOwnVariables() {
+        assertPrints("13\n", """
+                fun adder(n) {
+                  fun add(x) { return x + n; }
+                  return add;
+                }
+                fun apply(f, x) { return f(x); }
+                print apply(adder(10), 3);
+                """);
+    }
+
+    @Test
+    void otherCallsStillHaveADepthLimit() {
+        ScriptRunner.Result result = ScriptRunner.runOnAll("""
+                fun deep(n) {
+                  if (n == 0) return 0;
+                  return 1 + deep(n - 1);
+                }
+                print deep(100);
+                print deep(20000);
+                """);
+        assertEquals("100\n", result.out());
+        assertEquals("Stack overflow.\n[line 3]\n", result.err());
+        assertEquals(70, result.status());
+    }
+}
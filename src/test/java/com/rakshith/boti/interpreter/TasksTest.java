@@ -0,0 +1,125 @@
+package com.rakshith.boti.interpreter;
+
+import com.rakshith.boti.ScriptRunner;
+
+import org.junit.jupiter.api.Test;
+
+import static com.rakshith.boti.ScriptRunner.assertPrints;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TasksTest {
+
+    @Test
+    void tasksCountInCopiesOfAGlobal() {
+        assertPrints("80000\n0\n", """
+                var counter = 0;
+                fun work() {
+                  for (var i = 0; i < 20000; i = i + 1) counter = counter + 1;
+                  return counter;
+                }
+                var tasks = fill(4, nil);
+                for (var k = 0; k < 4; k = k + 1) tasks[k] = spawn(work);
+                var total = 0;
+                for (var k = 0; k < 4; k = k + 1) total = total + await(tasks[k]);
+                print total;
+                print counter;
+                """);
+    }
+
+    @Test
+    void tasksCopyTheFramesTheirFunctionsCloseOver() {
+        assertPrints("2000\n1\n", """
+                fun make() {
+                  var n = 0;
+                  fun increment() { n = n + 1; return n; }
+                  fun run() { for (var i = 0; i < 1000; i = i + 1) increment(); return n; }
+                  return run;
+                }
+                var run = make();
+                var a = spawn(run);
+                var b = spawn(run);
+                print await(a) + await(b);
+                fun once() { return run() - 999; }
+                print once();
+                """);
+    }
+
+    @Test
+    void aTaskSeesVariablesAsTheyWereWhenSpawned() {
+        assertPrints("1\n2\n", """
+                var x = 1;
+                fun read() { return x; }
+                var task = spawn(read);
+                x = 2;
+                print await(task);
+                print x;
+                """);
+    }
+
+    @Test
+    void arraysMapsAndInstancesAreShared() {
+        assertPrints("2000\n2000\n4000\n3\n", """
+                var map = {};
+                var strings = fill(4000, 0);
+                class Box { }
+                var box = Box();
+                fun writer(k) {
+                  fun run() {
+                    for (var i = 0; i < 500; i = i + 1) map[k * 500 + i] = i;
+                    for (var i = k * 1000; i < (k + 1) * 1000; i = i + 1) strings[i] = "s";
+                    if (k == 3) box.last = k;
+                  }
+                  return run;
+                }
+                var tasks = fill(4, nil);
+                for (var k = 0; k < 4; k = k + 1) tasks[k] = spawn(writer(k));
+                for (var k = 0; k < 4; k = k + 1) await(tasks[k]);
+                print len(map);
+                print len(keys(map));
+                var count = 0;
+                for (var i = 0; i < 4000; i = i + 1) if (strings[i] == "s") count = count + 1;
+                print count;
+                print box.last;
+                """);
+    }
+
+    @Test
+    void channelsHandValuesOverInOrder() {
+        assertPrints("1\n4\n9\n", """
+                var squares = channel(2);
+                fun produce() {
+                  for (var i = 1; i <= 3; i = i + 1) send(squares, i * i);
+                  close(squares);
+                }
+                spawn(produce);
+                var v = receive(squares);
+                while (v != nil) {
+                  print v;
+                  v = receive(squares);
+                }
+                """);
+    }
+
+    @Test
+    void aFailingTaskStopsTheScript() {
+        ScriptRunner.Result result = ScriptRunner.runOnAll("""
+                fun fail() { return nil + 1; }
+                spawn(fail);
+                var c = channel(1);
+                receive(c);
+                """);
+        assertEquals(70, result.status());
+        assertEquals("Operands must be two numbers or two strings.\n[line 1]\n", result.err());
+    }
+
+    @Test
+    void parallelCallsGetTheirOwnCopies() {
+        assertPrints("4950\n0\n", """
+                var calls = 0;
+                fun count(x) { calls = calls + 1; return x; }
+                fun add(a, b) { return a + b; }
+                print preduce(pmap(range(0, 100), count), add, 0);
+                print calls;
+                """);
+    }
+}
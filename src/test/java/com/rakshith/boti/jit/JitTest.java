@@ -0,0 +1,91 @@
+package com.rakshith.boti.jit;
+
+import com.rakshith.boti.BotiEngine;
+import com.rakshith.boti.BotiScript;
+import com.rakshith.boti.ScriptRunner;
+import com.rakshith.boti.interpreter.BotiCallable;
+
+import org.junit.jupiter.api.Test;
+
+import static com.rakshith.boti.ScriptRunner.assertPrints;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JitTest {
+
+    /** The profile of the function a script evaluates to, after running it on the JIT engine. */
+    private static FunctionProfile profile(String source) {
+        Object function = BotiScript.compile(new BotiEngine(BotiEngine.Kind.JIT), source).eval();
+        return ((BotiCallable.BotiFunction) function).profile();
+    }
+
+    @Test
+    void hotFunctionsRunCompiledCode() {
+        FunctionProfile profile = profile("""
+                fun square(n) { return n * n; }
+                var sum = 0;
+                for (var i = 0; i < 2 * 1000; i = i + 1) sum = sum + square(i);
+                square;
+                """);
+        assertTrue(profile.compiled());
+    }
+
+    @Test
+    void loopIterationsCountTowardTierUp() {
+        String spin = """
+                fun spin(n) {
+                  var sum = 0;
+                  for (var i = 0; i < n; i = i + 1) sum = sum + i;
+                  return sum;
+                }
+                """;
+        // No on-stack replacement: the call that ran the loop stays interpreted, the next is compiled.
+        assertFalse(profile(spin + "spin(5000); spin;").compiled());
+        assertTrue(profile(spin + "spin(5000); spin(1); spin;").compiled());
+        assertFalse(profile(spin + "spin(10); spin(1); spin;").compiled());
+    }
+
+    @Test
+    void compiledCodeMatchesTheInterpreter() {
+        assertPrints("3245\n", """
+                fun isPrime(n) {
+                  if (n < 2) return false;
+                  for (var d = 2; d * d <= n; d = d + 1) if (mod(n, d) == 0) return false;
+                  return true;
+                }
+                var count = 0;
+                for (var i = 0; i < 30000; i = i + 1) if (isPrime(i)) count = count + 1;
+                print count;
+                """);
+    }
+
+    @Test
+    void aFailedSpeculationFallsBackToTheInterpreter() {
+        assertPrints("2000\nabab\n", """
+                fun twice(x) { return x + x; }
+                var last = 0;
+                for (var i = 0; i <= 1000; i = i + 1) last = twice(i);
+                print last;
+                print twice("ab");
+                """);
+    }
+
+    @Test
+    void nativesCalledFromCompiledCodeFailAsInterpreted() {
+        String hot = """
+                fun f(x, y) { return mod(x, y) + floor(x); }
+                for (var i = 1; i <= 2000; i = i + 1) f(i, 3);
+                """;
+        ScriptRunner.Result zero = ScriptRunner.runOnAll(hot + "f(1, 0);\n");
+        assertEquals("Division by zero.\n[line 1]\n", zero.err());
+        ScriptRunner.Result string = ScriptRunner.runOnAll(hot + "f(1, \"a\");\n");
+        assertEquals("Arguments to 'mod' must be numbers.\n[line 1]\n", string.err());
+        assertPrints("3\n", """
+                fun apply(f, x, y) { return f(x, y); }
+                fun add(a, b) { return a + b; }
+                for (var i = 0; i < 2000; i = i + 1) apply(mod, i, 7);
+                print apply(add, 1, 2);
+                """);
+    }
+}
@@ -0,0 +1,81 @@
+package com.rakshith.boti.lexer;
+
+import com.rakshith.boti.HadError;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScannerTest {
+
+    private static TokenStream scan(String source) {
+        return new Scanner(source, new HadError(new PrintStream(new ByteArrayOutputStream()))).scanTokens();
+    }
+
+    private static List<TokenType> types(String source) {
+        TokenStream tokens = scan(source);
+        List<TokenType> types = new ArrayList<>();
+        for (int i = 0; i < tokens.size() - 1; i++) {
+            types.add(tokens.type(i));
+        }
+        assertEquals(TokenType.EOF, tokens.type(tokens.size() - 1));
+        return types;
+    }
+
+    @Test
+    void everyKeywordIsRecognized() {
+        for (TokenType type : TokenType.values()) {
+            if (type.text != null && !type.text.isEmpty() && Character.isLetter(type.text.charAt(0))) {
+                assertEquals(List.of(type), types(type.text), type.text);
+            }
+        }
+    }
+
+    @Test
+    void prefixesAndExtensionsOfKeywordsAreIdentifiers() {
+        for (String name : List.of("a", "an", "andy", "c", "cl", "classy", "co", "f", "fo", "fork", "funny",
+                "t", "th", "thisx", "tru", "v", "vars", "whiles", "nill", "_if", "if2", "x")) {
+            assertEquals(List.of(TokenType.IDENTIFIER), types(name), name);
+        }
+    }
+
+    @Test
+    void tokensPointIntoTheSource() {
+        String source = "var total = price * 2; // note\nprint \"a b\";";
+        assertEquals(List.of(TokenType.VAR, TokenType.IDENTIFIER, TokenType.EQUAL, TokenType.IDENTIFIER,
+                TokenType.STAR, TokenType.NUMBER, TokenType.SEMICOLON, TokenType.PRINT, TokenType.STRING,
+                TokenType.SEMICOLON), types(source));
+        TokenStream tokens = scan(source);
+        assertEquals("total", tokens.token(1).lexeme());
+        assertEquals("*", tokens.token(4).lexeme());
+        assertEquals("2", tokens.token(5).lexeme());
+        assertEquals(2.0, tokens.literal(5));
+        assertEquals("a b", tokens.literal(8));
+        assertEquals(1, tokens.line(6));
+        assertEquals(2, tokens.line(7));
+    }
+
+    @Test
+    void identifiersAreInterned() {
+        TokenStream tokens = scan("count = count + 1;");
+        assertSame(tokens.literal(0), tokens.literal(2));
+        assertSame("count", tokens.literal(0));
+    }
+
+    @Test
+    void errorsAreReportedWithTheirLine() {
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        HadError errors = new HadError(new PrintStream(err, true, StandardCharsets.UTF_8));
+        new Scanner("var a = 1;\nvar b = \"open;\n", errors).scanTokens();
+        assertTrue(errors.hadError());
+        assertEquals("[line 3] Error: Unterminated string.\n", err.toString(StandardCharsets.UTF_8));
+    }
+}
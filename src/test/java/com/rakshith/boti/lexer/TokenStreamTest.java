@@ -0,0 +1,52 @@
+package com.rakshith.boti.lexer;
+
+import com.rakshith.boti.HadError;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class TokenStreamTest {
+
+    private static TokenStream scan(String source) {
+        return new Scanner(source, new HadError(new PrintStream(OutputStream.nullOutputStream()))).scanTokens();
+    }
+
+    @Test
+    void growsPastItsInitialCapacity() {
+        TokenStream tokens = scan(";".repeat(10_000) + "\nx");
+        assertEquals(10_002, tokens.size());
+        assertEquals(TokenType.SEMICOLON, tokens.type(9_999));
+        assertEquals(TokenType.IDENTIFIER, tokens.type(10_000));
+        assertEquals(2, tokens.line(10_000));
+        assertEquals("x", tokens.literal(10_000));
+        assertEquals(TokenType.EOF, tokens.type(10_001));
+    }
+
+    @Test
+    void numbersDecodeToTheNearestDouble() {
+        String[] numbers = { "0", "7", "0.1", "1.5", "3.14159", "123456789012345", "1234567890123456789",
+                "0.30000000000000004", "9007199254740993", "2.718281828459045235360287" };
+        TokenStream tokens = scan(String.join(" ", numbers));
+        for (int i = 0; i < numbers.length; i++) {
+            assertEquals(Double.parseDouble(numbers[i]), tokens.literal(i), numbers[i]);
+        }
+    }
+
+    @Test
+    void onlyNumbersStringsAndIdentifiersHaveLiterals() {
+        TokenStream tokens = scan("print \"\" + name;");
+        assertNull(tokens.literal(0));
+        assertEquals("", tokens.literal(1));
+        assertNull(tokens.literal(2));
+        assertEquals("name", tokens.literal(3));
+        Token token = tokens.token(3);
+        assertEquals(TokenType.IDENTIFIER, token.type());
+        assertEquals("name", token.lexeme());
+        assertEquals(1, token.line());
+    }
+}
@@ -0,0 +1,111 @@
+package com.rakshith.boti.nodes;
+
+import com.rakshith.boti.BotiEngine;
+import com.rakshith.boti.ScriptRunner;
+import com.rakshith.boti.interpreter.Environment;
+import com.rakshith.boti.interpreter.RuntimeError;
+import com.rakshith.boti.lexer.Token;
+import com.rakshith.boti.lexer.TokenType;
+
+import org.junit.jupiter.api.Test;
+
+import static com.rakshith.boti.ScriptRunner.assertPrints;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class NodesTest {
+
+    /** A parent for the node under test, so that it can rewrite itself. */
+    private static final class Root extends ExpressionNode {
+        ExpressionNode child;
+
+        Root(ExpressionNode child) {
+            this.child = adopt(child);
+        }
+
+        @Override
+        Object execute(Environment frame) {
+            return child.execute(frame);
+        }
+
+        @Override
+        protected void replaceChild(Node oldChild, Node newChild) {
+            if (child == oldChild) child = (ExpressionNode) newChild;
+        }
+    }
+
+    private static Root add() {
+        Token plus = new Token(TokenType.PLUS, "+", null, 1);
+        return new Root(BinaryNode.create(plus, new ExpressionNodes.ReadLocal(0, 0), new ExpressionNodes.ReadLocal(0, 1)));
+    }
+
+    private static Environment frame(Object a, Object b) {
+        Environment frame = new Environment(null, 2);
+        frame.set(0, a);
+        frame.set(1, b);
+        return frame;
+    }
+
+    @Test
+    void numbersSpecializeTheNode() {
+        Root root = add();
+        assertInstanceOf(BinaryNode.Uninitialized.class, root.child);
+        assertEquals(3.0, root.execute(frame(1.0, 2.0)));
+        assertInstanceOf(BinaryNode.DoubleArithmetic.class, root.child);
+        assertEquals(7.0, root.execute(frame(3.0, 4.0)));
+        assertInstanceOf(BinaryNode.DoubleArithmetic.class, root.child);
+    }
+
+    @Test
+    void anotherTypeGeneralizesTheNodeForGood() {
+        Root root = add();
+        root.execute(frame(1.0, 2.0));
+        assertEquals("ab", root.execute(frame("a", "b")).toString());
+        assertInstanceOf(BinaryNode.Generic.class, root.child);
+        assertEquals(3.0, root.execute(frame(1.0, 2.0)));
+        assertInstanceOf(BinaryNode.Generic.class, root.child);
+    }
+
+    @Test
+    void strayOperandsFailAfterSpecializing() {
+        Root root = add();
+        root.execute(frame(1.0, 2.0));
+        RuntimeError error = assertThrows(RuntimeError.class, () -> root.execute(frame(1.0, null)));
+        assertEquals("Operands must be two numbers or two strings.", error.getMessage());
+    }
+
+    @Test
+    void specializedLoopsMatchTheOtherEngines() {
+        assertPrints("4950\n0123456789\ntrue\nfalse\n", """
+                var sum = 0;
+                for (var i = 0; i < 100; i = i + 1) sum = sum + i;
+                print sum;
+                var text = "";
+                for (var i = 0; i < 10; i = i + 1) text = text + i;
+                print text;
+                fun less(a, b) { return a < b; }
+                for (var i = 0; i < 100; i = i + 1) less(i, 50);
+                print less(1, 2);
+                print less(3, 2);
+                """);
+    }
+
+    @Test
+    void aVariableThatChangesTypeMidLoopKeepsWorking() {
+        assertPrints("10\n10x\n", """
+                var x = 0;
+                for (var i = 0; i < 10; i = i + 1) x = x + 1;
+                print x;
+                x = "10";
+                for (var i = 0; i < 1; i = i + 1) x = x + "x";
+                print x;
+                """);
+        ScriptRunner.Result result = ScriptRunner.run(BotiEngine.Kind.NODES, """
+                fun half(n) { return n / 2; }
+                for (var i = 1; i < 100; i = i + 1) half(i);
+                half("a");
+                """);
+        assertEquals("Operands must be numbers.\n[line 1]\n", result.err());
+    }
+}
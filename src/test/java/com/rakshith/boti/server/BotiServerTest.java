@@ -0,0 +1,137 @@
+package com.rakshith.boti.server;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BotiServerTest {
+
+    /** What the server sent back for one command line. */
+    private record Response(String out, String err, int status) { }
+
+    @TempDir
+    Path temp;
+
+    /** Starts a server on {@code socket} on a daemon thread and waits until it listens. */
+    private static void start(Path socket) throws Exception {
+        Thread server = new Thread(() -> {
+            try {
+                BotiServer.serve(socket);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }, "boti-server-test");
+        server.setDaemon(true);
+        server.start();
+        for (int i = 0; i < 500; i++) {
+            SocketChannel listening = BotiClient.connect(socket);
+            if (listening != null) {
+                listening.close();
+                return;
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    /** Sends a command line as {@link BotiClient} does and collects the frames. */
+    private static Response send(Path socket, Path directory, String... args) throws IOException {
+        try (SocketChannel channel = BotiClient.connect(socket)) {
+            DataOutputStream request = new DataOutputStream(Channels.newOutputStream(channel));
+            request.writeInt(BotiClient.VERSION);
+            request.writeUTF(directory.toString());
+            request.writeInt(args.length);
+            for (String arg : args) {
+                request.writeUTF(arg);
+            }
+            request.flush();
+            DataInputStream response = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ByteArrayOutputStream err = new ByteArrayOutputStream();
+            for (;;) {
+                byte tag = response.readByte();
+                if (tag == BotiClient.EXIT) {
+                    return new Response(out.toString(StandardCharsets.UTF_8), err.toString(StandardCharsets.UTF_8),
+                            response.readInt());
+                }
+                byte[] payload = new byte[response.readInt()];
+                response.readFully(payload);
+                (tag == BotiClient.STDOUT ? out : err).write(payload);
+            }
+        }
+    }
+
+    @Test
+    void runsScriptsInAPrivateDirectory() throws Exception {
+        Path socket = temp.resolve("run").resolve("server.sock");
+        start(socket);
+        assertEquals("rwx------", PosixFilePermissions.toString(Files.getPosixFilePermissions(socket.getParent())));
+        Files.writeString(temp.resolve("hello.boti"), "print \"hello\";\nprint 1 + 2;\n");
+        assertEquals(new Response("hello\n3\n", "", 0), send(socket, temp, "hello.boti"));
+        Files.writeString(temp.resolve("fail.boti"), "print \"before\";\nnil + 1;\n");
+        assertEquals(new Response("before\n", "Operands must be two numbers or two strings.\n[line 2]\n", 70),
+                send(socket, temp, "--engine=vm", "fail.boti"));
+    }
+
+    @Test
+    void sendsErrorsWithoutStackTraces() throws Exception {
+        Path socket = temp.resolve("errors").resolve("server.sock");
+        start(socket);
+        Response missing = send(socket, temp, "missing.boti");
+        assertEquals(1, missing.status());
+        assertTrue(missing.err().startsWith("java.nio.file.NoSuchFileException: "), missing.err());
+        assertEquals(1, missing.err().lines().count(), missing.err());
+        assertFalse(missing.err().contains("\tat "));
+    }
+
+    @Test
+    void refusesADirectoryOthersCanEnter() throws Exception {
+        Path open = Files.createDirectory(temp.resolve("open"),
+                PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+        Files.setPosixFilePermissions(open, PosixFilePermissions.fromString("rwxr-xr-x"));
+        Path socket = open.resolve("server.sock");
+        assertEquals(1, BotiServer.serve(socket));
+        assertFalse(Files.exists(socket));
+    }
+
+    @Test
+    void servesConnectionsAtOnce() throws Exception {
+        Path socket = temp.resolve("many").resolve("server.sock");
+        start(socket);
+        Files.writeString(temp.resolve("sum.boti"), """
+                var sum = 0;
+                for (var i = 0; i < 1000; i = i + 1) sum = sum + i;
+                print sum;
+                """);
+        List<CompletableFuture<Response>> responses = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            responses.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return send(socket, temp, "sum.boti");
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }));
+        }
+        for (CompletableFuture<Response> response : responses) {
+            assertEquals(new Response("499500\n", "", 0), response.get());
+        }
+    }
+}
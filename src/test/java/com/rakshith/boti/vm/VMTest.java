@@ -0,0 +1,66 @@
+package com.rakshith.boti.vm;
+
+import com.rakshith.boti.BotiEngine;
+import com.rakshith.boti.ScriptRunner;
+
+import org.junit.jupiter.api.Test;
+
+import static com.rakshith.boti.ScriptRunner.assertPrints;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class VMTest {
+
+    @Test
+    void globalsHoldNumbersAndOtherValues() {
+        assertPrints("499500\nten\n3\n", """
+                var sum = 0;
+                var i = 0;
+                while (i < 1000) {
+                  sum = sum + i;
+                  i = i + 1;
+                }
+                print sum;
+                sum = "ten";
+                print sum;
+                fun three() { return 3; }
+                sum = three;
+                print sum();
+                """);
+    }
+
+    @Test
+    void localsAndCapturedVariables() {
+        assertPrints("3\n45\n", """
+                fun counter() {
+                  var n = 0;
+                  fun next() { n = n + 1; return n; }
+                  return next;
+                }
+                var next = counter();
+                next();
+                next();
+                print next();
+                {
+                  var total = 0;
+                  for (var k = 0; k < 10; k = k + 1) total = total + k;
+                  print total;
+                }
+                """);
+    }
+
+    @Test
+    void assigningAnUndefinedGlobalFails() {
+        ScriptRunner.Result result = ScriptRunner.run(BotiEngine.Kind.VM, "missing = 1;");
+        assertEquals(new ScriptRunner.Result("", "Undefined variable 'missing'.\n[line 1]\n", 70), result);
+    }
+
+    @Test
+    void readingAGlobalBeforeItsDeclarationFails() {
+        ScriptRunner.Result result = ScriptRunner.run(BotiEngine.Kind.VM, """
+                fun early() { return late; }
+                print early();
+                var late = 1;
+                """);
+        assertEquals(new ScriptRunner.Result("", "Undefined variable 'late'.\n[line 1]\n", 70), result);
+    }
+}